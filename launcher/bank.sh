@@ -0,0 +1,97 @@
+#!/bin/sh
+#
+# Packages the bank package for short-lived batch tools and starts them with an
+# AppCDS archive, so class loading and linking come from a memory-mapped
+# archive instead of being redone on every run.
+#
+#   launcher/bank.sh build                  compile, jar, and record the CDS archive
+#   launcher/bank.sh run <class> [args...]  run a main class with the archive
+#   launcher/bank.sh measure [runs]         compare time-to-first-transaction with and without the archive
+#   launcher/bank.sh native                 build a native image of StartupProbe (needs GraalVM native-image)
+#
+# Requires JDK 22 or later. Set JAVA_HOME to choose the JDK.
+
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/out/launcher"
+CLASSES="$OUT/classes"
+JAR="$OUT/bank.jar"
+ARCHIVE="$OUT/bank.jsa"
+PACKAGE=ca.bcit.comp2522.bank
+DEFAULT_RUNS=5
+
+if [ -n "$JAVA_HOME" ]; then
+    BIN="$JAVA_HOME/bin/"
+else
+    BIN=""
+fi
+
+build()
+{
+    rm -rf "$OUT"
+    mkdir -p "$CLASSES"
+
+    "${BIN}javac" -d "$CLASSES" $(find "$ROOT/src/code" -name '*.java')
+    cp -r "$ROOT/src/code/META-INF" "$CLASSES/"
+    "${BIN}jar" --create --file "$JAR" -C "$CLASSES" .
+
+    # Training run: load the classes a typical tool needs, then dump them at exit.
+    # CDS only archives classes loaded from JAR files, not from directories.
+    "${BIN}java" -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" "$PACKAGE.Main" > /dev/null
+
+    echo "Built $JAR and $ARCHIVE"
+}
+
+run()
+{
+    CLASS=$1
+    shift
+
+    if [ ! -f "$JAR" ]; then
+        build > /dev/null
+    fi
+
+    # -Xshare:auto falls back to normal class loading if the archive is stale.
+    exec "${BIN}java" -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$JAR" "$PACKAGE.$CLASS" "$@"
+}
+
+measure()
+{
+    RUNS=${1:-$DEFAULT_RUNS}
+
+    if [ ! -f "$JAR" ]; then
+        build > /dev/null
+    fi
+
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        WITHOUT=$("${BIN}java" -cp "$JAR" "$PACKAGE.StartupProbe")
+        WITH=$("${BIN}java" -XX:SharedArchiveFile="$ARCHIVE" -cp "$JAR" "$PACKAGE.StartupProbe")
+        echo "without archive: ${WITHOUT#*: }    with archive: ${WITH#*: }"
+        i=$((i + 1))
+    done
+}
+
+native()
+{
+    if [ ! -f "$JAR" ]; then
+        build > /dev/null
+    fi
+
+    # Build-time initialization flags are read from META-INF/native-image in the jar.
+    "${BIN}native-image" -cp "$JAR" -o "$OUT/startup-probe" "$PACKAGE.StartupProbe"
+}
+
+COMMAND=${1:-}
+if [ $# -gt 0 ]; then
+    shift
+fi
+
+case "$COMMAND" in
+    build)   build ;;
+    run)     run "$@" ;;
+    measure) measure "$@" ;;
+    native)  native ;;
+    *)       sed -n '2,12p' "$0" | sed 's/^# \{0,1\}//'; exit 1 ;;
+esac
@@ -0,0 +1,306 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Lists accounts a page at a time in account number order, for the whole
+ * bank or for one client.
+ *
+ * <p>Accounts are kept in one sorted index for the bank and one per client.
+ * A page is read by seeking the index to just after the account number held
+ * in its cursor. Serving a page therefore costs a logarithmic seek plus the
+ * page itself, however deep it is. Nothing is kept between requests.</p>
+ *
+ * <p>A cursor is an opaque token naming the last account returned, so it stays
+ * valid however the index changes. Accounts added behind a cursor are not
+ * listed on later pages, and accounts removed ahead of it are skipped. Every
+ * account present for the whole listing is listed exactly once.</p>
+ *
+ * <p>The directory is safe for concurrent use.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountDirectory
+{
+    static final int MAX_PAGE_SIZE = 1_000;
+
+    private static final Base64.Encoder                             CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder                             CURSOR_DECODER = Base64.getUrlDecoder();
+    private static final ConcurrentSkipListMap<String, BankAccount> NO_ACCOUNTS    = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentSkipListMap<String, BankAccount>                            accounts;
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<String, BankAccount>> accountsByClient;
+
+    /**
+     * Constructs an empty {@code AccountDirectory}.
+     */
+    AccountDirectory()
+    {
+        this.accounts         = new ConcurrentSkipListMap<>();
+        this.accountsByClient = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds an account unless one with the same number is already listed.
+     *
+     * @param account the account to add
+     * @return the account already listed under that number, or {@code null} if {@code account} was added
+     */
+    BankAccount add(final BankAccount account)
+    {
+        final BankAccount[] existing;
+        existing = new BankAccount[1];
+
+        // Both indexes change under the client's key, so adding and removing one account cannot interleave
+        accountsByClient.compute(account.getClient().getClientID(),
+                                 (clientID, clientAccounts) ->
+                                 {
+                                     final ConcurrentSkipListMap<String, BankAccount> updated;
+
+                                     if (clientAccounts == null)
+                                     {
+                                         updated = new ConcurrentSkipListMap<>();
+                                     }
+                                     else
+                                     {
+                                         updated = clientAccounts;
+                                     }
+
+                                     existing[0] = accounts.putIfAbsent(account.getAccountNumber(), account);
+
+                                     if (existing[0] == null)
+                                     {
+                                         updated.put(account.getAccountNumber(), account);
+                                     }
+
+                                     if (updated.isEmpty())
+                                     {
+                                         return null;
+                                     }
+                                     return updated;
+                                 });
+        return existing[0];
+    }
+
+    /**
+     * Removes an account.
+     *
+     * @param account the account to remove
+     * @return {@code true} if the account was listed, otherwise {@code false}
+     */
+    boolean remove(final BankAccount account)
+    {
+        final boolean[] removed;
+        removed = new boolean[1];
+
+        accountsByClient.computeIfPresent(account.getClient().getClientID(),
+                                          (clientID, clientAccounts) ->
+                                          {
+                                              removed[0] = accounts.remove(account.getAccountNumber(), account);
+
+                                              if (removed[0])
+                                              {
+                                                  clientAccounts.remove(account.getAccountNumber(), account);
+                                              }
+
+                                              if (clientAccounts.isEmpty())
+                                              {
+                                                  return null;
+                                              }
+                                              return clientAccounts;
+                                          });
+        return removed[0];
+    }
+
+    /**
+     * Retrieves the number of accounts listed.
+     *
+     * @return the account count
+     */
+    int size()
+    {
+        return accounts.size();
+    }
+
+    /**
+     * Lists a page of every account in the bank.
+     *
+     * @param cursor   the cursor from the previous page, or {@code null} for the first page
+     * @param pageSize the most accounts to return, from 1 to {@value #MAX_PAGE_SIZE}
+     * @return the page
+     * @throws IllegalArgumentException if the page size or cursor is invalid
+     */
+    AccountPage list(final String cursor,
+                     final int pageSize)
+    {
+        final ValidationResult<AccountPage> result;
+        result = tryList(cursor, pageSize);
+
+        result.getCode().throwIfFailed();
+        return result.getValue();
+    }
+
+    /**
+     * Lists a page of every account in the bank without throwing on failure.
+     *
+     * @param cursor   the cursor from the previous page, or {@code null} for the first page
+     * @param pageSize the most accounts to return, from 1 to {@value #MAX_PAGE_SIZE}
+     * @return a result holding the page, or the reason it was refused
+     */
+    ValidationResult<AccountPage> tryList(final String cursor,
+                                          final int pageSize)
+    {
+        return page(accounts, cursor, pageSize);
+    }
+
+    /**
+     * Lists a page of one client's accounts.
+     *
+     * @param client   the client
+     * @param cursor   the cursor from the previous page, or {@code null} for the first page
+     * @param pageSize the most accounts to return, from 1 to {@value #MAX_PAGE_SIZE}
+     * @return the page
+     * @throws IllegalArgumentException if the client is {@code null}, or the page size or cursor is invalid
+     */
+    AccountPage list(final BankClient client,
+                     final String cursor,
+                     final int pageSize)
+    {
+        final ValidationResult<AccountPage> result;
+        result = tryList(client, cursor, pageSize);
+
+        result.getCode().throwIfFailed();
+        return result.getValue();
+    }
+
+    /**
+     * Lists a page of one client's accounts without throwing on failure.
+     *
+     * @param client   the client
+     * @param cursor   the cursor from the previous page, or {@code null} for the first page
+     * @param pageSize the most accounts to return, from 1 to {@value #MAX_PAGE_SIZE}
+     * @return a result holding the page, or the reason it was refused
+     */
+    ValidationResult<AccountPage> tryList(final BankClient client,
+                                          final String cursor,
+                                          final int pageSize)
+    {
+        final ConcurrentSkipListMap<String, BankAccount> clientAccounts;
+
+        if (client == null)
+        {
+            return ValidationResult.failure(ValidationCode.CLIENT_NULL);
+        }
+
+        clientAccounts = accountsByClient.get(client.getClientID());
+
+        if (clientAccounts == null)
+        {
+            return page(NO_ACCOUNTS, cursor, pageSize);
+        }
+        return page(clientAccounts, cursor, pageSize);
+    }
+
+    /**
+     * Reads one page from an index.
+     *
+     * @param index    the index to read
+     * @param cursor   the cursor from the previous page, or {@code null} for the first page
+     * @param pageSize the most accounts to return
+     * @return a result holding the page, or the reason it was refused
+     */
+    private static ValidationResult<AccountPage> page(final ConcurrentSkipListMap<String, BankAccount> index,
+                                                      final String cursor,
+                                                      final int pageSize)
+    {
+        final NavigableMap<String, BankAccount> remaining;
+        final Iterator<BankAccount> iterator;
+        final List<BankAccount> page;
+        final String nextCursor;
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+        {
+            return ValidationResult.failure(ListingCode.PAGE_SIZE_INVALID);
+        }
+
+        if (cursor == null)
+        {
+            remaining = index;
+        }
+        else
+        {
+            final String after;
+            after = decodeCursor(cursor);
+
+            if (after == null)
+            {
+                return ValidationResult.failure(ListingCode.CURSOR_INVALID);
+            }
+            remaining = index.tailMap(after, false);
+        }
+
+        iterator = remaining.values().iterator();
+        page     = new ArrayList<>(pageSize);
+
+        while (page.size() < pageSize && iterator.hasNext())
+        {
+            page.add(iterator.next());
+        }
+
+        if (iterator.hasNext())
+        {
+            nextCursor = encodeCursor(page.get(page.size() - 1).getAccountNumber());
+        }
+        else
+        {
+            nextCursor = null;
+        }
+
+        return ValidationResult.success(new AccountPage(page, nextCursor));
+    }
+
+    /**
+     * Turns the last account number on a page into a cursor.
+     *
+     * @param accountNumber the account number
+     * @return the cursor
+     */
+    private static String encodeCursor(final String accountNumber)
+    {
+        return CURSOR_ENCODER.encodeToString(accountNumber.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the account number out of a cursor.
+     *
+     * @param cursor the cursor
+     * @return the account number, or {@code null} if the cursor is malformed
+     */
+    private static String decodeCursor(final String cursor)
+    {
+        final byte[] bytes;
+
+        try
+        {
+            bytes = CURSOR_DECODER.decode(cursor);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return null;
+        }
+
+        if (bytes.length == 0)
+        {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
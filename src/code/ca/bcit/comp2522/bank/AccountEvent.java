@@ -0,0 +1,103 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * An immutable record of one change to a {@link BankAccount}, as published by
+ * {@link AccountEventStream}.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public final class AccountEvent
+{
+    private final AccountEventType type;
+    private final String           accountNumber;
+    private final AccountState     stateAfter;
+    private final double           amount;
+    private final double           balanceAfter;
+    private final long             timestampNanos;
+
+    /**
+     * Constructs an {@code AccountEvent}.
+     *
+     * @param type           the kind of change
+     * @param accountNumber  the number of the account that changed
+     * @param stateAfter     the account's lifecycle state after the change
+     * @param amount         the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter   the balance after the change in the account's currency
+     * @param timestampNanos the {@link System#nanoTime()} at which the change was observed
+     */
+    AccountEvent(final AccountEventType type,
+                 final String accountNumber,
+                 final AccountState stateAfter,
+                 final double amount,
+                 final double balanceAfter,
+                 final long timestampNanos)
+    {
+        this.type           = type;
+        this.accountNumber  = accountNumber;
+        this.stateAfter     = stateAfter;
+        this.amount         = amount;
+        this.balanceAfter   = balanceAfter;
+        this.timestampNanos = timestampNanos;
+    }
+
+    /**
+     * Retrieves the kind of change.
+     *
+     * @return the event type
+     */
+    public AccountEventType getType()
+    {
+        return type;
+    }
+
+    /**
+     * Retrieves the number of the account that changed.
+     *
+     * @return the account number
+     */
+    public String getAccountNumber()
+    {
+        return accountNumber;
+    }
+
+    /**
+     * Retrieves the account's lifecycle state after the change.
+     *
+     * @return the state
+     */
+    public AccountState getStateAfter()
+    {
+        return stateAfter;
+    }
+
+    /**
+     * Retrieves the amount deposited or withdrawn.
+     *
+     * @return the amount in the account's currency, or {@code 0} for a lifecycle change
+     */
+    public double getAmount()
+    {
+        return amount;
+    }
+
+    /**
+     * Retrieves the balance after the change.
+     *
+     * @return the balance in the account's currency
+     */
+    public double getBalanceAfter()
+    {
+        return balanceAfter;
+    }
+
+    /**
+     * Retrieves when the change was observed, for measuring delivery latency.
+     *
+     * @return the {@link System#nanoTime()} of the change
+     */
+    public long getTimestampNanos()
+    {
+        return timestampNanos;
+    }
+}
@@ -0,0 +1,212 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes batches of {@link AccountEvent}s to downstream subscribers using the
+ * {@link Flow} API.
+ *
+ * <p>Register the stream as the {@link AccountListener} of each account to
+ * observe. The posting thread only appends the event to a lock-free hand-off
+ * queue; a dispatcher thread drains that queue into batches of up to
+ * {@code maxBatchSize} events and offers each batch to every subscriber. When
+ * the queue is empty the dispatcher parks until the next event arrives, and
+ * only then does the posting thread pay to wake it.</p>
+ *
+ * <p>Every subscriber has its own bounded buffer of {@code bufferBatches}
+ * batches and requests more with {@link Flow.Subscription#request(long)}. When
+ * a subscriber's buffer is full the batch is dropped for that subscriber only
+ * and counted in {@link #getDroppedBatches()}, so a slow consumer never stalls
+ * account posting or other subscribers. If the dispatcher itself falls
+ * {@code maxPending} events behind, new events are dropped and counted in
+ * {@link #getDroppedEvents()}.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountEventStream implements Flow.Publisher<List<AccountEvent>>, AccountListener, AutoCloseable
+{
+    private final ConcurrentLinkedQueue<AccountEvent>     pending;
+    private final AtomicInteger                           pendingCount;
+    private final SubmissionPublisher<List<AccountEvent>> publisher;
+    private final ExecutorService                         deliveryExecutor;
+    private final Thread                                  dispatcher;
+    private final LongAdder                               droppedEvents;
+    private final LongAdder                               droppedBatches;
+    private final int                                     maxBatchSize;
+    private final int                                     maxPending;
+
+    private volatile boolean running;
+    private volatile boolean idle;
+
+    /**
+     * Constructs an {@code AccountEventStream} and starts its dispatcher thread.
+     *
+     * @param maxBatchSize  the largest number of events delivered in one batch; must be positive
+     * @param bufferBatches the number of batches buffered per subscriber; must be positive
+     * @param maxPending    the largest number of events waiting for the dispatcher; must be positive
+     */
+    AccountEventStream(final int maxBatchSize,
+                       final int bufferBatches,
+                       final int maxPending)
+    {
+        if (maxBatchSize <= 0 || bufferBatches <= 0 || maxPending <= 0)
+        {
+            throw new IllegalArgumentException("Batch size, buffer size and pending limit must be positive");
+        }
+
+        this.pending          = new ConcurrentLinkedQueue<>();
+        this.pendingCount     = new AtomicInteger();
+        this.deliveryExecutor = Executors.newCachedThreadPool();
+        this.publisher        = new SubmissionPublisher<>(deliveryExecutor, bufferBatches);
+        this.droppedEvents    = new LongAdder();
+        this.droppedBatches   = new LongAdder();
+        this.maxBatchSize     = maxBatchSize;
+        this.maxPending       = maxPending;
+        this.running          = true;
+        this.dispatcher       = new Thread(this::dispatch, "account-event-dispatcher");
+
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues an account change for delivery without blocking.
+     *
+     * @param type         the kind of change
+     * @param account      the account that changed
+     * @param stateAfter   the account's lifecycle state after the change
+     * @param amount       the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter the balance after the change in the account's currency
+     */
+    @Override
+    public void onAccountEvent(final AccountEventType type,
+                               final BankAccount account,
+                               final AccountState stateAfter,
+                               final double amount,
+                               final double balanceAfter)
+    {
+        if (pendingCount.incrementAndGet() > maxPending)
+        {
+            pendingCount.decrementAndGet();
+            droppedEvents.increment();
+            return;
+        }
+
+        pending.offer(new AccountEvent(type, account.getAccountNumber(), stateAfter, amount, balanceAfter, System.nanoTime()));
+
+        // The dispatcher marks itself idle before its last look at the queue, so this event is either seen or woken for
+        if (idle)
+        {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * Adds a subscriber, which receives batches published after it subscribes.
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super List<AccountEvent>> subscriber)
+    {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Retrieves the number of events dropped because the dispatcher fell behind.
+     *
+     * @return the dropped event count
+     */
+    long getDroppedEvents()
+    {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Retrieves the number of batches dropped because a subscriber's buffer was full,
+     * counted once per affected subscriber.
+     *
+     * @return the dropped batch count
+     */
+    long getDroppedBatches()
+    {
+        return droppedBatches.sum();
+    }
+
+    /**
+     * Stops the dispatcher after delivering any queued events and completes all subscribers.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(dispatcher);
+
+        try
+        {
+            dispatcher.join();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        publisher.close();
+        deliveryExecutor.shutdown();
+    }
+
+    /**
+     * Drains queued events into batches and offers them to subscribers until closed.
+     */
+    private void dispatch()
+    {
+        while (running || !pending.isEmpty())
+        {
+            final List<AccountEvent> batch;
+            batch = new ArrayList<>(maxBatchSize);
+
+            while (batch.size() < maxBatchSize)
+            {
+                final AccountEvent event;
+                event = pending.poll();
+
+                if (event == null)
+                {
+                    break;
+                }
+                batch.add(event);
+            }
+
+            if (batch.isEmpty())
+            {
+                idle = true;
+
+                if (running && pending.isEmpty())
+                {
+                    LockSupport.park(this);
+                }
+
+                idle = false;
+            }
+            else
+            {
+                pendingCount.addAndGet(-batch.size());
+                publisher.offer(batch, (subscriber, dropped) ->
+                {
+                    droppedBatches.increment();
+                    return false;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the kinds of change a {@link BankAccount} can report to its
+ * {@link AccountListener}.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum AccountEventType
+{
+    DEPOSIT,
+    WITHDRAWAL,
+    FROZEN,
+    UNFROZEN,
+    CLOSED,
+    REOPENED;
+}
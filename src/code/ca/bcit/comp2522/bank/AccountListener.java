@@ -0,0 +1,57 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Receives changes made to a {@link BankAccount} as they happen.
+ *
+ * <p>Listeners are called after the change has been applied and the account
+ * released. Calls for one account are made one at a time, in the order its
+ * changes were applied. When several threads change an account at once, one
+ * of them reports all of their changes, so a change may be reported on
+ * another thread and after the call that made it has returned.
+ * Implementations must be quick, since they delay that thread, and should not
+ * throw. An exception they do throw goes to that thread's uncaught exception
+ * handler and does not undo the change. They may read the account, and a
+ * change they make to it is reported after they return.</p>
+ *
+ * <p>By the time a listener runs, the account may already have changed again,
+ * so it should take the balance from {@code balanceAfter} and the lifecycle
+ * state from {@code stateAfter}, not from the account. Both are recorded while
+ * the account is held, for deposits and withdrawals as well as for lifecycle
+ * changes.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface AccountListener
+{
+    /**
+     * Called after a change to an account has been applied.
+     *
+     * @param type         the kind of change
+     * @param account      the account that changed
+     * @param stateAfter   the account's lifecycle state after the change
+     * @param amount       the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter the balance after the change in the account's currency
+     */
+    void onAccountEvent(AccountEventType type,
+                        BankAccount account,
+                        AccountState stateAfter,
+                        double amount,
+                        double balanceAfter);
+
+    /**
+     * Returns a listener that calls this listener and then {@code next}.
+     *
+     * @param next the listener to call after this one
+     * @return the combined listener
+     */
+    default AccountListener andThen(final AccountListener next)
+    {
+        return (type, account, stateAfter, amount, balanceAfter) ->
+        {
+            onAccountEvent(type, account, stateAfter, amount, balanceAfter);
+            next.onAccountEvent(type, account, stateAfter, amount, balanceAfter);
+        };
+    }
+}
@@ -0,0 +1,634 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps a Merkle tree of hashes over the ledger state of a set of
+ * {@link BankAccount}s, so two copies of an account book can be compared
+ * without reading every account.
+ *
+ * <p>Each account is reduced to a 64-bit digest of its number, balance,
+ * lifecycle state and closing date. Accounts are placed in one of
+ * 2<sup>{@code leafBits}</sup> leaves by a hash of their account number, so
+ * the same account lands in the same leaf in every tree of that size. A leaf's
+ * hash is the sum of its accounts' digests, so one account can be swapped out
+ * without rehashing the others. Each parent hashes its two children.</p>
+ *
+ * <p>Register the tree as the {@link AccountListener} of each account to track,
+ * combining it with {@link AccountListener#andThen(AccountListener)} if the
+ * account already has a listener, and then {@link #add(BankAccount)} it. Every
+ * deposit, withdrawal and state change then updates its leaf and marks the
+ * leaf's ancestors stale. Marking stops at the first ancestor already marked.
+ * Stale parents are rehashed together the next time the tree is read, children
+ * first, so each is hashed once however many of its leaves changed.
+ * Rehashing every path on each change would miss cache at most levels of a
+ * large tree. {@link #getRootHash()} therefore reflects every change reported
+ * before it was called. {@link #diff(AccountMerkleTree)}
+ * descends only into subtrees whose hashes differ. Its cost grows with the
+ * number of differing accounts times the tree height, not with the size of
+ * the book.</p>
+ *
+ * <p>Changes take no locks. A leaf's hash and each account's digest are
+ * updated atomically, stale marks are atomic bits, and an account is added to
+ * its leaf by swapping in a copy of the leaf. Readers take a lock of their own
+ * that serializes rehashing. A rehash clears a parent's mark before reading
+ * its children, and marks it again if a child was marked meanwhile, so a
+ * change racing with a read is picked up by the next one. Accounts changing
+ * while a diff runs may or may not be reported.</p>
+ *
+ * <p>The hashes find accidental divergence, such as a missed or repeated
+ * posting. They are not cryptographic and do not detect deliberate
+ * tampering.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountMerkleTree implements AccountListener
+{
+    // --- Tree shape ---
+    private static final int MIN_LEAF_BITS = 1;
+    private static final int MAX_LEAF_BITS = 24;
+    private static final int ROOT          = 1;
+
+    // --- Hashing ---
+    private static final long FNV_OFFSET     = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME      = 0x100000001B3L;
+    private static final long GOLDEN_GAMMA   = 0x9E3779B97F4A7C15L;
+    private static final long MIX_MULTIPLIER = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_FINALIZER  = 0x94D049BB133111EBL;
+    private static final int  MIX_SHIFT_1    = 30;
+    private static final int  MIX_SHIFT_2    = 27;
+    private static final int  MIX_SHIFT_3    = 31;
+    private static final long NOT_CLOSED     = -1;
+
+    // --- Stale marks ---
+    private static final int NODE_INDEX_BITS = 6;
+    private static final int NODE_BIT_MASK   = Long.SIZE - 1;
+
+    private final int                        leafBits;
+    private final int                        leafCount;
+    private final AtomicLongArray            nodes;
+    private final AtomicReferenceArray<Leaf> leaves;
+    private final AtomicLongArray            stale;
+    private final Object                     rehashLock;
+
+    /**
+     * Constructs an empty {@code AccountMerkleTree}.
+     *
+     * @param leafBits the base-2 logarithm of the leaf count, from 1 to 24; trees
+     *                 are only comparable with trees of the same size
+     */
+    AccountMerkleTree(final int leafBits)
+    {
+        if (leafBits < MIN_LEAF_BITS || leafBits > MAX_LEAF_BITS)
+        {
+            throw new IllegalArgumentException("Leaf bits must be between " + MIN_LEAF_BITS + " and " + MAX_LEAF_BITS);
+        }
+
+        this.leafBits   = leafBits;
+        this.leafCount  = 1 << leafBits;
+        this.nodes      = new AtomicLongArray(2 << leafBits);
+        this.leaves     = new AtomicReferenceArray<>(1 << leafBits);
+        this.stale      = new AtomicLongArray(Math.max(1, (1 << leafBits) >>> NODE_INDEX_BITS));
+        this.rehashLock = new Object();
+    }
+
+    /**
+     * Starts tracking an account's current state. Does nothing if the account
+     * is already tracked, for example because a change reached the tree first.
+     *
+     * @param account the account, already listened to by this tree
+     */
+    void add(final BankAccount account)
+    {
+        update(account, account.getBalance(), account.getState(), false);
+    }
+
+    /**
+     * Rehashes an account after a change.
+     *
+     * @param type         the kind of change
+     * @param account      the account that changed
+     * @param stateAfter   the account's lifecycle state after the change
+     * @param amount       the amount deposited or withdrawn, unused
+     * @param balanceAfter the balance after the change
+     */
+    @Override
+    public void onAccountEvent(final AccountEventType type,
+                               final BankAccount account,
+                               final AccountState stateAfter,
+                               final double amount,
+                               final double balanceAfter)
+    {
+        update(account, balanceAfter, stateAfter, true);
+    }
+
+    /**
+     * Retrieves the hash of every tracked account.
+     *
+     * @return the root hash
+     */
+    long getRootHash()
+    {
+        synchronized (rehashLock)
+        {
+            rehashStale();
+            return nodes.get(ROOT);
+        }
+    }
+
+    /**
+     * Finds the accounts whose state differs between this tree and another of the same size.
+     *
+     * @param other the tree to compare with
+     * @return the numbers of accounts that differ or are tracked by only one tree
+     * @throws IllegalArgumentException if the trees differ in size
+     */
+    List<String> diff(final AccountMerkleTree other)
+    {
+        final List<String> differing;
+        final AccountMerkleTree first;
+        final AccountMerkleTree second;
+
+        if (other.leafBits != leafBits)
+        {
+            throw new IllegalArgumentException("Trees must have the same number of leaves");
+        }
+
+        differing = new ArrayList<>();
+
+        // Lock in a fixed order so two threads diffing the same pair cannot deadlock
+        if (System.identityHashCode(this) <= System.identityHashCode(other))
+        {
+            first  = this;
+            second = other;
+        }
+        else
+        {
+            first  = other;
+            second = this;
+        }
+
+        synchronized (first.rehashLock)
+        {
+            synchronized (second.rehashLock)
+            {
+                rehashStale();
+                other.rehashStale();
+                diffNode(other, ROOT, differing);
+            }
+        }
+        return differing;
+    }
+
+    /**
+     * Descends into one subtree whose hashes may differ.
+     *
+     * @param other     the tree to compare with
+     * @param node      the node index, where the root is 1 and node {@code i} has children {@code 2i} and {@code 2i + 1}
+     * @param differing the account numbers found so far
+     */
+    private void diffNode(final AccountMerkleTree other,
+                          final int node,
+                          final List<String> differing)
+    {
+        if (nodes.get(node) == other.nodes.get(node))
+        {
+            return;
+        }
+
+        if (node >= leafCount)
+        {
+            diffLeaf(leaves.get(node - leafCount), other.leaves.get(node - leafCount), differing);
+            return;
+        }
+
+        diffNode(other, node * 2, differing);
+        diffNode(other, node * 2 + 1, differing);
+    }
+
+    /**
+     * Compares the accounts in one leaf of each tree.
+     *
+     * @param mine      this tree's leaf, or {@code null} if empty
+     * @param theirs    the other tree's leaf, or {@code null} if empty
+     * @param differing the account numbers found so far
+     */
+    private static void diffLeaf(final Leaf mine,
+                                 final Leaf theirs,
+                                 final List<String> differing)
+    {
+        if (mine != null)
+        {
+            for (final Entry entry : mine.entries)
+            {
+                final String accountNumber;
+                final Entry match;
+
+                accountNumber = entry.account.getAccountNumber();
+                match         = findNumber(theirs, accountNumber);
+
+                if (match == null || match.getDigest() != entry.getDigest())
+                {
+                    differing.add(accountNumber);
+                }
+            }
+        }
+
+        if (theirs != null)
+        {
+            for (final Entry entry : theirs.entries)
+            {
+                final String accountNumber;
+                accountNumber = entry.account.getAccountNumber();
+
+                if (findNumber(mine, accountNumber) == null)
+                {
+                    differing.add(accountNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds an account in a leaf by its number.
+     *
+     * @param leaf          the leaf, or {@code null} if empty
+     * @param accountNumber the account number
+     * @return the account's entry, or {@code null} if it is not there
+     */
+    private static Entry findNumber(final Leaf leaf,
+                                    final String accountNumber)
+    {
+        if (leaf != null)
+        {
+            for (final Entry entry : leaf.entries)
+            {
+                if (entry.account.getAccountNumber().equals(accountNumber))
+                {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces an account's digest and marks the leaf's ancestors stale.
+     *
+     * @param account the account
+     * @param balance the account's balance
+     * @param state   the account's lifecycle state
+     * @param replace {@code true} to overwrite an existing digest, {@code false} to keep it
+     */
+    private void update(final BankAccount account,
+                        final double balance,
+                        final AccountState state,
+                        final boolean replace)
+    {
+        final long numberHash;
+        final long digest;
+        final int index;
+        final Entry entry;
+        final long delta;
+        int node;
+
+        numberHash = hashString(account.getAccountNumber());
+        digest     = digest(numberHash, balance, state, account.getAccountClosed());
+        index      = (int) (numberHash >>> Long.SIZE - leafBits);
+        entry      = findAccount(leaves.get(index), account);
+
+        if (entry == null)
+        {
+            final Entry existing;
+            existing = append(index, account, digest);
+
+            if (existing == null)
+            {
+                delta = digest;
+            }
+            else if (replace)
+            {
+                delta = existing.replaceDigest(digest);
+            }
+            else
+            {
+                return;
+            }
+        }
+        else if (replace)
+        {
+            delta = entry.replaceDigest(digest);
+        }
+        else
+        {
+            return;
+        }
+
+        node = leafCount + index;
+        nodes.getAndAdd(node, delta);
+        node >>>= 1;
+
+        // The leaf hash is updated first, so a rehash that clears a mark seen here reads the new sum
+        while (node >= ROOT && !isStale(node))
+        {
+            markStale(node);
+            node >>>= 1;
+        }
+    }
+
+    /**
+     * Adds an account to a leaf by swapping in a copy of the leaf that includes it.
+     *
+     * @param index   the leaf index
+     * @param account the account
+     * @param digest  the account's digest
+     * @return {@code null} if the account was added, or its entry if another thread added it first
+     */
+    private Entry append(final int index,
+                         final BankAccount account,
+                         final long digest)
+    {
+        while (true)
+        {
+            final Leaf current;
+            final Entry existing;
+
+            current  = leaves.get(index);
+            existing = findAccount(current, account);
+
+            if (existing != null)
+            {
+                return existing;
+            }
+
+            if (leaves.compareAndSet(index, current, Leaf.with(current, account, digest)))
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Finds an account in a leaf.
+     *
+     * @param leaf    the leaf, or {@code null} if empty
+     * @param account the account
+     * @return the account's entry, or {@code null} if it is not in the leaf
+     */
+    private static Entry findAccount(final Leaf leaf,
+                                     final BankAccount account)
+    {
+        if (leaf != null)
+        {
+            for (int i = 0; i < leaf.accounts.length; i++)
+            {
+                if (leaf.accounts[i] == account)
+                {
+                    return leaf.entries[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recomputes every stale parent hash. Called with the rehash lock held.
+     */
+    private void rehashStale()
+    {
+        // A child's index is always larger than its parent's, so descending order rehashes children first
+        for (int word = stale.length() - 1; word >= 0; word--)
+        {
+            long marks;
+            marks = stale.get(word);
+
+            while (marks != 0)
+            {
+                final int bit;
+                final int node;
+
+                bit   = Long.SIZE - 1 - Long.numberOfLeadingZeros(marks);
+                node  = (word << NODE_INDEX_BITS) + bit;
+                marks &= ~(1L << bit);
+
+                // Cleared before the children are read, so a change landing after the read marks it again
+                stale.getAndAccumulate(word, ~(1L << bit), (current, keep) -> current & keep);
+                nodes.set(node, mix(nodes.get(node * 2) + mix(nodes.get(node * 2 + 1) ^ GOLDEN_GAMMA)));
+
+                // A child marked since it was rehashed leaves this node stale for the next read
+                if (node * 2 < leafCount && (isStale(node * 2) || isStale(node * 2 + 1)))
+                {
+                    markStale(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether a parent node is marked stale.
+     *
+     * @param node the node index
+     * @return {@code true} if the node is marked, otherwise {@code false}
+     */
+    private boolean isStale(final int node)
+    {
+        return (stale.get(node >>> NODE_INDEX_BITS) & 1L << (node & NODE_BIT_MASK)) != 0;
+    }
+
+    /**
+     * Marks a parent node stale.
+     *
+     * @param node the node index
+     */
+    private void markStale(final int node)
+    {
+        stale.getAndAccumulate(node >>> NODE_INDEX_BITS, 1L << (node & NODE_BIT_MASK), (current, mark) -> current | mark);
+    }
+
+    /**
+     * Reduces an account's ledger state to 64 bits.
+     *
+     * @param numberHash the hash of the account number
+     * @param balance    the balance
+     * @param state      the lifecycle state
+     * @param closed     the closing date, or {@code null}
+     * @return the digest
+     */
+    private static long digest(final long numberHash,
+                               final double balance,
+                               final AccountState state,
+                               final Date closed)
+    {
+        long hash;
+
+        hash = mix(numberHash + Double.doubleToLongBits(balance));
+        hash = mix(hash + state.ordinal());
+
+        if (closed == null)
+        {
+            hash = mix(hash + NOT_CLOSED);
+        }
+        else
+        {
+            hash = mix(hash + closed.toEpochDay());
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a string to 64 bits with FNV-1a followed by a final mix.
+     *
+     * @param string the string
+     * @return the hash
+     */
+    private static long hashString(final String string)
+    {
+        long hash;
+        hash = FNV_OFFSET;
+
+        for (int i = 0; i < string.length(); i++)
+        {
+            hash ^= string.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Scrambles 64 bits with the SplitMix64 finalizer.
+     *
+     * @param value the input
+     * @return the mixed value
+     */
+    private static long mix(final long value)
+    {
+        long mixed;
+
+        mixed = value + GOLDEN_GAMMA;
+        mixed = (mixed ^ mixed >>> MIX_SHIFT_1) * MIX_MULTIPLIER;
+        mixed = (mixed ^ mixed >>> MIX_SHIFT_2) * MIX_FINALIZER;
+
+        return mixed ^ mixed >>> MIX_SHIFT_3;
+    }
+
+    /**
+     * The accounts in one leaf, in the order they were added, with their
+     * entries. A leaf never changes once published; adding an account
+     * publishes a copy. The accounts are kept in their own array so a lookup
+     * only reads the matching entry.
+     */
+    private static final class Leaf
+    {
+        private final BankAccount[] accounts;
+        private final Entry[]       entries;
+
+        /**
+         * Constructs a {@code Leaf}.
+         *
+         * @param accounts the accounts
+         * @param entries  the accounts' entries, in the same order
+         */
+        private Leaf(final BankAccount[] accounts,
+                     final Entry[] entries)
+        {
+            this.accounts = accounts;
+            this.entries  = entries;
+        }
+
+        /**
+         * Copies a leaf with one more account.
+         *
+         * @param leaf    the leaf, or {@code null} if empty
+         * @param account the account to add
+         * @param digest  the account's digest
+         * @return the new leaf
+         */
+        private static Leaf with(final Leaf leaf,
+                                 final BankAccount account,
+                                 final long digest)
+        {
+            final BankAccount[] accounts;
+            final Entry[] entries;
+
+            if (leaf == null)
+            {
+                accounts = new BankAccount[1];
+                entries  = new Entry[1];
+            }
+            else
+            {
+                accounts = Arrays.copyOf(leaf.accounts, leaf.accounts.length + 1);
+                entries  = Arrays.copyOf(leaf.entries, leaf.entries.length + 1);
+            }
+
+            accounts[accounts.length - 1] = account;
+            entries[entries.length - 1]   = new Entry(account, digest);
+
+            return new Leaf(accounts, entries);
+        }
+    }
+
+    /**
+     * One account in a leaf with its current digest.
+     */
+    private static final class Entry
+    {
+        private static final VarHandle DIGEST;
+
+        static
+        {
+            try
+            {
+                DIGEST = MethodHandles.lookup().findVarHandle(Entry.class, "digest", long.class);
+            }
+            catch (final ReflectiveOperationException e)
+            {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final BankAccount account;
+        private volatile long     digest;
+
+        /**
+         * Constructs an {@code Entry}.
+         *
+         * @param account the account
+         * @param digest  the account's digest
+         */
+        private Entry(final BankAccount account,
+                      final long digest)
+        {
+            this.account = account;
+            this.digest  = digest;
+        }
+
+        /**
+         * Retrieves the account's current digest.
+         *
+         * @return the digest
+         */
+        private long getDigest()
+        {
+            return digest;
+        }
+
+        /**
+         * Swaps in a new digest.
+         *
+         * @param updated the new digest
+         * @return the difference to add to the leaf hash
+         */
+        private long replaceDigest(final long updated)
+        {
+            return updated - (long) DIGEST.getAndSet(this, updated);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+
+/**
+ * One page of accounts listed by an {@link AccountDirectory}, in account
+ * number order.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountPage
+{
+    private final List<BankAccount> accounts;
+    private final String            nextCursor;
+
+    /**
+     * Constructs an {@code AccountPage}.
+     *
+     * @param accounts   the accounts on this page
+     * @param nextCursor the cursor for the following page, or {@code null} if this is the last page
+     */
+    AccountPage(final List<BankAccount> accounts,
+                final String nextCursor)
+    {
+        this.accounts   = List.copyOf(accounts);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Retrieves the accounts on this page.
+     *
+     * @return an unmodifiable list of accounts
+     */
+    List<BankAccount> getAccounts()
+    {
+        return accounts;
+    }
+
+    /**
+     * Retrieves the cursor to pass back for the following page.
+     *
+     * @return the cursor, or {@code null} if this is the last page
+     */
+    String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether another page follows this one.
+     *
+     * @return {@code true} if there is a following page, otherwise {@code false}
+     */
+    boolean hasNext()
+    {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,244 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures listing accounts a page at a time through an {@link AccountDirectory}
+ * compared with sorting the whole book for every request.
+ *
+ * <p>Generates a book with {@link WorkloadGenerator} and walks every page once,
+ * checking that each account is listed once and in order. It saves the cursors
+ * at the start, middle and end of the book. It then times fetching the page at
+ * each cursor, and a page of one client's accounts. For comparison it times
+ * copying and sorting the book and skipping to the same offsets, as a
+ * listing without an index must. Run with optional account count and page
+ * size arguments.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountPagingBenchmark
+{
+    private static final int      DEFAULT_ACCOUNTS  = 1_000_000;
+    private static final int      DEFAULT_PAGE_SIZE = 100;
+    private static final int      PAGE_FETCHES      = 100_000;
+    private static final int      SORTED_FETCHES    = 5;
+    private static final double[] DEPTHS            = {0, 0.5, 0.99};
+    private static final String[] DEPTH_LABELS      = {"first", "middle", "last"};
+    private static final long     SEED              = 2522;
+    private static final double   NANOS_PER_MICRO   = 1e3;
+    private static final double   NANOS_PER_MS      = 1e6;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AccountPagingBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional account count and page size
+     */
+    public static void main(final String[] args)
+    {
+        final int accountCount;
+        final int pageSize;
+        final BankAccount[] accounts;
+        final AccountDirectory directory;
+        final String[] cursors;
+        final BankClient client;
+        long start;
+        long walkNanos;
+        long listed;
+        String previous;
+        String cursor;
+        int page;
+
+        if (args.length > 0)
+        {
+            accountCount = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            accountCount = DEFAULT_ACCOUNTS;
+        }
+
+        if (args.length > 1)
+        {
+            pageSize = Integer.parseInt(args[1]);
+        }
+        else
+        {
+            pageSize = DEFAULT_PAGE_SIZE;
+        }
+
+        accounts  = new WorkloadGenerator(SEED).createAccounts(accountCount);
+        directory = new AccountDirectory();
+        cursors   = new String[DEPTHS.length];
+        client    = accounts[accountCount / 2].getClient();
+
+        for (final BankAccount account : accounts)
+        {
+            directory.add(account);
+        }
+
+        listed   = 0;
+        previous = "";
+        cursor   = null;
+        page     = 0;
+        start    = System.nanoTime();
+
+        do
+        {
+            final AccountPage current;
+            current = directory.list(cursor, pageSize);
+
+            for (int i = 0; i < DEPTHS.length; i++)
+            {
+                if (page == (int) (DEPTHS[i] * (accountCount / pageSize)))
+                {
+                    cursors[i] = cursor;
+                }
+            }
+
+            for (final BankAccount account : current.getAccounts())
+            {
+                if (account.getAccountNumber().compareTo(previous) <= 0)
+                {
+                    throw new IllegalStateException("Accounts listed out of order");
+                }
+
+                previous = account.getAccountNumber();
+                listed++;
+            }
+
+            cursor = current.getNextCursor();
+            page++;
+        }
+        while (cursor != null);
+
+        walkNanos = System.nanoTime() - start;
+
+        if (listed != accountCount)
+        {
+            throw new IllegalStateException("Listed " + listed + " of " + accountCount + " accounts");
+        }
+
+        System.out.printf("Accounts:       %,d, %d per page%n", accountCount, pageSize);
+        System.out.printf("Full walk:      %.1f ms over %,d pages%n", walkNanos / NANOS_PER_MS, page);
+
+        // The first round only warms up the page path
+        timePages(directory, cursors, pageSize);
+
+        for (int i = 0; i < DEPTHS.length; i++)
+        {
+            System.out.printf("Cursor, %-7s %8.2f us/page%n",
+                              DEPTH_LABELS[i] + ":",
+                              timePage(directory, cursors[i], pageSize) / NANOS_PER_MICRO);
+        }
+
+        start = System.nanoTime();
+
+        for (int i = 0; i < PAGE_FETCHES; i++)
+        {
+            directory.list(client, null, pageSize);
+        }
+
+        System.out.printf("Cursor, client: %8.2f us/page (%d accounts)%n",
+                          (System.nanoTime() - start) / NANOS_PER_MICRO / PAGE_FETCHES,
+                          directory.list(client, null, pageSize).getAccounts().size());
+
+        for (int i = 0; i < DEPTHS.length; i++)
+        {
+            System.out.printf("Sorted, %-7s %8.2f ms/page%n",
+                              DEPTH_LABELS[i] + ":",
+                              timeSortedPage(accounts, (int) (DEPTHS[i] * accountCount), pageSize) / NANOS_PER_MS);
+        }
+    }
+
+    /**
+     * Fetches the page at every cursor repeatedly.
+     *
+     * @param directory the directory
+     * @param cursors   the cursors
+     * @param pageSize  the page size
+     */
+    private static void timePages(final AccountDirectory directory,
+                                  final String[] cursors,
+                                  final int pageSize)
+    {
+        for (final String cursor : cursors)
+        {
+            timePage(directory, cursor, pageSize);
+        }
+    }
+
+    /**
+     * Times fetching the page at one cursor.
+     *
+     * @param directory the directory
+     * @param cursor    the cursor
+     * @param pageSize  the page size
+     * @return the average nanoseconds per page
+     */
+    private static double timePage(final AccountDirectory directory,
+                                   final String cursor,
+                                   final int pageSize)
+    {
+        final long start;
+        long found;
+
+        found = 0;
+        start = System.nanoTime();
+
+        for (int i = 0; i < PAGE_FETCHES; i++)
+        {
+            found += directory.list(cursor, pageSize).getAccounts().size();
+        }
+
+        if (found == 0)
+        {
+            throw new IllegalStateException("Empty page");
+        }
+        return (double) (System.nanoTime() - start) / PAGE_FETCHES;
+    }
+
+    /**
+     * Times serving a page by copying and sorting the whole book.
+     *
+     * @param accounts the book
+     * @param offset   the position of the page's first account
+     * @param pageSize the page size
+     * @return the average nanoseconds per page
+     */
+    private static double timeSortedPage(final BankAccount[] accounts,
+                                         final int offset,
+                                         final int pageSize)
+    {
+        final long start;
+        long found;
+
+        found = 0;
+        start = System.nanoTime();
+
+        for (int i = 0; i < SORTED_FETCHES; i++)
+        {
+            final List<BankAccount> sorted;
+
+            sorted = new ArrayList<>(List.of(accounts));
+            sorted.sort(Comparator.comparing(BankAccount::getAccountNumber));
+
+            found += sorted.subList(offset, Math.min(sorted.size(), offset + pageSize)).size();
+        }
+
+        if (found == 0)
+        {
+            throw new IllegalStateException("Empty page");
+        }
+        return (double) (System.nanoTime() - start) / SORTED_FETCHES;
+    }
+}
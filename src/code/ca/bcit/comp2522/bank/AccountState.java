@@ -0,0 +1,18 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the lifecycle states of a {@link BankAccount}.
+ *
+ * <p>An open account accepts deposits and withdrawals. A frozen account
+ * accepts deposits only. A closed account accepts neither until it is
+ * reopened.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum AccountState
+{
+    OPEN,
+    FROZEN,
+    CLOSED
+}
@@ -0,0 +1,74 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Funds reserved on a {@link BankAccount} for a later withdrawal, as placed by
+ * {@link AuthorizationHolds#authorize(BankAccount, double, long)}.
+ *
+ * <p>The status only changes while the account is held, so capture, release
+ * and expiry of the same authorization never race with each other or with
+ * the account's balance updates.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class Authorization extends TimingWheel.Entry
+{
+    private final BankAccount account;
+    private final double      amount;
+
+    private volatile AuthorizationStatus status;
+
+    /**
+     * Constructs a pending {@code Authorization}.
+     *
+     * @param account the account the funds are held on
+     * @param amount  the amount held in the account's currency
+     */
+    Authorization(final BankAccount account,
+                  final double amount)
+    {
+        this.account = account;
+        this.amount  = amount;
+        this.status  = AuthorizationStatus.PENDING;
+    }
+
+    /**
+     * Retrieves the account the funds are held on.
+     *
+     * @return the account
+     */
+    BankAccount getAccount()
+    {
+        return account;
+    }
+
+    /**
+     * Retrieves the amount held.
+     *
+     * @return the amount in the account's currency
+     */
+    double getAmount()
+    {
+        return amount;
+    }
+
+    /**
+     * Retrieves the current status.
+     *
+     * @return the status
+     */
+    AuthorizationStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Records how the authorization ended. Called only while the account is held.
+     *
+     * @param status the final status
+     */
+    void setStatus(final AuthorizationStatus status)
+    {
+        this.status = status;
+    }
+}
@@ -0,0 +1,54 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the reasons {@link AuthorizationHolds} refuses to place, capture
+ * or release a hold on an account's funds, beyond the {@link ValidationCode}s a
+ * withdrawal can fail with.
+ *
+ * <p>Success is reported as {@link ValidationCode#OK}, so these constants are
+ * all failures.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum AuthorizationCode implements ResultCode
+{
+    AMOUNT_NOT_POSITIVE("Authorization amount must be positive"),
+    LIFETIME_NOT_POSITIVE("Authorization lifetime must be positive"),
+    NOT_PENDING("Authorization is no longer pending"),
+    CAPTURE_OUT_OF_RANGE("Capture amount must be positive and within the authorized amount");
+
+    private final String message;
+
+    /**
+     * Constructs an {@code AuthorizationCode} with its message.
+     *
+     * @param message the human-readable failure message
+     */
+    AuthorizationCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents success, which it never does.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
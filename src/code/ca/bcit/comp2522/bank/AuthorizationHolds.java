@@ -0,0 +1,274 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Places card-style authorization holds on {@link BankAccount}s and expires
+ * them automatically.
+ *
+ * <p>Authorizing reserves funds on the account, lowering its available balance
+ * without changing its ledger balance. A pending authorization is then
+ * captured, which withdraws up to the authorized amount and returns the rest,
+ * or released, which returns all of it. If neither happens within its lifetime
+ * it expires and the funds are returned.</p>
+ *
+ * <p>Expiry deadlines live in one {@link TimingWheel}, not in a scheduled task
+ * per hold. Adding, capturing and releasing a hold are constant-time. A single
+ * expiry thread advances the wheel once per tick, and each expiry costs
+ * constant time however many holds are outstanding.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AuthorizationHolds implements AutoCloseable
+{
+    private final TimingWheel wheel;
+    private final long        tickNanos;
+    private final long        startNanos;
+    private final LongAdder   expired;
+    private final Thread      expirer;
+
+    private volatile boolean running;
+
+    /**
+     * Constructs an {@code AuthorizationHolds} and starts its expiry thread.
+     *
+     * @param tickNanos the expiry resolution in nanoseconds; must be positive
+     */
+    AuthorizationHolds(final long tickNanos)
+    {
+        if (tickNanos <= 0)
+        {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+
+        this.wheel      = new TimingWheel(0);
+        this.tickNanos  = tickNanos;
+        this.startNanos = System.nanoTime();
+        this.expired    = new LongAdder();
+        this.running    = true;
+        this.expirer    = new Thread(this::runExpiry, "authorization-expiry");
+
+        expirer.setDaemon(true);
+        expirer.start();
+    }
+
+    /**
+     * Reserves funds on an account for a later capture.
+     *
+     * @param account       the account to hold funds on
+     * @param amount        the amount to hold in the account's currency; must be positive
+     * @param lifetimeNanos how long the hold lasts before it expires; must be positive
+     * @return the pending authorization
+     * @throws IllegalArgumentException if the amount or lifetime is invalid, the funds are
+     *                                  not available, or the account is frozen or closed
+     */
+    Authorization authorize(final BankAccount account,
+                            final double amount,
+                            final long lifetimeNanos)
+    {
+        final ValidationResult<Authorization> result;
+        result = tryAuthorize(account, amount, lifetimeNanos);
+
+        result.getCode().throwIfFailed();
+        return result.getValue();
+    }
+
+    /**
+     * Reserves funds on an account for a later capture without throwing on failure.
+     *
+     * @param account       the account to hold funds on
+     * @param amount        the amount to hold in the account's currency; must be positive
+     * @param lifetimeNanos how long the hold lasts before it expires; must be positive
+     * @return a result holding the pending authorization, or the reason it was refused
+     */
+    ValidationResult<Authorization> tryAuthorize(final BankAccount account,
+                                                 final double amount,
+                                                 final long lifetimeNanos)
+    {
+        final Authorization authorization;
+        final ResultCode code;
+        final long deadlineTick;
+
+        if (lifetimeNanos <= 0)
+        {
+            return ValidationResult.failure(AuthorizationCode.LIFETIME_NOT_POSITIVE);
+        }
+
+        authorization = new Authorization(account, amount);
+        code          = account.reserve(authorization);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+
+        // Round up so a hold never expires before its lifetime has passed
+        deadlineTick = (System.nanoTime() - startNanos + lifetimeNanos + tickNanos - 1) / tickNanos;
+
+        synchronized (wheel)
+        {
+            wheel.add(authorization, deadlineTick);
+        }
+        return ValidationResult.success(authorization);
+    }
+
+    /**
+     * Withdraws part or all of a pending authorization and returns the rest.
+     *
+     * @param authorization the pending authorization
+     * @param amount        the amount to withdraw; must be positive and at most the authorized amount
+     * @throws IllegalArgumentException if the authorization is no longer pending, the amount
+     *                                  is out of range, or the account is closed
+     */
+    void capture(final Authorization authorization,
+                 final double amount)
+    {
+        tryCapture(authorization, amount).throwIfFailed();
+    }
+
+    /**
+     * Withdraws part or all of a pending authorization and returns the rest, without throwing on failure.
+     *
+     * @param authorization the pending authorization
+     * @param amount        the amount to withdraw; must be positive and at most the authorized amount
+     * @return {@link ValidationCode#OK} if the capture was applied, otherwise the reason it was refused
+     */
+    ResultCode tryCapture(final Authorization authorization,
+                          final double amount)
+    {
+        return end(authorization, AuthorizationStatus.CAPTURED, amount);
+    }
+
+    /**
+     * Returns all funds held by a pending authorization.
+     *
+     * @param authorization the pending authorization
+     * @throws IllegalArgumentException if the authorization is no longer pending
+     */
+    void release(final Authorization authorization)
+    {
+        tryRelease(authorization).throwIfFailed();
+    }
+
+    /**
+     * Returns all funds held by a pending authorization without throwing on failure.
+     *
+     * @param authorization the pending authorization
+     * @return {@link ValidationCode#OK} if the funds were returned, otherwise the reason they were not
+     */
+    ResultCode tryRelease(final Authorization authorization)
+    {
+        return end(authorization, AuthorizationStatus.RELEASED, 0);
+    }
+
+    /**
+     * Retrieves the number of authorizations waiting to be captured, released or expired.
+     *
+     * @return the pending count
+     */
+    int getPendingCount()
+    {
+        synchronized (wheel)
+        {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Retrieves the number of authorizations that have expired.
+     *
+     * @return the expired count
+     */
+    long getExpiredCount()
+    {
+        return expired.sum();
+    }
+
+    /**
+     * Expires every authorization whose lifetime has run out by a given time.
+     * The expiry thread calls this once per tick.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    void expireDue(final long nowNanos)
+    {
+        TimingWheel.Entry entry;
+
+        synchronized (wheel)
+        {
+            entry = wheel.advance((nowNanos - startNanos) / tickNanos);
+        }
+
+        // Settle outside the wheel lock, so new holds are not blocked by account updates
+        while (entry != null)
+        {
+            final Authorization authorization;
+            authorization = (Authorization) entry;
+            entry         = entry.nextExpired();
+
+            if (authorization.getAccount().settle(authorization, AuthorizationStatus.EXPIRED, 0).isOk())
+            {
+                expired.increment();
+            }
+        }
+    }
+
+    /**
+     * Stops the expiry thread. Pending authorizations keep their funds held until
+     * captured or released.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(expirer);
+
+        try
+        {
+            expirer.join();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ends an authorization on its account and, if that succeeded, removes its expiry timer.
+     *
+     * @param authorization the authorization
+     * @param outcome       how it ends
+     * @param captured      the amount to withdraw for a capture
+     * @return the outcome of settling the authorization
+     */
+    private ResultCode end(final Authorization authorization,
+                           final AuthorizationStatus outcome,
+                           final double captured)
+    {
+        final ResultCode code;
+        code = authorization.getAccount().settle(authorization, outcome, captured);
+
+        if (code.isOk())
+        {
+            synchronized (wheel)
+            {
+                wheel.cancel(authorization);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Advances the wheel once per tick until closed.
+     */
+    private void runExpiry()
+    {
+        while (running)
+        {
+            LockSupport.parkNanos(tickNanos);
+            expireDue(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the states of an {@link Authorization}.
+ *
+ * <p>A pending authorization holds funds. It ends exactly once: captured into
+ * a withdrawal, released by the merchant, or expired by
+ * {@link AuthorizationHolds} when its lifetime runs out.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+enum AuthorizationStatus
+{
+    PENDING,
+    CAPTURED,
+    RELEASED,
+    EXPIRED
+}
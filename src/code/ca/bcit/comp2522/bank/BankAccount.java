@@ -1,5 +1,11 @@
 package ca.bcit.comp2522.bank;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Represents a bank account belonging to a {@link BankClient}. A bank account
  * tracks its unique account number, the client who owns it, the dates when the
@@ -12,8 +18,40 @@ package ca.bcit.comp2522.bank;
  *     <li>Formatted detail reporting of account state.</li>
  * </ul>
  *
- * <p>Accounts may be open-ended (no closing date) or closed. Deposits and withdrawals
- * cannot be performed on closed accounts.</p>
+ * <p>Accounts move between the {@link AccountState}s open, frozen and closed at
+ * runtime. Deposits are refused on closed accounts and withdrawals on frozen or
+ * closed accounts.</p>
+ *
+ * <p>The lifecycle state lives in a single state word together with a busy bit.
+ * A transaction the state does not allow is refused after one volatile read of
+ * that word. One that is allowed takes the account with a compare-and-set that
+ * also checks the state, and releases it with a volatile write. State changes
+ * take the account the same way, so a transaction that was admitted before a
+ * close always finishes before the close takes effect, and none lands after it.
+ * A thread that finds the account taken spins briefly, then yields, then
+ * parks for short intervals until it is free.</p>
+ *
+ * <p>Listeners are called after the account has been released, so they may
+ * read it, including through a snapshot. One thread at a time reports an
+ * account's changes, in the order they were applied. A thread whose change
+ * finds nothing waiting reports it itself without queuing it. Otherwise the
+ * change is queued while the account is held, and left to the thread already
+ * reporting rather than waited for. A listener that throws cannot fail the
+ * call that made the change, since that change has already been applied: the
+ * exception goes to the reporting thread's uncaught exception handler, and
+ * later changes are still reported.</p>
+ *
+ * <p>Each account holds its balance in one currency, USD unless another is given
+ * when the account is opened. Amounts in other currencies can be deposited or
+ * withdrawn through an {@link FxRateTable}.</p>
+ *
+ * <p>The balance is the ledger balance. Funds reserved by pending
+ * {@link Authorization}s are held against it, and withdrawals and new
+ * authorizations may only use the available balance that remains.</p>
+ *
+ * <p>Accounts attached to a {@link VersionClock} keep earlier balances and
+ * closing dates for as long as an open snapshot needs them. Reports can then
+ * read many accounts at one point in time while transactions continue.</p>
  *
  * @author Ryan Fiset, Larry Lin
  * @version 1.0
@@ -23,12 +61,72 @@ class BankAccount
     private static final int MIN_ACCOUNT_NUMBER_LENGTH = 6;
     private static final int MAX_ACCOUNT_NUMBER_LENGTH = 7;
 
+    static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    /**
+     * The PIN of an account restored from a record that does not carry one.
+     * Withdrawals that require a PIN are always refused for such an account.
+     */
+    static final int NO_PIN = Integer.MIN_VALUE;
+
+    // --- State word: the AccountState ordinal, plus a bit set while the account is held ---
+    private static final int            OPEN        = AccountState.OPEN.ordinal();
+    private static final int            FROZEN      = AccountState.FROZEN.ordinal();
+    private static final int            CLOSED      = AccountState.CLOSED.ordinal();
+    private static final int            STATE_MASK  = 0b011;
+    private static final int            BUSY        = 0b100;
+    private static final int            FROM_OPEN   = 1 << OPEN;
+    private static final int            FROM_FROZEN = 1 << FROZEN;
+    private static final int            FROM_CLOSED = 1 << CLOSED;
+    private static final AccountState[] STATES      = AccountState.values();
+    private static final VarHandle      STATE;
+    private static final VarHandle      DRAINING;
+
+    // --- Waiting for a busy account: spin, then yield, then park ---
+    private static final int  SPIN_LIMIT  = 128;
+    private static final int  YIELD_LIMIT = SPIN_LIMIT + 16;
+    private static final long PARK_NANOS  = 20_000;
+
+    // --- How a change is reported once the account is released ---
+    private static final int NOT_REPORTED = 0;
+    private static final int REPORT_OWN   = 1;
+    private static final int REPORT_QUEUE = 2;
+
+    static
+    {
+        try
+        {
+            STATE    = MethodHandles.lookup().findVarHandle(BankAccount.class, "state", int.class);
+            DRAINING = MethodHandles.lookup().findVarHandle(BankAccount.class, "draining", boolean.class);
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final BankClient client;
     private final String     accountNumber;
     private final Date       accountOpened;
-    private final Date       accountClosed;
     private final int        pin;
-    private       double     balance;
+    private final Currency   currency;
+
+    private volatile double          balance;
+    private volatile double          heldAmount;
+    private volatile Date            accountClosed;
+    private volatile int             state;
+    private volatile AccountListener listener;
+    private volatile WithdrawalCheck withdrawalCheck;
+
+    // --- Changes waiting for the listener: appended while the account is held, reported by one thread ---
+    private PendingEvent          eventTail;
+    private volatile PendingEvent eventHead;
+    private volatile boolean      draining;
+
+    // --- Snapshot versions, written only while the account is held ---
+    private volatile VersionClock         versionClock;
+    private volatile long                 versionEpoch;
+    private volatile VersionClock.Version versions;
 
     /**
      * Constructs a {@code BankAccount} with the specified details.
@@ -48,7 +146,67 @@ class BankAccount
                        final double initialBalance,
                        final int pin)
     {
-        validateAccount(client, accountNumber, accountOpened, initialBalance);
+        this(client, accountNumber, accountOpened, accountClosed, initialBalance, pin, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Constructs a {@code BankAccount} holding its balance in the given currency.
+     *
+     * @param client         the client who owns this account; must not be {@code null}
+     * @param accountNumber  the unique account number
+     * @param accountOpened  the date the account was opened; must not be {@code null}
+     * @param accountClosed  the date the account was closed, or {@code null} if still open
+     * @param initialBalance the starting balance in {@code currency}; must not be negative
+     * @param pin            the personal identification number for this account
+     * @param currency       the currency of the balance; must not be {@code null}
+     * @throws IllegalArgumentException if validation fails for any parameter
+     */
+    public BankAccount(final BankClient client,
+                       final String accountNumber,
+                       final Date accountOpened,
+                       final Date accountClosed,
+                       final double initialBalance,
+                       final int pin,
+                       final Currency currency)
+    {
+        this(client,
+             accountNumber,
+             accountOpened,
+             accountClosed,
+             initialBalance,
+             pin,
+             currency,
+             checkAccount(client, accountNumber, accountOpened, initialBalance));
+    }
+
+    /**
+     * Constructs a {@code BankAccount} from details that have already been checked.
+     *
+     * @param client         the client who owns this account
+     * @param accountNumber  the unique account number
+     * @param accountOpened  the date the account was opened
+     * @param accountClosed  the date the account was closed, or {@code null} if still open
+     * @param initialBalance the starting balance in {@code currency}
+     * @param pin            the personal identification number for this account
+     * @param currency       the currency of the balance; must not be {@code null}
+     * @param code           the result of checking the account details
+     * @throws IllegalArgumentException if {@code code} is a failure or the currency is {@code null}
+     */
+    private BankAccount(final BankClient client,
+                        final String accountNumber,
+                        final Date accountOpened,
+                        final Date accountClosed,
+                        final double initialBalance,
+                        final int pin,
+                        final Currency currency,
+                        final ValidationCode code)
+    {
+        code.throwIfFailed();
+
+        if (currency == null)
+        {
+            throw ValidationCode.CURRENCY_NULL.exception();
+        }
 
         this.client        = client;
         this.accountNumber = accountNumber;
@@ -56,48 +214,92 @@ class BankAccount
         this.accountClosed = accountClosed;
         this.balance       = initialBalance;
         this.pin           = pin;
+        this.currency      = currency;
+
+        if (accountClosed == null)
+        {
+            this.state = OPEN;
+        }
+        else
+        {
+            this.state = CLOSED;
+        }
     }
 
     /**
-     * Validates account details for construction.
+     * Creates a {@code BankAccount} without throwing on invalid input.
+     *
+     * @param client         the client who owns this account
+     * @param accountNumber  the unique account number
+     * @param accountOpened  the date the account was opened
+     * @param accountClosed  the date the account was closed, or {@code null} if still open
+     * @param initialBalance the starting balance in USD
+     * @param pin            the personal identification number for this account
+     * @return a result holding the new account, or the code of the first failed rule
+     */
+    public static ValidationResult<BankAccount> tryCreate(final BankClient client,
+                                                          final String accountNumber,
+                                                          final Date accountOpened,
+                                                          final Date accountClosed,
+                                                          final double initialBalance,
+                                                          final int pin)
+    {
+        final ValidationCode code;
+        code = checkAccount(client, accountNumber, accountOpened, initialBalance);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+        return ValidationResult.success(new BankAccount(client,
+                                                        accountNumber,
+                                                        accountOpened,
+                                                        accountClosed,
+                                                        initialBalance,
+                                                        pin,
+                                                        DEFAULT_CURRENCY,
+                                                        code));
+    }
+
+    /**
+     * Checks account details for construction without throwing.
      *
      * @param client         the client who owns this account
      * @param accountNumber  the proposed account number
      * @param accountOpened  the date the account was opened
      * @param initialBalance the proposed initial balance
-     * @throws IllegalArgumentException if any validation rule is violated
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
      */
-    private void validateAccount(final BankClient client,
-                                 final String accountNumber,
-                                 final Date accountOpened,
-                                 final double initialBalance)
+    static ValidationCode checkAccount(final BankClient client,
+                                       final String accountNumber,
+                                       final Date accountOpened,
+                                       final double initialBalance)
     {
         if (client == null)
         {
-            throw new IllegalArgumentException("Client cannot be null");
+            return ValidationCode.CLIENT_NULL;
         }
 
         if (accountNumber == null || accountNumber.trim().isEmpty())
         {
-            throw new IllegalArgumentException("Account number cannot be null or blank");
+            return ValidationCode.ACCOUNT_NUMBER_BLANK;
         }
         else if (accountNumber.length() < MIN_ACCOUNT_NUMBER_LENGTH || accountNumber.length() > MAX_ACCOUNT_NUMBER_LENGTH)
         {
-            throw new IllegalArgumentException("Account number must be " + MIN_ACCOUNT_NUMBER_LENGTH + " or " +
-                                               MAX_ACCOUNT_NUMBER_LENGTH + " characters");
+            return ValidationCode.ACCOUNT_NUMBER_LENGTH;
         }
 
         if (accountOpened == null)
         {
-            throw new IllegalArgumentException("Account opened date cannot be null");
+            return ValidationCode.ACCOUNT_OPENED_NULL;
         }
         if (initialBalance < 0)
         {
-            throw new IllegalArgumentException("Initial balance cannot be negative");
+            return ValidationCode.NEGATIVE_INITIAL_BALANCE;
         }
+        return ValidationCode.OK;
     }
 
-
     /**
      * Retrieves the client who owns this account.
      *
@@ -139,9 +341,627 @@ class BankAccount
     }
 
     /**
-     * Retrieves the current account balance.
+     * Retrieves the current lifecycle state of this account.
+     *
+     * @return the account state
+     */
+    public AccountState getState()
+    {
+        return STATES[state & STATE_MASK];
+    }
+
+    /**
+     * Freezes this account so that it accepts deposits but not withdrawals.
+     *
+     * @throws IllegalArgumentException if the account is not open
+     */
+    public void freeze()
+    {
+        tryFreeze().throwIfFailed();
+    }
+
+    /**
+     * Freezes this account without throwing on failure.
+     *
+     * @return {@link ValidationCode#OK} if the account was frozen, otherwise the reason it was not
+     */
+    public ValidationCode tryFreeze()
+    {
+        if (transition(FROM_OPEN, FROZEN, null, AccountEventType.FROZEN) != OPEN)
+        {
+            return ValidationCode.ACCOUNT_NOT_OPEN;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Returns a frozen account to the open state.
+     *
+     * @throws IllegalArgumentException if the account is not frozen
+     */
+    public void unfreeze()
+    {
+        tryUnfreeze().throwIfFailed();
+    }
+
+    /**
+     * Returns a frozen account to the open state without throwing on failure.
+     *
+     * @return {@link ValidationCode#OK} if the account was unfrozen, otherwise the reason it was not
+     */
+    public ValidationCode tryUnfreeze()
+    {
+        if (transition(FROM_FROZEN, OPEN, null, AccountEventType.UNFROZEN) != FROZEN)
+        {
+            return ValidationCode.ACCOUNT_NOT_FROZEN;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Closes an open or frozen account. Any transaction already admitted finishes
+     * first, and every later transaction is refused.
+     *
+     * @param closedOn the closing date; must not be {@code null}
+     * @throws IllegalArgumentException if the date is {@code null} or the account is already closed
+     */
+    public void close(final Date closedOn)
+    {
+        tryClose(closedOn).throwIfFailed();
+    }
+
+    /**
+     * Closes an open or frozen account without throwing on failure.
+     *
+     * @param closedOn the closing date; must not be {@code null}
+     * @return {@link ValidationCode#OK} if the account was closed, otherwise the reason it was not
+     */
+    public ValidationCode tryClose(final Date closedOn)
+    {
+        if (closedOn == null)
+        {
+            return ValidationCode.ACCOUNT_CLOSED_NULL;
+        }
+
+        if (transition(FROM_OPEN | FROM_FROZEN, CLOSED, closedOn, AccountEventType.CLOSED) == CLOSED)
+        {
+            return ValidationCode.ACCOUNT_ALREADY_CLOSED;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Reopens a closed account and clears its closing date.
+     *
+     * @throws IllegalArgumentException if the account is not closed
+     */
+    public void reopen()
+    {
+        tryReopen().throwIfFailed();
+    }
+
+    /**
+     * Reopens a closed account without throwing on failure.
+     *
+     * @return {@link ValidationCode#OK} if the account was reopened, otherwise the reason it was not
+     */
+    public ValidationCode tryReopen()
+    {
+        if (transition(FROM_CLOSED, OPEN, null, AccountEventType.REOPENED) != CLOSED)
+        {
+            return ValidationCode.ACCOUNT_NOT_CLOSED;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Takes the account for a transaction if its state allows one. A free account
+     * is taken with one compare-and-set; if another transaction or a state change
+     * holds the account, this waits for it with {@link #backOff(int)}.
+     *
+     * @param allowFrozen whether the transaction is allowed on a frozen account
+     * @return the state the account was found in; the account is held, and must be
+     *         released by writing this state back, only if that state allows the transaction
+     */
+    private int hold(final boolean allowFrozen)
+    {
+        int attempts;
+        attempts = 0;
+
+        while (true)
+        {
+            final int current;
+            current = state;
+
+            if ((current & BUSY) != 0)
+            {
+                backOff(attempts++);
+            }
+            else if (current == CLOSED || current == FROZEN && !allowFrozen)
+            {
+                return current;
+            }
+            else if (STATE.compareAndSet(this, current, current | BUSY))
+            {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Takes the account whatever its lifecycle state, waiting while another
+     * transaction or state change holds it.
+     *
+     * @return the state the account was found in, which must be written back to release it
+     */
+    private int holdInAnyState()
+    {
+        int attempts;
+        attempts = 0;
+
+        while (true)
+        {
+            final int current;
+            current = state;
+
+            if ((current & BUSY) != 0)
+            {
+                backOff(attempts++);
+            }
+            else if (STATE.compareAndSet(this, current, current | BUSY))
+            {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Moves the account to a new lifecycle state once no transaction holds it,
+     * then reports the change to the listener.
+     *
+     * @param allowed  the states the move may start from, as a set of {@code 1 << ordinal} bits
+     * @param target   the state to move to
+     * @param closedOn the closing date to record, or {@code null} to clear it
+     * @param event    the change to report
+     * @return the state the account was found in; the move happened only if that state is in {@code allowed}
+     */
+    private int transition(final int allowed,
+                           final int target,
+                           final Date closedOn,
+                           final AccountEventType event)
+    {
+        int attempts;
+        attempts = 0;
+
+        while (true)
+        {
+            final int current;
+            current = state;
+
+            if ((current & BUSY) != 0)
+            {
+                backOff(attempts++);
+            }
+            else if ((allowed & 1 << current) == 0)
+            {
+                return current;
+            }
+            else if (STATE.compareAndSet(this, current, current | BUSY))
+            {
+                final double balanceAfter;
+                final int report;
+
+                try
+                {
+                    recordVersion();
+                    accountClosed = closedOn;
+                    balanceAfter  = balance;
+                    report        = prepareEvent(event, target, 0, balanceAfter);
+                }
+                finally
+                {
+                    state = target;
+                }
+
+                reportEvent(report, event, target, 0, balanceAfter);
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Waits once for a busy account. The first attempts spin, the next few yield
+     * the processor, and later ones park, so a thread that holds the account for
+     * long, or is descheduled while holding it, does not keep others spinning.
+     *
+     * @param attempts the number of times the caller has already waited
+     */
+    private static void backOff(final int attempts)
+    {
+        if (attempts < SPIN_LIMIT)
+        {
+            Thread.onSpinWait();
+        }
+        else if (attempts < YIELD_LIMIT)
+        {
+            Thread.yield();
+        }
+        else
+        {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Sets the listener told about every transaction and lifecycle change on this account.
+     * Changes are reported to the listener that is set when they are reported.
+     *
+     * @param listener the listener, or {@code null} to stop reporting changes
+     */
+    void setListener(final AccountListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Decides how a change will be reported, queuing it if another thread must
+     * report it first. Called while the account is held.
+     *
+     * @param type         the kind of change
+     * @param stateAfter   the lifecycle state after the change, as an ordinal
+     * @param amount       the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter the balance after the change
+     * @return the value to pass to {@link #reportEvent(int, AccountEventType, int, double, double)}
+     *         once the account is released
+     */
+    private int prepareEvent(final AccountEventType type,
+                             final int stateAfter,
+                             final double amount,
+                             final double balanceAfter)
+    {
+        final PendingEvent event;
+
+        if (listener == null)
+        {
+            return NOT_REPORTED;
+        }
+
+        // Nothing is waiting and no thread is reporting, so this change goes first without being queued
+        if (eventHead == eventTail && DRAINING.compareAndSet(this, false, true))
+        {
+            return REPORT_OWN;
+        }
+
+        event = new PendingEvent(type, stateAfter, amount, balanceAfter);
+
+        // The first queued change starts the queue behind an empty node, which counts as already reported
+        if (eventTail == null)
+        {
+            eventTail = new PendingEvent(null, OPEN, 0, 0);
+            eventHead = eventTail;
+        }
+
+        eventTail.next = event;
+        eventTail      = event;
+        return REPORT_QUEUE;
+    }
+
+    /**
+     * Reports a change to the listener as decided by
+     * {@link #prepareEvent(AccountEventType, int, double, double)}, together with any
+     * changes queued behind it. Called after the account has been released.
+     *
+     * @param report       how the change is to be reported
+     * @param type         the kind of change
+     * @param stateAfter   the lifecycle state after the change, as an ordinal
+     * @param amount       the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter the balance after the change
+     */
+    private void reportEvent(final int report,
+                             final AccountEventType type,
+                             final int stateAfter,
+                             final double amount,
+                             final double balanceAfter)
+    {
+        final PendingEvent head;
+
+        if (report == NOT_REPORTED)
+        {
+            return;
+        }
+
+        if (report == REPORT_OWN)
+        {
+            try
+            {
+                notifyListener(type, stateAfter, amount, balanceAfter);
+            }
+            finally
+            {
+                draining = false;
+            }
+        }
+
+        head = eventHead;
+
+        if (head != null && head.next != null)
+        {
+            drainEvents();
+        }
+    }
+
+    /**
+     * Reports queued changes unless another thread is already doing so.
+     *
+     * <p>A thread that loses the race to report returns at once. The thread that
+     * is reporting checks the queue again after it stops, so a change queued in
+     * the meantime is never left behind.</p>
+     */
+    private void drainEvents()
+    {
+        while (DRAINING.compareAndSet(this, false, true))
+        {
+            try
+            {
+                PendingEvent next;
+                next = eventHead.next;
+
+                while (next != null)
+                {
+                    // Moved past first, so no change is reported twice
+                    eventHead = next;
+                    notifyListener(next.type, next.stateAfter, next.amount, next.balanceAfter);
+                    next = next.next;
+                }
+            }
+            finally
+            {
+                draining = false;
+            }
+
+            if (eventHead.next == null)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reports a change to the listener, if one is set. An exception the listener
+     * throws is passed to the current thread's uncaught exception handler
+     * rather than to the caller, whose change has already been applied.
      *
-     * @return the balance in USD
+     * @param type         the kind of change
+     * @param stateAfter   the lifecycle state after the change, as an ordinal
+     * @param amount       the amount deposited or withdrawn in the account's currency, or {@code 0} for a lifecycle change
+     * @param balanceAfter the balance after the change
+     */
+    private void notifyListener(final AccountEventType type,
+                                final int stateAfter,
+                                final double amount,
+                                final double balanceAfter)
+    {
+        final AccountListener current;
+        current = listener;
+
+        if (current != null)
+        {
+            try
+            {
+                current.onAccountEvent(type, this, STATES[stateAfter], amount, balanceAfter);
+            }
+            catch (final RuntimeException e)
+            {
+                final Thread thread;
+                thread = Thread.currentThread();
+
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    /**
+     * Sets the check consulted before every withdrawal from this account is applied.
+     *
+     * @param withdrawalCheck the check, or {@code null} to allow all otherwise valid withdrawals
+     */
+    void setWithdrawalCheck(final WithdrawalCheck withdrawalCheck)
+    {
+        this.withdrawalCheck = withdrawalCheck;
+    }
+
+    /**
+     * Consults the withdrawal check, if one is set.
+     *
+     * @param amount the amount about to be withdrawn in the account's currency
+     * @return {@code true} if the withdrawal may proceed, otherwise {@code false}
+     */
+    private boolean passesWithdrawalCheck(final double amount)
+    {
+        final WithdrawalCheck current;
+        current = withdrawalCheck;
+
+        return current == null || current.allowWithdrawal(this, amount);
+    }
+
+    /**
+     * Attaches this account to a clock so that snapshots from it can read this
+     * account. Call before the account is shared between threads.
+     *
+     * @param versionClock the clock, or {@code null} to stop keeping versions
+     */
+    void setVersionClock(final VersionClock versionClock)
+    {
+        this.versions     = null;
+        this.versionEpoch = 0;
+        this.versionClock = versionClock;
+    }
+
+    /**
+     * Retrieves the clock this account is attached to.
+     *
+     * @return the clock, or {@code null} if versions are not kept
+     */
+    VersionClock getVersionClock()
+    {
+        return versionClock;
+    }
+
+    /**
+     * Saves the current balance and closing date if an open snapshot may need
+     * them after the change about to be made. Called first thing whenever the
+     * account is held, even if the change is then refused, so that every hold
+     * begun after a snapshot opened is stamped with a later epoch almost at once.
+     */
+    private void recordVersion()
+    {
+        final VersionClock clock;
+        final long epoch;
+
+        clock = versionClock;
+
+        if (clock == null)
+        {
+            return;
+        }
+
+        epoch = clock.currentEpoch();
+
+        if (epoch != versionEpoch || versions != null)
+        {
+            versions     = clock.retain(versions, versionEpoch, balance, accountClosed, epoch);
+            versionEpoch = epoch;
+        }
+    }
+
+    /**
+     * Retrieves the balance as of a snapshot epoch.
+     *
+     * <p>Waits only while a change that may belong to the snapshot is running.
+     * A hold begun after the snapshot opened stamps a later epoch as soon as it
+     * starts, and from then on the saved version is read without waiting. The
+     * wait is therefore bounded by the one change running when the snapshot
+     * opened. Must not be called by a thread that holds this account, as a
+     * {@link WithdrawalCheck} does.</p>
+     *
+     * @param snapshotEpoch the epoch of an open snapshot
+     * @return the balance in the account's currency
+     */
+    double getBalanceAt(final long snapshotEpoch)
+    {
+        while (true)
+        {
+            final VersionClock.Version version;
+            final double current;
+
+            version = versionAt(snapshotEpoch);
+
+            if (version != null)
+            {
+                return version.getBalance();
+            }
+
+            current = balance;
+
+            // A later change stamps its epoch before writing, so this value is as of the snapshot unless one has
+            if (versionEpoch <= snapshotEpoch)
+            {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Formats this account's details as of a snapshot epoch, waiting as
+     * {@link #getBalanceAt(long)} does.
+     *
+     * @param snapshotEpoch the epoch of an open snapshot
+     * @return a human-readable string representation of account details
+     */
+    String getDetailsAt(final long snapshotEpoch)
+    {
+        while (true)
+        {
+            final VersionClock.Version version;
+            final double currentBalance;
+            final Date currentClosed;
+
+            version = versionAt(snapshotEpoch);
+
+            if (version != null)
+            {
+                return formatDetails(client, version.getBalance(), currency, accountNumber, accountOpened, version.getClosed());
+            }
+
+            currentBalance = balance;
+            currentClosed  = accountClosed;
+
+            if (versionEpoch <= snapshotEpoch)
+            {
+                return formatDetails(client, currentBalance, currency, accountNumber, accountOpened, currentClosed);
+            }
+        }
+    }
+
+    /**
+     * Finds the saved version a snapshot must read, or confirms that the current
+     * fields are as of the snapshot. They stay so only until a later change
+     * stamps a newer epoch, so the caller must check the epoch again after
+     * reading them.
+     *
+     * @param snapshotEpoch the epoch of an open snapshot
+     * @return the saved version, or {@code null} to read the current fields
+     */
+    private VersionClock.Version versionAt(final long snapshotEpoch)
+    {
+        int attempts;
+        attempts = 0;
+
+        while (true)
+        {
+            final boolean busy;
+            busy = (state & BUSY) != 0;
+
+            if (versionEpoch > snapshotEpoch)
+            {
+                // Saved before the newer epoch was stamped, so it is complete
+                return VersionClock.Version.at(versions, snapshotEpoch);
+            }
+
+            if (!busy)
+            {
+                return null;
+            }
+
+            // The running change may belong to this snapshot, or has not stamped its newer epoch yet
+            backOff(attempts++);
+        }
+    }
+
+    /**
+     * Retrieves the PIN of this account, for persisting account state.
+     *
+     * @return the personal identification number
+     */
+    int getPin()
+    {
+        return pin;
+    }
+
+    /**
+     * Retrieves the currency this account's balance is held in.
+     *
+     * @return the account currency
+     */
+    public Currency getCurrency()
+    {
+        return currency;
+    }
+
+    /**
+     * Retrieves the current account balance, including funds held by pending authorizations.
+     *
+     * @return the ledger balance in the account's currency
      */
     public double getBalance()
     {
@@ -149,67 +969,376 @@ class BankAccount
     }
 
     /**
-     * Withdraws funds from this account if sufficient balance is available and the account is open.
+     * Retrieves the balance available for withdrawals and new authorizations.
+     * While a capture is in progress this may briefly understate, but never
+     * overstate, the available funds.
      *
-     * @param amountUsd the amount to withdraw in USD; must be positive
-     * @throws IllegalArgumentException if amount is invalid, balance is insufficient,
-     *                                  or the account is closed
+     * @return the ledger balance less the funds held, in the account's currency
+     */
+    public double getAvailableBalance()
+    {
+        final double held;
+
+        // Captures lower the balance before releasing the hold, so read the hold first
+        held = heldAmount;
+
+        return balance - held;
+    }
+
+    /**
+     * Retrieves the funds held by pending authorizations.
+     *
+     * @return the held amount in the account's currency
+     */
+    public double getHeldAmount()
+    {
+        return heldAmount;
+    }
+
+    /**
+     * Holds funds for a pending authorization if they are available. The same
+     * rules as a withdrawal apply, including the withdrawal check.
+     *
+     * @param authorization the authorization to hold funds for
+     * @return {@link ValidationCode#OK} if the funds are now held, otherwise the reason they were refused
      */
-    public void withdraw(final double amountUsd)
+    ResultCode reserve(final Authorization authorization)
     {
-        if (amountUsd <= 0)
+        final double amount;
+        final int held;
+
+        amount = authorization.getAmount();
+
+        if (!(amount > 0))
         {
-            throw new IllegalArgumentException("Withdrawal amount must be positive");
+            return AuthorizationCode.AMOUNT_NOT_POSITIVE;
         }
 
-        if (amountUsd > balance)
+        held = hold(false);
+
+        if (held == CLOSED)
         {
-            throw new IllegalArgumentException("Insufficient funds");
+            return ValidationCode.WITHDRAW_FROM_CLOSED;
         }
 
-        if (accountClosed != null)
+        if (held == FROZEN)
         {
-            throw new IllegalArgumentException("Cannot withdraw from a closed account");
+            return ValidationCode.WITHDRAW_FROM_FROZEN;
         }
 
-        balance -= amountUsd;
+        try
+        {
+            recordVersion();
+
+            if (amount > balance - heldAmount)
+            {
+                return ValidationCode.INSUFFICIENT_FUNDS;
+            }
+
+            if (!passesWithdrawalCheck(amount))
+            {
+                return ValidationCode.VELOCITY_LIMIT_EXCEEDED;
+            }
+
+            heldAmount += amount;
+        }
+        finally
+        {
+            state = held;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Ends a pending authorization, returning its held funds and, for a capture,
+     * withdrawing the captured amount. A capture is allowed on a frozen account,
+     * since the funds were authorized before the freeze, but not on a closed one.
+     * Release and expiry are allowed in any state.
+     *
+     * @param authorization the authorization to end
+     * @param outcome       {@link AuthorizationStatus#CAPTURED}, {@link AuthorizationStatus#RELEASED}
+     *                      or {@link AuthorizationStatus#EXPIRED}
+     * @param captured      the amount to withdraw for a capture, otherwise ignored
+     * @return {@link ValidationCode#OK} if the authorization ended, otherwise the reason it did not
+     */
+    ResultCode settle(final Authorization authorization,
+                      final AuthorizationStatus outcome,
+                      final double captured)
+    {
+        final int held;
+        final double balanceAfter;
+        final int report;
+
+        held = holdInAnyState();
+
+        try
+        {
+            recordVersion();
+
+            if (authorization.getStatus() != AuthorizationStatus.PENDING)
+            {
+                return AuthorizationCode.NOT_PENDING;
+            }
+
+            if (outcome == AuthorizationStatus.CAPTURED)
+            {
+                if (held == CLOSED)
+                {
+                    return ValidationCode.WITHDRAW_FROM_CLOSED;
+                }
+
+                if (!(captured > 0 && captured <= authorization.getAmount()))
+                {
+                    return AuthorizationCode.CAPTURE_OUT_OF_RANGE;
+                }
+
+                balanceAfter = balance - captured;
+                balance      = balanceAfter;
+                report       = prepareEvent(AccountEventType.WITHDRAWAL, held, captured, balanceAfter);
+            }
+            else
+            {
+                balanceAfter = balance;
+                report       = NOT_REPORTED;
+            }
+
+            authorization.setStatus(outcome);
+            heldAmount -= authorization.getAmount();
+        }
+        finally
+        {
+            state = held;
+        }
+
+        reportEvent(report, AccountEventType.WITHDRAWAL, held, captured, balanceAfter);
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Withdraws funds from this account if sufficient balance is available and the account is open.
+     *
+     * @param amount the amount to withdraw in the account's currency; must be positive
+     * @throws IllegalArgumentException if amount is invalid, balance is insufficient,
+     *                                  or the account is frozen or closed
+     */
+    public void withdraw(final double amount)
+    {
+        tryWithdraw(amount).throwIfFailed();
     }
 
     /**
      * Withdraws funds from this account if the correct PIN is provided.
      *
-     * @param amountUsd  the amount to withdraw in USD; must be positive
+     * @param amount     the amount to withdraw in the account's currency; must be positive
      * @param pinToMatch the PIN entered for verification
      * @throws IllegalArgumentException if the PIN is invalid, the amount is invalid,
-     *                                  the balance is insufficient, or the account is closed
+     *                                  the balance is insufficient, or the account is frozen or closed
      */
-    public void withdraw(final double amountUsd,
+    public void withdraw(final double amount,
                          final int pinToMatch)
     {
-        if (pinToMatch != this.pin)
+        tryWithdraw(amount, pinToMatch).throwIfFailed();
+    }
+
+    /**
+     * Withdraws funds from this account without throwing on failure.
+     *
+     * @param amount the amount to withdraw in the account's currency; must be positive
+     * @return {@link ValidationCode#OK} if the withdrawal was applied, otherwise the reason it was refused
+     */
+    public ValidationCode tryWithdraw(final double amount)
+    {
+        final int held;
+        final double balanceAfter;
+        final int report;
+
+        if (!(amount > 0))
+        {
+            return ValidationCode.WITHDRAWAL_NOT_POSITIVE;
+        }
+
+        held = hold(false);
+
+        if (held == CLOSED)
+        {
+            return ValidationCode.WITHDRAW_FROM_CLOSED;
+        }
+
+        if (held == FROZEN)
+        {
+            return ValidationCode.WITHDRAW_FROM_FROZEN;
+        }
+
+        try
+        {
+            recordVersion();
+
+            if (amount > balance - heldAmount)
+            {
+                return ValidationCode.INSUFFICIENT_FUNDS;
+            }
+
+            if (!passesWithdrawalCheck(amount))
+            {
+                return ValidationCode.VELOCITY_LIMIT_EXCEEDED;
+            }
+
+            balanceAfter = balance - amount;
+            balance      = balanceAfter;
+            report       = prepareEvent(AccountEventType.WITHDRAWAL, held, amount, balanceAfter);
+        }
+        finally
+        {
+            state = held;
+        }
+
+        reportEvent(report, AccountEventType.WITHDRAWAL, held, amount, balanceAfter);
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Withdraws funds from this account if the correct PIN is provided, without throwing on failure.
+     *
+     * @param amount     the amount to withdraw in the account's currency; must be positive
+     * @param pinToMatch the PIN entered for verification
+     * @return {@link ValidationCode#OK} if the withdrawal was applied, otherwise the reason it was refused
+     */
+    public ValidationCode tryWithdraw(final double amount,
+                                      final int pinToMatch)
+    {
+        if (pin == NO_PIN || pinToMatch != pin)
         {
-            throw new IllegalArgumentException("Invalid PIN");
+            return ValidationCode.INVALID_PIN;
         }
-        withdraw(amountUsd);
+        return tryWithdraw(amount);
     }
 
     /**
      * Deposits funds into this account if the account is open.
      *
-     * @param amountUsd the amount to deposit in USD; must be positive
+     * @param amount the amount to deposit in the account's currency; must be positive
      * @throws IllegalArgumentException if the amount is invalid or the account is closed
      */
-    public void deposit(final double amountUsd)
+    public void deposit(final double amount)
     {
-        if (amountUsd <= 0)
+        tryDeposit(amount).throwIfFailed();
+    }
+
+    /**
+     * Deposits funds into this account without throwing on failure.
+     *
+     * @param amount the amount to deposit in the account's currency; must be positive
+     * @return {@link ValidationCode#OK} if the deposit was applied, otherwise the reason it was refused
+     */
+    public ValidationCode tryDeposit(final double amount)
+    {
+        final int held;
+        final double balanceAfter;
+        final int report;
+
+        if (!(amount > 0))
         {
-            throw new IllegalArgumentException("Deposit amount must be positive");
+            return ValidationCode.DEPOSIT_NOT_POSITIVE;
         }
-        if (accountClosed != null)
+
+        held = hold(true);
+
+        if (held == CLOSED)
+        {
+            return ValidationCode.DEPOSIT_TO_CLOSED;
+        }
+
+        try
+        {
+            recordVersion();
+            balanceAfter = balance + amount;
+            balance      = balanceAfter;
+            report       = prepareEvent(AccountEventType.DEPOSIT, held, amount, balanceAfter);
+        }
+        finally
+        {
+            state = held;
+        }
+
+        reportEvent(report, AccountEventType.DEPOSIT, held, amount, balanceAfter);
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Withdraws an amount given in any currency, converted into the account's currency.
+     *
+     * @param amount         the amount to withdraw in {@code amountCurrency}; must be positive
+     * @param amountCurrency the currency of {@code amount}
+     * @param rates          the exchange rates to convert with
+     * @throws IllegalArgumentException if a rate is unknown, the amount is invalid,
+     *                                  the balance is insufficient, or the account is frozen or closed
+     */
+    public void withdraw(final double amount,
+                         final Currency amountCurrency,
+                         final FxRateTable rates)
+    {
+        tryWithdraw(amount, amountCurrency, rates).throwIfFailed();
+    }
+
+    /**
+     * Withdraws an amount given in any currency, converted into the account's currency,
+     * without throwing on failure.
+     *
+     * @param amount         the amount to withdraw in {@code amountCurrency}; must be positive
+     * @param amountCurrency the currency of {@code amount}
+     * @param rates          the exchange rates to convert with
+     * @return {@link ValidationCode#OK} if the withdrawal was applied, otherwise the reason it was refused
+     */
+    public ResultCode tryWithdraw(final double amount,
+                                  final Currency amountCurrency,
+                                  final FxRateTable rates)
+    {
+        final double converted;
+        converted = rates.tryConvert(amount, amountCurrency, currency);
+
+        if (Double.isNaN(converted))
         {
-            throw new IllegalArgumentException("Cannot deposit to a closed account");
+            return FxCode.UNKNOWN_CURRENCY;
         }
-        balance += amountUsd;
+        return tryWithdraw(converted);
+    }
+
+    /**
+     * Deposits an amount given in any currency, converted into the account's currency.
+     *
+     * @param amount         the amount to deposit in {@code amountCurrency}; must be positive
+     * @param amountCurrency the currency of {@code amount}
+     * @param rates          the exchange rates to convert with
+     * @throws IllegalArgumentException if a rate is unknown, the amount is invalid, or the account is closed
+     */
+    public void deposit(final double amount,
+                        final Currency amountCurrency,
+                        final FxRateTable rates)
+    {
+        tryDeposit(amount, amountCurrency, rates).throwIfFailed();
+    }
+
+    /**
+     * Deposits an amount given in any currency, converted into the account's currency,
+     * without throwing on failure.
+     *
+     * @param amount         the amount to deposit in {@code amountCurrency}; must be positive
+     * @param amountCurrency the currency of {@code amount}
+     * @param rates          the exchange rates to convert with
+     * @return {@link ValidationCode#OK} if the deposit was applied, otherwise the reason it was refused
+     */
+    public ResultCode tryDeposit(final double amount,
+                                 final Currency amountCurrency,
+                                 final FxRateTable rates)
+    {
+        final double converted;
+        converted = rates.tryConvert(amount, amountCurrency, currency);
+
+        if (Double.isNaN(converted))
+        {
+            return FxCode.UNKNOWN_CURRENCY;
+        }
+        return tryDeposit(converted);
     }
 
     /**
@@ -225,6 +1354,28 @@ class BankAccount
      * @return a human-readable string representation of account details
      */
     public String getDetails()
+    {
+        return formatDetails(client, balance, currency, accountNumber, accountOpened, accountClosed);
+    }
+
+    /**
+     * Formats account details as described by {@link #getDetails()}, so other
+     * account representations can report the same text.
+     *
+     * @param client        the owning client
+     * @param balance       the current balance
+     * @param currency      the currency of the balance
+     * @param accountNumber the account number
+     * @param accountOpened the date the account was opened
+     * @param accountClosed the date the account was closed, or {@code null} if still open
+     * @return a human-readable string representation of account details
+     */
+    static String formatDetails(final BankClient client,
+                                final double balance,
+                                final Currency currency,
+                                final String accountNumber,
+                                final Date accountOpened,
+                                final Date accountClosed)
     {
         final String openedDateFormatted;
         final String closedDateFormatted;
@@ -253,9 +1404,11 @@ class BankAccount
             closedDateFormatted = "is still open.";
         }
 
-        detailsFormatted = String.format("%s had $%.0f USD in account #%s which they opened on %s and %s.",
+        detailsFormatted = String.format("%s had %s%.0f %s in account #%s which they opened on %s and %s.",
                                          clientName,
+                                         currency.getSymbol(Locale.US),
                                          balance,
+                                         currency.getCurrencyCode(),
                                          accountNumber,
                                          openedDateFormatted,
                                          closedDateFormatted
@@ -263,4 +1416,36 @@ class BankAccount
 
         return detailsFormatted;
     }
-}
\ No newline at end of file
+
+    /**
+     * A change waiting to be reported, linked to the change after it.
+     */
+    private static final class PendingEvent
+    {
+        private final AccountEventType type;
+        private final int              stateAfter;
+        private final double           amount;
+        private final double           balanceAfter;
+
+        private volatile PendingEvent next;
+
+        /**
+         * Constructs a {@code PendingEvent}.
+         *
+         * @param type         the kind of change
+         * @param stateAfter   the lifecycle state after the change, as an ordinal
+         * @param amount       the amount deposited or withdrawn, or {@code 0} for a lifecycle change
+         * @param balanceAfter the balance after the change
+         */
+        private PendingEvent(final AccountEventType type,
+                             final int stateAfter,
+                             final double amount,
+                             final double balanceAfter)
+        {
+            this.type         = type;
+            this.stateAfter   = stateAfter;
+            this.amount       = amount;
+            this.balanceAfter = balanceAfter;
+        }
+    }
+}
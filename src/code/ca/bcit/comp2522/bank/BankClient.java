@@ -14,6 +14,8 @@ package ca.bcit.comp2522.bank;
  *     <li>Support for accessing key client details such as name, birth date,
  *     signup date, and client ID.</li>
  *     <li>Formatted detail reporting for summary output.</li>
+ *     <li>Age at signup, lifespan and age on any date, derived once at
+ *     construction so segmentation loops only read primitive fields.</li>
  * </ul>
  *
  * @author Ryan Fiset, Larry Lin
@@ -29,12 +31,24 @@ class BankClient
     private static final String ALIVE_STRING = "alive";
     private static final String DEAD_STRING  = "not alive";
 
+    // --- Marker for derived values that do not apply ---
+    static final int NOT_DECEASED = -1;
+
     private final Name   name;
     private final Date   birthDate;
     private final Date   deathDate;
     private final Date   signupDate;
     private final String clientID;
 
+    // --- Derived values, cached at construction ---
+    private final int birthYear;
+    private final int birthMonthDay;
+    private final int birthEpochDay;
+    private final int signupEpochDay;
+    private final int deathEpochDay;
+    private final int ageAtSignup;
+    private final int lifespan;
+
     /**
      * Constructs a {@code BankClient} with the given identifying information.
      *
@@ -51,50 +65,121 @@ class BankClient
                       final Date signupDate,
                       final String clientID)
     {
-        validateClientID(name, birthDate, signupDate, clientID);
+        this(name, birthDate, deathDate, signupDate, clientID, checkClient(name, birthDate, signupDate, clientID));
+    }
+
+    /**
+     * Constructs a {@code BankClient} from fields that have already been checked.
+     *
+     * @param name       the client’s full name
+     * @param birthDate  the client’s date of birth
+     * @param deathDate  the client’s date of death, or {@code null} if alive
+     * @param signupDate the date when the client joined the bank
+     * @param clientID   the unique client ID
+     * @param code       the result of checking the fields
+     * @throws IllegalArgumentException if {@code code} is a failure
+     */
+    private BankClient(final Name name,
+                       final Date birthDate,
+                       final Date deathDate,
+                       final Date signupDate,
+                       final String clientID,
+                       final ValidationCode code)
+    {
+        code.throwIfFailed();
 
         this.name       = name;
         this.birthDate  = birthDate;
         this.deathDate  = deathDate;
         this.signupDate = signupDate;
         this.clientID   = clientID;
+
+        this.birthYear      = birthDate.getYear();
+        this.birthMonthDay  = birthDate.toMonthDay();
+        this.birthEpochDay  = birthDate.toEpochDay();
+        this.signupEpochDay = signupDate.toEpochDay();
+        this.ageAtSignup    = birthDate.yearsUntil(signupDate);
+
+        if (deathDate == null)
+        {
+            this.deathEpochDay = NOT_DECEASED;
+            this.lifespan      = NOT_DECEASED;
+        }
+        else
+        {
+            this.deathEpochDay = deathDate.toEpochDay();
+            this.lifespan      = birthDate.yearsUntil(deathDate);
+        }
     }
 
     /**
-     * Validates required fields for a {@code BankClient}.
+     * Creates a {@code BankClient} without throwing on invalid input.
+     *
+     * @param name       the client’s full name
+     * @param birthDate  the client’s date of birth
+     * @param deathDate  the client’s date of death, or {@code null} if alive
+     * @param signupDate the date when the client joined the bank
+     * @param clientID   the unique client ID
+     * @return a result holding the new client, or the code of the first failed rule
+     */
+    public static ValidationResult<BankClient> tryCreate(final Name name,
+                                                         final Date birthDate,
+                                                         final Date deathDate,
+                                                         final Date signupDate,
+                                                         final String clientID)
+    {
+        final ValidationCode code;
+        code = checkClient(name, birthDate, signupDate, clientID);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+        return ValidationResult.success(new BankClient(name, birthDate, deathDate, signupDate, clientID, code));
+    }
+
+    /**
+     * Checks the required fields for a {@code BankClient} without throwing.
      *
      * @param name       the client’s name
      * @param birthDate  the client’s date of birth
      * @param signupDate the client’s signup date
      * @param clientID   the client’s identifier
-     * @throws IllegalArgumentException if any field is invalid
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
      */
-    private void validateClientID(final Name name,
-                                  final Date birthDate,
-                                  final Date signupDate,
-                                  final String clientID)
+    static ValidationCode checkClient(final Name name,
+                                      final Date birthDate,
+                                      final Date signupDate,
+                                      final String clientID)
     {
-        Main.validateString(clientID);
+        final ValidationCode idCode;
+        idCode = Main.checkString(clientID);
+
+        if (!idCode.isOk())
+        {
+            return idCode;
+        }
 
         if (clientID.length() < MIN_CLIENT_ID_LENGTH || clientID.length() > MAX_CLIENT_ID_LENGTH)
         {
-            throw new IllegalArgumentException("Client ID must be 6 or 7 characters");
+            return ValidationCode.CLIENT_ID_LENGTH;
         }
 
         if (name == null)
         {
-            throw new IllegalArgumentException("Name cannot be null");
+            return ValidationCode.NAME_NULL;
         }
 
         if (birthDate == null)
         {
-            throw new IllegalArgumentException("Birth date cannot be null");
+            return ValidationCode.BIRTH_DATE_NULL;
         }
 
         if (signupDate == null)
         {
-            throw new IllegalArgumentException("Signup date cannot be null");
+            return ValidationCode.SIGNUP_DATE_NULL;
         }
+        return ValidationCode.OK;
     }
 
     /**
@@ -147,6 +232,90 @@ class BankClient
         return clientID;
     }
 
+    /**
+     * Retrieves the client’s age in whole years on the day they joined the bank.
+     *
+     * @return the age at signup
+     */
+    public int getAgeAtSignup()
+    {
+        return ageAtSignup;
+    }
+
+    /**
+     * Retrieves how many whole years a deceased client lived.
+     *
+     * @return the lifespan in years, or {@link #NOT_DECEASED} if the client is alive
+     */
+    public int getLifespan()
+    {
+        return lifespan;
+    }
+
+    /**
+     * Computes the client’s age in whole years on a given date. For a deceased
+     * client the age stops increasing at the date of death.
+     *
+     * @param date the date to compute the age on; must not be {@code null}
+     * @return the age in years
+     */
+    public int getAgeOn(final Date date)
+    {
+        return getAgeOn(date.getYear(), date.toMonthDay());
+    }
+
+    /**
+     * Computes the client’s age in whole years on a date given as a year and a
+     * packed {@code MMDD} month-day, so loops over many clients can reuse one
+     * precomputed date.
+     *
+     * @param year     the year of the date
+     * @param monthDay the month and day of the date, from {@link Date#toMonthDay()}
+     * @return the age in years
+     */
+    int getAgeOn(final int year,
+                 final int monthDay)
+    {
+        final int age;
+        age = Date.yearsBetween(birthYear, birthMonthDay, year, monthDay);
+
+        if (lifespan != NOT_DECEASED && age > lifespan)
+        {
+            return lifespan;
+        }
+        return age;
+    }
+
+    /**
+     * Retrieves the client’s birth date as a day number.
+     *
+     * @return the day number from {@link Date#toEpochDay()}
+     */
+    int getBirthEpochDay()
+    {
+        return birthEpochDay;
+    }
+
+    /**
+     * Retrieves the client’s signup date as a day number.
+     *
+     * @return the day number from {@link Date#toEpochDay()}
+     */
+    int getSignupEpochDay()
+    {
+        return signupEpochDay;
+    }
+
+    /**
+     * Retrieves the client’s death date as a day number.
+     *
+     * @return the day number from {@link Date#toEpochDay()}, or {@link #NOT_DECEASED} if the client is alive
+     */
+    int getDeathEpochDay()
+    {
+        return deathEpochDay;
+    }
+
     /**
      * Produces a formatted string summarizing the client’s details, including:
      * <ul>
@@ -0,0 +1,129 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Builds the fixed sample accounts the benchmarks run against.
+ *
+ * <p>Each field is a simple function of the account's index, so a benchmark
+ * can build the same book in several places, or rebuild one account from its
+ * index, without sharing state. Account numbers double as client IDs, and the
+ * dates cycle through the months and years so they are not all the same.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class BenchmarkAccounts
+{
+    private static final int ID_BASE       = 1_000_000;
+    private static final int ID_SPAN       = 9_000_000;
+    private static final int BIRTH_YEAR    = 1930;
+    private static final int BIRTH_SPAN    = 70;
+    private static final int SIGNUP_YEAR   = 2015;
+    private static final int SIGNUP_SPAN   = 10;
+    private static final int DAY_SPAN      = 28;
+    private static final int BALANCE_LIMIT = 50_000;
+    private static final int PIN_LIMIT     = 10_000;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BenchmarkAccounts()
+    {
+    }
+
+    /**
+     * Creates the accounts from {@link #account(int)}.
+     *
+     * @param count the number of accounts
+     * @return the accounts, in index order
+     */
+    static BankAccount[] create(final int count)
+    {
+        final BankAccount[] accounts;
+        accounts = new BankAccount[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            accounts[i] = account(i);
+        }
+        return accounts;
+    }
+
+    /**
+     * Creates accounts that differ only in number, each owned by a client named
+     * "Holder Number<i>n</i>". Two calls with the same arguments give equal books.
+     *
+     * @param count   the number of accounts
+     * @param balance the balance of every account
+     * @return the accounts, in index order
+     */
+    static BankAccount[] create(final int count,
+                                final double balance)
+    {
+        final BankAccount[] accounts;
+        accounts = new BankAccount[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            accounts[i] = account(i, new Name("Holder", "Number" + i), balance);
+        }
+        return accounts;
+    }
+
+    /**
+     * Creates the account at an index, owned by a client named
+     * "First<i>n</i> Last<i>n</i>" and holding a balance below
+     * {@value #BALANCE_LIMIT}.
+     *
+     * @param index the account's index
+     * @return the account
+     */
+    static BankAccount account(final int index)
+    {
+        return account(index, new Name("First" + index, "Last" + index), index % BALANCE_LIMIT);
+    }
+
+    /**
+     * Creates the account at an index. The account number comes from
+     * {@link #accountNumber(int)} and is also the client's ID, and the account
+     * opens on the day the client signed up.
+     *
+     * @param index   the account's index
+     * @param name    the client's name
+     * @param balance the balance
+     * @return the account
+     */
+    static BankAccount account(final int index,
+                               final Name name,
+                               final double balance)
+    {
+        final String id;
+        final int month;
+        final int day;
+        final Date signup;
+        final BankClient client;
+
+        id     = accountNumber(index);
+        month  = Date.JANUARY + index % Date.DECEMBER;
+        day    = 1 + index % DAY_SPAN;
+        signup = Date.of(SIGNUP_YEAR + index % SIGNUP_SPAN, month, day);
+        client = new BankClient(name,
+                                Date.of(BIRTH_YEAR + index % BIRTH_SPAN, month, day),
+                                null,
+                                signup,
+                                id);
+
+        return new BankAccount(client, id, signup, null, balance, index % PIN_LIMIT);
+    }
+
+    /**
+     * Returns the number of the account at an index. Numbers repeat after
+     * {@value #ID_SPAN} accounts.
+     *
+     * @param index the account's index
+     * @return the account number
+     */
+    static String accountNumber(final int index)
+    {
+        return Integer.toString(ID_BASE + index % ID_SPAN);
+    }
+}
@@ -0,0 +1,588 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+
+/**
+ * Encodes {@link Name}, {@link Date}, {@link BankClient} and {@link BankAccount}
+ * objects to and from a compact binary form in a {@link ByteBuffer}.
+ *
+ * <p>The record layouts are:</p>
+ * <ul>
+ *     <li>{@code Date}: 4-byte day number (see {@link Date#toEpochDay()}), or
+ *     {@value #NO_DATE} for a missing date.</li>
+ *     <li>{@code Name}: the first and last names, each as a 2-byte length followed
+ *     by that many bytes of UTF-8.</li>
+ *     <li>{@code BankClient}: 7-byte packed client ID, birth, death and signup
+ *     dates, then the name.</li>
+ *     <li>{@code BankAccount}: 7-byte packed account number, opened and closed
+ *     dates, 8-byte balance, 3-byte ASCII currency code, then the owning
+ *     client.</li>
+ * </ul>
+ *
+ * <p>Account records leave out the PIN, so encoded bytes never expose it. A
+ * decoded account carries {@link BankAccount#NO_PIN} and refuses withdrawals
+ * that require a PIN.</p>
+ *
+ * <p>Fixed-width fields come first so readers can reach IDs and dates at known
+ * offsets without decoding the names. Encoding writes straight into the buffer
+ * without intermediate allocation; decoding only allocates the decoded objects.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class BinaryCodec
+{
+    static final int NO_DATE = -1;
+
+    // --- Packed key constants ---
+    static final int KEY_BYTES = 7;
+
+    private static final int  BITS_PER_BYTE   = 8;
+    private static final int  MIN_PRINTABLE   = 0x20;
+    private static final int  MAX_PRINTABLE   = 0x7E;
+    private static final int  BYTE_MASK       = 0xFF;
+    private static final long SHORT_MASK      = 0xFFFFL;
+    private static final long INT_MASK        = 0xFFFFFFFFL;
+    private static final int  HIGH_BYTE_SHIFT = 48;
+    private static final int  MID_SHORT_SHIFT = 32;
+
+    // --- Record sizes and offsets ---
+    static final int DATE_BYTES              = Integer.BYTES;
+    static final int CLIENT_FIXED_BYTES      = KEY_BYTES + 3 * DATE_BYTES;
+    static final int CURRENCY_BYTES          = 3;
+    static final int ACCOUNT_FIXED_BYTES     = KEY_BYTES + 2 * DATE_BYTES + Double.BYTES + CURRENCY_BYTES;
+    static final int CLIENT_BIRTH_OFFSET     = KEY_BYTES;
+    static final int CLIENT_DEATH_OFFSET     = CLIENT_BIRTH_OFFSET + DATE_BYTES;
+    static final int CLIENT_SIGNUP_OFFSET    = CLIENT_DEATH_OFFSET + DATE_BYTES;
+    static final int CLIENT_NAME_OFFSET      = CLIENT_FIXED_BYTES;
+    static final int ACCOUNT_OPENED_OFFSET   = KEY_BYTES;
+    static final int ACCOUNT_CLOSED_OFFSET   = ACCOUNT_OPENED_OFFSET + DATE_BYTES;
+    static final int ACCOUNT_BALANCE_OFFSET  = ACCOUNT_CLOSED_OFFSET + DATE_BYTES;
+    static final int ACCOUNT_CURRENCY_OFFSET = ACCOUNT_BALANCE_OFFSET + Double.BYTES;
+    static final int ACCOUNT_CLIENT_OFFSET   = ACCOUNT_FIXED_BYTES;
+
+    // --- UTF-8 constants ---
+    private static final int ONE_BYTE_LIMIT   = 0x80;
+    private static final int TWO_BYTE_LIMIT   = 0x800;
+    private static final int TWO_BYTE_LEAD    = 0xC0;
+    private static final int THREE_BYTE_LEAD  = 0xE0;
+    private static final int FOUR_BYTE_LEAD   = 0xF0;
+    private static final int CONTINUATION     = 0x80;
+    private static final int SIX_BIT_MASK     = 0x3F;
+    private static final int SIX_BITS         = 6;
+    private static final int TWELVE_BITS      = 12;
+    private static final int EIGHTEEN_BITS    = 18;
+    private static final int TWO_BYTES        = 2;
+    private static final int THREE_BYTES      = 3;
+    private static final int FOUR_BYTES       = 4;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_STRING_BYTES]);
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BinaryCodec()
+    {
+    }
+
+    /**
+     * Packs a printable ASCII identifier of up to {@value #KEY_BYTES} characters into a long,
+     * first character in the highest byte.
+     *
+     * @param id the identifier to pack
+     * @return the packed key
+     * @throws IllegalArgumentException if the identifier is too long or has a character outside {@code ' '} to {@code '~'}
+     */
+    static long packKey(final String id)
+    {
+        long key;
+
+        if (id.length() > KEY_BYTES)
+        {
+            throw new IllegalArgumentException("Key exceeds " + KEY_BYTES + " characters");
+        }
+
+        key = 0;
+
+        for (int i = 0; i < KEY_BYTES; i++)
+        {
+            key <<= BITS_PER_BYTE;
+
+            if (i < id.length())
+            {
+                final char character;
+                character = id.charAt(i);
+
+                if (character < MIN_PRINTABLE || character > MAX_PRINTABLE)
+                {
+                    throw new IllegalArgumentException("Key must be printable ASCII");
+                }
+                key |= character;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Unpacks a key produced by {@link #packKey(String)}.
+     *
+     * @param key the packed key
+     * @return the identifier
+     */
+    static String unpackKey(final long key)
+    {
+        final char[] characters;
+        int length;
+
+        characters = new char[KEY_BYTES];
+        length     = 0;
+
+        for (int i = KEY_BYTES - 1; i >= 0; i--)
+        {
+            final int character;
+            character = (int) (key >>> (i * BITS_PER_BYTE)) & BYTE_MASK;
+
+            if (character == 0)
+            {
+                break;
+            }
+            characters[length++] = (char) character;
+        }
+        return new String(characters, 0, length);
+    }
+
+    /**
+     * Writes a packed key as {@value #KEY_BYTES} big-endian bytes.
+     *
+     * @param buffer the buffer to write to
+     * @param key    the packed key
+     */
+    static void putKey(final ByteBuffer buffer,
+                       final long key)
+    {
+        buffer.put((byte) (key >>> HIGH_BYTE_SHIFT));
+        buffer.putShort((short) (key >>> MID_SHORT_SHIFT));
+        buffer.putInt((int) key);
+    }
+
+    /**
+     * Reads a packed key written by {@link #putKey(ByteBuffer, long)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the packed key
+     */
+    static long getKey(final ByteBuffer buffer)
+    {
+        final long high;
+        final long middle;
+        final long low;
+
+        high   = buffer.get() & BYTE_MASK;
+        middle = buffer.getShort() & SHORT_MASK;
+        low    = buffer.getInt() & INT_MASK;
+
+        return high << HIGH_BYTE_SHIFT | middle << MID_SHORT_SHIFT | low;
+    }
+
+    /**
+     * Reads a packed key at an absolute position without moving the buffer position.
+     *
+     * @param buffer the buffer to read from
+     * @param index  the position of the key
+     * @return the packed key
+     */
+    static long getKey(final ByteBuffer buffer,
+                       final int index)
+    {
+        final long high;
+        final long middle;
+        final long low;
+
+        high   = buffer.get(index) & BYTE_MASK;
+        middle = buffer.getShort(index + Byte.BYTES) & SHORT_MASK;
+        low    = buffer.getInt(index + Byte.BYTES + Short.BYTES) & INT_MASK;
+
+        return high << HIGH_BYTE_SHIFT | middle << MID_SHORT_SHIFT | low;
+    }
+
+    /**
+     * Encodes a date, or {@code null}, as its 4-byte day number.
+     *
+     * @param buffer the buffer to write to
+     * @param date   the date, or {@code null}
+     */
+    static void encodeDate(final ByteBuffer buffer,
+                           final Date date)
+    {
+        if (date == null)
+        {
+            buffer.putInt(NO_DATE);
+        }
+        else
+        {
+            buffer.putInt(date.toEpochDay());
+        }
+    }
+
+    /**
+     * Decodes a date written by {@link #encodeDate(ByteBuffer, Date)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the date, or {@code null} if none was encoded
+     */
+    static Date decodeDate(final ByteBuffer buffer)
+    {
+        return dateOf(buffer.getInt());
+    }
+
+    /**
+     * Converts an encoded day number back into a date.
+     *
+     * @param epochDay the day number, or {@value #NO_DATE}
+     * @return the date, or {@code null} for {@value #NO_DATE}
+     */
+    static Date dateOf(final int epochDay)
+    {
+        if (epochDay == NO_DATE)
+        {
+            return null;
+        }
+        return Date.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Encodes a name as two length-prefixed UTF-8 strings.
+     *
+     * @param buffer the buffer to write to
+     * @param name   the name
+     */
+    static void encodeName(final ByteBuffer buffer,
+                           final Name name)
+    {
+        putString(buffer, name.getFirstName());
+        putString(buffer, name.getLastName());
+    }
+
+    /**
+     * Decodes a name written by {@link #encodeName(ByteBuffer, Name)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the name
+     */
+    static Name decodeName(final ByteBuffer buffer)
+    {
+        final String firstName;
+        final String lastName;
+
+        firstName = getString(buffer);
+        lastName  = getString(buffer);
+
+        return new Name(firstName, lastName);
+    }
+
+    /**
+     * Encodes a client.
+     *
+     * @param buffer the buffer to write to
+     * @param client the client
+     */
+    static void encodeClient(final ByteBuffer buffer,
+                             final BankClient client)
+    {
+        putKey(buffer, packKey(client.getClientID()));
+        encodeDate(buffer, client.getBirthDate());
+        encodeDate(buffer, client.getDeathDate());
+        encodeDate(buffer, client.getSignupDate());
+        encodeName(buffer, client.getName());
+    }
+
+    /**
+     * Decodes a client written by {@link #encodeClient(ByteBuffer, BankClient)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the client
+     */
+    static BankClient decodeClient(final ByteBuffer buffer)
+    {
+        final String clientID;
+        final Date birthDate;
+        final Date deathDate;
+        final Date signupDate;
+        final Name name;
+
+        clientID   = unpackKey(getKey(buffer));
+        birthDate  = decodeDate(buffer);
+        deathDate  = decodeDate(buffer);
+        signupDate = decodeDate(buffer);
+        name       = decodeName(buffer);
+
+        return new BankClient(name, birthDate, deathDate, signupDate, clientID);
+    }
+
+    /**
+     * Encodes an account together with its owning client, leaving out the PIN.
+     *
+     * @param buffer  the buffer to write to
+     * @param account the account
+     */
+    static void encodeAccount(final ByteBuffer buffer,
+                              final BankAccount account)
+    {
+        putKey(buffer, packKey(account.getAccountNumber()));
+        encodeDate(buffer, account.getAccountOpened());
+        encodeDate(buffer, account.getAccountClosed());
+        buffer.putDouble(account.getBalance());
+        encodeCurrency(buffer, account.getCurrency());
+        encodeClient(buffer, account.getClient());
+    }
+
+    /**
+     * Decodes an account written by {@link #encodeAccount(ByteBuffer, BankAccount)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the account, with {@link BankAccount#NO_PIN} as its PIN
+     */
+    static BankAccount decodeAccount(final ByteBuffer buffer)
+    {
+        final String accountNumber;
+        final Date accountOpened;
+        final Date accountClosed;
+        final double balance;
+        final Currency currency;
+        final BankClient client;
+
+        accountNumber = unpackKey(getKey(buffer));
+        accountOpened = decodeDate(buffer);
+        accountClosed = decodeDate(buffer);
+        balance       = buffer.getDouble();
+        currency      = decodeCurrency(buffer);
+        client        = decodeClient(buffer);
+
+        return new BankAccount(client, accountNumber, accountOpened, accountClosed, balance, BankAccount.NO_PIN, currency);
+    }
+
+    /**
+     * Encodes a currency as its {@value #CURRENCY_BYTES}-letter ISO 4217 code.
+     *
+     * @param buffer   the buffer to write to
+     * @param currency the currency
+     */
+    static void encodeCurrency(final ByteBuffer buffer,
+                               final Currency currency)
+    {
+        final String code;
+        code = currency.getCurrencyCode();
+
+        for (int i = 0; i < CURRENCY_BYTES; i++)
+        {
+            buffer.put((byte) code.charAt(i));
+        }
+    }
+
+    /**
+     * Decodes a currency written by {@link #encodeCurrency(ByteBuffer, Currency)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the currency
+     */
+    static Currency decodeCurrency(final ByteBuffer buffer)
+    {
+        final char[] code;
+        code = new char[CURRENCY_BYTES];
+
+        for (int i = 0; i < CURRENCY_BYTES; i++)
+        {
+            code[i] = (char) buffer.get();
+        }
+        return Currency.getInstance(new String(code));
+    }
+
+    /**
+     * Decodes a currency at an absolute position without moving the buffer position.
+     *
+     * @param buffer the buffer to read from
+     * @param index  the position of the currency code
+     * @return the currency
+     */
+    static Currency decodeCurrency(final ByteBuffer buffer,
+                                   final int index)
+    {
+        final char[] code;
+        code = new char[CURRENCY_BYTES];
+
+        for (int i = 0; i < CURRENCY_BYTES; i++)
+        {
+            code[i] = (char) buffer.get(index + i);
+        }
+        return Currency.getInstance(new String(code));
+    }
+
+    /**
+     * Writes a string as a 2-byte UTF-8 length followed by its UTF-8 bytes, encoding
+     * characters directly into the buffer.
+     *
+     * @param buffer the buffer to write to
+     * @param str    the string
+     */
+    static void putString(final ByteBuffer buffer,
+                          final String str)
+    {
+        final int length;
+        length = utf8Length(str);
+
+        if (length > MAX_STRING_BYTES)
+        {
+            throw new IllegalArgumentException("String exceeds " + MAX_STRING_BYTES + " UTF-8 bytes");
+        }
+
+        buffer.putShort((short) length);
+
+        for (int i = 0; i < str.length(); i++)
+        {
+            final char character;
+            character = str.charAt(i);
+
+            if (character < ONE_BYTE_LIMIT)
+            {
+                buffer.put((byte) character);
+            }
+            else if (character < TWO_BYTE_LIMIT)
+            {
+                buffer.put((byte) (TWO_BYTE_LEAD | character >> SIX_BITS));
+                buffer.put((byte) (CONTINUATION | character & SIX_BIT_MASK));
+            }
+            else if (Character.isHighSurrogate(character) &&
+                     i + 1 < str.length() &&
+                     Character.isLowSurrogate(str.charAt(i + 1)))
+            {
+                final int codePoint;
+                codePoint = Character.toCodePoint(character, str.charAt(++i));
+
+                buffer.put((byte) (FOUR_BYTE_LEAD | codePoint >> EIGHTEEN_BITS));
+                buffer.put((byte) (CONTINUATION | codePoint >> TWELVE_BITS & SIX_BIT_MASK));
+                buffer.put((byte) (CONTINUATION | codePoint >> SIX_BITS & SIX_BIT_MASK));
+                buffer.put((byte) (CONTINUATION | codePoint & SIX_BIT_MASK));
+            }
+            else
+            {
+                buffer.put((byte) (THREE_BYTE_LEAD | character >> TWELVE_BITS));
+                buffer.put((byte) (CONTINUATION | character >> SIX_BITS & SIX_BIT_MASK));
+                buffer.put((byte) (CONTINUATION | character & SIX_BIT_MASK));
+            }
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #putString(ByteBuffer, String)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    static String getString(final ByteBuffer buffer)
+    {
+        final int length;
+        final String str;
+
+        length = Short.toUnsignedInt(buffer.getShort());
+
+        if (buffer.hasArray())
+        {
+            str = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        }
+        else
+        {
+            final byte[] scratch;
+            scratch = SCRATCH.get();
+
+            buffer.get(scratch, 0, length);
+            str = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return str;
+    }
+
+    /**
+     * Reads a string at an absolute position without moving the buffer position.
+     *
+     * @param buffer the buffer to read from
+     * @param index  the position of the string's length prefix
+     * @return the string
+     */
+    static String getString(final ByteBuffer buffer,
+                            final int index)
+    {
+        final int length;
+        final String str;
+
+        length = Short.toUnsignedInt(buffer.getShort(index));
+
+        if (buffer.hasArray())
+        {
+            str = new String(buffer.array(), buffer.arrayOffset() + index + Short.BYTES, length, StandardCharsets.UTF_8);
+        }
+        else
+        {
+            final byte[] scratch;
+            scratch = SCRATCH.get();
+
+            buffer.get(index + Short.BYTES, scratch, 0, length);
+            str = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return str;
+    }
+
+    /**
+     * Measures an encoded string, including its length prefix, without decoding it.
+     *
+     * @param buffer the buffer to read from
+     * @param index  the position of the string's length prefix
+     * @return the number of bytes the string occupies
+     */
+    static int stringBytes(final ByteBuffer buffer,
+                           final int index)
+    {
+        return Short.BYTES + Short.toUnsignedInt(buffer.getShort(index));
+    }
+
+    /**
+     * Computes the number of bytes needed to encode a string as UTF-8.
+     *
+     * @param str the string
+     * @return the UTF-8 length in bytes
+     */
+    private static int utf8Length(final String str)
+    {
+        int length;
+        length = 0;
+
+        for (int i = 0; i < str.length(); i++)
+        {
+            final char character;
+            character = str.charAt(i);
+
+            if (character < ONE_BYTE_LIMIT)
+            {
+                length++;
+            }
+            else if (character < TWO_BYTE_LIMIT)
+            {
+                length += TWO_BYTES;
+            }
+            else if (Character.isHighSurrogate(character) &&
+                     i + 1 < str.length() &&
+                     Character.isLowSurrogate(str.charAt(i + 1)))
+            {
+                length += FOUR_BYTES;
+                i++;
+            }
+            else
+            {
+                length += THREE_BYTES;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,321 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes {@link BankClient}s by normalized name and birth date so duplicates can
+ * be detected while clients are loaded.
+ *
+ * <p>The index keeps two maps:</p>
+ * <ul>
+ *     <li>An exact index keyed on the capitalized full name (see {@link Name#getFullName()})
+ *     plus the birth date, which detects duplicates that differ only in casing in O(1).</li>
+ *     <li>A phonetic candidate index keyed on the Soundex codes of the last and first
+ *     names plus the birth year. Near-duplicate searches only compare clients in the
+ *     same bucket, so no pairwise comparison across the whole client base is needed.</li>
+ * </ul>
+ *
+ * <p>The index is safe for concurrent loading from multiple threads.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+class ClientIndex
+{
+    // --- Soundex constants ---
+    private static final int    SOUNDEX_LENGTH = 4;
+    private static final char   SOUNDEX_PAD    = '0';
+    private static final char   NO_CODE        = '0';
+    private static final String SOUNDEX_CODES  = "01230120022455012623010202";
+
+    private static final char KEY_SEPARATOR        = '|';
+    private static final int  DEFAULT_MAX_DISTANCE = 2;
+    private static final int  INITIAL_BUCKET_SIZE  = 2;
+
+    private final ConcurrentHashMap<String, BankClient>       exactIndex;
+    private final ConcurrentHashMap<String, List<BankClient>> phoneticIndex;
+
+    /**
+     * Constructs an empty {@code ClientIndex}.
+     */
+    ClientIndex()
+    {
+        this.exactIndex    = new ConcurrentHashMap<>();
+        this.phoneticIndex = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a client to the index unless an exact duplicate is already present.
+     *
+     * @param client the client to add; must not be {@code null}
+     * @return the previously indexed duplicate, or {@code null} if {@code client} was added
+     */
+    BankClient add(final BankClient client)
+    {
+        final BankClient existing;
+
+        existing = exactIndex.putIfAbsent(exactKey(client.getName(), client.getBirthDate()), client);
+
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        phoneticIndex.compute(phoneticKey(client.getName(), client.getBirthDate()),
+                              (key, bucket) ->
+                              {
+                                  final List<BankClient> updated;
+
+                                  if (bucket == null)
+                                  {
+                                      updated = new ArrayList<>(INITIAL_BUCKET_SIZE);
+                                  }
+                                  else
+                                  {
+                                      updated = bucket;
+                                  }
+
+                                  synchronized (updated)
+                                  {
+                                      updated.add(client);
+                                  }
+                                  return updated;
+                              });
+        return null;
+    }
+
+    /**
+     * Finds the client with exactly the given name (ignoring case) and birth date.
+     *
+     * @param name      the name to look up
+     * @param birthDate the birth date to look up
+     * @return the matching client, or {@code null} if none is indexed
+     */
+    BankClient findExact(final Name name,
+                         final Date birthDate)
+    {
+        return exactIndex.get(exactKey(name, birthDate));
+    }
+
+    /**
+     * Finds indexed clients whose names sound alike and are within a small edit distance
+     * of the given client's name, using {@value #DEFAULT_MAX_DISTANCE} as the limit.
+     *
+     * @param client the client to match
+     * @return the near-duplicate candidates, excluding {@code client} itself
+     */
+    List<BankClient> findNearDuplicates(final BankClient client)
+    {
+        return findNearDuplicates(client, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Finds indexed clients whose names sound alike and are within {@code maxDistance}
+     * edits of the given client's name.
+     *
+     * @param client      the client to match
+     * @param maxDistance the largest Levenshtein distance between normalized full names to accept
+     * @return the near-duplicate candidates, excluding {@code client} itself
+     */
+    List<BankClient> findNearDuplicates(final BankClient client,
+                                        final int maxDistance)
+    {
+        final List<BankClient> matches;
+        final List<BankClient> bucket;
+        final String target;
+
+        matches = new ArrayList<>();
+        bucket  = phoneticIndex.get(phoneticKey(client.getName(), client.getBirthDate()));
+
+        if (bucket == null)
+        {
+            return matches;
+        }
+
+        target = client.getName().getFullName();
+
+        synchronized (bucket)
+        {
+            for (final BankClient candidate : bucket)
+            {
+                if (candidate != client &&
+                    editDistance(target, candidate.getName().getFullName(), maxDistance) <= maxDistance)
+                {
+                    matches.add(candidate);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Retrieves the number of distinct clients in the index.
+     *
+     * @return the client count
+     */
+    int size()
+    {
+        return exactIndex.size();
+    }
+
+    /**
+     * Builds the exact-match key from the capitalized full name and birth date.
+     *
+     * @param name      the client's name
+     * @param birthDate the client's birth date
+     * @return the exact-match key
+     */
+    private static String exactKey(final Name name,
+                                   final Date birthDate)
+    {
+        final StringBuilder builder;
+
+        builder = new StringBuilder();
+        builder.append(name.getFullName());
+        builder.append(KEY_SEPARATOR);
+        builder.append(birthDate.getYYYYMMDD());
+
+        return builder.toString();
+    }
+
+    /**
+     * Builds the phonetic bucket key from the Soundex codes of the names and the birth year.
+     *
+     * @param name      the client's name
+     * @param birthDate the client's birth date
+     * @return the phonetic bucket key
+     */
+    private static String phoneticKey(final Name name,
+                                      final Date birthDate)
+    {
+        final StringBuilder builder;
+
+        builder = new StringBuilder();
+        builder.append(soundex(name.getLastName()));
+        builder.append(soundex(name.getFirstName()));
+        builder.append(birthDate.getYear());
+
+        return builder.toString();
+    }
+
+    /**
+     * Computes the American Soundex code of a name, ignoring non-letter characters.
+     *
+     * @param str the name to encode
+     * @return the four-character Soundex code
+     */
+    static String soundex(final String str)
+    {
+        final char[] code;
+        int length;
+        char previous;
+
+        code     = new char[SOUNDEX_LENGTH];
+        length   = 0;
+        previous = NO_CODE;
+
+        for (int i = 0; i < str.length() && length < SOUNDEX_LENGTH; i++)
+        {
+            final char letter;
+            final char digit;
+
+            letter = Character.toUpperCase(str.charAt(i));
+
+            if (letter < 'A' || letter > 'Z')
+            {
+                continue;
+            }
+
+            digit = SOUNDEX_CODES.charAt(letter - 'A');
+
+            if (length == 0)
+            {
+                code[length++] = letter;
+            }
+            else if (digit != NO_CODE && digit != previous)
+            {
+                code[length++] = digit;
+            }
+
+            // H and W do not separate letters with the same code; vowels do
+            if (letter != 'H' && letter != 'W')
+            {
+                previous = digit;
+            }
+        }
+
+        while (length < SOUNDEX_LENGTH)
+        {
+            code[length++] = SOUNDEX_PAD;
+        }
+        return new String(code);
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up early once the
+     * distance is known to exceed {@code limit}.
+     *
+     * @param first  the first string
+     * @param second the second string
+     * @param limit  the largest distance of interest
+     * @return the edit distance, or a value greater than {@code limit} if it exceeds the limit
+     */
+    private static int editDistance(final String first,
+                                    final String second,
+                                    final int limit)
+    {
+        int[] previousRow;
+        int[] currentRow;
+
+        if (Math.abs(first.length() - second.length()) > limit)
+        {
+            return limit + 1;
+        }
+
+        previousRow = new int[second.length() + 1];
+        currentRow  = new int[second.length() + 1];
+
+        for (int j = 0; j <= second.length(); j++)
+        {
+            previousRow[j] = j;
+        }
+
+        for (int i = 1; i <= first.length(); i++)
+        {
+            final int[] swap;
+            int rowMinimum;
+
+            currentRow[0] = i;
+            rowMinimum    = i;
+
+            for (int j = 1; j <= second.length(); j++)
+            {
+                final int substitution;
+
+                if (Character.toLowerCase(first.charAt(i - 1)) == Character.toLowerCase(second.charAt(j - 1)))
+                {
+                    substitution = previousRow[j - 1];
+                }
+                else
+                {
+                    substitution = previousRow[j - 1] + 1;
+                }
+
+                currentRow[j] = Math.min(substitution, Math.min(previousRow[j], currentRow[j - 1]) + 1);
+                rowMinimum    = Math.min(rowMinimum, currentRow[j]);
+            }
+
+            if (rowMinimum > limit)
+            {
+                return limit + 1;
+            }
+
+            swap        = previousRow;
+            previousRow = currentRow;
+            currentRow  = swap;
+        }
+        return previousRow[second.length()];
+    }
+}
@@ -0,0 +1,191 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Currency;
+
+/**
+ * Compares {@link BinaryCodec} with Java serialization for encoding and decoding
+ * a batch of {@link BankAccount} records.
+ *
+ * <p>The domain classes are not {@code Serializable}, so the Java serialization
+ * side writes the same field values as an {@code Object[]} per record. Neither
+ * side carries the PIN. Every record goes to one stream that is never reset, so
+ * repeated values are written once and referred back to, as a real stream
+ * would. Run with an optional record count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class CodecBenchmark
+{
+    private static final int DEFAULT_RECORDS   = 100_000;
+    private static final int WARMUP_ROUNDS     = 5;
+    private static final int MEASURED_ROUNDS   = 5;
+    private static final int MAX_RECORD_BYTES  = 512;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private CodecBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark and prints nanoseconds and bytes per record for each codec.
+     *
+     * @param args an optional record count
+     * @throws IOException            if Java serialization fails
+     * @throws ClassNotFoundException if Java deserialization fails
+     */
+    public static void main(final String[] args) throws IOException, ClassNotFoundException
+    {
+        final int records;
+        final BankAccount[] accounts;
+        final ByteBuffer buffer;
+        long binaryNanos;
+        long serialNanos;
+        long binaryBytes;
+        long serialBytes;
+
+        if (args.length > 0)
+        {
+            records = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            records = DEFAULT_RECORDS;
+        }
+
+        accounts = BenchmarkAccounts.create(records);
+        buffer   = ByteBuffer.allocate(records * MAX_RECORD_BYTES);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+        {
+            runBinary(accounts, buffer);
+            runSerialization(accounts);
+        }
+
+        binaryNanos = 0;
+        serialNanos = 0;
+        binaryBytes = 0;
+        serialBytes = 0;
+
+        for (int round = 0; round < MEASURED_ROUNDS; round++)
+        {
+            long start;
+
+            start       = System.nanoTime();
+            binaryBytes = runBinary(accounts, buffer);
+            binaryNanos += System.nanoTime() - start;
+
+            start       = System.nanoTime();
+            serialBytes = runSerialization(accounts);
+            serialNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("BinaryCodec:        %8.1f ns/record, %6.1f bytes/record%n",
+                          (double) binaryNanos / MEASURED_ROUNDS / records,
+                          (double) binaryBytes / records);
+        System.out.printf("Java serialization: %8.1f ns/record, %6.1f bytes/record%n",
+                          (double) serialNanos / MEASURED_ROUNDS / records,
+                          (double) serialBytes / records);
+    }
+
+    /**
+     * Encodes and decodes every account with {@link BinaryCodec}.
+     *
+     * @param accounts the accounts
+     * @param buffer   the buffer to encode into
+     * @return the number of encoded bytes
+     */
+    private static long runBinary(final BankAccount[] accounts,
+                                  final ByteBuffer buffer)
+    {
+        final int encodedBytes;
+
+        buffer.clear();
+
+        for (final BankAccount account : accounts)
+        {
+            BinaryCodec.encodeAccount(buffer, account);
+        }
+
+        encodedBytes = buffer.position();
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            BinaryCodec.decodeAccount(buffer);
+        }
+        return encodedBytes;
+    }
+
+    /**
+     * Encodes and decodes every account's fields with Java serialization.
+     *
+     * @param accounts the accounts
+     * @return the number of encoded bytes
+     * @throws IOException            if serialization fails
+     * @throws ClassNotFoundException if deserialization fails
+     */
+    private static long runSerialization(final BankAccount[] accounts) throws IOException, ClassNotFoundException
+    {
+        final ByteArrayOutputStream bytes;
+        final byte[] encoded;
+
+        bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            for (final BankAccount account : accounts)
+            {
+                final BankClient client;
+                client = account.getClient();
+
+                out.writeObject(new Object[] {
+                    account.getAccountNumber(),
+                    account.getAccountOpened().toEpochDay(),
+                    account.getBalance(),
+                    client.getClientID(),
+                    client.getBirthDate().toEpochDay(),
+                    client.getSignupDate().toEpochDay(),
+                    client.getName().getFirstName(),
+                    client.getName().getLastName(),
+                    account.getCurrency().getCurrencyCode()
+                });
+            }
+        }
+
+        encoded = bytes.toByteArray();
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded)))
+        {
+            for (int i = 0; i < accounts.length; i++)
+            {
+                final Object[] fields;
+                final BankClient client;
+
+                fields = (Object[]) in.readObject();
+                client = new BankClient(new Name((String) fields[6], (String) fields[7]),
+                                        Date.ofEpochDay((Integer) fields[4]),
+                                        null,
+                                        Date.ofEpochDay((Integer) fields[5]),
+                                        (String) fields[3]);
+
+                new BankAccount(client,
+                                (String) fields[0],
+                                Date.ofEpochDay((Integer) fields[1]),
+                                null,
+                                (Double) fields[2],
+                                BankAccount.NO_PIN,
+                                Currency.getInstance((String) fields[8]));
+            }
+        }
+        return encoded.length;
+    }
+}
@@ -0,0 +1,558 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * Exports the book of {@link BankAccount}s, with their {@link BankClient}s, to a
+ * compressed columnar file for offline analysis.
+ *
+ * <p>Accounts are read from an iterator in row groups of {@code rowGroupSize}
+ * rows. Each row group is encoded and compressed on a worker thread, one column
+ * at a time, while the calling thread writes finished groups to the file in
+ * order. At most {@code maxInFlight} row groups are held in memory, so memory
+ * use is bounded regardless of the size of the book.</p>
+ *
+ * <p>The file layout is:</p>
+ * <ul>
+ *     <li>The 8-byte magic {@value #MAGIC}.</li>
+ *     <li>The row groups. Each holds one chunk per {@link Column}, in column
+ *     order. A chunk is a 1-byte encoding, the 4-byte uncompressed length, the
+ *     4-byte stored length, and the stored bytes. With encoding
+ *     {@value #DEFLATE} the stored bytes are the column values compressed with
+ *     raw Deflate; with {@value #CONSTANT} every row has the same fixed-width
+ *     value and only that value is stored, which skips compression for columns
+ *     such as currency, state or death date that rarely vary.</li>
+ *     <li>The footer: the column count, then each column's type and
+ *     length-prefixed UTF-8 name; the row group count, then each group's row
+ *     count and the 8-byte file offset of each of its chunks; then the total row
+ *     count.</li>
+ *     <li>The 4-byte footer length and the magic again.</li>
+ * </ul>
+ *
+ * <p>Values are big-endian. Keys are 8-byte longs from
+ * {@link BinaryCodec#packKey(String)}, dates are 4-byte day numbers from
+ * {@link Date#toEpochDay()} or {@value BinaryCodec#NO_DATE}, and strings are
+ * written with {@link BinaryCodec#putString(ByteBuffer, String)}. A living
+ * client's death date is written as {@value BinaryCodec#NO_DATE}. Client
+ * columns are repeated on every account row. PINs are not exported.</p>
+ *
+ * <p>{@link ColumnarReader} reads and checks the files this class writes.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ColumnarExporter
+{
+    static final String MAGIC              = "BKCOLS01";
+    static final int    CHUNK_HEADER_BYTES = Byte.BYTES + 2 * Integer.BYTES;
+
+    private static final int    MAX_UTF8_PER_CHAR  = 3;
+    private static final int    MAX_NAME_BYTES     = Short.BYTES + MAX_UTF8_PER_CHAR * Name.MAX_NAME_LENGTH;
+    private static final int    MAX_COLUMN_ENTRY   = Byte.BYTES + Short.BYTES + 32;
+    private static final int    COMPRESS_BUFFER    = 64 * 1024;
+
+    // --- Chunk encodings ---
+    static final byte DEFLATE  = 0;
+    static final byte CONSTANT = 1;
+
+    /**
+     * The exported columns, in file order.
+     */
+    enum Column
+    {
+        ACCOUNT_NUMBER(ColumnType.KEY),
+        ACCOUNT_OPENED(ColumnType.DATE),
+        ACCOUNT_CLOSED(ColumnType.DATE),
+        BALANCE(ColumnType.FLOAT64),
+        CURRENCY(ColumnType.INT32),
+        STATE(ColumnType.INT8),
+        CLIENT_ID(ColumnType.KEY),
+        FIRST_NAME(ColumnType.STRING),
+        LAST_NAME(ColumnType.STRING),
+        BIRTH_DATE(ColumnType.DATE),
+        DEATH_DATE(ColumnType.DATE),
+        SIGNUP_DATE(ColumnType.DATE);
+
+        private final ColumnType type;
+
+        /**
+         * Constructs a {@code Column}.
+         *
+         * @param type the physical type of the column's values
+         */
+        Column(final ColumnType type)
+        {
+            this.type = type;
+        }
+
+        /**
+         * Retrieves the physical type of the column's values.
+         *
+         * @return the column type
+         */
+        ColumnType getType()
+        {
+            return type;
+        }
+    }
+
+    /**
+     * The physical types of column values, with the most bytes one value can take.
+     */
+    enum ColumnType
+    {
+        KEY(Long.BYTES),
+        DATE(Integer.BYTES),
+        FLOAT64(Double.BYTES),
+        INT32(Integer.BYTES),
+        INT8(Byte.BYTES),
+        STRING(MAX_NAME_BYTES);
+
+        private final int maxBytes;
+
+        /**
+         * Constructs a {@code ColumnType}.
+         *
+         * @param maxBytes the largest number of bytes one value can take
+         */
+        ColumnType(final int maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Retrieves the most bytes one value can take, which is the exact
+         * width of every value except strings.
+         *
+         * @return the largest value size in bytes
+         */
+        int getMaxBytes()
+        {
+            return maxBytes;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+
+    /**
+     * A row group encoded and compressed, ready to be written.
+     */
+    private static final class EncodedGroup
+    {
+        private final int    rows;
+        private final byte[] bytes;
+        private final int[]  chunkOffsets;
+
+        /**
+         * Constructs an {@code EncodedGroup}.
+         *
+         * @param rows         the number of rows in the group
+         * @param bytes        the compressed column chunks, in column order
+         * @param chunkOffsets the position of each chunk within {@code bytes}
+         */
+        private EncodedGroup(final int rows,
+                             final byte[] bytes,
+                             final int[] chunkOffsets)
+        {
+            this.rows         = rows;
+            this.bytes        = bytes;
+            this.chunkOffsets = chunkOffsets;
+        }
+    }
+
+    private final int rowGroupSize;
+    private final int threads;
+    private final int maxInFlight;
+
+    /**
+     * Constructs a {@code ColumnarExporter}.
+     *
+     * @param rowGroupSize the number of rows per row group; must be positive
+     * @param threads      the number of threads encoding row groups; must be positive
+     * @param maxInFlight  the largest number of row groups held in memory; must be positive
+     */
+    ColumnarExporter(final int rowGroupSize,
+                     final int threads,
+                     final int maxInFlight)
+    {
+        if (rowGroupSize <= 0 || threads <= 0 || maxInFlight <= 0)
+        {
+            throw new IllegalArgumentException("Row group size, threads and in-flight limit must be positive");
+        }
+
+        this.rowGroupSize = rowGroupSize;
+        this.threads      = threads;
+        this.maxInFlight  = maxInFlight;
+    }
+
+    /**
+     * Exports accounts to a file, replacing any existing file.
+     *
+     * @param accounts the accounts to export
+     * @param file     the file to write
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    long export(final Iterator<BankAccount> accounts,
+                final Path file) throws IOException
+    {
+        final ExecutorService executor;
+        final ArrayDeque<Future<EncodedGroup>> pending;
+        final List<long[]> chunkOffsets;
+        final List<Integer> rowCounts;
+        long rows;
+
+        executor     = Executors.newFixedThreadPool(threads);
+        pending      = new ArrayDeque<>(maxInFlight);
+        chunkOffsets = new ArrayList<>();
+        rowCounts    = new ArrayList<>();
+        rows         = 0;
+
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE))
+        {
+            writeFully(channel, ByteBuffer.wrap(MAGIC.getBytes(StandardCharsets.US_ASCII)));
+
+            while (accounts.hasNext())
+            {
+                final BankAccount[] group;
+                final int size;
+
+                group = new BankAccount[rowGroupSize];
+                size  = readGroup(accounts, group);
+
+                if (pending.size() == maxInFlight)
+                {
+                    rows += writeGroup(channel, await(pending.poll()), chunkOffsets, rowCounts);
+                }
+
+                pending.add(executor.submit(() -> encodeGroup(group, size)));
+            }
+
+            while (!pending.isEmpty())
+            {
+                rows += writeGroup(channel, await(pending.poll()), chunkOffsets, rowCounts);
+            }
+
+            writeFooter(channel, chunkOffsets, rowCounts, rows);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the next row group's accounts.
+     *
+     * @param accounts the accounts still to export
+     * @param group    the array to fill
+     * @return the number of accounts read
+     */
+    private static int readGroup(final Iterator<BankAccount> accounts,
+                                 final BankAccount[] group)
+    {
+        int size;
+        size = 0;
+
+        while (size < group.length && accounts.hasNext())
+        {
+            group[size++] = accounts.next();
+        }
+        return size;
+    }
+
+    /**
+     * Encodes and compresses one row group, column by column.
+     *
+     * @param group the accounts in the group
+     * @param rows  the number of accounts in {@code group}
+     * @return the encoded group
+     */
+    private static EncodedGroup encodeGroup(final BankAccount[] group,
+                                            final int rows)
+    {
+        final ByteArrayOutputStream out;
+        final ByteArrayOutputStream compressed;
+        final int[] chunkOffsets;
+        final Deflater deflater;
+        final byte[] compressBuffer;
+
+        out            = new ByteArrayOutputStream();
+        compressed     = new ByteArrayOutputStream();
+        chunkOffsets   = new int[COLUMNS.length];
+        deflater       = new Deflater(Deflater.BEST_SPEED, true);
+        compressBuffer = new byte[COMPRESS_BUFFER];
+
+        try
+        {
+            for (final Column column : COLUMNS)
+            {
+                final ByteBuffer values;
+                final byte encoding;
+
+                values = ByteBuffer.allocate(rows * column.getType().maxBytes);
+
+                for (int i = 0; i < rows; i++)
+                {
+                    putValue(values, column, group[i]);
+                }
+
+                chunkOffsets[column.ordinal()] = out.size();
+                compressed.reset();
+
+                if (isConstant(values, column.getType()))
+                {
+                    encoding = CONSTANT;
+                    compressed.write(values.array(), 0, column.getType().maxBytes);
+                }
+                else
+                {
+                    encoding = DEFLATE;
+                    deflater.reset();
+                    deflater.setInput(values.array(), 0, values.position());
+                    deflater.finish();
+
+                    while (!deflater.finished())
+                    {
+                        final int written;
+                        written = deflater.deflate(compressBuffer);
+
+                        compressed.write(compressBuffer, 0, written);
+                    }
+                }
+
+                out.writeBytes(ByteBuffer.allocate(CHUNK_HEADER_BYTES)
+                                         .put(encoding)
+                                         .putInt(values.position())
+                                         .putInt(compressed.size())
+                                         .array());
+                out.writeBytes(compressed.toByteArray());
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return new EncodedGroup(rows, out.toByteArray(), chunkOffsets);
+    }
+
+    /**
+     * Determines whether every value in a chunk of a fixed-width column is the same.
+     * Comparing the chunk with itself shifted by one value checks every adjacent
+     * pair in a single vectorized comparison.
+     *
+     * @param values the column values
+     * @param type   the column type
+     * @return {@code true} if the column is fixed-width and all values are equal
+     */
+    private static boolean isConstant(final ByteBuffer values,
+                                      final ColumnType type)
+    {
+        final int width;
+        final int length;
+
+        if (type == ColumnType.STRING)
+        {
+            return false;
+        }
+
+        width  = type.maxBytes;
+        length = values.position();
+
+        return Arrays.equals(values.array(), 0, length - width, values.array(), width, length);
+    }
+
+    /**
+     * Writes one account's value for a column.
+     *
+     * @param values  the buffer holding the column's values
+     * @param column  the column
+     * @param account the account
+     */
+    private static void putValue(final ByteBuffer values,
+                                 final Column column,
+                                 final BankAccount account)
+    {
+        final BankClient client;
+        client = account.getClient();
+
+        switch (column)
+        {
+            case ACCOUNT_NUMBER -> values.putLong(BinaryCodec.packKey(account.getAccountNumber()));
+            case ACCOUNT_OPENED -> BinaryCodec.encodeDate(values, account.getAccountOpened());
+            case ACCOUNT_CLOSED -> BinaryCodec.encodeDate(values, account.getAccountClosed());
+            case BALANCE        -> values.putDouble(account.getBalance());
+            case CURRENCY       -> values.putInt(account.getCurrency().getNumericCode());
+            case STATE          -> values.put((byte) account.getState().ordinal());
+            case CLIENT_ID      -> values.putLong(BinaryCodec.packKey(client.getClientID()));
+            case FIRST_NAME     -> BinaryCodec.putString(values, client.getName().getFirstName());
+            case LAST_NAME      -> BinaryCodec.putString(values, client.getName().getLastName());
+            case BIRTH_DATE     -> values.putInt(client.getBirthEpochDay());
+            case DEATH_DATE     -> values.putInt(deathDateValue(client));
+            case SIGNUP_DATE    -> values.putInt(client.getSignupEpochDay());
+            default             -> throw new IllegalStateException("Unknown column " + column);
+        }
+    }
+
+    /**
+     * Converts a client's death date to its column value.
+     *
+     * @param client the client
+     * @return the day number, or {@value BinaryCodec#NO_DATE} if the client is alive
+     */
+    private static int deathDateValue(final BankClient client)
+    {
+        if (client.getDeathEpochDay() == BankClient.NOT_DECEASED)
+        {
+            return BinaryCodec.NO_DATE;
+        }
+        return client.getDeathEpochDay();
+    }
+
+    /**
+     * Writes an encoded row group and records where its chunks landed.
+     *
+     * @param channel      the file
+     * @param group        the encoded group
+     * @param chunkOffsets the file offsets of every group's chunks, appended to
+     * @param rowCounts    the row count of every group, appended to
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    private static int writeGroup(final FileChannel channel,
+                                  final EncodedGroup group,
+                                  final List<long[]> chunkOffsets,
+                                  final List<Integer> rowCounts) throws IOException
+    {
+        final long base;
+        final long[] offsets;
+
+        base    = channel.position();
+        offsets = new long[COLUMNS.length];
+
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = base + group.chunkOffsets[i];
+        }
+
+        writeFully(channel, ByteBuffer.wrap(group.bytes));
+        chunkOffsets.add(offsets);
+        rowCounts.add(group.rows);
+
+        return group.rows;
+    }
+
+    /**
+     * Writes the footer describing the columns and the row groups.
+     *
+     * @param channel      the file
+     * @param chunkOffsets the file offsets of every group's chunks
+     * @param rowCounts    the row count of every group
+     * @param rows         the total number of rows
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFooter(final FileChannel channel,
+                                    final List<long[]> chunkOffsets,
+                                    final List<Integer> rowCounts,
+                                    final long rows) throws IOException
+    {
+        final ByteBuffer footer;
+        final int footerLength;
+
+        footer = ByteBuffer.allocate(Integer.BYTES +
+                                     COLUMNS.length * MAX_COLUMN_ENTRY +
+                                     Integer.BYTES +
+                                     rowCounts.size() * (Integer.BYTES + COLUMNS.length * Long.BYTES) +
+                                     Long.BYTES +
+                                     Integer.BYTES +
+                                     MAGIC.length());
+
+        footer.putInt(COLUMNS.length);
+
+        for (final Column column : COLUMNS)
+        {
+            footer.put((byte) column.getType().ordinal());
+            BinaryCodec.putString(footer, column.name());
+        }
+
+        footer.putInt(rowCounts.size());
+
+        for (int i = 0; i < rowCounts.size(); i++)
+        {
+            footer.putInt(rowCounts.get(i));
+
+            for (final long offset : chunkOffsets.get(i))
+            {
+                footer.putLong(offset);
+            }
+        }
+
+        footer.putLong(rows);
+        footerLength = footer.position();
+        footer.putInt(footerLength);
+        footer.put(MAGIC.getBytes(StandardCharsets.US_ASCII));
+        footer.flip();
+
+        writeFully(channel, footer);
+    }
+
+    /**
+     * Writes a whole buffer to the file.
+     *
+     * @param channel the file
+     * @param buffer  the bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(final FileChannel channel,
+                                   final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Waits for a row group to finish encoding.
+     *
+     * @param future the encoding task
+     * @return the encoded group
+     * @throws IOException if the wait is interrupted or encoding failed
+     */
+    private static EncodedGroup await(final Future<EncodedGroup> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IOException("Encoding a row group failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a columnar file written by {@link ColumnarExporter}, one column chunk at
+ * a time, and checks it against the layout described there.
+ *
+ * <p>Opening a file reads and checks the magic at both ends and the footer.
+ * {@link #readColumn(int, ColumnarExporter.Column)} inflates one chunk and
+ * checks that it holds exactly one value per row, with dates, states and
+ * strings in range. {@link #verify()} does this for every chunk. Any mismatch
+ * is reported as an {@link IOException} naming the file, since a damaged file
+ * cannot be read past the first bad chunk.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ColumnarReader implements AutoCloseable
+{
+    private static final ColumnarExporter.Column[] COLUMNS = ColumnarExporter.Column.values();
+
+    private static final byte[] MAGIC       = ColumnarExporter.MAGIC.getBytes(StandardCharsets.US_ASCII);
+    private static final int    TRAILER     = Integer.BYTES + MAGIC.length;
+    private static final int    STATE_COUNT = AccountState.values().length;
+    private static final int    FIRST_DAY   = Date.epochDay(Date.MIN_YEAR, Date.JANUARY, 1);
+    private static final int    LAST_DAY    = Date.epochDay(Date.CURRENT_YEAR, Date.DECEMBER, 31);
+
+    private final Path        file;
+    private final FileChannel channel;
+    private final long        footerStart;
+    private final int[]       groupRows;
+    private final long[][]    chunkOffsets;
+    private final long        rows;
+
+    /**
+     * Opens a file and reads its footer.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read or its footer is damaged
+     */
+    ColumnarReader(final Path file) throws IOException
+    {
+        final ByteBuffer trailer;
+        final ByteBuffer footer;
+        final long size;
+        final int footerLength;
+        final int groups;
+        final long firstChunk;
+        long totalRows;
+        long previousOffset;
+
+        this.file    = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        try
+        {
+            size = channel.size();
+
+            if (size < MAGIC.length + TRAILER)
+            {
+                throw damaged("it is too short to hold the magic and footer");
+            }
+
+            checkMagic(readFully(0, MAGIC.length), "leading");
+
+            trailer      = readFully(size - TRAILER, TRAILER);
+            footerLength = trailer.getInt();
+            checkMagic(trailer, "trailing");
+
+            if (footerLength < 0 || footerLength > size - MAGIC.length - TRAILER)
+            {
+                throw damaged("the footer length " + footerLength + " does not fit in the file");
+            }
+
+            footerStart = size - TRAILER - footerLength;
+            footer      = readFully(footerStart, footerLength);
+
+            checkColumns(footer);
+
+            groups       = footer.getInt();
+            groupRows    = new int[checkCount(groups, footer.remaining(), Integer.BYTES + COLUMNS.length * Long.BYTES)];
+            chunkOffsets = new long[groups][COLUMNS.length];
+            totalRows    = 0;
+
+            // Chunks follow one another through the file, so every offset must pass the last
+            previousOffset = MAGIC.length - 1;
+
+            for (int group = 0; group < groups; group++)
+            {
+                groupRows[group] = footer.getInt();
+
+                if (groupRows[group] <= 0)
+                {
+                    throw damaged("row group " + group + " has " + groupRows[group] + " rows");
+                }
+
+                for (int column = 0; column < COLUMNS.length; column++)
+                {
+                    final long offset;
+                    offset = footer.getLong();
+
+                    if (offset <= previousOffset || offset + ColumnarExporter.CHUNK_HEADER_BYTES > footerStart)
+                    {
+                        throw damaged("chunk " + COLUMNS[column] + " of row group " + group + " is at offset " + offset);
+                    }
+
+                    chunkOffsets[group][column] = offset;
+                    previousOffset              = offset;
+                }
+                totalRows += groupRows[group];
+            }
+
+            rows = footer.getLong();
+
+            if (groups > 0)
+            {
+                firstChunk = chunkOffsets[0][0];
+            }
+            else
+            {
+                firstChunk = footerStart;
+            }
+
+            if (firstChunk != MAGIC.length)
+            {
+                throw damaged("the first row group starts at offset " + firstChunk + " instead of " + MAGIC.length);
+            }
+
+            if (rows != totalRows || footer.hasRemaining())
+            {
+                throw damaged("the footer counts " + rows + " rows but its row groups hold " + totalRows);
+            }
+        }
+        catch (final BufferUnderflowException | IllegalArgumentException e)
+        {
+            channel.close();
+            throw new IOException("Columnar file " + file + " is damaged: the footer is truncated", e);
+        }
+        catch (final IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the number of rows in the file.
+     *
+     * @return the row count
+     */
+    long getRowCount()
+    {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of row groups in the file.
+     *
+     * @return the row group count
+     */
+    int getRowGroupCount()
+    {
+        return groupRows.length;
+    }
+
+    /**
+     * Retrieves the number of rows in one row group.
+     *
+     * @param group the row group
+     * @return the row count
+     */
+    int getRowCount(final int group)
+    {
+        return groupRows[group];
+    }
+
+    /**
+     * Reads and checks one column chunk.
+     *
+     * @param group  the row group
+     * @param column the column
+     * @return the group's values for the column, one per row in row order,
+     *         encoded as {@link ColumnarExporter} describes; positioned at the first value
+     * @throws IOException if the chunk cannot be read or is damaged
+     */
+    ByteBuffer readColumn(final int group,
+                          final ColumnarExporter.Column column) throws IOException
+    {
+        final long offset;
+        final long end;
+        final ByteBuffer header;
+        final byte encoding;
+        final int length;
+        final int stored;
+        final ByteBuffer values;
+
+        offset   = chunkOffsets[group][column.ordinal()];
+        end      = chunkEnd(group, column.ordinal());
+        header   = readFully(offset, ColumnarExporter.CHUNK_HEADER_BYTES);
+        encoding = header.get();
+        length   = header.getInt();
+        stored   = header.getInt();
+
+        if (stored < 0 || length < 0 || offset + ColumnarExporter.CHUNK_HEADER_BYTES + stored != end)
+        {
+            throw damaged(chunkName(group, column) + " stores " + stored + " bytes in a space of " +
+                          (end - offset - ColumnarExporter.CHUNK_HEADER_BYTES));
+        }
+
+        if (encoding == ColumnarExporter.CONSTANT)
+        {
+            values = expand(group, column, readFully(offset + ColumnarExporter.CHUNK_HEADER_BYTES, stored), length);
+        }
+        else if (encoding == ColumnarExporter.DEFLATE)
+        {
+            values = inflate(group, column, readFully(offset + ColumnarExporter.CHUNK_HEADER_BYTES, stored), length);
+        }
+        else
+        {
+            throw damaged(chunkName(group, column) + " has unknown encoding " + encoding);
+        }
+
+        checkValues(group, column, values);
+        return values;
+    }
+
+    /**
+     * Reads and checks every column chunk in the file.
+     *
+     * @return the number of rows checked
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    long verify() throws IOException
+    {
+        for (int group = 0; group < groupRows.length; group++)
+        {
+            for (final ColumnarExporter.Column column : COLUMNS)
+            {
+                readColumn(group, column);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Checks that the footer lists the columns {@link ColumnarExporter} writes, in order.
+     *
+     * @param footer the footer, positioned at the column count
+     * @throws IOException if the columns differ
+     */
+    private void checkColumns(final ByteBuffer footer) throws IOException
+    {
+        final int columns;
+        columns = footer.getInt();
+
+        if (columns != COLUMNS.length)
+        {
+            throw damaged("the footer lists " + columns + " columns instead of " + COLUMNS.length);
+        }
+
+        for (final ColumnarExporter.Column column : COLUMNS)
+        {
+            final int type;
+            final String name;
+
+            type = footer.get();
+            name = BinaryCodec.getString(footer);
+
+            if (type != column.getType().ordinal() || !name.equals(column.name()))
+            {
+                throw damaged("the footer lists column " + name + " of type " + type + " where " + column + " belongs");
+            }
+        }
+    }
+
+    /**
+     * Finds the file offset just past a chunk, which is where the next chunk
+     * or the footer starts.
+     *
+     * @param group  the row group
+     * @param column the column's index
+     * @return the end offset
+     */
+    private long chunkEnd(final int group,
+                          final int column)
+    {
+        if (column + 1 < COLUMNS.length)
+        {
+            return chunkOffsets[group][column + 1];
+        }
+        else if (group + 1 < groupRows.length)
+        {
+            return chunkOffsets[group + 1][0];
+        }
+        return footerStart;
+    }
+
+    /**
+     * Expands a constant chunk to one copy of its value per row.
+     *
+     * @param group  the row group
+     * @param column the column
+     * @param stored the stored value
+     * @param length the uncompressed length recorded in the chunk header
+     * @return the values
+     * @throws IOException if the chunk does not hold one fixed-width value per row
+     */
+    private ByteBuffer expand(final int group,
+                              final ColumnarExporter.Column column,
+                              final ByteBuffer stored,
+                              final int length) throws IOException
+    {
+        final int width;
+        final byte[] values;
+
+        width = column.getType().getMaxBytes();
+
+        if (column.getType() == ColumnarExporter.ColumnType.STRING ||
+            stored.remaining() != width ||
+            length != groupRows[group] * width)
+        {
+            throw damaged(chunkName(group, column) + " is not a valid constant chunk");
+        }
+
+        values = new byte[length];
+
+        for (int i = 0; i < length; i += width)
+        {
+            stored.get(0, values, i, width);
+        }
+        return ByteBuffer.wrap(values);
+    }
+
+    /**
+     * Inflates a Deflate chunk.
+     *
+     * @param group  the row group
+     * @param column the column
+     * @param stored the compressed bytes
+     * @param length the uncompressed length recorded in the chunk header
+     * @return the values
+     * @throws IOException if the bytes do not inflate to exactly {@code length} bytes
+     */
+    private ByteBuffer inflate(final int group,
+                               final ColumnarExporter.Column column,
+                               final ByteBuffer stored,
+                               final int length) throws IOException
+    {
+        final Inflater inflater;
+        final byte[] values;
+        int inflated;
+
+        inflater = new Inflater(true);
+        values   = new byte[length];
+        inflated = 0;
+
+        try
+        {
+            inflater.setInput(stored);
+
+            while (inflated < length && !inflater.finished())
+            {
+                final int count;
+                count = inflater.inflate(values, inflated, length - inflated);
+
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                inflated += count;
+            }
+
+            if (inflated != length || !inflater.finished() || inflater.getRemaining() != 0)
+            {
+                throw damaged(chunkName(group, column) + " does not inflate to its recorded " + length + " bytes");
+            }
+        }
+        catch (final DataFormatException e)
+        {
+            throw new IOException("Columnar file " + file + " is damaged: " + chunkName(group, column) +
+                                  " is not valid Deflate data", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(values);
+    }
+
+    /**
+     * Checks that a chunk holds exactly one value per row and that each value is in range.
+     *
+     * @param group  the row group
+     * @param column the column
+     * @param values the values, positioned at the first
+     * @throws IOException if a value is missing, left over or out of range
+     */
+    private void checkValues(final int group,
+                             final ColumnarExporter.Column column,
+                             final ByteBuffer values) throws IOException
+    {
+        final ColumnarExporter.ColumnType type;
+        final int rowCount;
+        int position;
+
+        type     = column.getType();
+        rowCount = groupRows[group];
+        position = 0;
+
+        for (int row = 0; row < rowCount; row++)
+        {
+            final int width;
+
+            if (type == ColumnarExporter.ColumnType.STRING)
+            {
+                if (position + Short.BYTES > values.limit())
+                {
+                    throw damaged(chunkName(group, column) + " ends before row " + row);
+                }
+                width = BinaryCodec.stringBytes(values, position);
+            }
+            else
+            {
+                width = type.getMaxBytes();
+            }
+
+            if (position + width > values.limit())
+            {
+                throw damaged(chunkName(group, column) + " ends before row " + row);
+            }
+
+            if (type == ColumnarExporter.ColumnType.DATE)
+            {
+                checkDate(group, column, row, values.getInt(position));
+            }
+            else if (type == ColumnarExporter.ColumnType.INT8 &&
+                     (values.get(position) < 0 || values.get(position) >= STATE_COUNT))
+            {
+                throw damaged(chunkName(group, column) + " holds unknown state " + values.get(position) + " in row " + row);
+            }
+            position += width;
+        }
+
+        if (position != values.limit())
+        {
+            throw damaged(chunkName(group, column) + " holds " + (values.limit() - position) + " bytes past its last row");
+        }
+    }
+
+    /**
+     * Checks that a date value is {@value BinaryCodec#NO_DATE} or a day number
+     * between {@value Date#MIN_YEAR} and the end of {@value Date#CURRENT_YEAR}.
+     *
+     * @param group    the row group
+     * @param column   the column
+     * @param row      the row within the group
+     * @param epochDay the value
+     * @throws IOException if the value is out of range
+     */
+    private void checkDate(final int group,
+                           final ColumnarExporter.Column column,
+                           final int row,
+                           final int epochDay) throws IOException
+    {
+        if (epochDay != BinaryCodec.NO_DATE && (epochDay < FIRST_DAY || epochDay > LAST_DAY))
+        {
+            throw damaged(chunkName(group, column) + " holds day number " + epochDay + " in row " + row);
+        }
+    }
+
+    /**
+     * Checks that a buffer holds the magic at its position.
+     *
+     * @param buffer the buffer
+     * @param where  which end of the file the buffer was read from
+     * @throws IOException if the magic differs
+     */
+    private void checkMagic(final ByteBuffer buffer,
+                            final String where) throws IOException
+    {
+        if (!buffer.slice().equals(ByteBuffer.wrap(MAGIC)))
+        {
+            throw damaged("the " + where + " magic is missing");
+        }
+    }
+
+    /**
+     * Checks that a count read from the footer fits in what is left of it.
+     *
+     * @param count     the count
+     * @param remaining the footer bytes left
+     * @param entrySize the bytes each counted entry takes
+     * @return the count
+     * @throws IOException if the count is negative or too large
+     */
+    private int checkCount(final int count,
+                           final int remaining,
+                           final int entrySize) throws IOException
+    {
+        if (count < 0 || (long) count * entrySize > remaining)
+        {
+            throw damaged("the footer lists " + count + " row groups but has room for " + remaining / entrySize);
+        }
+        return count;
+    }
+
+    /**
+     * Reads a range of the file.
+     *
+     * @param position the file offset
+     * @param length   the number of bytes
+     * @return the bytes, positioned at the first
+     * @throws IOException if the file cannot be read or ends first
+     */
+    private ByteBuffer readFully(final long position,
+                                 final int length) throws IOException
+    {
+        final ByteBuffer buffer;
+        buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw damaged("it ends before offset " + (position + length));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Names a chunk for error messages.
+     *
+     * @param group  the row group
+     * @param column the column
+     * @return the description
+     */
+    private static String chunkName(final int group,
+                                    final ColumnarExporter.Column column)
+    {
+        return "chunk " + column + " of row group " + group;
+    }
+
+    /**
+     * Builds the exception for a damaged file.
+     *
+     * @param reason what is wrong with it
+     * @return the exception
+     */
+    private IOException damaged(final String reason)
+    {
+        return new IOException("Columnar file " + file + " is damaged: " + reason);
+    }
+}
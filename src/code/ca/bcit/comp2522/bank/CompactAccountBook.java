@@ -0,0 +1,396 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Holds accounts in a compact columnar form instead of as a graph of
+ * {@link BankAccount}, {@link BankClient}, {@link Name} and {@link Date} objects.
+ *
+ * <p>Each account is one row across a set of primitive arrays:</p>
+ * <ul>
+ *     <li>account number and client ID as packed keys (8 bytes each, see
+ *     {@link BinaryCodec#packKey(String)})</li>
+ *     <li>balance (8 bytes) and PIN (4 bytes)</li>
+ *     <li>opened, closed, birth, signup and death dates as day numbers (4 bytes
+ *     each, see {@link Date#toEpochDay()}), with {@value BinaryCodec#NO_DATE}
+ *     for a missing date</li>
+ *     <li>first and last name as IDs into a shared {@link StringPool} (4 bytes each)</li>
+ *     <li>currency as an index into a per-book currency table (1 byte) and
+ *     lifecycle state (1 byte)</li>
+ * </ul>
+ *
+ * <p>That is {@value #ROW_BYTES} bytes per account plus one copy of each
+ * distinct name, against several hundred bytes of object headers, references
+ * and strings for the equivalent object graph. {@link FootprintReport}
+ * measures both. Client fields are stored per row, so a client with several
+ * accounts is repeated in each of them.</p>
+ *
+ * <p>Rows are snapshots: later changes to the source account are not seen.
+ * {@link #toAccount(int)} rebuilds a full {@code BankAccount} from a row when
+ * the object form is needed. A {@code CompactAccountBook} is not thread-safe;
+ * load it from one thread and publish it safely before sharing it.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class CompactAccountBook
+{
+    // --- Row layout, in bytes ---
+    static final int ROW_BYTES = 2 * Long.BYTES
+                                 + Double.BYTES
+                                 + 8 * Integer.BYTES
+                                 + 2 * Byte.BYTES;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int GROWTH_FACTOR    = 2;
+    private static final int MAX_CURRENCIES   = 256;
+    private static final int BYTE_MASK        = 0xFF;
+
+    private static final AccountState[] STATES = AccountState.values();
+
+    private final StringPool     names;
+    private final List<Currency> currencies;
+
+    private long[]   accountKeys;
+    private long[]   clientKeys;
+    private double[] balances;
+    private int[]    pins;
+    private int[]    openedDays;
+    private int[]    closedDays;
+    private int[]    birthDays;
+    private int[]    signupDays;
+    private int[]    deathDays;
+    private int[]    firstNames;
+    private int[]    lastNames;
+    private byte[]   currencyRefs;
+    private byte[]   states;
+    private int      size;
+
+    /**
+     * Constructs an empty {@code CompactAccountBook}.
+     *
+     * @param initialCapacity the number of rows to allocate up front; must not be negative
+     */
+    CompactAccountBook(final int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+
+        this.names      = new StringPool();
+        this.currencies = new ArrayList<>();
+        this.size       = 0;
+
+        allocate(Math.max(initialCapacity, DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Appends a snapshot of an account.
+     *
+     * @param account the account to store
+     * @return the row the account was stored in
+     * @throws IllegalArgumentException if the book already holds {@value #MAX_CURRENCIES} other currencies
+     */
+    int add(final BankAccount account)
+    {
+        final BankClient client;
+        final Name name;
+        final Date closed;
+        final int row;
+
+        client = account.getClient();
+        name   = client.getName();
+        closed = account.getAccountClosed();
+
+        if (size == accountKeys.length)
+        {
+            allocate(size * GROWTH_FACTOR);
+        }
+
+        row = size;
+
+        accountKeys[row]  = BinaryCodec.packKey(account.getAccountNumber());
+        clientKeys[row]   = BinaryCodec.packKey(client.getClientID());
+        balances[row]     = account.getBalance();
+        pins[row]         = account.getPin();
+        openedDays[row]   = account.getAccountOpened().toEpochDay();
+        birthDays[row]    = client.getBirthEpochDay();
+        signupDays[row]   = client.getSignupEpochDay();
+        firstNames[row]   = names.intern(name.getFirstName());
+        lastNames[row]    = names.intern(name.getLastName());
+        currencyRefs[row] = (byte) currencyRef(account.getCurrency());
+        states[row]       = (byte) account.getState().ordinal();
+
+        if (closed == null)
+        {
+            closedDays[row] = BinaryCodec.NO_DATE;
+        }
+        else
+        {
+            closedDays[row] = closed.toEpochDay();
+        }
+
+        if (client.getDeathEpochDay() == BankClient.NOT_DECEASED)
+        {
+            deathDays[row] = BinaryCodec.NO_DATE;
+        }
+        else
+        {
+            deathDays[row] = client.getDeathEpochDay();
+        }
+
+        size++;
+        return row;
+    }
+
+    /**
+     * Retrieves the number of accounts stored.
+     *
+     * @return the row count
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of distinct first and last names stored.
+     *
+     * @return the name pool size
+     */
+    int getDistinctNames()
+    {
+        return names.size();
+    }
+
+    /**
+     * Retrieves the packed account number of a row.
+     *
+     * @param row the row
+     * @return the key from {@link BinaryCodec#packKey(String)}
+     */
+    long getAccountKey(final int row)
+    {
+        return accountKeys[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the packed client ID of a row.
+     *
+     * @param row the row
+     * @return the key from {@link BinaryCodec#packKey(String)}
+     */
+    long getClientKey(final int row)
+    {
+        return clientKeys[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the balance of a row.
+     *
+     * @param row the row
+     * @return the balance in the row's currency
+     */
+    double getBalance(final int row)
+    {
+        return balances[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the lifecycle state of a row.
+     *
+     * @param row the row
+     * @return the state
+     */
+    AccountState getState(final int row)
+    {
+        return STATES[states[checkRow(row)]];
+    }
+
+    /**
+     * Retrieves the day the account in a row was opened.
+     *
+     * @param row the row
+     * @return the day number
+     */
+    int getOpenedEpochDay(final int row)
+    {
+        return openedDays[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the day the account in a row was closed.
+     *
+     * @param row the row
+     * @return the day number, or {@value BinaryCodec#NO_DATE} if the account is not closed
+     */
+    int getClosedEpochDay(final int row)
+    {
+        return closedDays[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the birth day of the client in a row.
+     *
+     * @param row the row
+     * @return the day number
+     */
+    int getBirthEpochDay(final int row)
+    {
+        return birthDays[checkRow(row)];
+    }
+
+    /**
+     * Retrieves the client's first name in a row without allocating.
+     *
+     * @param row the row
+     * @return the pooled first name
+     */
+    String getFirstName(final int row)
+    {
+        return names.get(firstNames[checkRow(row)]);
+    }
+
+    /**
+     * Retrieves the client's last name in a row without allocating.
+     *
+     * @param row the row
+     * @return the pooled last name
+     */
+    String getLastName(final int row)
+    {
+        return names.get(lastNames[checkRow(row)]);
+    }
+
+    /**
+     * Retrieves the currency of a row.
+     *
+     * @param row the row
+     * @return the currency
+     */
+    Currency getCurrency(final int row)
+    {
+        return currencies.get(currencyRefs[checkRow(row)] & BYTE_MASK);
+    }
+
+    /**
+     * Rebuilds a {@link BankAccount}, with its client, from a row. Dates are the
+     * shared canonical instances from {@link Date#ofEpochDay(int)}.
+     *
+     * @param row the row
+     * @return a new account equal to the stored snapshot
+     */
+    BankAccount toAccount(final int row)
+    {
+        final BankClient client;
+        final BankAccount account;
+
+        checkRow(row);
+
+        client = new BankClient(new Name(names.get(firstNames[row]), names.get(lastNames[row])),
+                                Date.ofEpochDay(birthDays[row]),
+                                BinaryCodec.dateOf(deathDays[row]),
+                                Date.ofEpochDay(signupDays[row]),
+                                BinaryCodec.unpackKey(clientKeys[row]));
+
+        account = new BankAccount(client,
+                                  BinaryCodec.unpackKey(accountKeys[row]),
+                                  Date.ofEpochDay(openedDays[row]),
+                                  BinaryCodec.dateOf(closedDays[row]),
+                                  balances[row],
+                                  pins[row],
+                                  getCurrency(row));
+
+        if (STATES[states[row]] == AccountState.FROZEN)
+        {
+            account.freeze();
+        }
+        return account;
+    }
+
+    /**
+     * Finds, or adds, the index of a currency in this book's currency table.
+     *
+     * @param currency the currency
+     * @return the index
+     */
+    private int currencyRef(final Currency currency)
+    {
+        final int existing;
+        existing = currencies.indexOf(currency);
+
+        if (existing >= 0)
+        {
+            return existing;
+        }
+
+        if (currencies.size() == MAX_CURRENCIES)
+        {
+            throw new IllegalArgumentException("Book cannot hold more than " + MAX_CURRENCIES + " currencies");
+        }
+
+        currencies.add(currency);
+        return currencies.size() - 1;
+    }
+
+    /**
+     * Validates a row index.
+     *
+     * @param row the row
+     * @return {@code row}
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private int checkRow(final int row)
+    {
+        if (row < 0 || row >= size)
+        {
+            throw new IndexOutOfBoundsException("No row " + row);
+        }
+        return row;
+    }
+
+    /**
+     * Resizes every column to a new capacity, keeping existing rows.
+     *
+     * @param capacity the new number of rows
+     */
+    private void allocate(final int capacity)
+    {
+        if (accountKeys == null)
+        {
+            accountKeys  = new long[capacity];
+            clientKeys   = new long[capacity];
+            balances     = new double[capacity];
+            pins         = new int[capacity];
+            openedDays   = new int[capacity];
+            closedDays   = new int[capacity];
+            birthDays    = new int[capacity];
+            signupDays   = new int[capacity];
+            deathDays    = new int[capacity];
+            firstNames   = new int[capacity];
+            lastNames    = new int[capacity];
+            currencyRefs = new byte[capacity];
+            states       = new byte[capacity];
+        }
+        else
+        {
+            accountKeys  = Arrays.copyOf(accountKeys, capacity);
+            clientKeys   = Arrays.copyOf(clientKeys, capacity);
+            balances     = Arrays.copyOf(balances, capacity);
+            pins         = Arrays.copyOf(pins, capacity);
+            openedDays   = Arrays.copyOf(openedDays, capacity);
+            closedDays   = Arrays.copyOf(closedDays, capacity);
+            birthDays    = Arrays.copyOf(birthDays, capacity);
+            signupDays   = Arrays.copyOf(signupDays, capacity);
+            deathDays    = Arrays.copyOf(deathDays, capacity);
+            firstNames   = Arrays.copyOf(firstNames, capacity);
+            lastNames    = Arrays.copyOf(lastNames, capacity);
+            currencyRefs = Arrays.copyOf(currencyRefs, capacity);
+            states       = Arrays.copyOf(states, capacity);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ca.bcit.comp2522.bank;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * Represents a calendar date with day, month, and year values.
  *
@@ -11,21 +13,25 @@ package ca.bcit.comp2522.bank;
  *     <li>Computation of the day of the week using month codes and century offsets.</li>
  * </ul>
  *
- * <p>Dates are immutable once constructed.</p>
+ * <p>Dates are immutable once constructed. {@link #of(int, int, int)} and
+ * {@link #ofEpochDay(int)} return a shared canonical instance for each day
+ * instead of allocating. Each year's canonical dates are created the first
+ * time that year is used, so short-lived tools only pay for the years they
+ * touch; a native image builds them all ahead of time.</p>
  *
  * @author Ryan Fiset, Larry Lin
  * @version 1.0
  */
 public class Date
 {
-    private static final int CURRENT_YEAR = 2025;
+    static final int CURRENT_YEAR = 2025;
     private static final int YEAR_1800    = 1800;
     private static final int YEAR_1900    = 1900;
     private static final int YEAR_2000    = 2000;
 
     // --- Constants for months ---
     private static final int MONTHS_IN_YEAR = 12;
-    private static final int JANUARY        = 1;
+    static final int JANUARY        = 1;
     private static final int FEBRUARY       = 2;
     private static final int MARCH          = 3;
     private static final int APRIL          = 4;
@@ -36,7 +42,7 @@ public class Date
     private static final int SEPTEMBER      = 9;
     private static final int OCTOBER        = 10;
     private static final int NOVEMBER       = 11;
-    private static final int DECEMBER       = 12;
+    static final int DECEMBER       = 12;
 
     // --- Constants for month codes ---
     private static final int JANUARY_CODE   = 1;
@@ -90,6 +96,16 @@ public class Date
     private static final int LONG_MONTH            = 31;
     private static final int SHORT_MONTH           = 30;
 
+    // --- Constants for year lengths ---
+    static final int DAYS_IN_REGULAR_YEAR = 365;
+    static final int DAYS_IN_LEAP_YEAR    = 366;
+
+    // --- Cumulative days before each month in a regular year ---
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    // --- Month and day packed as MMDD for year differences ---
+    private static final int MONTH_DAY_MULTIPLIER = 100;
+
     // --- Leap year divisors ---
     private static final int LEAP_YEAR_DIVISOR        = 4;
     private static final int CENTURY_DIVISOR          = 100;
@@ -105,7 +121,7 @@ public class Date
 
     // --- Minimum valid values ---
     private static final int MIN_DAY  = 1;
-    private static final int MIN_YEAR = YEAR_1800;
+    static final int MIN_YEAR = YEAR_1800;
 
     // --- Constants for remainder ---
     private static final int EVEN_DIVISOR  = 2;
@@ -116,6 +132,91 @@ public class Date
     private final int month;
     private final int day;
 
+    /**
+     * Holds one canonical {@code Date} for every valid day, built a year at a time
+     * the first time a date in that year is requested. When the package is
+     * compiled to a native image with this class initialized at build time, every
+     * year is built then and stored in the image.
+     */
+    private static final class CanonicalDates
+    {
+        private static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+        private static final String BUILD_TIME          = "buildtime";
+
+        private static final AtomicReferenceArray<Date[]> BY_YEAR = new AtomicReferenceArray<>(CURRENT_YEAR - MIN_YEAR + 1);
+
+        static
+        {
+            if (BUILD_TIME.equals(System.getProperty(IMAGE_CODE_PROPERTY)))
+            {
+                for (int year = MIN_YEAR; year <= CURRENT_YEAR; year++)
+                {
+                    buildYear(year);
+                }
+            }
+        }
+
+        /**
+         * Prevents instantiation of this holder class.
+         */
+        private CanonicalDates()
+        {
+        }
+
+        /**
+         * Retrieves the canonical date for a day of a valid year.
+         *
+         * @param year      the year
+         * @param dayOfYear the zero-based day within the year
+         * @return the shared instance for that day
+         */
+        private static Date get(final int year,
+                                final int dayOfYear)
+        {
+            Date[] dates;
+            dates = BY_YEAR.get(year - MIN_YEAR);
+
+            if (dates == null)
+            {
+                dates = buildYear(year);
+            }
+            return dates[dayOfYear];
+        }
+
+        /**
+         * Creates every date of a year and publishes them, unless another thread
+         * published the year first.
+         *
+         * @param year the year
+         * @return the published dates of that year
+         */
+        private static Date[] buildYear(final int year)
+        {
+            final Date[] dates;
+            int index;
+
+            dates = new Date[getDaysInYear(year)];
+            index = 0;
+
+            for (int month = JANUARY; month <= DECEMBER; month++)
+            {
+                final int daysInMonth;
+                daysInMonth = getDaysInMonth(year, month);
+
+                for (int day = MIN_DAY; day <= daysInMonth; day++)
+                {
+                    dates[index++] = new Date(year, month, day);
+                }
+            }
+
+            if (BY_YEAR.compareAndSet(year - MIN_YEAR, null, dates))
+            {
+                return dates;
+            }
+            return BY_YEAR.get(year - MIN_YEAR);
+        }
+    }
+
     /**
      * Constructs a new {@code Date} object after validating the provided year, month, and day.
      *
@@ -135,6 +236,62 @@ public class Date
         this.day   = day;
     }
 
+    /**
+     * Creates a {@code Date} without throwing on invalid input.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return a result holding the shared instance for that day, as returned by
+     *         {@link #of(int, int, int)}, or the code of the first failed rule
+     */
+    public static ValidationResult<Date> tryCreate(final int year,
+                                                   final int month,
+                                                   final int day)
+    {
+        final ValidationCode code;
+        code = checkDate(year, month, day);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+        return ValidationResult.success(canonical(year, month, day));
+    }
+
+    /**
+     * Returns the canonical {@code Date} for the given day, validating it first.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the shared instance for that day
+     * @throws IllegalArgumentException if the date is invalid
+     */
+    public static Date of(final int year,
+                          final int month,
+                          final int day)
+    {
+        validateDate(year, month, day);
+
+        return canonical(year, month, day);
+    }
+
+    /**
+     * Returns the canonical {@code Date} for a day that has already been validated.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the shared instance for that day
+     */
+    private static Date canonical(final int year,
+                                  final int month,
+                                  final int day)
+    {
+        return CanonicalDates.get(year, epochDay(year, month, day) - epochDay(year, JANUARY, MIN_DAY));
+    }
+
     /**
      * Validates a date against minimum/maximum year, month, and day constraints.
      *
@@ -147,23 +304,36 @@ public class Date
                                      final int month,
                                      final int day)
     {
-        final int daysInMonth;
-        daysInMonth = getDaysInMonth(year, month);
+        checkDate(year, month, day).throwIfFailed();
+    }
 
-        if (year < MIN_YEAR || year > CURRENT_YEAR)
+    /**
+     * Checks a date against the rules of {@link #validateDate(int, int, int)} without throwing.
+     *
+     * @param year  the year to check
+     * @param month the month to check
+     * @param day   the day to check
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
+     */
+    public static ValidationCode checkDate(final int year,
+                                           final int month,
+                                           final int day)
+    {
+        if (month < JANUARY || month > DECEMBER)
         {
-            throw new IllegalArgumentException("Year is not between " + MIN_YEAR + " and " + CURRENT_YEAR);
+            return ValidationCode.MONTH_OUT_OF_RANGE;
         }
 
-        if (month < JANUARY || month > DECEMBER)
+        if (year < MIN_YEAR || year > CURRENT_YEAR)
         {
-            throw new IllegalArgumentException("Month is not between " + JANUARY + " and " + DECEMBER);
+            return ValidationCode.YEAR_OUT_OF_RANGE;
         }
 
-        if (day < MIN_DAY || day > daysInMonth)
+        if (day < MIN_DAY || day > getDaysInMonth(year, month))
         {
-            throw new IllegalArgumentException("Day is not valid");
+            return ValidationCode.DAY_INVALID;
         }
+        return ValidationCode.OK;
     }
 
     /**
@@ -253,7 +423,7 @@ public class Date
         }
         else
         {
-            throw new IllegalArgumentException("Month is not valid");
+            throw ValidationCode.MONTH_INVALID.exception();
         }
     }
 
@@ -264,12 +434,12 @@ public class Date
      * @param month the month to evaluate
      * @return the number of days in the specified month
      */
-    private static int getDaysInMonth(final int year,
-                                      final int month)
+    static int getDaysInMonth(final int year,
+                              final int month)
     {
         if (month < JANUARY || month > DECEMBER)
         {
-            throw new IllegalArgumentException("Month is not between " + JANUARY + " and " + DECEMBER);
+            throw ValidationCode.MONTH_OUT_OF_RANGE.exception();
         }
 
         if (month == FEBRUARY)
@@ -357,7 +527,7 @@ public class Date
         }
         else
         {
-            throw new IllegalArgumentException("Month is not valid");
+            throw ValidationCode.MONTH_INVALID.exception();
         }
     }
 
@@ -403,7 +573,7 @@ public class Date
         }
         else
         {
-            throw new IllegalArgumentException("Day is not valid");
+            throw ValidationCode.DAY_INVALID.exception();
         }
     }
 
@@ -413,7 +583,7 @@ public class Date
      * @param year the year to check
      * @return {@code true} if the year is a leap year, otherwise {@code false}
      */
-    private static boolean isLeapYear(final int year)
+    static boolean isLeapYear(final int year)
     {
         if (year % QUADRICENTENNIAL_DIVISOR == NO_REMAINDER)
         {
@@ -429,7 +599,170 @@ public class Date
     }
 
     /**
-     * Returns the date formatted as {@code YYYY-MM-DD}.
+     * Determines the number of days in a given year.
+     *
+     * @param year the year to evaluate
+     * @return {@value #DAYS_IN_LEAP_YEAR} for leap years, otherwise {@value #DAYS_IN_REGULAR_YEAR}
+     */
+    static int getDaysInYear(final int year)
+    {
+        if (isLeapYear(year))
+        {
+            return DAYS_IN_LEAP_YEAR;
+        }
+        return DAYS_IN_REGULAR_YEAR;
+    }
+
+    /**
+     * Counts the leap years from year 1 up to, but not including, the given year.
+     *
+     * @param year the year to count up to
+     * @return the number of leap years before {@code year}
+     */
+    private static int leapYearsBefore(final int year)
+    {
+        final int previousYear;
+        previousYear = year - 1;
+
+        return previousYear / LEAP_YEAR_DIVISOR -
+               previousYear / CENTURY_DIVISOR +
+               previousYear / QUADRICENTENNIAL_DIVISOR;
+    }
+
+    /**
+     * Computes the number of days between January 1, 1800 and the given date in constant time.
+     *
+     * <p>The arguments are not validated, so this also works for dates after
+     * {@value #CURRENT_YEAR} when scheduling ahead.</p>
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the day number, where January 1, 1800 is day 0
+     */
+    static int epochDay(final int year,
+                        final int month,
+                        final int day)
+    {
+        int epochDay;
+
+        epochDay = (year - MIN_YEAR) * DAYS_IN_REGULAR_YEAR;
+        epochDay += leapYearsBefore(year) - leapYearsBefore(MIN_YEAR);
+        epochDay += DAYS_BEFORE_MONTH[month - JANUARY];
+
+        if (month > FEBRUARY && isLeapYear(year))
+        {
+            epochDay++;
+        }
+
+        epochDay += day - MIN_DAY;
+
+        return epochDay;
+    }
+
+    /**
+     * Returns the number of days between January 1, 1800 and this date.
+     *
+     * @return the day number, where January 1, 1800 is day 0
+     */
+    public int toEpochDay()
+    {
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * Returns the canonical {@code Date} for a day number produced by {@link #toEpochDay()}.
+     *
+     * @param epochDay the day number, where January 1, 1800 is day 0
+     * @return the shared instance for that day
+     * @throws IllegalArgumentException if the day number falls outside the valid year range
+     */
+    static Date ofEpochDay(final int epochDay)
+    {
+        int year;
+
+        if (epochDay < 0 || epochDay >= epochDay(CURRENT_YEAR + 1, JANUARY, MIN_DAY))
+        {
+            throw ValidationCode.YEAR_OUT_OF_RANGE.exception();
+        }
+
+        year = MIN_YEAR + epochDay / DAYS_IN_LEAP_YEAR;
+
+        while (epochDay(year + 1, JANUARY, MIN_DAY) <= epochDay)
+        {
+            year++;
+        }
+
+        return CanonicalDates.get(year, epochDay - epochDay(year, JANUARY, MIN_DAY));
+    }
+
+    /**
+     * Returns the number of days from this date until another date.
+     *
+     * @param other the date to count to; must not be {@code null}
+     * @return the number of days, negative if {@code other} is earlier than this date
+     */
+    public int daysUntil(final Date other)
+    {
+        return other.toEpochDay() - toEpochDay();
+    }
+
+    /**
+     * Returns the number of whole years from this date until another date, as
+     * used for ages: a year is only counted once its anniversary is reached.
+     *
+     * @param other the date to count to; must not be {@code null}
+     * @return the number of whole years, negative if {@code other} is earlier than this date
+     */
+    public int yearsUntil(final Date other)
+    {
+        return yearsBetween(year, toMonthDay(), other.year, other.toMonthDay());
+    }
+
+    /**
+     * Returns this date's month and day packed as {@code MMDD}, which orders
+     * dates within a year.
+     *
+     * @return the packed month and day
+     */
+    int toMonthDay()
+    {
+        return month * MONTH_DAY_MULTIPLIER + day;
+    }
+
+    /**
+     * Computes the number of whole years between two dates given as years and
+     * packed {@code MMDD} month-days, without creating {@code Date} objects.
+     *
+     * @param fromYear     the year of the earlier date
+     * @param fromMonthDay the month and day of the earlier date, from {@link #toMonthDay()}
+     * @param toYear       the year of the later date
+     * @param toMonthDay   the month and day of the later date, from {@link #toMonthDay()}
+     * @return the number of whole years, negative if the second date is earlier
+     */
+    static int yearsBetween(final int fromYear,
+                            final int fromMonthDay,
+                            final int toYear,
+                            final int toMonthDay)
+    {
+        final int years;
+        years = toYear - fromYear;
+
+        if (years > 0 && toMonthDay < fromMonthDay)
+        {
+            return years - 1;
+        }
+
+        if (years < 0 && toMonthDay > fromMonthDay)
+        {
+            return years + 1;
+        }
+        return years;
+    }
+
+    /**
+     * Returns the date formatted as {@code YYYY-MM-DD}. {@link DateParser} reads
+     * this format back from bytes.
      *
      * @return the formatted date string
      */
@@ -0,0 +1,198 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compares parsing {@code YYYY-MM-DD} dates from a byte array with
+ * {@link DateParser}, with {@link Integer#parseInt(String)} on substrings
+ * followed by {@code new Date}, and with {@link LocalDate#parse(CharSequence)}.
+ *
+ * <p>The input is newline-separated dates spread over every valid year. The
+ * two string-based approaches first decode each date into a {@code String}, as
+ * a loader reading bytes must. Prints millions of dates parsed per second for
+ * each approach. Run with an optional date count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class DateParseBenchmark
+{
+    private static final int    DEFAULT_DATES   = 10_000_000;
+    private static final int    WARMUP_ROUNDS   = 5;
+    private static final int    MEASURED_ROUNDS = 5;
+    private static final int    RECORD_BYTES    = DateParser.DATE_BYTES + 1;
+    private static final int    DAY_STRIDE      = 7;
+    private static final int    YEAR_END        = 4;
+    private static final int    MONTH_START     = 5;
+    private static final int    MONTH_END       = 7;
+    private static final int    DAY_START       = 8;
+    private static final double MILLIONS_SCALE  = 1_000.0;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DateParseBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional date count
+     */
+    public static void main(final String[] args)
+    {
+        final int dates;
+        final byte[] input;
+        long swarNanos;
+        long substringNanos;
+        long localDateNanos;
+
+        if (args.length > 0)
+        {
+            dates = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            dates = DEFAULT_DATES;
+        }
+
+        input = encodeDates(dates);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+        {
+            parseSwar(input);
+            parseSubstrings(input);
+            parseLocalDate(input);
+        }
+
+        swarNanos      = 0;
+        substringNanos = 0;
+        localDateNanos = 0;
+
+        for (int round = 0; round < MEASURED_ROUNDS; round++)
+        {
+            long start;
+
+            start      = System.nanoTime();
+            parseSwar(input);
+            swarNanos += System.nanoTime() - start;
+
+            start           = System.nanoTime();
+            parseSubstrings(input);
+            substringNanos += System.nanoTime() - start;
+
+            start           = System.nanoTime();
+            parseLocalDate(input);
+            localDateNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("DateParser:          %8.1f M dates/s%n", rate(dates, swarNanos));
+        System.out.printf("parseInt + new Date: %8.1f M dates/s%n", rate(dates, substringNanos));
+        System.out.printf("LocalDate.parse:     %8.1f M dates/s%n", rate(dates, localDateNanos));
+    }
+
+    /**
+     * Encodes newline-separated sample dates covering the valid year range.
+     *
+     * @param dates the number of dates
+     * @return the encoded bytes
+     */
+    private static byte[] encodeDates(final int dates)
+    {
+        final byte[] input;
+        final int validDays;
+
+        input     = new byte[dates * RECORD_BYTES];
+        validDays = Date.epochDay(Date.CURRENT_YEAR + 1, Date.JANUARY, 1);
+
+        for (int i = 0; i < dates; i++)
+        {
+            final byte[] text;
+            text = Date.ofEpochDay((int) ((long) i * DAY_STRIDE % validDays))
+                       .getYYYYMMDD()
+                       .getBytes(StandardCharsets.US_ASCII);
+
+            System.arraycopy(text, 0, input, i * RECORD_BYTES, DateParser.DATE_BYTES);
+            input[i * RECORD_BYTES + DateParser.DATE_BYTES] = '\n';
+        }
+        return input;
+    }
+
+    /**
+     * Parses every date with {@link DateParser}.
+     *
+     * @param input the encoded dates
+     * @return the sum of the day numbers, so the work cannot be skipped
+     */
+    private static long parseSwar(final byte[] input)
+    {
+        long sum;
+        sum = 0;
+
+        for (int offset = 0; offset < input.length; offset += RECORD_BYTES)
+        {
+            sum += DateParser.parseEpochDay(input, offset);
+        }
+        return sum;
+    }
+
+    /**
+     * Parses every date by splitting a decoded string and constructing a {@link Date}.
+     *
+     * @param input the encoded dates
+     * @return the sum of the day numbers, so the work cannot be skipped
+     */
+    private static long parseSubstrings(final byte[] input)
+    {
+        long sum;
+        sum = 0;
+
+        for (int offset = 0; offset < input.length; offset += RECORD_BYTES)
+        {
+            final String text;
+            final Date date;
+
+            text = new String(input, offset, DateParser.DATE_BYTES, StandardCharsets.US_ASCII);
+            date = new Date(Integer.parseInt(text.substring(0, YEAR_END)),
+                            Integer.parseInt(text.substring(MONTH_START, MONTH_END)),
+                            Integer.parseInt(text.substring(DAY_START)));
+
+            sum += date.toEpochDay();
+        }
+        return sum;
+    }
+
+    /**
+     * Parses every date with {@link LocalDate#parse(CharSequence)}.
+     *
+     * @param input the encoded dates
+     * @return the sum of the epoch days, so the work cannot be skipped
+     */
+    private static long parseLocalDate(final byte[] input)
+    {
+        long sum;
+        sum = 0;
+
+        for (int offset = 0; offset < input.length; offset += RECORD_BYTES)
+        {
+            sum += LocalDate.parse(new String(input, offset, DateParser.DATE_BYTES, StandardCharsets.US_ASCII))
+                            .toEpochDay();
+        }
+        return sum;
+    }
+
+    /**
+     * Converts a measured time into a throughput.
+     *
+     * @param dates the dates parsed per round
+     * @param nanos the total time over all measured rounds
+     * @return millions of dates per second
+     */
+    private static double rate(final int dates,
+                               final long nanos)
+    {
+        return (double) dates * MEASURED_ROUNDS / nanos * MILLIONS_SCALE;
+    }
+}
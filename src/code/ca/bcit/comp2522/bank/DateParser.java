@@ -0,0 +1,255 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Parses ASCII {@code YYYY-MM-DD} dates, as produced by {@link Date#getYYYYMMDD()},
+ * straight from bytes without allocating.
+ *
+ * <p>The first eight bytes, {@code YYYY-MM-}, are read as one little-endian
+ * {@code long} and checked and decoded with SWAR (SIMD within a register)
+ * arithmetic: one XOR turns every digit into its value and every hyphen into
+ * zero, one add-and-mask confirms all eight results at once, and two
+ * multiply-shift steps combine the year digits. The two day digits are checked
+ * with a branch-free sign test. The decoded fields are then checked against
+ * the rules of {@link Date#checkDate(int, int, int)}, in the same order, using a
+ * table of month start days that also yields the day number directly.</p>
+ *
+ * <p>Successful parses return the packed day number from
+ * {@link Date#toEpochDay()}. Failures return a negative value that
+ * {@link #codeOf(int)} turns back into the {@link ValidationCode} of the rule
+ * that failed.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class DateParser
+{
+    static final int DATE_BYTES = 10;
+
+    // --- Byte positions ---
+    private static final int DAY_TENS_INDEX    = 8;
+    private static final int DAY_UNITS_INDEX   = 9;
+    private static final int MONTH_TENS_SHIFT  = 40;
+    private static final int MONTH_UNITS_SHIFT = 48;
+    private static final int BYTE_SHIFT        = 8;
+    private static final int PAIR_SHIFT        = 16;
+
+    // --- SWAR constants for "YYYY-MM-", lowest byte first ---
+    private static final long TEMPLATE    = 0x2D30_302D_3030_3030L;
+    private static final long DASH_MASK   = 0xFF00_00FF_0000_0000L;
+    private static final long DIGIT_LIMIT = 0x7676_7676_7676_7676L;
+    private static final long HIGH_BITS   = 0x8080_8080_8080_8080L;
+    private static final int  BYTE_MASK   = 0xFF;
+    private static final int  PAIR_MASK   = 0x00FF_00FF;
+    private static final int  MAX_DIGIT   = 9;
+    private static final int  TENS        = 10;
+    private static final int  HUNDREDS    = 100;
+
+    private static final VarHandle ARRAY_LONG  = MethodHandles.byteArrayViewVarHandle(long[].class,
+                                                                                      ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                       ByteOrder.LITTLE_ENDIAN);
+
+    private static final ValidationCode[] CODES = ValidationCode.values();
+
+    // --- Day number of the first of each month, with a 13th entry for the next January ---
+    private static final int   FIRST_DAY    = 1;
+    private static final int   MONTH_SLOTS  = Date.DECEMBER + 1;
+    private static final int   YEARS        = Date.CURRENT_YEAR - Date.MIN_YEAR + 1;
+    private static final int[] MONTH_STARTS = new int[YEARS * MONTH_SLOTS];
+
+    static
+    {
+        for (int year = Date.MIN_YEAR; year <= Date.CURRENT_YEAR; year++)
+        {
+            final int base;
+            base = (year - Date.MIN_YEAR) * MONTH_SLOTS;
+
+            for (int month = Date.JANUARY; month <= Date.DECEMBER; month++)
+            {
+                MONTH_STARTS[base + month - Date.JANUARY] = Date.epochDay(year, month, FIRST_DAY);
+            }
+            MONTH_STARTS[base + Date.DECEMBER] = Date.epochDay(year + 1, Date.JANUARY, FIRST_DAY);
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DateParser()
+    {
+    }
+
+    /**
+     * Parses a date from a byte array.
+     *
+     * @param bytes  the bytes to read
+     * @param offset the index of the first year digit
+     * @return the day number, or a negative value for which {@link #codeOf(int)} gives the failure
+     */
+    static int parseEpochDay(final byte[] bytes,
+                             final int offset)
+    {
+        if (offset < 0 || offset > bytes.length - DATE_BYTES)
+        {
+            return failure(ValidationCode.DATE_MALFORMED);
+        }
+
+        return decode((long) ARRAY_LONG.get(bytes, offset),
+                      bytes[offset + DAY_TENS_INDEX],
+                      bytes[offset + DAY_UNITS_INDEX]);
+    }
+
+    /**
+     * Parses a date from a buffer at an absolute index, leaving its position unchanged.
+     *
+     * @param buffer the buffer to read
+     * @param index  the index of the first year digit
+     * @return the day number, or a negative value for which {@link #codeOf(int)} gives the failure
+     */
+    static int parseEpochDay(final ByteBuffer buffer,
+                             final int index)
+    {
+        if (index < 0 || index > buffer.limit() - DATE_BYTES)
+        {
+            return failure(ValidationCode.DATE_MALFORMED);
+        }
+
+        return decode((long) BUFFER_LONG.get(buffer, index),
+                      buffer.get(index + DAY_TENS_INDEX),
+                      buffer.get(index + DAY_UNITS_INDEX));
+    }
+
+    /**
+     * Parses a date from a byte array.
+     *
+     * @param bytes  the bytes to read
+     * @param offset the index of the first year digit
+     * @return the canonical date
+     * @throws IllegalArgumentException if the bytes are malformed or the date is invalid
+     */
+    static Date parse(final byte[] bytes,
+                      final int offset)
+    {
+        return toDate(parseEpochDay(bytes, offset));
+    }
+
+    /**
+     * Parses a date from a buffer at an absolute index, leaving its position unchanged.
+     *
+     * @param buffer the buffer to read
+     * @param index  the index of the first year digit
+     * @return the canonical date
+     * @throws IllegalArgumentException if the bytes are malformed or the date is invalid
+     */
+    static Date parse(final ByteBuffer buffer,
+                      final int index)
+    {
+        return toDate(parseEpochDay(buffer, index));
+    }
+
+    /**
+     * Retrieves the outcome of a parse.
+     *
+     * @param result a value returned by {@code parseEpochDay}
+     * @return {@link ValidationCode#OK} for a day number, otherwise the code of the failed rule
+     */
+    static ValidationCode codeOf(final int result)
+    {
+        if (result >= 0)
+        {
+            return ValidationCode.OK;
+        }
+        return CODES[-1 - result];
+    }
+
+    /**
+     * Checks and decodes the bytes of a date.
+     *
+     * @param head     the bytes {@code YYYY-MM-} as a little-endian long
+     * @param dayTens  the tens digit of the day
+     * @param dayUnits the units digit of the day
+     * @return the day number, or a negative failure value
+     */
+    private static int decode(final long head,
+                              final byte dayTens,
+                              final byte dayUnits)
+    {
+        final long digits;
+        final int  tensOfDay;
+        final int  unitsOfDay;
+        final int  yearPairs;
+        final int  year;
+        final int  month;
+        final int  day;
+        final int  slot;
+        final int  monthStart;
+
+        // Digits become 0-9 and hyphens become 0; anything else leaves a byte above 9
+        digits     = head ^ TEMPLATE;
+        tensOfDay  = dayTens - '0';
+        unitsOfDay = dayUnits - '0';
+
+        if (((digits | digits + DIGIT_LIMIT) & HIGH_BITS) != 0 ||
+            (digits & DASH_MASK) != 0 ||
+            (tensOfDay | unitsOfDay | MAX_DIGIT - tensOfDay | MAX_DIGIT - unitsOfDay) < 0)
+        {
+            return failure(ValidationCode.DATE_MALFORMED);
+        }
+
+        // Combine adjacent year digits into two two-digit values in bytes 0 and 2
+        yearPairs = ((int) digits * TENS + ((int) digits >>> BYTE_SHIFT)) & PAIR_MASK;
+        year      = (yearPairs & BYTE_MASK) * HUNDREDS + (yearPairs >>> PAIR_SHIFT);
+        month     = (int) (digits >>> MONTH_TENS_SHIFT & BYTE_MASK) * TENS
+                    + (int) (digits >>> MONTH_UNITS_SHIFT & BYTE_MASK);
+        day       = tensOfDay * TENS + unitsOfDay;
+
+        // Same rules, in the same order, as Date.checkDate
+        if (month < Date.JANUARY || month > Date.DECEMBER)
+        {
+            return failure(ValidationCode.MONTH_OUT_OF_RANGE);
+        }
+
+        if (year < Date.MIN_YEAR || year > Date.CURRENT_YEAR)
+        {
+            return failure(ValidationCode.YEAR_OUT_OF_RANGE);
+        }
+
+        slot       = (year - Date.MIN_YEAR) * MONTH_SLOTS + month - Date.JANUARY;
+        monthStart = MONTH_STARTS[slot];
+
+        if (day < FIRST_DAY || monthStart + day > MONTH_STARTS[slot + 1])
+        {
+            return failure(ValidationCode.DAY_INVALID);
+        }
+        return monthStart + day - FIRST_DAY;
+    }
+
+    /**
+     * Converts a parse result into a date.
+     *
+     * @param result a value returned by {@code parseEpochDay}
+     * @return the canonical date
+     * @throws IllegalArgumentException if the result is a failure
+     */
+    private static Date toDate(final int result)
+    {
+        codeOf(result).throwIfFailed();
+        return Date.ofEpochDay(result);
+    }
+
+    /**
+     * Encodes a failure as a negative parse result.
+     *
+     * @param code the failed rule
+     * @return the negative result
+     */
+    private static int failure(final ValidationCode code)
+    {
+        return -1 - code.ordinal();
+    }
+}
@@ -0,0 +1,137 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Measures how fast {@link ColumnarExporter} writes a book of accounts, and how
+ * much of that time the calling thread spends waiting on the disk rather than
+ * on encoding. The file is then read back with {@link ColumnarReader} and
+ * every chunk checked, so a broken export fails the run.
+ *
+ * <p>Accounts are generated on the fly so the benchmark itself needs little
+ * memory. Run with an optional account count and output file; without a file a
+ * temporary one is used and deleted afterwards.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ExportBenchmark
+{
+    private static final int    DEFAULT_ACCOUNTS = 10_000_000;
+    private static final int    ROW_GROUP_SIZE   = 65_536;
+    private static final int    MAX_IN_FLIGHT    = 8;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MB     = 1024.0 * 1024.0;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ExportBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark and prints rows per second, megabytes per second and bytes per row.
+     *
+     * @param args an optional account count, then an optional output file
+     * @throws IOException if the file cannot be written, or reads back damaged
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final int accounts;
+        final Path file;
+        final ColumnarExporter exporter;
+        final long start;
+        final long rows;
+        final double seconds;
+        final long bytes;
+        final long verifyStart;
+        final long verified;
+
+        if (args.length > 0)
+        {
+            accounts = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            accounts = DEFAULT_ACCOUNTS;
+        }
+
+        if (args.length > 1)
+        {
+            file = Path.of(args[1]);
+        }
+        else
+        {
+            file = Files.createTempFile("accounts", ".bkcol");
+        }
+
+        exporter = new ColumnarExporter(ROW_GROUP_SIZE, Runtime.getRuntime().availableProcessors(), MAX_IN_FLIGHT);
+        start    = System.nanoTime();
+        rows     = exporter.export(generate(accounts), file);
+        seconds  = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        bytes    = Files.size(file);
+
+        System.out.printf("Exported %d rows in %.2f s: %.0f rows/s, %.1f MB/s, %.1f bytes/row%n",
+                          rows,
+                          seconds,
+                          rows / seconds,
+                          bytes / BYTES_PER_MB / seconds,
+                          (double) bytes / rows);
+
+        verifyStart = System.nanoTime();
+
+        try (ColumnarReader reader = new ColumnarReader(file))
+        {
+            verified = reader.verify();
+        }
+
+        if (verified != rows)
+        {
+            throw new IllegalStateException("Read back " + verified + " rows of the " + rows + " exported");
+        }
+
+        System.out.printf("Read back and verified %d rows in %.2f s%n",
+                          verified,
+                          (System.nanoTime() - verifyStart) / NANOS_PER_SECOND);
+
+        if (args.length <= 1)
+        {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Generates deterministic sample accounts lazily.
+     *
+     * @param count the number of accounts to generate
+     * @return an iterator over the accounts
+     */
+    private static Iterator<BankAccount> generate(final int count)
+    {
+        return new Iterator<>()
+        {
+            private int next;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < count;
+            }
+
+            @Override
+            public BankAccount next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return BenchmarkAccounts.account(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the heap bytes per account of a list of {@link BankAccount} object
+ * graphs against the same accounts held in a {@link CompactAccountBook}.
+ *
+ * <p>Each representation is built from the same deterministic sample, where
+ * names repeat as they do in real client lists, and measured as the growth in
+ * used heap after a full collection. Run with {@code -XX:+UseSerialGC} for the
+ * most stable figures, and with an optional account count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class FootprintReport
+{
+    private static final int DEFAULT_ACCOUNTS = 1_000_000;
+    private static final int GC_PASSES        = 5;
+    private static final int FIRST_NAMES      = 1_000;
+    private static final int LAST_NAMES       = 5_000;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FootprintReport()
+    {
+    }
+
+    /**
+     * Runs the report.
+     *
+     * @param args an optional account count
+     */
+    public static void main(final String[] args)
+    {
+        final int accounts;
+        final long graphBytes;
+        final long compactBytes;
+
+        if (args.length > 0)
+        {
+            accounts = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            accounts = DEFAULT_ACCOUNTS;
+        }
+
+        graphBytes   = measureGraph(accounts);
+        compactBytes = measureCompact(accounts);
+
+        System.out.printf("Object graph:   %6.1f bytes/account%n", (double) graphBytes / accounts);
+        System.out.printf("Compact book:   %6.1f bytes/account (%d bytes/row plus pooled names)%n",
+                          (double) compactBytes / accounts,
+                          CompactAccountBook.ROW_BYTES);
+        System.out.printf("Reduction:      %6.1fx%n", (double) graphBytes / compactBytes);
+    }
+
+    /**
+     * Measures the heap held by a list of account object graphs.
+     *
+     * @param accounts the number of accounts
+     * @return the bytes retained
+     */
+    private static long measureGraph(final int accounts)
+    {
+        final long before;
+        final List<BankAccount> book;
+        final long after;
+
+        before = usedHeap();
+        book   = new ArrayList<>(accounts);
+
+        for (int i = 0; i < accounts; i++)
+        {
+            book.add(sampleAccount(i));
+        }
+
+        after = usedHeap();
+        Reference.reachabilityFence(book);
+
+        return after - before;
+    }
+
+    /**
+     * Measures the heap held by a compact book of the same accounts.
+     *
+     * @param accounts the number of accounts
+     * @return the bytes retained
+     */
+    private static long measureCompact(final int accounts)
+    {
+        final long before;
+        final CompactAccountBook book;
+        final long after;
+
+        before = usedHeap();
+        book   = new CompactAccountBook(accounts);
+
+        for (int i = 0; i < accounts; i++)
+        {
+            book.add(sampleAccount(i));
+        }
+
+        after = usedHeap();
+        Reference.reachabilityFence(book);
+
+        return after - before;
+    }
+
+    /**
+     * Builds a deterministic sample account, owned by a client with the same ID.
+     *
+     * @param i the sample number
+     * @return the account
+     */
+    private static BankAccount sampleAccount(final int i)
+    {
+        return BenchmarkAccounts.account(i, new Name("First" + i % FIRST_NAMES, "Last" + i % LAST_NAMES), i);
+    }
+
+    /**
+     * Retrieves the used heap after repeated full collections.
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap()
+    {
+        final Runtime runtime;
+        runtime = Runtime.getRuntime();
+
+        for (int pass = 0; pass < GC_PASSES; pass++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
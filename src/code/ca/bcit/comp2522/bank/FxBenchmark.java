@@ -0,0 +1,141 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+
+/**
+ * Measures the cost of converting deposits and withdrawals through an
+ * {@link FxRateTable} compared with posting them in the account's own currency.
+ *
+ * <p>Each transaction is a deposit followed by a withdrawal of the same amount,
+ * so balances stay bounded. Run with an optional transaction count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class FxBenchmark
+{
+    private static final int    DEFAULT_TRANSACTIONS = 10_000_000;
+    private static final int    WARMUP_ROUNDS        = 5;
+    private static final int    MEASURED_ROUNDS      = 5;
+    private static final double INITIAL_BALANCE      = 1_000_000;
+    private static final double AMOUNT               = 25.0;
+    private static final String RATES                = "# Benchmark rates\nEUR 1.08\nCAD 0.73\nGBP 1.27\n";
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FxBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark and prints nanoseconds per transaction with and without conversion.
+     *
+     * @param args an optional transaction count
+     * @throws IOException if the temporary rate file cannot be written or read
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final int transactions;
+        final Path rateFile;
+        final FxRateTable rates;
+        final BankAccount account;
+        final Currency euro;
+        long nativeNanos;
+        long convertedNanos;
+
+        if (args.length > 0)
+        {
+            transactions = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            transactions = DEFAULT_TRANSACTIONS;
+        }
+
+        rateFile = Files.createTempFile("fx-rates", ".txt");
+        rates    = new FxRateTable();
+        euro     = Currency.getInstance("EUR");
+
+        try
+        {
+            Files.writeString(rateFile, RATES, StandardCharsets.UTF_8);
+            rates.load(rateFile);
+        }
+        finally
+        {
+            Files.deleteIfExists(rateFile);
+        }
+
+        account = BenchmarkAccounts.account(0, new Name("Bench", "Mark"), INITIAL_BALANCE);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+        {
+            runNative(account, transactions);
+            runConverted(account, transactions, euro, rates);
+        }
+
+        nativeNanos    = 0;
+        convertedNanos = 0;
+
+        for (int round = 0; round < MEASURED_ROUNDS; round++)
+        {
+            long start;
+
+            start       = System.nanoTime();
+            runNative(account, transactions);
+            nativeNanos += System.nanoTime() - start;
+
+            start          = System.nanoTime();
+            runConverted(account, transactions, euro, rates);
+            convertedNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("Account currency: %6.1f ns/transaction%n",
+                          (double) nativeNanos / MEASURED_ROUNDS / transactions);
+        System.out.printf("Converted (EUR):  %6.1f ns/transaction%n",
+                          (double) convertedNanos / MEASURED_ROUNDS / transactions);
+        System.out.printf("FX overhead:      %6.1f ns/transaction%n",
+                          (double) (convertedNanos - nativeNanos) / MEASURED_ROUNDS / transactions);
+    }
+
+    /**
+     * Posts transactions in the account's own currency.
+     *
+     * @param account      the account
+     * @param transactions the number of deposit and withdrawal pairs
+     */
+    private static void runNative(final BankAccount account,
+                                  final int transactions)
+    {
+        for (int i = 0; i < transactions; i++)
+        {
+            account.tryDeposit(AMOUNT);
+            account.tryWithdraw(AMOUNT);
+        }
+    }
+
+    /**
+     * Posts transactions in another currency, converted through the rate table.
+     *
+     * @param account      the account
+     * @param transactions the number of deposit and withdrawal pairs
+     * @param currency     the currency of each amount
+     * @param rates        the exchange rates
+     */
+    private static void runConverted(final BankAccount account,
+                                     final int transactions,
+                                     final Currency currency,
+                                     final FxRateTable rates)
+    {
+        for (int i = 0; i < transactions; i++)
+        {
+            account.tryDeposit(AMOUNT, currency, rates);
+            account.tryWithdraw(AMOUNT, currency, rates);
+        }
+    }
+}
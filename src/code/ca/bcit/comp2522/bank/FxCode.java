@@ -0,0 +1,49 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the reasons an amount cannot be converted through an {@link FxRateTable}.
+ *
+ * <p>Success is reported as {@link ValidationCode#OK}, so these constants are
+ * all failures.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum FxCode implements ResultCode
+{
+    UNKNOWN_CURRENCY("No exchange rate for currency");
+
+    private final String message;
+
+    /**
+     * Constructs an {@code FxCode} with its message.
+     *
+     * @param message the human-readable failure message
+     */
+    FxCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents success, which it never does.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
@@ -0,0 +1,202 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Converts amounts between currencies using a table of exchange rates loaded
+ * from a local file.
+ *
+ * <p>The rate file has one currency per line: the ISO 4217 code followed by the
+ * number of US dollars one unit of that currency buys, for example
+ * {@code EUR 1.08}. Blank lines and lines starting with {@value #COMMENT_PREFIX}
+ * are ignored. USD is always present with a rate of 1.</p>
+ *
+ * <p>Rates are held in an immutable array indexed by the ISO 4217 numeric code.
+ * Loading a new file builds a fresh array and publishes it with a single
+ * volatile write, so conversions never lock and always see one complete set of
+ * rates.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class FxRateTable
+{
+    private static final String COMMENT_PREFIX  = "#";
+    private static final String FIELD_SEPARATOR = "\\s+";
+    private static final int    NUMERIC_CODES   = 1000;
+    private static final int    FIELDS_PER_LINE = 2;
+    private static final int    CODE_FIELD      = 0;
+    private static final int    RATE_FIELD      = 1;
+    private static final double USD_RATE        = 1.0;
+
+    private volatile double[] usdPerUnit;
+
+    /**
+     * Constructs an {@code FxRateTable} that only knows USD.
+     */
+    FxRateTable()
+    {
+        this(emptyRates());
+    }
+
+    /**
+     * Constructs an {@code FxRateTable} over a rate snapshot.
+     *
+     * @param usdPerUnit the rate snapshot, which is never modified
+     */
+    private FxRateTable(final double[] usdPerUnit)
+    {
+        this.usdPerUnit = usdPerUnit;
+    }
+
+    /**
+     * Fixes the current rates in a separate table that later loads do not change.
+     * Costs no copy, since a loaded rate array is never modified.
+     *
+     * @return a table holding the rates in force now
+     */
+    FxRateTable snapshot()
+    {
+        return new FxRateTable(usdPerUnit);
+    }
+
+    /**
+     * Replaces the current rates with those in a rate file. If the file is
+     * invalid the current rates are kept.
+     *
+     * @param file the rate file to load
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed or names an unknown currency
+     */
+    void load(final Path file) throws IOException
+    {
+        final List<String> lines;
+        final double[] rates;
+
+        lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        rates = emptyRates();
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            final String line;
+            final String[] fields;
+            final Currency currency;
+            final double rate;
+
+            line = lines.get(i).trim();
+
+            if (line.isEmpty() || line.startsWith(COMMENT_PREFIX))
+            {
+                continue;
+            }
+
+            fields = line.split(FIELD_SEPARATOR);
+
+            if (fields.length != FIELDS_PER_LINE)
+            {
+                throw new IllegalArgumentException("Malformed rate on line " + (i + 1));
+            }
+
+            currency = Currency.getInstance(fields[CODE_FIELD]);
+            rate     = Double.parseDouble(fields[RATE_FIELD]);
+
+            if (!(rate > 0) || Double.isInfinite(rate) || currency.getNumericCode() < 0)
+            {
+                throw new IllegalArgumentException("Invalid rate on line " + (i + 1));
+            }
+
+            rates[currency.getNumericCode()] = rate;
+        }
+
+        usdPerUnit = rates;
+    }
+
+    /**
+     * Converts an amount between currencies.
+     *
+     * @param amount the amount in {@code from}
+     * @param from   the currency of {@code amount}
+     * @param to     the currency to convert into
+     * @return the amount in {@code to}
+     * @throws IllegalArgumentException if either currency has no rate
+     */
+    double convert(final double amount,
+                   final Currency from,
+                   final Currency to)
+    {
+        final double converted;
+        converted = tryConvert(amount, from, to);
+
+        if (Double.isNaN(converted))
+        {
+            throw FxCode.UNKNOWN_CURRENCY.exception();
+        }
+        return converted;
+    }
+
+    /**
+     * Converts an amount between currencies without throwing.
+     *
+     * @param amount the amount in {@code from}
+     * @param from   the currency of {@code amount}
+     * @param to     the currency to convert into
+     * @return the amount in {@code to}, or {@link Double#NaN} if either currency has no rate
+     */
+    double tryConvert(final double amount,
+                      final Currency from,
+                      final Currency to)
+    {
+        final double[] rates;
+
+        if (from.equals(to))
+        {
+            return amount;
+        }
+
+        rates = usdPerUnit;
+
+        return amount * rateOf(rates, from) / rateOf(rates, to);
+    }
+
+    /**
+     * Looks up the USD rate of a currency in a rate snapshot.
+     *
+     * @param rates    the rate snapshot
+     * @param currency the currency
+     * @return the number of US dollars one unit buys, or {@link Double#NaN} if unknown
+     */
+    private static double rateOf(final double[] rates,
+                                 final Currency currency)
+    {
+        final int code;
+        code = currency.getNumericCode();
+
+        if (code < 0 || code >= NUMERIC_CODES)
+        {
+            return Double.NaN;
+        }
+        return rates[code];
+    }
+
+    /**
+     * Builds a rate snapshot containing only USD.
+     *
+     * @return the new snapshot
+     */
+    private static double[] emptyRates()
+    {
+        final double[] rates;
+
+        rates = new double[NUMERIC_CODES];
+        Arrays.fill(rates, Double.NaN);
+        rates[BankAccount.DEFAULT_CURRENCY.getNumericCode()] = USD_RATE;
+
+        return rates;
+    }
+}
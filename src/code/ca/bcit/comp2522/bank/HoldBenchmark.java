@@ -0,0 +1,158 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of authorization holds with many holds outstanding.
+ *
+ * <p>Places holds with lifetimes of one to two hours across a set of accounts.
+ * It then captures a quarter of them and releases another quarter, and
+ * finally advances time past every deadline so the remaining half expire.
+ * Prints nanoseconds per operation for each step. For comparison, it also
+ * times one scheduled-executor task per hold, scheduled and then cancelled.
+ * Run with an optional hold count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class HoldBenchmark
+{
+    private static final int    DEFAULT_HOLDS    = 2_000_000;
+    private static final int    ACCOUNTS         = 10_000;
+    private static final long   TICK_NANOS       = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long   MIN_LIFETIME     = TimeUnit.HOURS.toNanos(1);
+    private static final long   EXPIRY_HORIZON   = TimeUnit.HOURS.toNanos(3);
+    private static final double INITIAL_BALANCE  = 1e12;
+    private static final double HOLD_AMOUNT      = 10.0;
+    private static final double CAPTURE_AMOUNT   = 7.5;
+    private static final int    OUTCOMES         = 4;
+    private static final int    CAPTURE_OUTCOME  = 0;
+    private static final int    RELEASE_OUTCOME  = 1;
+    private static final long   SEED             = 2522;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private HoldBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional hold count
+     */
+    public static void main(final String[] args)
+    {
+        final int holds;
+        final BankAccount[] accounts;
+        final Authorization[] authorizations;
+        final SplittableRandom random;
+        long start;
+        long authorizeNanos;
+        long settleNanos;
+        long expireNanos;
+        long executorNanos;
+        int pending;
+
+        if (args.length > 0)
+        {
+            holds = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            holds = DEFAULT_HOLDS;
+        }
+
+        accounts       = BenchmarkAccounts.create(ACCOUNTS, INITIAL_BALANCE);
+        authorizations = new Authorization[holds];
+        random         = new SplittableRandom(SEED);
+
+        try (AuthorizationHolds holdBook = new AuthorizationHolds(TICK_NANOS))
+        {
+            start = System.nanoTime();
+
+            for (int i = 0; i < holds; i++)
+            {
+                authorizations[i] = holdBook.authorize(accounts[i % ACCOUNTS],
+                                                       HOLD_AMOUNT,
+                                                       MIN_LIFETIME + random.nextLong(MIN_LIFETIME));
+            }
+
+            authorizeNanos = System.nanoTime() - start;
+            pending        = holdBook.getPendingCount();
+            start          = System.nanoTime();
+
+            for (int i = 0; i < holds; i++)
+            {
+                if (i % OUTCOMES == CAPTURE_OUTCOME)
+                {
+                    holdBook.capture(authorizations[i], CAPTURE_AMOUNT);
+                }
+                else if (i % OUTCOMES == RELEASE_OUTCOME)
+                {
+                    holdBook.release(authorizations[i]);
+                }
+            }
+
+            settleNanos = System.nanoTime() - start;
+            start       = System.nanoTime();
+
+            holdBook.expireDue(System.nanoTime() + EXPIRY_HORIZON);
+
+            expireNanos = System.nanoTime() - start;
+
+            System.out.printf("Outstanding holds:  %d%n", pending);
+            System.out.printf("Authorize:          %7.1f ns/hold%n", (double) authorizeNanos / holds);
+            System.out.printf("Capture or release: %7.1f ns/hold%n", (double) settleNanos / (holds / 2));
+            System.out.printf("Expire:             %7.1f ns/hold (%d expired, %d still pending)%n",
+                              (double) expireNanos / holdBook.getExpiredCount(),
+                              holdBook.getExpiredCount(),
+                              holdBook.getPendingCount());
+        }
+
+        executorNanos = timeScheduledTasks(holds);
+        System.out.printf("Executor schedule + cancel: %7.1f ns/hold%n", (double) executorNanos / holds);
+    }
+
+    /**
+     * Schedules and then cancels one executor task per hold, as a per-hold timer would.
+     *
+     * @param holds the number of tasks
+     * @return the elapsed nanoseconds
+     */
+    private static long timeScheduledTasks(final int holds)
+    {
+        final ScheduledThreadPoolExecutor executor;
+        final ScheduledFuture<?>[] tasks;
+        final SplittableRandom random;
+        final long start;
+        final long elapsed;
+
+        executor = new ScheduledThreadPoolExecutor(1);
+        tasks    = new ScheduledFuture<?>[holds];
+        random   = new SplittableRandom(SEED);
+
+        executor.setRemoveOnCancelPolicy(true);
+
+        start = System.nanoTime();
+
+        for (int i = 0; i < holds; i++)
+        {
+            tasks[i] = executor.schedule(() -> { }, MIN_LIFETIME + random.nextLong(MIN_LIFETIME), TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < holds; i++)
+        {
+            tasks[i].cancel(false);
+        }
+
+        elapsed = System.nanoTime() - start;
+        executor.shutdownNow();
+
+        return elapsed;
+    }
+}
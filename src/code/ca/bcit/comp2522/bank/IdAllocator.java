@@ -0,0 +1,313 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique identifiers that are valid as {@link BankAccount} numbers
+ * and {@link BankClient} IDs.
+ *
+ * <p>Every ID is {@value #ID_LENGTH} characters long, drawn from the digits
+ * and upper-case letters. IDs come from a global sequence. Each sequence
+ * number is scrambled by a bijection on the
+ * 36<sup>{@value #ID_LENGTH}</sup> possible IDs before it is encoded, so
+ * different numbers always give different IDs, but consecutive IDs do not
+ * look consecutive.</p>
+ *
+ * <p>Threads lease blocks of {@value #BLOCK_SIZE} sequence numbers from the
+ * global counter with one atomic add, then issue IDs from their block without
+ * synchronizing. The sequence number up to which IDs may have been issued,
+ * the high-water mark, is written to a file before any ID below it is handed
+ * out. It is reserved {@value #RESERVE_AHEAD} numbers at a time, so the file
+ * is rarely written. Each new mark is forced to disk in a temporary file,
+ * moved over the old one, and the directory is forced too, so a crash leaves
+ * either the old mark or the new one. A new allocator on the same file starts
+ * at the saved mark, and refuses to start from a mark file it cannot read
+ * rather than risk repeating IDs. IDs left unused in leased blocks or in the
+ * reserve when a process stops are skipped, never repeated.</p>
+ *
+ * <p>Use a separate file for each kind of ID being allocated.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class IdAllocator
+{
+    static final int ID_LENGTH = 7;
+
+    // --- Encoding ---
+    private static final String ALPHABET   = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final int    RADIX      = ALPHABET.length();
+    private static final long   ID_SPACE   = pow(RADIX, ID_LENGTH);
+    private static final long   MULTIPLIER = 40_692_641L;
+    private static final long   INCREMENT  = 1_000_000_007L;
+
+    // --- Leasing ---
+    private static final int    BLOCK_SIZE    = 1_024;
+    private static final long   RESERVE_AHEAD = 1L << 20;
+    private static final int    NEXT_INDEX    = 0;
+    private static final int    END_INDEX     = 1;
+    private static final String TEMP_SUFFIX   = ".tmp";
+
+    private final Path                markFile;
+    private final AtomicLong          counter;
+    private final ThreadLocal<long[]> leases;
+
+    private volatile long reserved;
+
+    /**
+     * Constructs an {@code IdAllocator} that continues from the high-water mark in a file.
+     *
+     * @param markFile the file holding the high-water mark; created on first use
+     * @throws IllegalArgumentException if the file is {@code null}
+     * @throws IllegalStateException    if the file does not hold a valid mark
+     * @throws UncheckedIOException     if the file exists but cannot be read
+     */
+    IdAllocator(final Path markFile)
+    {
+        final long mark;
+
+        if (markFile == null)
+        {
+            throw new IllegalArgumentException("Mark file cannot be null");
+        }
+
+        mark = loadMark(markFile);
+
+        this.markFile = markFile;
+        this.counter  = new AtomicLong(mark);
+        this.leases   = ThreadLocal.withInitial(() -> new long[END_INDEX + 1]);
+        this.reserved = mark;
+    }
+
+    /**
+     * Issues the next unique ID.
+     *
+     * @return an ID of {@value #ID_LENGTH} characters
+     * @throws IllegalStateException if every possible ID has been issued
+     * @throws UncheckedIOException  if the high-water mark cannot be saved
+     */
+    String next()
+    {
+        final long[] lease;
+        final long sequence;
+
+        lease = leases.get();
+
+        if (lease[NEXT_INDEX] == lease[END_INDEX])
+        {
+            lease(lease);
+        }
+
+        sequence = lease[NEXT_INDEX]++;
+
+        return encode(sequence);
+    }
+
+    /**
+     * Retrieves the sequence number below which IDs may already have been issued.
+     *
+     * @return the saved high-water mark
+     */
+    long getHighWaterMark()
+    {
+        return reserved;
+    }
+
+    /**
+     * Converts a sequence number into its ID.
+     *
+     * @param sequence a number from 0 to 36<sup>{@value #ID_LENGTH}</sup> - 1
+     * @return the ID, distinct for each sequence number
+     */
+    static String encode(final long sequence)
+    {
+        final char[] id;
+        long value;
+
+        id = new char[ID_LENGTH];
+
+        // An affine map is a bijection modulo 2^14 * 3^14 while the multiplier shares no factor with it
+        value = Math.floorMod(sequence * MULTIPLIER + INCREMENT, ID_SPACE);
+
+        for (int i = ID_LENGTH - 1; i >= 0; i--)
+        {
+            id[i] = ALPHABET.charAt((int) (value % RADIX));
+            value /= RADIX;
+        }
+        return new String(id);
+    }
+
+    /**
+     * Leases the calling thread a new block of sequence numbers.
+     *
+     * @param lease the thread's lease, updated in place
+     */
+    private void lease(final long[] lease)
+    {
+        final long start;
+        final long end;
+
+        start = counter.getAndAdd(BLOCK_SIZE);
+        end   = start + BLOCK_SIZE;
+
+        if (end > ID_SPACE)
+        {
+            throw new IllegalStateException("Every ID has been issued");
+        }
+
+        if (end > reserved)
+        {
+            reserveThrough(end);
+        }
+
+        lease[NEXT_INDEX] = start;
+        lease[END_INDEX]  = end;
+    }
+
+    /**
+     * Saves a high-water mark at or beyond a sequence number, replacing the file
+     * atomically once the new mark is on disk.
+     *
+     * @param end the sequence number the mark must reach
+     */
+    private synchronized void reserveThrough(final long end)
+    {
+        final long mark;
+        final Path tempFile;
+
+        if (reserved >= end)
+        {
+            return;
+        }
+
+        mark     = Math.min(end + RESERVE_AHEAD, ID_SPACE);
+        tempFile = markFile.resolveSibling(markFile.getFileName() + TEMP_SUFFIX);
+
+        try
+        {
+            try (FileChannel channel = FileChannel.open(tempFile,
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING,
+                                                        StandardOpenOption.WRITE))
+            {
+                final ByteBuffer buffer;
+                buffer = ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.UTF_8));
+
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+
+                // The mark must be durable before it replaces the old one, or a crash could leave an empty file
+                channel.force(true);
+            }
+
+            Files.move(tempFile, markFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(markFile.toAbsolutePath().getParent());
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        reserved = mark;
+    }
+
+    /**
+     * Forces a directory's entries to disk, so a file just moved into it survives a crash.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be forced
+     */
+    private static void forceDirectory(final Path directory) throws IOException
+    {
+        final FileChannel channel;
+
+        try
+        {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        }
+        catch (final IOException e)
+        {
+            // Some platforms cannot open a directory; there the move itself is as durable as it gets
+            return;
+        }
+
+        try (channel)
+        {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the high-water mark saved by an earlier allocator.
+     *
+     * @param markFile the file holding the mark
+     * @return the saved mark, or 0 if the file does not exist
+     * @throws IllegalStateException if the file does not hold a valid mark
+     */
+    private static long loadMark(final Path markFile)
+    {
+        final String text;
+        final long mark;
+
+        if (!Files.exists(markFile))
+        {
+            return 0;
+        }
+
+        try
+        {
+            text = Files.readString(markFile, StandardCharsets.UTF_8).trim();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        // Starting over from zero would reissue IDs, so a damaged file must be repaired by hand
+        try
+        {
+            mark = Long.parseLong(text);
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalStateException("Mark file " + markFile + " is damaged: \"" + text + "\"", e);
+        }
+
+        if (mark < 0 || mark > ID_SPACE)
+        {
+            throw new IllegalStateException("Mark file " + markFile + " holds an out-of-range mark " + mark);
+        }
+        return mark;
+    }
+
+    /**
+     * Raises a base to a small power.
+     *
+     * @param base     the base
+     * @param exponent the exponent
+     * @return {@code base} to the power {@code exponent}
+     */
+    private static long pow(final int base,
+                            final int exponent)
+    {
+        long result;
+        result = 1;
+
+        for (int i = 0; i < exponent; i++)
+        {
+            result *= base;
+        }
+        return result;
+    }
+}
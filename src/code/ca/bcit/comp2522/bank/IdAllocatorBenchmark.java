@@ -0,0 +1,132 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how many IDs an {@link IdAllocator} issues per second as threads
+ * are added.
+ *
+ * <p>Each thread issues the same number of IDs. Every ID is hashed into a
+ * per-thread checksum so the work cannot be optimized away. Run with an
+ * optional count of IDs per thread.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class IdAllocatorBenchmark
+{
+    private static final int    DEFAULT_IDS_PER_THREAD = 5_000_000;
+    private static final int    MAX_THREADS            = Runtime.getRuntime().availableProcessors();
+    private static final double NANOS_PER_SECOND       = 1e9;
+    private static final double IDS_PER_MILLION        = 1e6;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private IdAllocatorBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional count of IDs per thread
+     * @throws IOException          if the temporary mark file cannot be created or deleted
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final int idsPerThread;
+        final Path markFile;
+
+        if (args.length > 0)
+        {
+            idsPerThread = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            idsPerThread = DEFAULT_IDS_PER_THREAD;
+        }
+
+        markFile = Files.createTempFile("id-mark", ".txt");
+        Files.delete(markFile);
+
+        try
+        {
+            final IdAllocator allocator;
+            allocator = new IdAllocator(markFile);
+
+            for (int threads = 1; threads <= MAX_THREADS; threads *= 2)
+            {
+                final long nanos;
+                nanos = issue(allocator, threads, idsPerThread);
+
+                System.out.printf("%2d threads: %6.1f million IDs/s%n",
+                                  threads,
+                                  threads * (double) idsPerThread / nanos * NANOS_PER_SECOND / IDS_PER_MILLION);
+            }
+
+            System.out.printf("High-water mark: %,d%n", allocator.getHighWaterMark());
+        }
+        finally
+        {
+            Files.deleteIfExists(markFile);
+        }
+    }
+
+    /**
+     * Issues IDs from several threads at once.
+     *
+     * @param allocator    the allocator
+     * @param threads      the number of threads
+     * @param idsPerThread the number of IDs each thread issues
+     * @return the elapsed nanoseconds
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static long issue(final IdAllocator allocator,
+                              final int threads,
+                              final int idsPerThread) throws InterruptedException
+    {
+        final List<Thread> workers;
+        final long start;
+        final long[] checksums;
+
+        workers   = new ArrayList<>(threads);
+        checksums = new long[threads];
+
+        for (int t = 0; t < threads; t++)
+        {
+            final int index;
+            index = t;
+
+            workers.add(new Thread(() ->
+            {
+                long checksum;
+                checksum = 0;
+
+                for (int i = 0; i < idsPerThread; i++)
+                {
+                    checksum += allocator.next().hashCode();
+                }
+                checksums[index] = checksum;
+            }));
+        }
+
+        start = System.nanoTime();
+
+        for (final Thread worker : workers)
+        {
+            worker.start();
+        }
+
+        for (final Thread worker : workers)
+        {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+}
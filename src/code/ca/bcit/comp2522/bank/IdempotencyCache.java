@@ -0,0 +1,388 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Applies each transaction at most once per idempotency key, so a client that
+ * retries after a timeout gets back the original result instead of moving the
+ * money twice.
+ *
+ * <p>Results are remembered for a fixed time-to-live after the transaction
+ * finishes, in a bounded cache. Lookups go straight to a
+ * {@link ConcurrentHashMap}, so a hit costs one map read and one volatile
+ * write. Each segment keeps its finished entries in a ring, and the number of
+ * remembered keys never exceeds the configured capacity.</p>
+ *
+ * <p>When a full segment admits a new entry, it evicts an expired entry if it
+ * holds one. Every entry in a segment lives for the same time-to-live, so its
+ * entries expire in the order they were admitted, and checking the oldest is
+ * enough to find one. Only when no entry has expired does a CLOCK
+ * (second-chance) hand evict the first live entry not read since the hand
+ * last passed it.</p>
+ *
+ * <p>If a duplicate arrives while the original is still running, it waits for
+ * the original's result. If the original throws, its key is forgotten and the
+ * next submission runs the transaction again.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class IdempotencyCache
+{
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final Segment[]                        segments;
+    private final int                              segmentMask;
+    private final long                             ttlNanos;
+
+    /**
+     * A remembered transaction result.
+     */
+    private static final class Entry
+    {
+        private final String key;
+
+        private long             expiresAtNanos;
+        private ResultCode       result;
+        private volatile boolean done;
+        private volatile boolean referenced;
+
+        // Guarded by the segment lock once admitted
+        private int   slot;
+        private Entry older;
+        private Entry newer;
+
+        /**
+         * Constructs an {@code Entry} for a transaction that has not finished yet.
+         *
+         * @param key the idempotency key
+         */
+        private Entry(final String key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * Determines whether this entry is stale. A transaction still in
+         * progress never is.
+         *
+         * @param nowNanos the current {@link System#nanoTime()}
+         * @return {@code true} if the time-to-live has passed, otherwise {@code false}
+         */
+        private boolean isExpired(final long nowNanos)
+        {
+            // Reading done first makes the expiry written before it visible
+            return done && nowNanos - expiresAtNanos > 0;
+        }
+
+        /**
+         * Records the transaction's result and wakes any waiting duplicates.
+         *
+         * @param code           the result, or {@code null} if the transaction threw
+         * @param expiresAtNanos the {@link System#nanoTime()} after which the entry is stale
+         */
+        private synchronized void complete(final ResultCode code,
+                                           final long expiresAtNanos)
+        {
+            this.expiresAtNanos = expiresAtNanos;
+            this.result         = code;
+            this.done           = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits for the transaction to finish.
+         *
+         * @return the result, or {@code null} if the transaction threw
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private synchronized ResultCode await() throws InterruptedException
+        {
+            while (!done)
+            {
+                wait();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * One CLOCK ring of admitted entries, with the same entries linked from
+     * oldest to newest.
+     */
+    private static final class Segment
+    {
+        private final Entry[] ring;
+        private int           hand;
+        private Entry         oldest;
+        private Entry         newest;
+
+        /**
+         * Constructs a {@code Segment}.
+         *
+         * @param capacity the number of entries the ring holds
+         */
+        private Segment(final int capacity)
+        {
+            this.ring = new Entry[capacity];
+        }
+    }
+
+    /**
+     * Constructs an {@code IdempotencyCache}.
+     *
+     * @param capacity the largest number of keys remembered; must be at least {@code segments}
+     * @param segments the number of independently locked rings; must be a positive power of two
+     * @param ttlNanos how long a result is remembered, in nanoseconds; must be positive
+     */
+    IdempotencyCache(final int capacity,
+                     final int segments,
+                     final long ttlNanos)
+    {
+        if (segments <= 0 || Integer.bitCount(segments) != 1 || capacity < segments)
+        {
+            throw new IllegalArgumentException("Segments must be a power of two no larger than the capacity");
+        }
+
+        if (ttlNanos <= 0)
+        {
+            throw new IllegalArgumentException("Time-to-live must be positive");
+        }
+
+        this.entries     = new ConcurrentHashMap<>(capacity);
+        this.segments    = new Segment[segments];
+        this.segmentMask = segments - 1;
+        this.ttlNanos    = ttlNanos;
+
+        for (int i = 0; i < segments; i++)
+        {
+            this.segments[i] = new Segment(capacity / segments);
+        }
+    }
+
+    /**
+     * Runs a transaction unless one with the same key already ran within the
+     * time-to-live, in which case that transaction's result is returned instead.
+     *
+     * @param idempotencyKey the key the client attached to the transaction
+     * @param transaction    the transaction, such as {@code () -> account.tryWithdraw(amount)}
+     * @return the transaction's result, the original result for a duplicate, or
+     *         {@link IdempotencyCode#KEY_BLANK} if the key is blank
+     * @throws InterruptedException if interrupted while waiting for a duplicate still in progress
+     */
+    ResultCode submit(final String idempotencyKey,
+                      final Supplier<? extends ResultCode> transaction) throws InterruptedException
+    {
+        if (!Main.checkString(idempotencyKey).isOk())
+        {
+            return IdempotencyCode.KEY_BLANK;
+        }
+
+        while (true)
+        {
+            final long now;
+            final Entry existing;
+            final Entry claimed;
+
+            now      = System.nanoTime();
+            existing = entries.get(idempotencyKey);
+
+            if (existing != null && !existing.isExpired(now))
+            {
+                final ResultCode original;
+
+                existing.referenced = true;
+                original            = existing.await();
+
+                if (original != null)
+                {
+                    return original;
+                }
+                // The original threw and was forgotten; try to claim the key ourselves
+                continue;
+            }
+
+            claimed = new Entry(idempotencyKey);
+
+            if (existing == null)
+            {
+                if (entries.putIfAbsent(idempotencyKey, claimed) == null)
+                {
+                    return run(claimed, transaction);
+                }
+            }
+            else if (entries.replace(idempotencyKey, existing, claimed))
+            {
+                return run(claimed, transaction);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of keys currently remembered, including expired keys
+     * not yet evicted and transactions still in progress.
+     *
+     * @return the number of remembered keys
+     */
+    int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Runs a transaction whose key this thread has claimed and records its result.
+     *
+     * @param claimed     the entry claimed for the key
+     * @param transaction the transaction
+     * @return the transaction's result
+     */
+    private ResultCode run(final Entry claimed,
+                           final Supplier<? extends ResultCode> transaction)
+    {
+        final ResultCode result;
+
+        try
+        {
+            result = transaction.get();
+        }
+        catch (final RuntimeException | Error e)
+        {
+            entries.remove(claimed.key, claimed);
+            claimed.complete(null, System.nanoTime());
+            throw e;
+        }
+
+        admit(claimed, result);
+        return result;
+    }
+
+    /**
+     * Places a finished entry in its segment's ring and publishes its result.
+     * The oldest entry is evicted if it has expired. Otherwise the clock hand
+     * advances past recently referenced entries and evicts the first
+     * unreferenced one.
+     *
+     * @param entry  the entry to admit
+     * @param result the transaction's result
+     */
+    private void admit(final Entry entry,
+                       final ResultCode result)
+    {
+        final Segment segment;
+        segment = segments[spread(entry.key.hashCode()) & segmentMask];
+
+        synchronized (segment)
+        {
+            final long now;
+            final int slot;
+
+            // Reading the clock under the lock keeps each segment's expiry times in admission order
+            now = System.nanoTime();
+
+            if (segment.oldest != null && segment.oldest.isExpired(now))
+            {
+                slot = segment.oldest.slot;
+            }
+            else
+            {
+                slot = sweep(segment);
+            }
+
+            if (segment.ring[slot] != null)
+            {
+                evict(segment, segment.ring[slot]);
+            }
+
+            entry.slot         = slot;
+            segment.ring[slot] = entry;
+
+            if (segment.newest == null)
+            {
+                segment.oldest = entry;
+            }
+            else
+            {
+                segment.newest.newer = entry;
+                entry.older          = segment.newest;
+            }
+
+            segment.newest = entry;
+            entry.complete(result, now + ttlNanos);
+        }
+    }
+
+    /**
+     * Advances a segment's clock hand past recently referenced entries,
+     * clearing their reference bits, and stops at the first empty slot or
+     * unreferenced entry.
+     *
+     * @param segment the segment, whose lock the caller holds
+     * @return the slot the hand stopped at
+     */
+    private static int sweep(final Segment segment)
+    {
+        final Entry[] ring;
+        ring = segment.ring;
+
+        while (true)
+        {
+            final int slot;
+            final Entry candidate;
+
+            slot         = segment.hand;
+            candidate    = ring[slot];
+            segment.hand = (slot + 1) % ring.length;
+
+            if (candidate == null || !candidate.referenced)
+            {
+                return slot;
+            }
+
+            candidate.referenced = false;
+        }
+    }
+
+    /**
+     * Forgets an admitted entry and unlinks it from its segment's age order.
+     *
+     * @param segment the segment, whose lock the caller holds
+     * @param victim  the entry to forget
+     */
+    private void evict(final Segment segment,
+                       final Entry victim)
+    {
+        entries.remove(victim.key, victim);
+
+        if (victim.older == null)
+        {
+            segment.oldest = victim.newer;
+        }
+        else
+        {
+            victim.older.newer = victim.newer;
+        }
+
+        if (victim.newer == null)
+        {
+            segment.newest = victim.older;
+        }
+        else
+        {
+            victim.newer.older = victim.older;
+        }
+
+        victim.older = null;
+        victim.newer = null;
+    }
+
+    /**
+     * Mixes the high bits of a hash code into the low bits used to pick a segment.
+     *
+     * @param hash the hash code
+     * @return the spread hash
+     */
+    private static int spread(final int hash)
+    {
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,50 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the reasons {@link IdempotencyCache} refuses a submission before
+ * running its transaction.
+ *
+ * <p>Success is reported as {@link ValidationCode#OK}, so these constants are
+ * all failures.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum IdempotencyCode implements ResultCode
+{
+    KEY_BLANK("Idempotency key cannot be null or blank");
+
+    private final String message;
+
+    /**
+     * Constructs an {@code IdempotencyCode} with its message.
+     *
+     * @param message the human-readable failure message
+     */
+    IdempotencyCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents success, which it never does.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
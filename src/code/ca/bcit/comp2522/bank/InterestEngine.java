@@ -0,0 +1,400 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Accrues simple interest on every open {@link BankAccount} for a period of days.
+ *
+ * <p>The accrual period is converted into a year fraction with the actual/actual
+ * day count: the days falling in each calendar year are divided by that year's
+ * length, so leap years count 366 days. Interest is posted through
+ * {@link BankAccount#tryDeposit(double)} like any other deposit.</p>
+ *
+ * <p>Accounts are split into contiguous partitions, which a pool of worker
+ * threads runs in parallel. Each partition records how far it has progressed,
+ * and those markers are written to a progress file every
+ * {@value #CHECKPOINT_INTERVAL} accounts. If a partition fails or the run is
+ * interrupted, the other partitions stop at their next account, and the markers
+ * are written once every worker has finished, so running the same period again
+ * resumes each partition exactly where it stopped. The file is deleted once the
+ * run completes. If the process dies instead, accounts posted after the last
+ * checkpoint are posted again on resume, so the account state the run is
+ * applied to must be checkpointed on the same schedule when exactly-once
+ * posting is required. A progress file that is truncated or unreadable is
+ * ignored and the period starts over.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+class InterestEngine
+{
+    private static final int    CHECKPOINT_INTERVAL = 100_000;
+    private static final String TEMP_SUFFIX         = ".tmp";
+    private static final String FIELD_SEPARATOR     = " ";
+
+    private static final int HEADER_LINE_INDEX  = 0;
+    private static final int FIRST_MARKER_INDEX = 1;
+
+    private final List<BankAccount> accounts;
+    private final double            annualRate;
+    private final int               partitions;
+    private final int               threads;
+    private final Path              progressFile;
+
+    /**
+     * Constructs an {@code InterestEngine}.
+     *
+     * @param accounts     the accounts to accrue interest on; must support fast random access
+     * @param annualRate   the annual interest rate, e.g. {@code 0.05} for 5%
+     * @param partitions   the number of partitions the accounts are split into; must be positive
+     * @param threads      the number of worker threads processing partitions; must be positive
+     * @param progressFile the file used to record progress markers for restarts
+     */
+    InterestEngine(final List<BankAccount> accounts,
+                   final double annualRate,
+                   final int partitions,
+                   final int threads,
+                   final Path progressFile)
+    {
+        if (accounts == null)
+        {
+            throw new IllegalArgumentException("Accounts cannot be null");
+        }
+
+        if (partitions <= 0)
+        {
+            throw new IllegalArgumentException("Partitions must be positive");
+        }
+
+        if (threads <= 0)
+        {
+            throw new IllegalArgumentException("Threads must be positive");
+        }
+
+        if (progressFile == null)
+        {
+            throw new IllegalArgumentException("Progress file cannot be null");
+        }
+
+        this.accounts     = accounts;
+        this.annualRate   = annualRate;
+        this.partitions   = partitions;
+        this.threads      = threads;
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Computes the actual/actual year fraction between two dates.
+     *
+     * @param from the first day of the period (inclusive)
+     * @param to   the last day of the period (exclusive)
+     * @return the fraction of a year covered by the period
+     */
+    static double yearFraction(final Date from,
+                               final Date to)
+    {
+        final int fromDay;
+        final int toDay;
+        double fraction;
+
+        fromDay  = from.toEpochDay();
+        toDay    = to.toEpochDay();
+        fraction = 0;
+
+        for (int year = from.getYear(); year <= to.getYear(); year++)
+        {
+            final int yearStart;
+            final int yearEnd;
+            final int daysInPeriod;
+
+            yearStart    = Math.max(fromDay, Date.epochDay(year, Date.JANUARY, 1));
+            yearEnd      = Math.min(toDay, Date.epochDay(year + 1, Date.JANUARY, 1));
+            daysInPeriod = yearEnd - yearStart;
+
+            if (daysInPeriod > 0)
+            {
+                fraction += (double) daysInPeriod / Date.getDaysInYear(year);
+            }
+        }
+        return fraction;
+    }
+
+    /**
+     * Accrues interest for the period from {@code from} up to, but not including, {@code to},
+     * resuming from the progress file if an earlier run of the same period was interrupted.
+     *
+     * @param from the first day of the accrual period
+     * @param to   the day after the last day of the accrual period
+     * @return the total interest posted by this run
+     * @throws IllegalArgumentException if {@code to} is before {@code from}
+     * @throws IllegalStateException    if a partition fails or the run is interrupted; the
+     *                                  progress file then records where every partition stopped
+     * @throws UncheckedIOException     if the progress file cannot be read or written
+     */
+    double run(final Date from,
+               final Date to)
+    {
+        final double             fraction;
+        final int                partitionSize;
+        final AtomicIntegerArray markers;
+        final DoubleAdder        posted;
+        final ExecutorService    executor;
+        final List<Future<?>>    futures;
+        final String             header;
+
+        if (from.daysUntil(to) < 0)
+        {
+            throw new IllegalArgumentException("Accrual period cannot end before it starts");
+        }
+
+        fraction      = yearFraction(from, to);
+        partitionSize = (accounts.size() + partitions - 1) / partitions;
+        header        = from.toEpochDay() + FIELD_SEPARATOR +
+                        to.toEpochDay() + FIELD_SEPARATOR +
+                        partitions + FIELD_SEPARATOR +
+                        accounts.size();
+        markers       = loadMarkers(header, partitionSize);
+        posted        = new DoubleAdder();
+        executor      = Executors.newFixedThreadPool(Math.min(threads, partitions));
+        futures       = new ArrayList<>(partitions);
+
+        try
+        {
+            for (int partition = 0; partition < partitions; partition++)
+            {
+                final int index;
+                final int end;
+
+                index = partition;
+                end   = Math.min(accounts.size(), (partition + 1) * partitionSize);
+
+                futures.add(executor.submit(() -> accruePartition(index, end, fraction, markers, header, posted)));
+            }
+
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw abandon(executor, header, markers, new IllegalStateException("Interest run interrupted", e));
+        }
+        catch (final ExecutionException e)
+        {
+            throw abandon(executor, header, markers, new IllegalStateException("Interest run failed", e.getCause()));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        try
+        {
+            Files.deleteIfExists(progressFile);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return posted.sum();
+    }
+
+    /**
+     * Stops every worker, waits for them to finish, and records where each
+     * partition stopped so that a rerun posts nothing twice.
+     *
+     * @param executor the executor running the partitions
+     * @param header   the progress file header identifying this run
+     * @param markers  the per-partition index of the next account to process
+     * @param failure  the exception ending the run
+     * @return {@code failure}, with any error writing the progress file suppressed in it
+     */
+    private IllegalStateException abandon(final ExecutorService executor,
+                                          final String header,
+                                          final AtomicIntegerArray markers,
+                                          final IllegalStateException failure)
+    {
+        // Waits for workers still posting, so the markers saved below are final
+        executor.shutdownNow();
+        executor.close();
+
+        try
+        {
+            saveMarkers(header, markers);
+        }
+        catch (final UncheckedIOException e)
+        {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    /**
+     * Accrues interest on one partition, checkpointing progress as it goes. Stops
+     * before the next account if the worker is interrupted.
+     *
+     * @param partition the partition number
+     * @param end       the index one past the last account in the partition
+     * @param fraction  the year fraction of the accrual period
+     * @param markers   the per-partition index of the next account to process
+     * @param header    the progress file header identifying this run
+     * @param posted    the running total of posted interest
+     */
+    private void accruePartition(final int partition,
+                                 final int end,
+                                 final double fraction,
+                                 final AtomicIntegerArray markers,
+                                 final String header,
+                                 final DoubleAdder posted)
+    {
+        int sinceCheckpoint;
+        sinceCheckpoint = 0;
+
+        for (int i = markers.get(partition); i < end && !Thread.currentThread().isInterrupted(); i++)
+        {
+            final BankAccount account;
+            account = accounts.get(i);
+
+            if (account.getAccountClosed() == null)
+            {
+                final double interest;
+                interest = account.getBalance() * annualRate * fraction;
+
+                if (account.tryDeposit(interest).isOk())
+                {
+                    posted.add(interest);
+                }
+            }
+
+            markers.set(partition, i + 1);
+            sinceCheckpoint++;
+
+            if (sinceCheckpoint == CHECKPOINT_INTERVAL)
+            {
+                saveMarkers(header, markers);
+                sinceCheckpoint = 0;
+            }
+        }
+    }
+
+    /**
+     * Loads the partition markers for a run, or the partition start indices if
+     * there is no usable progress file for the same run.
+     *
+     * @param header        the progress file header identifying this run
+     * @param partitionSize the number of accounts in each partition
+     * @return the per-partition index of the next account to process
+     */
+    private AtomicIntegerArray loadMarkers(final String header,
+                                           final int partitionSize)
+    {
+        final AtomicIntegerArray markers;
+        final AtomicIntegerArray resumed;
+
+        markers = new AtomicIntegerArray(partitions);
+
+        for (int partition = 0; partition < partitions; partition++)
+        {
+            markers.set(partition, partition * partitionSize);
+        }
+
+        resumed = new AtomicIntegerArray(partitions);
+
+        if (!Files.exists(progressFile))
+        {
+            return markers;
+        }
+
+        try
+        {
+            final List<String> lines;
+            lines = Files.readAllLines(progressFile, StandardCharsets.UTF_8);
+
+            // A marker file from a different period or partitioning cannot be resumed
+            if (lines.isEmpty() || !lines.get(HEADER_LINE_INDEX).equals(header))
+            {
+                return markers;
+            }
+
+            // A truncated file cannot be trusted, so the period starts over
+            if (lines.size() < FIRST_MARKER_INDEX + partitions)
+            {
+                return markers;
+            }
+
+            for (int partition = 0; partition < partitions; partition++)
+            {
+                final int marker;
+                final int end;
+
+                marker = Integer.parseInt(lines.get(FIRST_MARKER_INDEX + partition));
+                end    = Math.max(markers.get(partition), Math.min(accounts.size(), (partition + 1) * partitionSize));
+
+                // A marker outside its own partition means the file does not belong to these accounts
+                if (marker < markers.get(partition) || marker > end)
+                {
+                    return markers;
+                }
+                resumed.set(partition, marker);
+            }
+        }
+        catch (final NumberFormatException e)
+        {
+            return markers;
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return resumed;
+    }
+
+    /**
+     * Writes the current partition markers to the progress file, replacing it atomically.
+     *
+     * @param header  the progress file header identifying this run
+     * @param markers the per-partition index of the next account to process
+     */
+    private synchronized void saveMarkers(final String header,
+                                          final AtomicIntegerArray markers)
+    {
+        final StringBuilder builder;
+        final Path tempFile;
+
+        builder  = new StringBuilder();
+        tempFile = progressFile.resolveSibling(progressFile.getFileName() + TEMP_SUFFIX);
+
+        builder.append(header).append(System.lineSeparator());
+
+        for (int partition = 0; partition < partitions; partition++)
+        {
+            builder.append(markers.get(partition)).append(System.lineSeparator());
+        }
+
+        try
+        {
+            Files.writeString(tempFile, builder, StandardCharsets.UTF_8);
+            Files.move(tempFile, progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Counts latencies in log-linear buckets so percentiles can be read back
+ * from millions of samples in fixed memory.
+ *
+ * <p>Values below {@value #SUB_BUCKETS} nanoseconds get a bucket each. Every
+ * doubling above that is split into {@value #SUB_BUCKETS} equal buckets, so
+ * a reported percentile overstates the true value by at most about 3%.
+ * Recording is an array increment. Percentiles report the top of the bucket
+ * they fall in, and the maximum is exact.</p>
+ *
+ * <p>A histogram is not thread-safe. Give each thread its own and
+ * {@link #add(LatencyHistogram)} them together afterwards.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LatencyHistogram
+{
+    private static final int    SUB_BUCKET_BITS = 5;
+    private static final int    SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    private static final int    BUCKETS         = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int    HIGHEST_BIT     = Long.SIZE - 1;
+    private static final double PERCENT         = 100.0;
+
+    private final long[] counts;
+    private long         count;
+    private long         max;
+
+    /**
+     * Constructs an empty {@code LatencyHistogram}.
+     */
+    LatencyHistogram()
+    {
+        this.counts = new long[BUCKETS];
+        this.count  = 0;
+        this.max    = 0;
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as 0
+     */
+    void record(final long nanos)
+    {
+        final long value;
+        value = Math.max(0, nanos);
+
+        counts[bucketOf(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every latency recorded by another histogram to this one.
+     *
+     * @param other the other histogram
+     */
+    void add(final LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+        max    = Math.max(max, other.max);
+    }
+
+    /**
+     * Retrieves the number of latencies recorded.
+     *
+     * @return the count
+     */
+    long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Retrieves the largest latency recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if none were recorded
+     */
+    long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Retrieves the latency that a given percentage of recorded latencies do not exceed.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the latency in nanoseconds, or 0 if none were recorded
+     * @throws IllegalArgumentException if the percentage is outside 0 to 100
+     */
+    long getPercentile(final double percentile)
+    {
+        final long rank;
+        long seen;
+
+        if (percentile < 0 || percentile > PERCENT)
+        {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        rank = Math.max(1, (long) Math.ceil(count * percentile / PERCENT));
+        seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+
+            if (seen >= rank)
+            {
+                return Math.min(max, highestValueIn(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Finds the bucket for a value.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    private static int bucketOf(final long value)
+    {
+        final int shift;
+
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        shift = HIGHEST_BIT - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Finds the largest value that falls in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the largest value
+     */
+    private static long highestValueIn(final int bucket)
+    {
+        final int shift;
+
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        shift = bucket / SUB_BUCKETS - 1;
+
+        return ((long) (bucket - shift * SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
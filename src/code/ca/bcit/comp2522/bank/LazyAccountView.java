@@ -0,0 +1,200 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.util.Currency;
+
+/**
+ * A read-only view of an account record encoded by
+ * {@link BinaryCodec#encodeAccount(ByteBuffer, BankAccount)}, which decodes
+ * fields only when they are first asked for.
+ *
+ * <p>The account number, balance and day numbers are read straight from
+ * the fixed-offset part of the record without allocating. Dates and the
+ * currency are decoded and cached on first access, and the owning client is
+ * exposed as a {@link LazyClientView} over the same bytes. The view can be
+ * moved to another record with {@link #wrap(ByteBuffer, int)}, so a scan that
+ * filters by account number or client ID allocates nothing per record.</p>
+ *
+ * <p>The view reads the buffer at absolute positions and never moves its
+ * position. It is not thread-safe.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LazyAccountView
+{
+    private final LazyClientView client;
+
+    private ByteBuffer buffer;
+    private int        offset;
+
+    // --- Lazily decoded fields ---
+    private String   accountNumber;
+    private Date     accountOpened;
+    private Date     accountClosed;
+    private Currency currency;
+    private boolean  closedDecoded;
+
+    /**
+     * Constructs a {@code LazyAccountView} over the record at the given position.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the position of the record
+     */
+    LazyAccountView(final ByteBuffer buffer,
+                    final int offset)
+    {
+        this.client = new LazyClientView(buffer, offset + BinaryCodec.ACCOUNT_CLIENT_OFFSET);
+
+        wrap(buffer, offset);
+    }
+
+    /**
+     * Moves this view to another record, discarding anything decoded so far.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the position of the record
+     * @return this view
+     */
+    LazyAccountView wrap(final ByteBuffer buffer,
+                         final int offset)
+    {
+        this.buffer        = buffer;
+        this.offset        = offset;
+        this.accountNumber = null;
+        this.accountOpened = null;
+        this.accountClosed = null;
+        this.currency      = null;
+        this.closedDecoded = false;
+
+        client.wrap(buffer, offset + BinaryCodec.ACCOUNT_CLIENT_OFFSET);
+        return this;
+    }
+
+    /**
+     * Retrieves the account number in packed form without allocating.
+     *
+     * @return the key from {@link BinaryCodec#packKey(String)}
+     */
+    long getAccountKey()
+    {
+        return BinaryCodec.getKey(buffer, offset);
+    }
+
+    /**
+     * Retrieves the account number.
+     *
+     * @return the account number
+     */
+    String getAccountNumber()
+    {
+        if (accountNumber == null)
+        {
+            accountNumber = BinaryCodec.unpackKey(getAccountKey());
+        }
+        return accountNumber;
+    }
+
+    /**
+     * Retrieves a view of the client who owns this account.
+     *
+     * @return the client view, which moves with this view
+     */
+    LazyClientView getClient()
+    {
+        return client;
+    }
+
+    /**
+     * Retrieves the balance without allocating.
+     *
+     * @return the balance in the account's currency
+     */
+    double getBalance()
+    {
+        return buffer.getDouble(offset + BinaryCodec.ACCOUNT_BALANCE_OFFSET);
+    }
+
+    /**
+     * Determines whether the account has a closing date, without decoding it.
+     *
+     * @return {@code true} if the account is closed, otherwise {@code false}
+     */
+    boolean isClosed()
+    {
+        return buffer.getInt(offset + BinaryCodec.ACCOUNT_CLOSED_OFFSET) != BinaryCodec.NO_DATE;
+    }
+
+    /**
+     * Retrieves the date the account was opened, decoding and validating it on first access.
+     *
+     * @return the opening date
+     * @throws IllegalArgumentException if the encoded date is invalid
+     */
+    Date getAccountOpened()
+    {
+        if (accountOpened == null)
+        {
+            accountOpened = BinaryCodec.dateOf(buffer.getInt(offset + BinaryCodec.ACCOUNT_OPENED_OFFSET));
+        }
+        return accountOpened;
+    }
+
+    /**
+     * Retrieves the date the account was closed, decoding and validating it on first access.
+     *
+     * @return the closing date, or {@code null} if the account is open
+     * @throws IllegalArgumentException if the encoded date is invalid
+     */
+    Date getAccountClosed()
+    {
+        if (!closedDecoded)
+        {
+            accountClosed = BinaryCodec.dateOf(buffer.getInt(offset + BinaryCodec.ACCOUNT_CLOSED_OFFSET));
+            closedDecoded = true;
+        }
+        return accountClosed;
+    }
+
+    /**
+     * Retrieves the currency the balance is held in, decoding it on first access.
+     *
+     * @return the account currency
+     */
+    Currency getCurrency()
+    {
+        if (currency == null)
+        {
+            currency = BinaryCodec.decodeCurrency(buffer, offset + BinaryCodec.ACCOUNT_CURRENCY_OFFSET);
+        }
+        return currency;
+    }
+
+    /**
+     * Measures the encoded record, including the client, without decoding any names.
+     *
+     * @return the number of bytes the record occupies
+     */
+    int getRecordBytes()
+    {
+        return BinaryCodec.ACCOUNT_CLIENT_OFFSET + client.getRecordBytes();
+    }
+
+    /**
+     * Builds a fully validated {@link BankAccount} from this record. Records
+     * carry no PIN, so the account has {@link BankAccount#NO_PIN}.
+     *
+     * @return the account
+     * @throws IllegalArgumentException if any encoded field is invalid
+     */
+    BankAccount toAccount()
+    {
+        return new BankAccount(client.toClient(),
+                               getAccountNumber(),
+                               getAccountOpened(),
+                               getAccountClosed(),
+                               getBalance(),
+                               BankAccount.NO_PIN,
+                               getCurrency());
+    }
+}
@@ -0,0 +1,226 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of a client record encoded by
+ * {@link BinaryCodec#encodeClient(ByteBuffer, BankClient)}, which decodes
+ * fields only when they are first asked for.
+ *
+ * <p>The client ID and day numbers are read straight from the fixed-offset part
+ * of the record without allocating. The {@link Name} and {@link Date} objects
+ * are decoded, validated and cached on first access, so a scan that only
+ * filters by ID never builds them. A view can be moved to another record with
+ * {@link #wrap(ByteBuffer, int)}, letting one instance serve a whole scan.</p>
+ *
+ * <p>The view reads the buffer at absolute positions and never moves its
+ * position. It is not thread-safe.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LazyClientView
+{
+    private ByteBuffer buffer;
+    private int        offset;
+
+    // --- Lazily decoded fields ---
+    private String  clientID;
+    private Name    name;
+    private Date    birthDate;
+    private Date    deathDate;
+    private Date    signupDate;
+    private boolean deathDecoded;
+
+    /**
+     * Constructs a {@code LazyClientView} over the record at the given position.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the position of the record
+     */
+    LazyClientView(final ByteBuffer buffer,
+                   final int offset)
+    {
+        wrap(buffer, offset);
+    }
+
+    /**
+     * Moves this view to another record, discarding anything decoded so far.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the position of the record
+     * @return this view
+     */
+    LazyClientView wrap(final ByteBuffer buffer,
+                        final int offset)
+    {
+        this.buffer       = buffer;
+        this.offset       = offset;
+        this.clientID     = null;
+        this.name         = null;
+        this.birthDate    = null;
+        this.deathDate    = null;
+        this.signupDate   = null;
+        this.deathDecoded = false;
+
+        return this;
+    }
+
+    /**
+     * Retrieves the client ID in packed form without allocating.
+     *
+     * @return the key from {@link BinaryCodec#packKey(String)}
+     */
+    long getClientKey()
+    {
+        return BinaryCodec.getKey(buffer, offset);
+    }
+
+    /**
+     * Determines whether this record belongs to a client without allocating.
+     *
+     * @param clientKey the packed client ID from {@link BinaryCodec#packKey(String)}
+     * @return {@code true} if the IDs match, otherwise {@code false}
+     */
+    boolean hasClientKey(final long clientKey)
+    {
+        return getClientKey() == clientKey;
+    }
+
+    /**
+     * Retrieves the client's unique ID.
+     *
+     * @return the client ID
+     */
+    String getClientID()
+    {
+        if (clientID == null)
+        {
+            clientID = BinaryCodec.unpackKey(getClientKey());
+        }
+        return clientID;
+    }
+
+    /**
+     * Retrieves the client's name, decoding and validating it on first access.
+     *
+     * @return the name
+     * @throws IllegalArgumentException if the encoded name is invalid
+     */
+    Name getName()
+    {
+        if (name == null)
+        {
+            final int firstIndex;
+            final int lastIndex;
+
+            firstIndex = offset + BinaryCodec.CLIENT_NAME_OFFSET;
+            lastIndex  = firstIndex + BinaryCodec.stringBytes(buffer, firstIndex);
+            name       = new Name(BinaryCodec.getString(buffer, firstIndex), BinaryCodec.getString(buffer, lastIndex));
+        }
+        return name;
+    }
+
+    /**
+     * Retrieves the client's birth date as a day number without allocating.
+     *
+     * @return the day number from {@link Date#toEpochDay()}
+     */
+    int getBirthEpochDay()
+    {
+        return buffer.getInt(offset + BinaryCodec.CLIENT_BIRTH_OFFSET);
+    }
+
+    /**
+     * Retrieves the client's death date as a day number without allocating.
+     *
+     * @return the day number, or {@value BinaryCodec#NO_DATE} if the client is alive
+     */
+    int getDeathEpochDay()
+    {
+        return buffer.getInt(offset + BinaryCodec.CLIENT_DEATH_OFFSET);
+    }
+
+    /**
+     * Retrieves the client's signup date as a day number without allocating.
+     *
+     * @return the day number from {@link Date#toEpochDay()}
+     */
+    int getSignupEpochDay()
+    {
+        return buffer.getInt(offset + BinaryCodec.CLIENT_SIGNUP_OFFSET);
+    }
+
+    /**
+     * Retrieves the client's birth date, decoding and validating it on first access.
+     *
+     * @return the date of birth
+     * @throws IllegalArgumentException if the encoded date is invalid
+     */
+    Date getBirthDate()
+    {
+        if (birthDate == null)
+        {
+            birthDate = BinaryCodec.dateOf(getBirthEpochDay());
+        }
+        return birthDate;
+    }
+
+    /**
+     * Retrieves the client's death date, decoding and validating it on first access.
+     *
+     * @return the date of death, or {@code null} if the client is alive
+     * @throws IllegalArgumentException if the encoded date is invalid
+     */
+    Date getDeathDate()
+    {
+        if (!deathDecoded)
+        {
+            deathDate    = BinaryCodec.dateOf(getDeathEpochDay());
+            deathDecoded = true;
+        }
+        return deathDate;
+    }
+
+    /**
+     * Retrieves the client's signup date, decoding and validating it on first access.
+     *
+     * @return the date when the client joined the bank
+     * @throws IllegalArgumentException if the encoded date is invalid
+     */
+    Date getSignupDate()
+    {
+        if (signupDate == null)
+        {
+            signupDate = BinaryCodec.dateOf(getSignupEpochDay());
+        }
+        return signupDate;
+    }
+
+    /**
+     * Measures the encoded record without decoding the name.
+     *
+     * @return the number of bytes the record occupies
+     */
+    int getRecordBytes()
+    {
+        final int firstIndex;
+        final int firstBytes;
+
+        firstIndex = offset + BinaryCodec.CLIENT_NAME_OFFSET;
+        firstBytes = BinaryCodec.stringBytes(buffer, firstIndex);
+
+        return BinaryCodec.CLIENT_NAME_OFFSET + firstBytes + BinaryCodec.stringBytes(buffer, firstIndex + firstBytes);
+    }
+
+    /**
+     * Builds a fully validated {@link BankClient} from this record.
+     *
+     * @return the client
+     * @throws IllegalArgumentException if any encoded field is invalid
+     */
+    BankClient toClient()
+    {
+        return new BankClient(getName(), getBirthDate(), getDeathDate(), getSignupDate(), getClientID());
+    }
+}
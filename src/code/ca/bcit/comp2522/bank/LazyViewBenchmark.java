@@ -0,0 +1,178 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares scanning encoded account records for one client ID by fully
+ * decoding each record with {@link BinaryCodec#decodeAccount(ByteBuffer)}
+ * against reading them through a reused {@link LazyAccountView}.
+ *
+ * <p>Prints nanoseconds and allocated bytes per record for each approach, the
+ * latter from the HotSpot per-thread allocation counter. Run with an optional
+ * record count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LazyViewBenchmark
+{
+    private static final int DEFAULT_RECORDS  = 1_000_000;
+    private static final int WARMUP_ROUNDS    = 5;
+    private static final int MEASURED_ROUNDS  = 5;
+    private static final int MAX_RECORD_BYTES = 128;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LazyViewBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional record count
+     */
+    public static void main(final String[] args)
+    {
+        final int records;
+        final ByteBuffer buffer;
+        final String target;
+        final com.sun.management.ThreadMXBean threads;
+        long eagerNanos;
+        long lazyNanos;
+        long eagerBytes;
+        long lazyBytes;
+
+        if (args.length > 0)
+        {
+            records = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            records = DEFAULT_RECORDS;
+        }
+
+        buffer  = encodeAccounts(records);
+        target  = BenchmarkAccounts.accountNumber(records / 2);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+        {
+            scanEager(buffer, target);
+            scanLazy(buffer, target);
+        }
+
+        eagerNanos = 0;
+        lazyNanos  = 0;
+        eagerBytes = 0;
+        lazyBytes  = 0;
+
+        for (int round = 0; round < MEASURED_ROUNDS; round++)
+        {
+            long start;
+            long allocated;
+
+            start     = System.nanoTime();
+            allocated = threads.getCurrentThreadAllocatedBytes();
+            scanEager(buffer, target);
+            eagerBytes += threads.getCurrentThreadAllocatedBytes() - allocated;
+            eagerNanos += System.nanoTime() - start;
+
+            start     = System.nanoTime();
+            allocated = threads.getCurrentThreadAllocatedBytes();
+            scanLazy(buffer, target);
+            lazyBytes += threads.getCurrentThreadAllocatedBytes() - allocated;
+            lazyNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("Eager decode: %7.1f ns/record, %7.1f bytes allocated/record%n",
+                          (double) eagerNanos / MEASURED_ROUNDS / records,
+                          (double) eagerBytes / MEASURED_ROUNDS / records);
+        System.out.printf("Lazy view:    %7.1f ns/record, %7.1f bytes allocated/record%n",
+                          (double) lazyNanos / MEASURED_ROUNDS / records,
+                          (double) lazyBytes / MEASURED_ROUNDS / records);
+    }
+
+    /**
+     * Encodes deterministic sample accounts, each owned by a client with the same ID.
+     *
+     * @param records the number of accounts to encode
+     * @return the buffer, flipped for reading
+     */
+    private static ByteBuffer encodeAccounts(final int records)
+    {
+        final ByteBuffer buffer;
+        buffer = ByteBuffer.allocate(records * MAX_RECORD_BYTES);
+
+        for (int i = 0; i < records; i++)
+        {
+            BinaryCodec.encodeAccount(buffer, BenchmarkAccounts.account(i));
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Finds the account owned by a client by decoding every record.
+     *
+     * @param buffer the encoded accounts
+     * @param target the client ID to find
+     * @return the matching account's balance, or {@code -1} if none matched
+     */
+    private static double scanEager(final ByteBuffer buffer,
+                                    final String target)
+    {
+        double found;
+        found = -1;
+
+        buffer.rewind();
+
+        while (buffer.hasRemaining())
+        {
+            final BankAccount account;
+            account = BinaryCodec.decodeAccount(buffer);
+
+            if (account.getClient().getClientID().equals(target))
+            {
+                found = account.getBalance();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the account owned by a client through one reused lazy view.
+     *
+     * @param buffer the encoded accounts
+     * @param target the client ID to find
+     * @return the matching account's balance, or {@code -1} if none matched
+     */
+    private static double scanLazy(final ByteBuffer buffer,
+                                   final String target)
+    {
+        final long targetKey;
+        final LazyAccountView view;
+        double found;
+        int offset;
+
+        targetKey = BinaryCodec.packKey(target);
+        view      = new LazyAccountView(buffer, 0);
+        found     = -1;
+        offset    = 0;
+
+        while (offset < buffer.limit())
+        {
+            view.wrap(buffer, offset);
+
+            if (view.getClient().hasClientKey(targetKey))
+            {
+                found = view.getBalance();
+            }
+            offset += view.getRecordBytes();
+        }
+        return found;
+    }
+}
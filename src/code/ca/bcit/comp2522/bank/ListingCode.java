@@ -0,0 +1,50 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the reasons {@link AccountDirectory} refuses to list a page of accounts.
+ *
+ * <p>Success is reported as {@link ValidationCode#OK}, so these constants are
+ * all failures.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum ListingCode implements ResultCode
+{
+    PAGE_SIZE_INVALID("Page size must be between 1 and " + AccountDirectory.MAX_PAGE_SIZE),
+    CURSOR_INVALID("Cursor is not a valid continuation token");
+
+    private final String message;
+
+    /**
+     * Constructs a {@code ListingCode} with its message.
+     *
+     * @param message the human-readable failure message
+     */
+    ListingCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents success, which it never does.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
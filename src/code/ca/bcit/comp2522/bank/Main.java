@@ -104,10 +104,22 @@ public class Main
      * @throws IllegalArgumentException if the string is {@code null}, empty, or blank
      */
     public static void validateString(final String string)
+    {
+        checkString(string).throwIfFailed();
+    }
+
+    /**
+     * Checks that a string is neither {@code null} nor blank without throwing.
+     *
+     * @param string the string to check
+     * @return {@link ValidationCode#OK}, or {@link ValidationCode#BLANK_STRING} if the string is invalid
+     */
+    public static ValidationCode checkString(final String string)
     {
         if (string == null || string.isBlank())
         {
-            throw new IllegalArgumentException();
+            return ValidationCode.BLANK_STRING;
         }
+        return ValidationCode.OK;
     }
 }
@@ -0,0 +1,163 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures reconciling two copies of an account book with
+ * {@link AccountMerkleTree}s compared with comparing every account.
+ *
+ * <p>Builds a primary and a backup book with the same accounts, each tracked
+ * by its own tree. It posts the same deposits to both, times them against
+ * untracked deposits, and compares the root hashes, as a previous
+ * reconciliation would. It then posts {@value #DIVERGENT} deposits to the
+ * backup only. Prints the time to find the differing accounts with the trees
+ * and with a field-by-field scan. Run with an optional account count
+ * argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class MerkleDiffBenchmark
+{
+    private static final int    DEFAULT_ACCOUNTS = 1_000_000;
+    private static final int    LEAF_BITS        = 18;
+    private static final int    DEPOSITS         = 2_000_000;
+    private static final int    DIVERGENT        = 100;
+    private static final double INITIAL_BALANCE  = 1_000;
+    private static final double DEPOSIT_AMOUNT   = 12.5;
+    private static final long   SEED             = 2522;
+    private static final double NANOS_PER_MS     = 1e6;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private MerkleDiffBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional account count
+     */
+    public static void main(final String[] args)
+    {
+        final int accountCount;
+        final BankAccount[] primary;
+        final BankAccount[] backup;
+        final BankAccount[] untracked;
+        final AccountMerkleTree primaryTree;
+        final AccountMerkleTree backupTree;
+        final List<String> differing;
+        final boolean rootsEqual;
+        long start;
+        long trackedNanos;
+        long untrackedNanos;
+        long diffNanos;
+        long scanNanos;
+        int scanned;
+
+        if (args.length > 0)
+        {
+            accountCount = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            accountCount = DEFAULT_ACCOUNTS;
+        }
+
+        primary     = BenchmarkAccounts.create(accountCount, INITIAL_BALANCE);
+        backup      = BenchmarkAccounts.create(accountCount, INITIAL_BALANCE);
+        untracked   = BenchmarkAccounts.create(accountCount, INITIAL_BALANCE);
+        primaryTree = new AccountMerkleTree(LEAF_BITS);
+        backupTree  = new AccountMerkleTree(LEAF_BITS);
+
+        for (int i = 0; i < accountCount; i++)
+        {
+            primary[i].setListener(primaryTree);
+            backup[i].setListener(backupTree);
+            primaryTree.add(primary[i]);
+            backupTree.add(backup[i]);
+        }
+
+        // The first pass only warms up the deposit path
+        postDeposits(untracked, untracked);
+
+        untrackedNanos = postDeposits(untracked, untracked);
+        trackedNanos   = postDeposits(primary, backup);
+        rootsEqual     = primaryTree.getRootHash() == backupTree.getRootHash();
+
+        postDivergent(backup);
+
+        start     = System.nanoTime();
+        differing = primaryTree.diff(backupTree);
+        diffNanos = System.nanoTime() - start;
+
+        start   = System.nanoTime();
+        scanned = 0;
+
+        for (int i = 0; i < accountCount; i++)
+        {
+            if (primary[i].getBalance() != backup[i].getBalance() ||
+                primary[i].getState() != backup[i].getState() ||
+                primary[i].getAccountClosed() != backup[i].getAccountClosed())
+            {
+                scanned++;
+            }
+        }
+
+        scanNanos = System.nanoTime() - start;
+
+        System.out.printf("Accounts:           %,d%n", accountCount);
+        System.out.printf("Deposit, untracked: %6.1f ns%n", (double) untrackedNanos / (DEPOSITS * 2L));
+        System.out.printf("Deposit, tracked:   %6.1f ns%n", (double) trackedNanos / (DEPOSITS * 2L));
+        System.out.printf("Roots equal before: %b%n", rootsEqual);
+        System.out.printf("Roots equal after:  %b%n", primaryTree.getRootHash() == backupTree.getRootHash());
+        System.out.printf("Tree diff:          %8.3f ms (%d accounts differ)%n", diffNanos / NANOS_PER_MS, differing.size());
+        System.out.printf("Full scan:          %8.3f ms (%d accounts differ)%n", scanNanos / NANOS_PER_MS, scanned);
+    }
+
+    /**
+     * Posts the same random deposits to two books.
+     *
+     * @param first  the first book
+     * @param second the second book
+     * @return the elapsed nanoseconds
+     */
+    private static long postDeposits(final BankAccount[] first,
+                                     final BankAccount[] second)
+    {
+        final SplittableRandom random;
+        final long start;
+
+        random = new SplittableRandom(SEED);
+        start  = System.nanoTime();
+
+        for (int i = 0; i < DEPOSITS; i++)
+        {
+            final int index;
+            index = random.nextInt(first.length);
+
+            first[index].deposit(DEPOSIT_AMOUNT);
+            second[index].deposit(DEPOSIT_AMOUNT);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Posts deposits to distinct accounts in one book only.
+     *
+     * @param book the book to change
+     */
+    private static void postDivergent(final BankAccount[] book)
+    {
+        final int stride;
+        stride = book.length / DIVERGENT;
+
+        for (int i = 0; i < DIVERGENT; i++)
+        {
+            book[i * stride].deposit(DEPOSIT_AMOUNT);
+        }
+    }
+}
@@ -18,8 +18,8 @@ package ca.bcit.comp2522.bank;
 public class Name
 {
     // --- Name Requirement Constants ---
-    private static final int    MAX_NAME_LENGTH   = 99;
-    private static final String ILLEGAL_SUBSTRING = "bcit";
+    static final int    MAX_NAME_LENGTH   = 99;
+    static final String ILLEGAL_SUBSTRING = "bcit";
 
     // --- Substring Constants ---
     private static final int FIRST_CHAR_INDEX  = 0;
@@ -34,17 +34,73 @@ public class Name
      *
      * @param firstName the first name
      * @param lastName  the last name
+     * @throws IllegalArgumentException if either name is invalid
      */
     public Name(final String firstName,
                 final String lastName)
     {
-        validateName(firstName);
-        validateName(lastName);
+        this(firstName, lastName, checkName(firstName, lastName));
+    }
+
+    /**
+     * Constructs a {@code Name} from names that have already been checked.
+     *
+     * @param firstName the first name
+     * @param lastName  the last name
+     * @param code      the result of checking both names
+     * @throws IllegalArgumentException if {@code code} is a failure
+     */
+    private Name(final String firstName,
+                 final String lastName,
+                 final ValidationCode code)
+    {
+        code.throwIfFailed();
 
         this.firstName = firstName;
         this.lastName  = lastName;
     }
 
+    /**
+     * Creates a {@code Name} without throwing on invalid input.
+     *
+     * @param firstName the first name
+     * @param lastName  the last name
+     * @return a result holding the new name, or the code of the first failed rule
+     */
+    public static ValidationResult<Name> tryCreate(final String firstName,
+                                                   final String lastName)
+    {
+        final ValidationCode code;
+        code = checkName(firstName, lastName);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+        return ValidationResult.success(new Name(firstName, lastName, code));
+    }
+
+    /**
+     * Checks a first and last name against the rules of {@link #checkName(String)}
+     * without throwing.
+     *
+     * @param firstName the first name
+     * @param lastName  the last name
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
+     */
+    public static ValidationCode checkName(final String firstName,
+                                           final String lastName)
+    {
+        final ValidationCode code;
+        code = checkName(firstName);
+
+        if (!code.isOk())
+        {
+            return code;
+        }
+        return checkName(lastName);
+    }
+
     /**
      * Retrieves the first name.
      *
@@ -134,7 +190,7 @@ public class Name
     }
 
     /**
-     * Validates a single name string.
+     * Checks a single name string without throwing.
      *
      * <p>Rules:</p>
      * <ul>
@@ -143,26 +199,33 @@ public class Name
      *     <li>Must not contain {@link #ILLEGAL_SUBSTRING}, ignoring case.</li>
      * </ul>
      *
-     * @param name the name string to validate
-     * @throws IllegalArgumentException if the name is invalid
+     * @param name the name string to check
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
      */
-    private static void validateName(final String name)
+    private static ValidationCode checkName(final String name)
     {
+        final ValidationCode blankCode;
         final String lowercaseName;
 
-        Main.validateString(name);
+        blankCode = Main.checkString(name);
+
+        if (!blankCode.isOk())
+        {
+            return blankCode;
+        }
 
         if (name.length() > MAX_NAME_LENGTH)
         {
-            throw new IllegalArgumentException("Name exceeds maximum length of " + MAX_NAME_LENGTH);
+            return ValidationCode.NAME_TOO_LONG;
         }
 
         lowercaseName = name.toLowerCase();
 
         if (lowercaseName.contains(ILLEGAL_SUBSTRING.toLowerCase()))
         {
-            throw new IllegalArgumentException("Name contains illegal substring " + ILLEGAL_SUBSTRING);
+            return ValidationCode.NAME_ILLEGAL_SUBSTRING;
         }
+        return ValidationCode.OK;
     }
 
     /**
@@ -0,0 +1,399 @@
+package ca.bcit.comp2522.bank;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Finds {@link BankClient}s whose first or last name starts with a few typed
+ * letters, for autocomplete in branch search.
+ *
+ * <p>Names are normalized before indexing and searching. They are lower-cased
+ * and stripped of accents, so "zoe", "Zoé" and "ZOE" all match the same
+ * clients. Each distinct normalized name is stored once, as a term with a
+ * posting list of the clients who have it as a first or last name. Common
+ * names are shared by many clients, so a client costs about two references in
+ * the index.</p>
+ *
+ * <p>Most terms live in one immutable sorted array, which a search binary
+ * searches for the start of the prefix range. New terms go into a small
+ * concurrent sorted map first. When that map grows past a fraction of the
+ * array, the two are merged into a new array. A search walks both in order and
+ * stops after {@code limit} clients, so its cost depends on the prefix and the
+ * limit, not on the number of clients. Adds find a name's posting list through
+ * a hash map instead.</p>
+ *
+ * <p>Searches never lock and may run at any time. Clients are added one at a
+ * time under a lock. A search running during an add may or may not see the new
+ * client.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class NamePrefixIndex
+{
+    // --- Term storage ---
+    private static final int MIN_RECENT_TERMS     = 1_024;
+    private static final int RECENT_TERMS_DIVISOR = 16;
+    private static final int INITIAL_POSTINGS     = 2;
+    private static final int GROWTH_FACTOR        = 2;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final HashMap<String, Postings> postingsByTerm;
+
+    private volatile Terms terms;
+    private volatile int   size;
+
+    private int recentCount;
+
+    /**
+     * Constructs an empty {@code NamePrefixIndex}.
+     */
+    NamePrefixIndex()
+    {
+        this.postingsByTerm = new HashMap<>();
+        this.terms          = new Terms(new String[0], new Postings[0]);
+        this.size           = 0;
+        this.recentCount    = 0;
+    }
+
+    /**
+     * Adds a client under both its first and last names.
+     *
+     * @param client the client to add; must not be {@code null}
+     */
+    synchronized void add(final BankClient client)
+    {
+        final String first;
+        final String last;
+
+        first = normalize(client.getName().getFirstName());
+        last  = normalize(client.getName().getLastName());
+
+        postingsFor(first).add(client);
+
+        if (!last.equals(first))
+        {
+            postingsFor(last).add(client);
+        }
+
+        size++;
+
+        // Counted here because the map's own size() walks every entry
+        if (recentCount > Math.max(MIN_RECENT_TERMS, terms.names.length / RECENT_TERMS_DIVISOR))
+        {
+            mergeRecent();
+        }
+    }
+
+    /**
+     * Finds clients whose first or last name starts with a prefix.
+     *
+     * <p>Matches are returned in alphabetical order of the matching name, then
+     * in the order the clients were added. A client matching by both names is
+     * returned once.</p>
+     *
+     * @param prefix the typed letters; case and accents are ignored
+     * @param limit  the most clients to return
+     * @return up to {@code limit} matching clients
+     */
+    List<BankClient> search(final String prefix,
+                            final int limit)
+    {
+        final String key;
+        final Terms snapshot;
+        final Iterator<Map.Entry<String, Postings>> newer;
+        final List<BankClient> matches;
+        final Set<BankClient> seen;
+        Map.Entry<String, Postings> pending;
+        int index;
+
+        key      = normalize(prefix);
+        snapshot = terms;
+        newer    = snapshot.recent.tailMap(key).entrySet().iterator();
+        matches  = new ArrayList<>();
+        seen     = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending  = next(newer, key);
+        index    = snapshot.firstAtOrAfter(key);
+
+        // Walk the array and the recent map in step, like the merge phase of a merge sort
+        while (matches.size() < limit)
+        {
+            final boolean fromArray;
+            final int order;
+
+            if (index < snapshot.names.length && snapshot.names[index].startsWith(key))
+            {
+                if (pending == null)
+                {
+                    order = -1;
+                }
+                else
+                {
+                    order = snapshot.names[index].compareTo(pending.getKey());
+                }
+            }
+            else if (pending != null)
+            {
+                order = 1;
+            }
+            else
+            {
+                break;
+            }
+
+            fromArray = order <= 0;
+
+            if (fromArray)
+            {
+                snapshot.postings[index].collect(matches, seen, limit);
+                index++;
+            }
+            else
+            {
+                pending.getValue().collect(matches, seen, limit);
+            }
+
+            if (order >= 0)
+            {
+                pending = next(newer, key);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Retrieves the number of clients added.
+     *
+     * @return the client count
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Normalizes a name or prefix for indexing: accents removed, lower case.
+     *
+     * @param name the name
+     * @return the normalized name
+     */
+    static String normalize(final String name)
+    {
+        final String decomposed;
+        decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+
+        return ACCENTS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds or creates the posting list of a term. Called with the lock held.
+     *
+     * @param term the normalized name
+     * @return the term's posting list
+     */
+    private Postings postingsFor(final String term)
+    {
+        final Postings existing;
+        final Postings created;
+
+        // Hashed rather than binary searched: a search through the sorted array misses cache at every step
+        existing = postingsByTerm.get(term);
+
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        created = new Postings();
+        postingsByTerm.put(term, created);
+        terms.recent.put(term, created);
+        recentCount++;
+
+        return created;
+    }
+
+    /**
+     * Merges the recent terms into a new sorted array. Called with the lock held.
+     */
+    private void mergeRecent()
+    {
+        final Terms current;
+        final int length;
+        final String[] names;
+        final Postings[] postings;
+        int from;
+        int to;
+
+        current  = terms;
+        length   = current.names.length + recentCount;
+        names    = new String[length];
+        postings = new Postings[length];
+        from     = 0;
+        to       = 0;
+
+        for (final Map.Entry<String, Postings> entry : current.recent.entrySet())
+        {
+            while (from < current.names.length && current.names[from].compareTo(entry.getKey()) < 0)
+            {
+                names[to]    = current.names[from];
+                postings[to] = current.postings[from];
+                from++;
+                to++;
+            }
+
+            names[to]    = entry.getKey();
+            postings[to] = entry.getValue();
+            to++;
+        }
+
+        System.arraycopy(current.names, from, names, to, current.names.length - from);
+        System.arraycopy(current.postings, from, postings, to, current.postings.length - from);
+
+        // Searches still reading the old array keep its map, so they see every term
+        terms       = new Terms(names, postings);
+        recentCount = 0;
+    }
+
+    /**
+     * Advances a recent-terms iterator, stopping once past the prefix range.
+     *
+     * @param entries the iterator
+     * @param prefix  the normalized prefix
+     * @return the next entry in range, or {@code null} if none remain
+     */
+    private static Map.Entry<String, Postings> next(final Iterator<Map.Entry<String, Postings>> entries,
+                                                    final String prefix)
+    {
+        final Map.Entry<String, Postings> entry;
+
+        if (!entries.hasNext())
+        {
+            return null;
+        }
+
+        entry = entries.next();
+
+        if (!entry.getKey().startsWith(prefix))
+        {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * An immutable sorted array of terms with their posting lists, and the map
+     * of terms added since the array was built.
+     */
+    private static final class Terms
+    {
+        private final String[]                                names;
+        private final Postings[]                              postings;
+        private final ConcurrentSkipListMap<String, Postings> recent;
+
+        /**
+         * Constructs a {@code Terms} with no recent terms.
+         *
+         * @param names    the terms in ascending order
+         * @param postings the posting list of each term
+         */
+        private Terms(final String[] names,
+                      final Postings[] postings)
+        {
+            this.names    = names;
+            this.postings = postings;
+            this.recent   = new ConcurrentSkipListMap<>();
+        }
+
+        /**
+         * Finds the first term not less than a key.
+         *
+         * @param key the key
+         * @return the index of that term, or the array length if every term is less
+         */
+        private int firstAtOrAfter(final String key)
+        {
+            final int found;
+            found = Arrays.binarySearch(names, key);
+
+            if (found >= 0)
+            {
+                return found;
+            }
+            return -found - 1;
+        }
+    }
+
+    /**
+     * The clients sharing one normalized name, in the order they were added.
+     * Appended to under the index lock and read without locking.
+     */
+    private static final class Postings
+    {
+        private volatile BankClient[] clients;
+        private volatile int          count;
+
+        /**
+         * Constructs an empty {@code Postings}.
+         */
+        private Postings()
+        {
+            this.clients = new BankClient[INITIAL_POSTINGS];
+            this.count   = 0;
+        }
+
+        /**
+         * Appends a client.
+         *
+         * @param client the client
+         */
+        private void add(final BankClient client)
+        {
+            if (count == clients.length)
+            {
+                clients = Arrays.copyOf(clients, clients.length * GROWTH_FACTOR);
+            }
+
+            clients[count] = client;
+            count++;
+        }
+
+        /**
+         * Copies clients into a result list until it is full.
+         *
+         * @param matches the results so far
+         * @param seen    the clients already in {@code matches}
+         * @param limit   the most results wanted
+         */
+        private void collect(final List<BankClient> matches,
+                             final Set<BankClient> seen,
+                             final int limit)
+        {
+            // Read the count first: every client below it is in whichever array is read next
+            final int available;
+            final BankClient[] snapshot;
+
+            available = count;
+            snapshot  = clients;
+
+            for (int i = 0; i < available && matches.size() < limit; i++)
+            {
+                if (seen.add(snapshot[i]))
+                {
+                    matches.add(snapshot[i]);
+                }
+            }
+        }
+    }
+}
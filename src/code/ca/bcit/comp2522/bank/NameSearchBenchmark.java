@@ -0,0 +1,200 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Measures prefix searches over client names with a {@link NamePrefixIndex}
+ * compared with scanning every client.
+ *
+ * <p>Generates clients with names built from random syllables, indexes them,
+ * then times top-{@value #LIMIT} searches for random one- to three-letter
+ * prefixes. The scan checks each client's first and last name in turn and
+ * stops once it has {@value #LIMIT} matches. Run with an optional client
+ * count argument.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class NameSearchBenchmark
+{
+    private static final int      DEFAULT_CLIENTS  = 2_000_000;
+    private static final int      LIMIT            = 10;
+    private static final int      INDEX_QUERIES    = 200_000;
+    private static final int      SCAN_QUERIES     = 200;
+    private static final int      MAX_PREFIX       = 3;
+    private static final int      MIN_SYLLABLES    = 2;
+    private static final int      EXTRA_SYLLABLES  = 2;
+    private static final String[] SYLLABLES        = {"an", "be", "ca", "do", "el", "fi", "ga", "ha", "is", "jo",
+                                                      "ka", "li", "ma", "ne", "or", "pa", "qu", "ro", "sa", "ti",
+                                                      "ul", "va", "wi", "xe", "ya", "zo", "mi", "ri", "lu", "te"};
+    private static final long     SEED             = 2522;
+    private static final double   NANOS_PER_MICRO  = 1e3;
+    private static final double   NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private NameSearchBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional client count
+     */
+    public static void main(final String[] args)
+    {
+        final int clientCount;
+        final List<BankClient> clients;
+        final NamePrefixIndex index;
+        final String[] prefixes;
+        final SplittableRandom random;
+        long start;
+        long buildNanos;
+        long indexNanos;
+        long scanNanos;
+        long found;
+
+        if (args.length > 0)
+        {
+            clientCount = Integer.parseInt(args[0]);
+        }
+        else
+        {
+            clientCount = DEFAULT_CLIENTS;
+        }
+
+        random   = new SplittableRandom(SEED);
+        clients  = createClients(clientCount, random);
+        index    = new NamePrefixIndex();
+        prefixes = new String[INDEX_QUERIES];
+
+        for (int i = 0; i < INDEX_QUERIES; i++)
+        {
+            prefixes[i] = SYLLABLES[random.nextInt(SYLLABLES.length)].substring(0, 1) +
+                          SYLLABLES[random.nextInt(SYLLABLES.length)].substring(0, random.nextInt(MAX_PREFIX));
+        }
+
+        start = System.nanoTime();
+
+        for (final BankClient client : clients)
+        {
+            index.add(client);
+        }
+
+        buildNanos = System.nanoTime() - start;
+        found      = 0;
+
+        // Warm up, then measure
+        for (final String prefix : prefixes)
+        {
+            found += index.search(prefix, LIMIT).size();
+        }
+
+        start = System.nanoTime();
+
+        for (final String prefix : prefixes)
+        {
+            found += index.search(prefix, LIMIT).size();
+        }
+
+        indexNanos = System.nanoTime() - start;
+        start      = System.nanoTime();
+
+        for (int i = 0; i < SCAN_QUERIES; i++)
+        {
+            found += scan(clients, prefixes[i]).size();
+        }
+
+        scanNanos = System.nanoTime() - start;
+
+        System.out.printf("Clients:      %,d%n", clientCount);
+        System.out.printf("Index build:  %.1f s (%.0f ns/client)%n",
+                          buildNanos / NANOS_PER_SECOND,
+                          (double) buildNanos / clientCount);
+        System.out.printf("Index search: %8.2f us/query%n", indexNanos / NANOS_PER_MICRO / INDEX_QUERIES);
+        System.out.printf("Full scan:    %8.2f us/query%n", scanNanos / NANOS_PER_MICRO / SCAN_QUERIES);
+        System.out.printf("(%d matches)%n", found);
+    }
+
+    /**
+     * Finds matching clients by checking every client's names.
+     *
+     * @param clients the clients
+     * @param prefix  the typed letters
+     * @return up to {@value #LIMIT} matching clients
+     */
+    private static List<BankClient> scan(final List<BankClient> clients,
+                                         final String prefix)
+    {
+        final List<BankClient> matches;
+        final String key;
+
+        matches = new ArrayList<>(LIMIT);
+        key     = prefix.toLowerCase(Locale.ROOT);
+
+        for (final BankClient client : clients)
+        {
+            if (client.getName().getFirstName().toLowerCase(Locale.ROOT).startsWith(key) ||
+                client.getName().getLastName().toLowerCase(Locale.ROOT).startsWith(key))
+            {
+                matches.add(client);
+
+                if (matches.size() == LIMIT)
+                {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Creates the owners of {@link BenchmarkAccounts} accounts, renamed with
+     * random syllable names.
+     *
+     * @param count  the number of clients
+     * @param random the random source
+     * @return the clients
+     */
+    private static List<BankClient> createClients(final int count,
+                                                  final SplittableRandom random)
+    {
+        final List<BankClient> clients;
+        clients = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            final Name name;
+            name = new Name(randomName(random), randomName(random));
+
+            clients.add(BenchmarkAccounts.account(i, name, 0).getClient());
+        }
+        return clients;
+    }
+
+    /**
+     * Builds a name from random syllables.
+     *
+     * @param random the random source
+     * @return the name
+     */
+    private static String randomName(final SplittableRandom random)
+    {
+        final StringBuilder builder;
+        final int syllables;
+
+        builder   = new StringBuilder();
+        syllables = MIN_SYLLABLES + random.nextInt(EXTRA_SYLLABLES + 1);
+
+        for (int i = 0; i < syllables; i++)
+        {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,657 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores account state in an off-heap {@link MemorySegment} slab instead of one
+ * {@link BankAccount} object per account, keeping tens of millions of balances
+ * out of reach of the garbage collector.
+ *
+ * <p>Each account occupies one fixed-size slot:</p>
+ * <ul>
+ *     <li>balance (8 bytes, the raw bits of a non-negative {@code double}, with the
+ *     sign bit marking a closed account)</li>
+ *     <li>packed account number (8 bytes, see {@link BinaryCodec#packKey(String)})</li>
+ *     <li>PIN hash (4 bytes)</li>
+ *     <li>opened and closed day numbers (4 bytes each, see {@link Date#toEpochDay()})</li>
+ *     <li>client reference (4 bytes, one more than an index into an on-heap client
+ *     array shared by all of that client's accounts; zero until the slot is written)</li>
+ * </ul>
+ *
+ * <p>Balances are updated by compare-and-set through {@link VarHandle}s, so
+ * concurrent deposits and withdrawals on the same slot never lose updates.
+ * Because the closed flag lives in the same word as the balance, no deposit or
+ * withdrawal can land after the account is closed. A slot is written in full
+ * before its client reference is stored with release semantics, and
+ * {@link #size()} only counts the run of written slots from the start, so a
+ * half-written slot is never visible. {@link AccountView} offers the familiar
+ * {@code BankAccount} methods over a slot.</p>
+ *
+ * <p>Balances are held in {@link BankAccount#DEFAULT_CURRENCY}, and a slot has
+ * no room for any state besides open and closed, so accounts in another
+ * currency or frozen accounts cannot be copied in. The PIN hash is a bit mix to
+ * keep raw PINs out of memory dumps, not a cryptographic hash.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class OffHeapAccountTable implements AutoCloseable
+{
+    // --- Slot layout ---
+    private static final long SLOT_BYTES     = 32;
+    private static final long SLOT_ALIGNMENT = Long.BYTES;
+    private static final long BALANCE_OFFSET = 0;
+    private static final long ACCOUNT_OFFSET = 8;
+    private static final long PIN_OFFSET     = 16;
+    private static final long OPENED_OFFSET  = 20;
+    private static final long CLOSED_OFFSET  = 24;
+    private static final long CLIENT_OFFSET  = 28;
+
+    // --- Balance word ---
+    private static final long CLOSED_BIT   = Long.MIN_VALUE;
+    private static final int  UNWRITTEN    = 0;
+    private static final int  CLIENT_SHIFT = 1;
+
+    // --- PIN hash constants (MurmurHash3 finalizer) ---
+    private static final int PIN_SALT         = 0x2522_0BC1;
+    private static final int MIX_MULTIPLIER_1 = 0x85EB_CA6B;
+    private static final int MIX_MULTIPLIER_2 = 0xC2B2_AE35;
+    private static final int MIX_SHIFT_1      = 16;
+    private static final int MIX_SHIFT_2      = 13;
+
+    // Coordinates are (MemorySegment, long offset)
+    private static final VarHandle LONG_HANDLE = ValueLayout.JAVA_LONG.varHandle();
+    private static final VarHandle INT_HANDLE  = ValueLayout.JAVA_INT.varHandle();
+
+    private final Arena                                   arena;
+    private final MemorySegment                           slab;
+    private final BankClient[]                            clients;
+    private final ConcurrentHashMap<BankClient, Integer>  clientRefs;
+    private final int                                     capacity;
+    private final AtomicInteger                           nextSlot;
+    private final AtomicInteger                           writtenSlots;
+    private final AtomicInteger                           nextClientRef;
+
+    /**
+     * Constructs an {@code OffHeapAccountTable} with room for a fixed number of accounts.
+     *
+     * @param capacity the maximum number of accounts; must be positive
+     */
+    OffHeapAccountTable(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.arena         = Arena.ofShared();
+        this.slab          = arena.allocate(capacity * SLOT_BYTES, SLOT_ALIGNMENT);
+        this.clients       = new BankClient[capacity];
+        this.clientRefs    = new ConcurrentHashMap<>();
+        this.capacity      = capacity;
+        this.nextSlot      = new AtomicInteger();
+        this.writtenSlots  = new AtomicInteger();
+        this.nextClientRef = new AtomicInteger();
+    }
+
+    /**
+     * Adds an account to the table.
+     *
+     * @param client         the client who owns the account
+     * @param accountNumber  the unique account number
+     * @param accountOpened  the date the account was opened
+     * @param accountClosed  the date the account was closed, or {@code null} if still open
+     * @param initialBalance the starting balance in USD
+     * @param pin            the personal identification number for the account
+     * @return the slot holding the new account
+     * @throws IllegalArgumentException if validation fails for any parameter
+     * @throws IllegalStateException    if the table is full
+     */
+    int add(final BankClient client,
+            final String accountNumber,
+            final Date accountOpened,
+            final Date accountClosed,
+            final double initialBalance,
+            final int pin)
+    {
+        final long accountKey;
+        final int  pinHash;
+        final int  openedDay;
+        final int  closedDay;
+        final long balanceWord;
+        final int  slot;
+        final long base;
+        final int  clientRef;
+
+        BankAccount.checkAccount(client, accountNumber, accountOpened, initialBalance).throwIfFailed();
+
+        // Everything that can fail is done before a slot is claimed, so no slot is left unwritten
+        accountKey = BinaryCodec.packKey(accountNumber);
+        pinHash    = hashPin(pin);
+        openedDay  = accountOpened.toEpochDay();
+
+        // Adding zero turns a negative zero into a positive one, which keeps the sign bit free
+        if (accountClosed == null)
+        {
+            closedDay   = BinaryCodec.NO_DATE;
+            balanceWord = Double.doubleToRawLongBits(initialBalance + 0.0);
+        }
+        else
+        {
+            closedDay   = accountClosed.toEpochDay();
+            balanceWord = Double.doubleToRawLongBits(initialBalance + 0.0) | CLOSED_BIT;
+        }
+
+        slot      = claimSlot();
+        base      = offsetOf(slot);
+        clientRef = clientRefs.computeIfAbsent(client, this::registerClient);
+
+        slab.set(ValueLayout.JAVA_LONG, base + BALANCE_OFFSET, balanceWord);
+        slab.set(ValueLayout.JAVA_LONG, base + ACCOUNT_OFFSET, accountKey);
+        slab.set(ValueLayout.JAVA_INT, base + PIN_OFFSET, pinHash);
+        slab.set(ValueLayout.JAVA_INT, base + OPENED_OFFSET, openedDay);
+        slab.set(ValueLayout.JAVA_INT, base + CLOSED_OFFSET, closedDay);
+
+        // Publishes every field above to any thread that reads the reference with acquire semantics. The
+        // store is volatile so it cannot pass the read of the written count that follows
+        INT_HANDLE.setVolatile(slab, base + CLIENT_OFFSET, clientRef + CLIENT_SHIFT);
+        publishWrittenSlots();
+
+        return slot;
+    }
+
+    /**
+     * Claims the next free slot.
+     *
+     * @return the slot
+     * @throws IllegalStateException if the table is full
+     */
+    private int claimSlot()
+    {
+        while (true)
+        {
+            final int slot;
+            slot = nextSlot.get();
+
+            if (slot >= capacity)
+            {
+                throw new IllegalStateException("Account table is full");
+            }
+
+            if (nextSlot.compareAndSet(slot, slot + 1))
+            {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Advances the written slot count over every slot whose writer has finished.
+     * Each writer calls this after publishing its own slot, so a slot finished
+     * out of order is counted by whichever writer fills the gap before it.
+     */
+    private void publishWrittenSlots()
+    {
+        while (true)
+        {
+            final int written;
+            written = writtenSlots.get();
+
+            if (written >= nextSlot.get() || !isWritten(written))
+            {
+                return;
+            }
+
+            writtenSlots.compareAndSet(written, written + 1);
+        }
+    }
+
+    /**
+     * Determines whether a claimed slot has been fully written.
+     *
+     * @param slot the slot
+     * @return {@code true} if every field of the slot is visible, otherwise {@code false}
+     */
+    private boolean isWritten(final int slot)
+    {
+        return (int) INT_HANDLE.getAcquire(slab, offsetOf(slot) + CLIENT_OFFSET) != UNWRITTEN;
+    }
+
+    /**
+     * Stores a client in the next free client reference.
+     *
+     * @param client the client to store
+     * @return the client's reference
+     */
+    private int registerClient(final BankClient client)
+    {
+        final int clientRef;
+
+        clientRef          = nextClientRef.getAndIncrement();
+        clients[clientRef] = client;
+
+        return clientRef;
+    }
+
+    /**
+     * Adds a copy of an existing account to the table.
+     *
+     * @param account the account to copy
+     * @return the slot holding the copy
+     * @throws IllegalArgumentException if the account is frozen or not held in
+     *                                  {@link BankAccount#DEFAULT_CURRENCY}
+     * @throws IllegalStateException    if the table is full
+     */
+    int add(final BankAccount account)
+    {
+        if (!account.getCurrency().equals(BankAccount.DEFAULT_CURRENCY))
+        {
+            throw new IllegalArgumentException("Account " + account.getAccountNumber() +
+                                               " is held in " + account.getCurrency().getCurrencyCode() +
+                                               ", not " + BankAccount.DEFAULT_CURRENCY.getCurrencyCode());
+        }
+
+        if (account.getState() == AccountState.FROZEN)
+        {
+            throw new IllegalArgumentException("Account " + account.getAccountNumber() + " is frozen");
+        }
+
+        return add(account.getClient(),
+                   account.getAccountNumber(),
+                   account.getAccountOpened(),
+                   account.getAccountClosed(),
+                   account.getBalance(),
+                   account.getPin());
+    }
+
+    /**
+     * Retrieves a {@code BankAccount}-style view over a slot.
+     *
+     * @param slot the slot returned by {@link #add}
+     * @return a view of the account in that slot
+     */
+    AccountView view(final int slot)
+    {
+        checkSlot(slot);
+        return new AccountView(slot);
+    }
+
+    /**
+     * Retrieves the number of accounts in the table. Slots {@code 0} to
+     * {@code size() - 1} are fully written; accounts still being added are not
+     * counted until every slot before them is written too.
+     *
+     * @return the account count
+     */
+    int size()
+    {
+        return writtenSlots.get();
+    }
+
+    /**
+     * Retrieves the balance of a slot.
+     *
+     * @param slot the slot
+     * @return the balance in USD
+     */
+    double getBalance(final int slot)
+    {
+        return balanceOf((long) LONG_HANDLE.getVolatile(slab, offsetOf(slot) + BALANCE_OFFSET));
+    }
+
+    /**
+     * Determines whether a slot's account has been closed.
+     *
+     * @param slot the slot
+     * @return {@code true} if the account is closed, otherwise {@code false}
+     */
+    boolean isClosed(final int slot)
+    {
+        return ((long) LONG_HANDLE.getVolatile(slab, offsetOf(slot) + BALANCE_OFFSET) & CLOSED_BIT) != 0;
+    }
+
+    /**
+     * Closes a slot's account as of the given date. Has no effect if the account
+     * is already closed. Once this returns, no deposit or withdrawal can be applied.
+     *
+     * @param slot          the slot
+     * @param accountClosed the closing date; must not be {@code null}
+     */
+    void close(final int slot,
+               final Date accountClosed)
+    {
+        final long base;
+        base = offsetOf(slot);
+
+        // Only the first close records its date, which is in place before the flag is raised
+        if (!INT_HANDLE.compareAndSet(slab, base + CLOSED_OFFSET, BinaryCodec.NO_DATE, accountClosed.toEpochDay()))
+        {
+            return;
+        }
+
+        while (true)
+        {
+            final long current;
+            current = (long) LONG_HANDLE.getVolatile(slab, base + BALANCE_OFFSET);
+
+            if (LONG_HANDLE.compareAndSet(slab, base + BALANCE_OFFSET, current, current | CLOSED_BIT))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deposits funds into a slot without throwing on failure.
+     *
+     * @param slot      the slot
+     * @param amountUsd the amount to deposit in USD; must be positive
+     * @return {@link ValidationCode#OK} if the deposit was applied, otherwise the reason it was refused
+     */
+    ValidationCode tryDeposit(final int slot,
+                              final double amountUsd)
+    {
+        final long balanceOffset;
+
+        if (!(amountUsd > 0))
+        {
+            return ValidationCode.DEPOSIT_NOT_POSITIVE;
+        }
+
+        balanceOffset = offsetOf(slot) + BALANCE_OFFSET;
+
+        while (true)
+        {
+            final long current;
+            final long updated;
+
+            current = (long) LONG_HANDLE.getVolatile(slab, balanceOffset);
+
+            if ((current & CLOSED_BIT) != 0)
+            {
+                return ValidationCode.DEPOSIT_TO_CLOSED;
+            }
+
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + amountUsd);
+
+            if (LONG_HANDLE.compareAndSet(slab, balanceOffset, current, updated))
+            {
+                return ValidationCode.OK;
+            }
+        }
+    }
+
+    /**
+     * Withdraws funds from a slot without throwing on failure.
+     *
+     * @param slot      the slot
+     * @param amountUsd the amount to withdraw in USD; must be positive
+     * @return {@link ValidationCode#OK} if the withdrawal was applied, otherwise the reason it was refused
+     */
+    ValidationCode tryWithdraw(final int slot,
+                               final double amountUsd)
+    {
+        final long balanceOffset;
+
+        if (!(amountUsd > 0))
+        {
+            return ValidationCode.WITHDRAWAL_NOT_POSITIVE;
+        }
+
+        balanceOffset = offsetOf(slot) + BALANCE_OFFSET;
+
+        while (true)
+        {
+            final long current;
+            final double balance;
+
+            current = (long) LONG_HANDLE.getVolatile(slab, balanceOffset);
+            balance = balanceOf(current);
+
+            if (amountUsd > balance)
+            {
+                return ValidationCode.INSUFFICIENT_FUNDS;
+            }
+
+            if ((current & CLOSED_BIT) != 0)
+            {
+                return ValidationCode.WITHDRAW_FROM_CLOSED;
+            }
+
+            if (LONG_HANDLE.compareAndSet(slab,
+                                          balanceOffset,
+                                          current,
+                                          Double.doubleToRawLongBits(balance - amountUsd)))
+            {
+                return ValidationCode.OK;
+            }
+        }
+    }
+
+    /**
+     * Withdraws funds from a slot if the correct PIN is provided, without throwing on failure.
+     *
+     * @param slot       the slot
+     * @param amountUsd  the amount to withdraw in USD; must be positive
+     * @param pinToMatch the PIN entered for verification
+     * @return {@link ValidationCode#OK} if the withdrawal was applied, otherwise the reason it was refused
+     */
+    ValidationCode tryWithdraw(final int slot,
+                               final double amountUsd,
+                               final int pinToMatch)
+    {
+        // An account copied without a PIN stores the hash of NO_PIN, which no entered PIN may match
+        if (pinToMatch == BankAccount.NO_PIN ||
+            slab.get(ValueLayout.JAVA_INT, offsetOf(slot) + PIN_OFFSET) != hashPin(pinToMatch))
+        {
+            return ValidationCode.INVALID_PIN;
+        }
+        return tryWithdraw(slot, amountUsd);
+    }
+
+    /**
+     * Releases the off-heap memory. Views must not be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        arena.close();
+    }
+
+    /**
+     * Computes the byte offset of a slot within the slab.
+     *
+     * @param slot the slot
+     * @return the offset of the slot's first byte
+     */
+    private static long offsetOf(final int slot)
+    {
+        return slot * SLOT_BYTES;
+    }
+
+    /**
+     * Reads the balance out of a balance word.
+     *
+     * @param word the balance word
+     * @return the balance in USD
+     */
+    private static double balanceOf(final long word)
+    {
+        return Double.longBitsToDouble(word & ~CLOSED_BIT);
+    }
+
+    /**
+     * Verifies that a slot holds an account.
+     *
+     * @param slot the slot to check
+     * @throws IllegalArgumentException if the slot is out of range or not yet written
+     */
+    private void checkSlot(final int slot)
+    {
+        if (slot < 0 || slot >= nextSlot.get() || !isWritten(slot))
+        {
+            throw new IllegalArgumentException("Slot " + slot + " does not hold an account");
+        }
+    }
+
+    /**
+     * Mixes a PIN so the raw value is not stored.
+     *
+     * @param pin the PIN
+     * @return the mixed PIN
+     */
+    private static int hashPin(final int pin)
+    {
+        int hash;
+
+        hash = pin ^ PIN_SALT;
+        hash ^= hash >>> MIX_SHIFT_1;
+        hash *= MIX_MULTIPLIER_1;
+        hash ^= hash >>> MIX_SHIFT_2;
+        hash *= MIX_MULTIPLIER_2;
+        hash ^= hash >>> MIX_SHIFT_1;
+
+        return hash;
+    }
+
+    /**
+     * A thin {@code BankAccount}-style view over one slot of the table. Views hold
+     * no state of their own and may be created and discarded freely.
+     */
+    final class AccountView
+    {
+        private final int slot;
+
+        /**
+         * Constructs a view over a slot.
+         *
+         * @param slot the slot
+         */
+        private AccountView(final int slot)
+        {
+            this.slot = slot;
+        }
+
+        /**
+         * Retrieves the slot this view reads.
+         *
+         * @return the slot
+         */
+        int getSlot()
+        {
+            return slot;
+        }
+
+        /**
+         * Retrieves the client who owns this account.
+         *
+         * @return the owning client
+         */
+        public BankClient getClient()
+        {
+            return clients[(int) INT_HANDLE.getAcquire(slab, offsetOf(slot) + CLIENT_OFFSET) - CLIENT_SHIFT];
+        }
+
+        /**
+         * Retrieves the account number.
+         *
+         * @return the unique account number
+         */
+        public String getAccountNumber()
+        {
+            return BinaryCodec.unpackKey(slab.get(ValueLayout.JAVA_LONG, offsetOf(slot) + ACCOUNT_OFFSET));
+        }
+
+        /**
+         * Retrieves the date when this account was opened.
+         *
+         * @return the opening date
+         */
+        public Date getAccountOpened()
+        {
+            return Date.ofEpochDay(slab.get(ValueLayout.JAVA_INT, offsetOf(slot) + OPENED_OFFSET));
+        }
+
+        /**
+         * Retrieves the closing date of this account, if applicable.
+         *
+         * @return the closing date, or {@code null} if the account is still open
+         */
+        public Date getAccountClosed()
+        {
+            if (!isClosed(slot))
+            {
+                return null;
+            }
+            return BinaryCodec.dateOf((int) INT_HANDLE.getVolatile(slab, offsetOf(slot) + CLOSED_OFFSET));
+        }
+
+        /**
+         * Retrieves the current account balance.
+         *
+         * @return the balance in USD
+         */
+        public double getBalance()
+        {
+            return OffHeapAccountTable.this.getBalance(slot);
+        }
+
+        /**
+         * Withdraws funds from this account if sufficient balance is available and the account is open.
+         *
+         * @param amountUsd the amount to withdraw in USD; must be positive
+         * @throws IllegalArgumentException if amount is invalid, balance is insufficient,
+         *                                  or the account is closed
+         */
+        public void withdraw(final double amountUsd)
+        {
+            tryWithdraw(slot, amountUsd).throwIfFailed();
+        }
+
+        /**
+         * Withdraws funds from this account if the correct PIN is provided.
+         *
+         * @param amountUsd  the amount to withdraw in USD; must be positive
+         * @param pinToMatch the PIN entered for verification
+         * @throws IllegalArgumentException if the PIN is invalid, the amount is invalid,
+         *                                  the balance is insufficient, or the account is closed
+         */
+        public void withdraw(final double amountUsd,
+                             final int pinToMatch)
+        {
+            tryWithdraw(slot, amountUsd, pinToMatch).throwIfFailed();
+        }
+
+        /**
+         * Deposits funds into this account if the account is open.
+         *
+         * @param amountUsd the amount to deposit in USD; must be positive
+         * @throws IllegalArgumentException if the amount is invalid or the account is closed
+         */
+        public void deposit(final double amountUsd)
+        {
+            tryDeposit(slot, amountUsd).throwIfFailed();
+        }
+
+        /**
+         * Returns a formatted string describing this account's details, in the same
+         * form as {@link BankAccount#getDetails()}.
+         *
+         * @return a human-readable string representation of account details
+         */
+        public String getDetails()
+        {
+            return BankAccount.formatDetails(getClient(),
+                                             getBalance(),
+                                             BankAccount.DEFAULT_CURRENCY,
+                                             getAccountNumber(),
+                                             getAccountOpened(),
+                                             getAccountClosed());
+        }
+    }
+}
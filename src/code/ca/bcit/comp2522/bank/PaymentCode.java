@@ -0,0 +1,53 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the reasons {@link PaymentScheduler} refuses to schedule a
+ * {@link StandingOrder}.
+ *
+ * <p>Success is reported as {@link ValidationCode#OK}, so these constants are
+ * all failures.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum PaymentCode implements ResultCode
+{
+    ACCOUNTS_INVALID("Payment accounts must be two different accounts in the same currency"),
+    AMOUNT_NOT_POSITIVE("Payment amount must be positive"),
+    DAY_INVALID("Payment day must be between 1 and " + StandingOrder.MAX_PAYMENT_DAY),
+    INTERVAL_NOT_POSITIVE("Payment interval must be at least one month");
+
+    private final String message;
+
+    /**
+     * Constructs a {@code PaymentCode} with its message.
+     *
+     * @param message the human-readable failure message
+     */
+    PaymentCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents success, which it never does.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return false;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
@@ -0,0 +1,123 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Measures how long a daily {@link PaymentScheduler} run takes as the number
+ * of standing orders grows.
+ *
+ * <p>For each book size, schedules {@value #DUE_ORDERS} monthly orders on the
+ * run day and spreads the rest over the other payment days from 1 to
+ * {@value #PAYMENT_DAYS}. It then runs that single day. The same number of
+ * payments is due every time, so the run time should stay flat as the book
+ * grows. The first size is run twice and the first pass is discarded as a
+ * warm-up. Run with optional book size arguments.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class PaymentRunBenchmark
+{
+    private static final int[]  DEFAULT_SIZES   = {250_000, 1_000_000, 2_000_000};
+    private static final int    DUE_ORDERS      = 50_000;
+    private static final int    ACCOUNTS        = 10_000;
+    private static final int    PAYMENT_DAYS    = 28;
+    private static final int    RUN_DAY         = PAYMENT_DAYS;
+    private static final int    THREADS         = 4;
+    private static final int    BATCH_SIZE      = 4_096;
+    private static final double INITIAL_BALANCE = 1e12;
+    private static final double PAYMENT_AMOUNT  = 25.0;
+    private static final int    RUN_YEAR        = 2024;
+    private static final double NANOS_PER_MS    = 1e6;
+    private static final Date   RUN_DATE        = Date.of(RUN_YEAR, Date.JANUARY, RUN_DAY);
+    private static final int    RUN_DAY_NUMBER  = RUN_DATE.toEpochDay();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private PaymentRunBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optional book sizes
+     */
+    public static void main(final String[] args)
+    {
+        final int[] sizes;
+        final BankAccount[] accounts;
+
+        if (args.length > 0)
+        {
+            sizes = new int[args.length];
+
+            for (int i = 0; i < args.length; i++)
+            {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        else
+        {
+            sizes = DEFAULT_SIZES;
+        }
+
+        accounts = BenchmarkAccounts.create(ACCOUNTS, INITIAL_BALANCE);
+
+        fill(accounts, sizes[0]).run(RUN_DAY_NUMBER);
+
+        for (final int size : sizes)
+        {
+            final PaymentScheduler scheduler;
+            final long begin;
+            final long elapsed;
+            final long due;
+
+            scheduler = fill(accounts, size);
+            begin     = System.nanoTime();
+            due       = scheduler.run(RUN_DAY_NUMBER);
+            elapsed   = System.nanoTime() - begin;
+
+            System.out.printf("%,10d orders: %,8d due, %7.1f ms, %6.1f ns/payment%n",
+                              size,
+                              due,
+                              elapsed / NANOS_PER_MS,
+                              (double) elapsed / due);
+        }
+    }
+
+    /**
+     * Creates a scheduler holding a given number of orders, starting on the run day.
+     *
+     * @param accounts the accounts to pay between
+     * @param size     the number of orders to schedule
+     * @return the scheduler
+     */
+    private static PaymentScheduler fill(final BankAccount[] accounts,
+                                         final int size)
+    {
+        final PaymentScheduler scheduler;
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, RUN_DAY_NUMBER);
+
+        for (int i = 0; i < size; i++)
+        {
+            final int paymentDay;
+
+            if (i < DUE_ORDERS)
+            {
+                paymentDay = RUN_DAY;
+            }
+            else
+            {
+                paymentDay = 1 + i % (PAYMENT_DAYS - 1);
+            }
+
+            scheduler.schedule(accounts[i % ACCOUNTS],
+                               accounts[(i + 1) % ACCOUNTS],
+                               PAYMENT_AMOUNT,
+                               paymentDay,
+                               1,
+                               RUN_DATE);
+        }
+        return scheduler;
+    }
+}
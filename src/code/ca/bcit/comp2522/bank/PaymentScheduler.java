@@ -0,0 +1,397 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Posts {@link StandingOrder}s on their due days.
+ *
+ * <p>Orders are indexed by the day number of their next payment, one bucket
+ * per day. A run removes the buckets from the day after the previous run up to
+ * the run's day, so days missed between runs, such as weekends, are caught up.
+ * Once an order has been handled it moves to the bucket of its next
+ * occurrence. A run therefore touches only the orders that are due, however
+ * many are scheduled.</p>
+ *
+ * <p>A due bucket is split into batches of up to the configured size, which
+ * post in parallel. Each payment reserves the funds on the source with an
+ * {@link Authorization}, deposits them to the target with
+ * {@link BankAccount#tryDeposit(double)}, and then settles the hold as
+ * captured, or as released if the target refuses the deposit. A payment that
+ * cannot be reserved, for example because the source is frozen or short of
+ * funds, is skipped for that occurrence. If the source closes between the
+ * reservation and the capture, the hold is released and the deposit is taken
+ * back from the target with {@link BankAccount#tryWithdraw(double)}, which is
+ * used for nothing else; a deposit that cannot be taken back is kept for
+ * reconciliation, see {@link #getUnreversedPayments()}. Cancelled orders are
+ * dropped when their bucket next comes due.</p>
+ *
+ * <p>Each order moves to its next occurrence as soon as it has been handled.
+ * If a run fails or is interrupted, it waits for its batches to stop, and the
+ * orders not yet handled go back to their bucket. The failed day is not
+ * marked as run, so the next run retries those orders without paying the
+ * others twice.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class PaymentScheduler
+{
+    private final int                                        threads;
+    private final int                                        batchSize;
+    private final HashMap<Integer, ArrayList<StandingOrder>> buckets;
+    private final LongAdder                                  posted;
+    private final LongAdder                                  failed;
+    private final ConcurrentLinkedQueue<StandingOrder>       unreversed;
+
+    private int lastRunDay;
+
+    /**
+     * Constructs an empty {@code PaymentScheduler}.
+     *
+     * @param threads   the number of batches to post in parallel; must be positive
+     * @param batchSize the most orders posted by one task; must be positive
+     * @param firstDay  the day number of the first day the next run will post payments for,
+     *                  see {@link Date#toEpochDay()}
+     */
+    PaymentScheduler(final int threads,
+                     final int batchSize,
+                     final int firstDay)
+    {
+        if (threads <= 0 || batchSize <= 0)
+        {
+            throw new IllegalArgumentException("Thread count and batch size must be positive");
+        }
+
+        this.threads    = threads;
+        this.batchSize  = batchSize;
+        this.buckets    = new HashMap<>();
+        this.posted     = new LongAdder();
+        this.failed     = new LongAdder();
+        this.unreversed = new ConcurrentLinkedQueue<>();
+        this.lastRunDay = firstDay - 1;
+    }
+
+    /**
+     * Schedules a recurring payment.
+     *
+     * @param source         the account paid from
+     * @param target         the account paid to, in the same currency
+     * @param amount         the amount paid each time; must be positive
+     * @param paymentDay     the day of the month to pay on, from 1 to 31
+     * @param intervalMonths the number of months between payments; must be positive
+     * @param start          the earliest day of the first payment
+     * @return the scheduled order
+     * @throws IllegalArgumentException if any detail of the order is invalid
+     */
+    StandingOrder schedule(final BankAccount source,
+                           final BankAccount target,
+                           final double amount,
+                           final int paymentDay,
+                           final int intervalMonths,
+                           final Date start)
+    {
+        final ValidationResult<StandingOrder> result;
+        result = trySchedule(source, target, amount, paymentDay, intervalMonths, start);
+
+        result.getCode().throwIfFailed();
+        return result.getValue();
+    }
+
+    /**
+     * Schedules a recurring payment without throwing on failure.
+     *
+     * <p>The first payment falls on the first payment day on or after
+     * {@code start} that has not already been run.</p>
+     *
+     * @param source         the account paid from
+     * @param target         the account paid to, in the same currency
+     * @param amount         the amount paid each time; must be positive
+     * @param paymentDay     the day of the month to pay on, from 1 to 31
+     * @param intervalMonths the number of months between payments; must be positive
+     * @param start          the earliest day of the first payment
+     * @return a result holding the scheduled order, or the reason it was refused
+     */
+    ValidationResult<StandingOrder> trySchedule(final BankAccount source,
+                                                final BankAccount target,
+                                                final double amount,
+                                                final int paymentDay,
+                                                final int intervalMonths,
+                                                final Date start)
+    {
+        final ResultCode code;
+        final StandingOrder order;
+        final int startDay;
+
+        code = StandingOrder.checkOrder(source, target, amount, paymentDay, intervalMonths);
+
+        if (!code.isOk())
+        {
+            return ValidationResult.failure(code);
+        }
+
+        order    = new StandingOrder(source, target, amount, paymentDay, intervalMonths,
+                                     start.getYear(), start.getMonth());
+        startDay = start.toEpochDay();
+
+        synchronized (buckets)
+        {
+            // Checked under the lock, so a run cannot pass the order's day before it is indexed
+            while (order.getDueEpochDay() < startDay || order.getDueEpochDay() <= lastRunDay)
+            {
+                order.advance();
+            }
+
+            add(order);
+        }
+        return ValidationResult.success(order);
+    }
+
+    /**
+     * Posts every payment due from the day after the previous run up to and including a given day.
+     *
+     * <p>Days are given as day numbers rather than {@link Date}s, so runs may go
+     * past {@value Date#CURRENT_YEAR}.</p>
+     *
+     * @param throughDay the day number of the last day to post payments for, see {@link Date#toEpochDay()}
+     * @return the number of payments posted by this run
+     * @throws IllegalStateException if the run is interrupted or a batch fails unexpectedly
+     */
+    synchronized long run(final int throughDay)
+    {
+        final LongAdder postedByRun;
+        final ExecutorService executor;
+
+        postedByRun = new LongAdder();
+        executor    = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            // Day by day, so an order that falls due twice in a long gap is paid for each occurrence
+            for (int day = lastRunDay + 1; day <= throughDay; day++)
+            {
+                while (true)
+                {
+                    final ArrayList<StandingOrder> due;
+
+                    synchronized (buckets)
+                    {
+                        due = buckets.remove(day);
+
+                        // Marked as run only once its bucket is empty, which also takes orders scheduled meanwhile
+                        if (due == null)
+                        {
+                            lastRunDay = day;
+                            break;
+                        }
+                    }
+
+                    postDay(due, executor, postedByRun);
+                }
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment run interrupted", e);
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IllegalStateException("Payment run failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return postedByRun.sum();
+    }
+
+    /**
+     * Retrieves the number of payments posted by all runs.
+     *
+     * @return the posted count
+     */
+    long getPostedCount()
+    {
+        return posted.sum();
+    }
+
+    /**
+     * Retrieves the number of due payments that could not be made.
+     *
+     * @return the failed count
+     */
+    long getFailedCount()
+    {
+        return failed.sum();
+    }
+
+    /**
+     * Retrieves the payments deposited to their target whose source closed before
+     * it could be charged, and whose target then refused to give the deposit back.
+     * Each needs to be reconciled by hand.
+     *
+     * @return an unmodifiable list of the orders, one entry per payment
+     */
+    List<StandingOrder> getUnreversedPayments()
+    {
+        return List.copyOf(unreversed);
+    }
+
+    /**
+     * Posts one day's bucket of due orders in parallel batches, then puts every
+     * order that is still active back in the bucket of its next occurrence.
+     *
+     * @param due         the due orders
+     * @param executor    the run's executor
+     * @param postedByRun the running count for the current run
+     * @throws InterruptedException if interrupted while waiting for a batch
+     * @throws ExecutionException   if a batch fails unexpectedly
+     */
+    private void postDay(final ArrayList<StandingOrder> due,
+                         final ExecutorService executor,
+                         final LongAdder postedByRun)
+        throws InterruptedException, ExecutionException
+    {
+        final List<Future<?>> futures;
+        boolean completed;
+
+        futures   = new ArrayList<>();
+        completed = false;
+
+        try
+        {
+            for (int from = 0; from < due.size(); from += batchSize)
+            {
+                final List<StandingOrder> batch;
+                batch = due.subList(from, Math.min(due.size(), from + batchSize));
+
+                futures.add(executor.submit(() -> postBatch(batch, postedByRun)));
+            }
+
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+
+            completed = true;
+        }
+        finally
+        {
+            if (!completed)
+            {
+                // Stop the other batches between orders and wait, so none is still moving an order below
+                executor.shutdownNow();
+                executor.close();
+            }
+
+            synchronized (buckets)
+            {
+                for (final StandingOrder order : due)
+                {
+                    if (!order.isCancelled())
+                    {
+                        add(order);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes one batch of due payments, moving each order to its next occurrence
+     * once it has been handled. Stops early if the run is being shut down.
+     *
+     * @param batch       the due orders
+     * @param postedByRun the running count for the current run
+     */
+    private void postBatch(final List<StandingOrder> batch,
+                           final LongAdder postedByRun)
+    {
+        for (final StandingOrder order : batch)
+        {
+            if (Thread.currentThread().isInterrupted())
+            {
+                return;
+            }
+
+            if (!order.isCancelled())
+            {
+                if (pay(order))
+                {
+                    posted.increment();
+                    postedByRun.increment();
+                }
+                else
+                {
+                    failed.increment();
+                }
+            }
+
+            order.advance();
+        }
+    }
+
+    /**
+     * Makes one payment by holding the funds on the source, depositing them to
+     * the target, and capturing the hold.
+     *
+     * @param order the due order
+     * @return {@code true} if the payment was made, otherwise {@code false}
+     */
+    private boolean pay(final StandingOrder order)
+    {
+        final BankAccount source;
+        final BankAccount target;
+        final double amount;
+        final Authorization hold;
+
+        source = order.getSource();
+        target = order.getTarget();
+        amount = order.getAmount();
+        hold   = new Authorization(source, amount);
+
+        if (!source.reserve(hold).isOk())
+        {
+            return false;
+        }
+
+        if (!target.tryDeposit(amount).isOk())
+        {
+            // Releasing is allowed in any state, so the funds always return to the source
+            source.settle(hold, AuthorizationStatus.RELEASED, 0);
+            return false;
+        }
+
+        if (!source.settle(hold, AuthorizationStatus.CAPTURED, amount).isOk())
+        {
+            // The source closed after the hold was placed
+            source.settle(hold, AuthorizationStatus.RELEASED, 0);
+
+            if (!target.tryWithdraw(amount).isOk())
+            {
+                unreversed.add(order);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Places an order in the bucket of its due day. Called with the buckets lock held.
+     *
+     * @param order the order
+     */
+    private void add(final StandingOrder order)
+    {
+        buckets.computeIfAbsent(order.getDueEpochDay(), day -> new ArrayList<>()).add(order);
+    }
+}
@@ -0,0 +1,241 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures replicating deposits from a {@link ReplicationLeader} to
+ * {@link ReplicationFollower}s running in separate JVMs on this machine.
+ *
+ * <p>Creates a book, starts a leader on a Unix domain socket and launches
+ * follower processes running this class in {@code follower} mode. Posts
+ * random deposits while sampling the followers' lag, then waits for every
+ * follower to catch up. Prints the posting rate, the largest lag and round
+ * trip seen, and the catch-up time. Each follower then reports the total
+ * balance it holds, which must equal the leader's. Run with optional follower
+ * and account count arguments.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ReplicationBenchmark
+{
+    private static final int    DEFAULT_FOLLOWERS = 2;
+    private static final int    DEFAULT_ACCOUNTS  = 100_000;
+    private static final int    DEPOSITS          = 5_000_000;
+    private static final int    SAMPLE_EVERY      = 65_536;
+    private static final int    MAX_BATCH_SIZE    = 512;
+    private static final int    MAX_PENDING       = 262_144;
+    private static final double INITIAL_BALANCE   = 1_000;
+    private static final double DEPOSIT_AMOUNT    = 12.5;
+    private static final long   SEED              = 2522;
+    private static final long   POLL_NANOS        = 1_000_000;
+    private static final double NANOS_PER_MS      = 1e6;
+    private static final double NANOS_PER_SECOND  = 1e9;
+    private static final String FOLLOWER_MODE     = "follower";
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ReplicationBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark, or one follower when the first argument is {@code follower}.
+     *
+     * @param args optional follower and account counts, or {@code follower}, the socket path and the account count
+     * @throws IOException          if a follower process cannot be started or read
+     * @throws InterruptedException if interrupted while waiting for a follower
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        if (args.length > 0 && args[0].equals(FOLLOWER_MODE))
+        {
+            runFollower(Path.of(args[1]), Integer.parseInt(args[2]));
+        }
+        else
+        {
+            final int followerCount;
+            final int accountCount;
+
+            if (args.length > 0)
+            {
+                followerCount = Integer.parseInt(args[0]);
+            }
+            else
+            {
+                followerCount = DEFAULT_FOLLOWERS;
+            }
+
+            if (args.length > 1)
+            {
+                accountCount = Integer.parseInt(args[1]);
+            }
+            else
+            {
+                accountCount = DEFAULT_ACCOUNTS;
+            }
+
+            runLeader(followerCount, accountCount);
+        }
+    }
+
+    /**
+     * Runs the leader and its follower processes.
+     *
+     * @param followerCount the number of follower processes
+     * @param accountCount  the number of accounts
+     * @throws IOException          if a follower process cannot be started or read
+     * @throws InterruptedException if interrupted while waiting for a follower
+     */
+    private static void runLeader(final int followerCount,
+                                  final int accountCount) throws IOException, InterruptedException
+    {
+        final Path directory;
+        final Path socket;
+        final BankAccount[] accounts;
+        final List<Process> processes;
+        final SplittableRandom random;
+        final ReplicationLeader leader;
+        long start;
+        long postNanos;
+        long catchUpNanos;
+        long maxLag;
+        long maxLatency;
+        double total;
+
+        directory = Files.createTempDirectory("replication");
+        socket    = directory.resolve("leader.sock");
+        accounts  = BenchmarkAccounts.create(accountCount, INITIAL_BALANCE);
+        processes = new ArrayList<>(followerCount);
+        random    = new SplittableRandom(SEED);
+        leader    = new ReplicationLeader(UnixDomainSocketAddress.of(socket), MAX_BATCH_SIZE, MAX_PENDING);
+
+        for (final BankAccount account : accounts)
+        {
+            account.setListener(leader);
+            leader.add(account);
+        }
+
+        for (int i = 0; i < followerCount; i++)
+        {
+            processes.add(new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                                             "-cp",
+                                             System.getProperty("java.class.path"),
+                                             ReplicationBenchmark.class.getName(),
+                                             FOLLOWER_MODE,
+                                             socket.toString(),
+                                             Integer.toString(accountCount))
+                                  .redirectError(ProcessBuilder.Redirect.INHERIT)
+                                  .start());
+        }
+
+        while (leader.getFollowerCount() < followerCount)
+        {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+
+        awaitCaughtUp(leader);
+
+        maxLag     = 0;
+        maxLatency = 0;
+        start      = System.nanoTime();
+
+        for (int i = 0; i < DEPOSITS; i++)
+        {
+            accounts[random.nextInt(accountCount)].deposit(DEPOSIT_AMOUNT);
+
+            if (i % SAMPLE_EVERY == 0)
+            {
+                maxLag     = Math.max(maxLag, leader.getMaxLag());
+                maxLatency = Math.max(maxLatency, leader.getMaxLatencyNanos());
+            }
+        }
+
+        postNanos = System.nanoTime() - start;
+        start     = System.nanoTime();
+
+        awaitCaughtUp(leader);
+
+        catchUpNanos = System.nanoTime() - start;
+        total        = 0;
+
+        for (final BankAccount account : accounts)
+        {
+            total += account.getBalance();
+        }
+
+        System.out.printf("Followers:       %d%n", followerCount);
+        System.out.printf("Accounts:        %,d%n", accountCount);
+        System.out.printf("Deposits:        %,.0f/s%n", DEPOSITS / (postNanos / NANOS_PER_SECOND));
+        System.out.printf("Max lag:         %,d records%n", maxLag);
+        System.out.printf("Max round trip:  %.3f ms%n", maxLatency / NANOS_PER_MS);
+        System.out.printf("Catch-up:        %.3f ms%n", catchUpNanos / NANOS_PER_MS);
+        System.out.printf("Records sent:    %,d%n", leader.getSequence());
+        System.out.printf("Leader total:    %.2f%n", total);
+
+        leader.close();
+
+        for (final Process process : processes)
+        {
+            final String report;
+
+            report = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).strip();
+            process.waitFor();
+
+            System.out.printf("Follower total:  %s%n", report);
+        }
+
+        Files.deleteIfExists(socket);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Follows a leader until it closes, then prints the records applied and the total balance.
+     *
+     * @param socket       the leader's socket path
+     * @param accountCount the number of accounts
+     * @throws InterruptedException if interrupted while waiting for the leader
+     */
+    private static void runFollower(final Path socket,
+                                    final int accountCount) throws InterruptedException
+    {
+        final ReplicationFollower follower;
+        double total;
+
+        follower = new ReplicationFollower(UnixDomainSocketAddress.of(socket));
+        follower.awaitDisconnect();
+        total    = 0;
+
+        for (int i = 0; i < accountCount; i++)
+        {
+            total += follower.getBalance(BenchmarkAccounts.accountNumber(i));
+        }
+
+        System.out.printf("%.2f after %,d records (%s)%n",
+                          total,
+                          follower.getAppliedSequence(),
+                          follower.getDetails(BenchmarkAccounts.accountNumber(0)).lines().findFirst().orElse(""));
+    }
+
+    /**
+     * Waits until every follower has acknowledged every record sent.
+     *
+     * @param leader the leader
+     */
+    private static void awaitCaughtUp(final ReplicationLeader leader)
+    {
+        while (leader.getMaxLag() > 0)
+        {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Currency;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a read-only copy of the accounts streamed by a {@link ReplicationLeader}.
+ *
+ * <p>A reader thread applies each frame in order and then acknowledges it.
+ * Queries read the latest applied copy of an account without locking, and
+ * never see a balance from one change with a state from another. A query may
+ * trail the leader by the lag the leader reports. Queries keep answering from
+ * the last applied frame after the connection ends.</p>
+ *
+ * <p>A frame whose length is out of range, or that holds a record that cannot
+ * be decoded, ends the connection as a read failure does. The frame is not
+ * applied, and the follower stops rather than guess where the next frame
+ * starts.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ReplicationFollower implements AutoCloseable
+{
+    private static final int INITIAL_FRAME_BYTES = 64 * 1_024;
+
+    // --- Change index (SplitMix64 finalizer constants) ---
+    private static final int  INITIAL_INDEX_SLOTS = 1_024;
+    private static final long MIX_MULTIPLIER      = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_FINALIZER       = 0x94D049BB133111EBL;
+    private static final int  MIX_SHIFT_1         = 30;
+    private static final int  MIX_SHIFT_2         = 27;
+    private static final int  MIX_SHIFT_3         = 31;
+
+    private final SocketChannel                      channel;
+    private final ConcurrentHashMap<String, Replica> replicas;
+    private final ByteBuffer                         acknowledgement;
+    private final Thread                             reader;
+
+    private ByteBuffer frame;
+    private long[]     indexKeys;
+    private Replica[]  indexReplicas;
+    private int        indexCount;
+
+    private volatile long    appliedSequence;
+    private volatile boolean connected;
+
+    /**
+     * Constructs a {@code ReplicationFollower} connected to a leader and starts applying its stream.
+     *
+     * @param address the leader's address
+     * @throws UncheckedIOException if the leader cannot be reached
+     */
+    ReplicationFollower(final SocketAddress address)
+    {
+        try
+        {
+            this.channel = SocketChannel.open(ReplicationProtocol.familyOf(address));
+            channel.connect(address);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        this.replicas        = new ConcurrentHashMap<>();
+        this.acknowledgement = ByteBuffer.allocate(ReplicationProtocol.ACK_BYTES);
+        this.frame           = ByteBuffer.allocateDirect(INITIAL_FRAME_BYTES);
+        this.indexKeys       = new long[INITIAL_INDEX_SLOTS];
+        this.indexReplicas   = new Replica[INITIAL_INDEX_SLOTS];
+        this.indexCount      = 0;
+        this.appliedSequence = 0;
+        this.connected       = true;
+        this.reader          = new Thread(this::apply, "replication-follower");
+
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Retrieves the replicated balance of an account.
+     *
+     * @param accountNumber the account number
+     * @return the balance as of the last applied frame
+     * @throws IllegalArgumentException if the account is not replicated
+     */
+    double getBalance(final String accountNumber)
+    {
+        return replicaOf(accountNumber).values.balance;
+    }
+
+    /**
+     * Retrieves the replicated state of an account.
+     *
+     * @param accountNumber the account number
+     * @return the state as of the last applied frame
+     * @throws IllegalArgumentException if the account is not replicated
+     */
+    AccountState getState(final String accountNumber)
+    {
+        return replicaOf(accountNumber).values.state;
+    }
+
+    /**
+     * Formats the replicated details of an account as {@link BankAccount#getDetails()} does.
+     *
+     * @param accountNumber the account number
+     * @return the details as of the last applied frame
+     * @throws IllegalArgumentException if the account is not replicated
+     */
+    String getDetails(final String accountNumber)
+    {
+        final Replica replica;
+        final Values values;
+
+        replica = replicaOf(accountNumber);
+        values  = replica.values;
+
+        return BankAccount.formatDetails(replica.client,
+                                         values.balance,
+                                         replica.currency,
+                                         accountNumber,
+                                         replica.opened,
+                                         values.closed);
+    }
+
+    /**
+     * Retrieves the leader sequence number of the last applied frame.
+     *
+     * @return the applied sequence number
+     */
+    long getAppliedSequence()
+    {
+        return appliedSequence;
+    }
+
+    /**
+     * Retrieves the number of accounts replicated.
+     *
+     * @return the account count
+     */
+    int getAccountCount()
+    {
+        return replicas.size();
+    }
+
+    /**
+     * Checks whether the leader is still streaming to this follower.
+     *
+     * @return {@code true} if connected, otherwise {@code false}
+     */
+    boolean isConnected()
+    {
+        return connected;
+    }
+
+    /**
+     * Waits until the leader closes the connection.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitDisconnect() throws InterruptedException
+    {
+        reader.join();
+    }
+
+    /**
+     * Disconnects from the leader. Replicated accounts stay readable.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the replica of an account.
+     *
+     * @param accountNumber the account number
+     * @return the replica
+     * @throws IllegalArgumentException if the account is not replicated
+     */
+    private Replica replicaOf(final String accountNumber)
+    {
+        final Replica replica;
+        replica = replicas.get(accountNumber);
+
+        if (replica == null)
+        {
+            throw new IllegalArgumentException("Account is not replicated: " + accountNumber);
+        }
+        return replica;
+    }
+
+    /**
+     * Applies and acknowledges frames until the connection ends or a frame is malformed,
+     * then closes the connection.
+     */
+    private void apply()
+    {
+        try
+        {
+            while (true)
+            {
+                final int length;
+                final long sequence;
+                final long sentNanos;
+                final int count;
+
+                frame.clear().limit(ReplicationProtocol.LENGTH_BYTES);
+                ReplicationProtocol.readFully(channel, frame);
+                length = frame.getInt(0);
+
+                if (length < ReplicationProtocol.FIRST_RECORD_OFFSET - ReplicationProtocol.LENGTH_BYTES ||
+                    length > ReplicationProtocol.MAX_FRAME_BYTES - ReplicationProtocol.LENGTH_BYTES)
+                {
+                    throw new ProtocolException("Frame length out of range: " + length);
+                }
+
+                if (frame.capacity() < ReplicationProtocol.LENGTH_BYTES + length)
+                {
+                    frame = ByteBuffer.allocateDirect(ReplicationProtocol.LENGTH_BYTES + length);
+                }
+
+                frame.clear().position(ReplicationProtocol.LENGTH_BYTES).limit(ReplicationProtocol.LENGTH_BYTES + length);
+                ReplicationProtocol.readFully(channel, frame);
+
+                sequence  = frame.getLong(ReplicationProtocol.SEQUENCE_OFFSET);
+                sentNanos = frame.getLong(ReplicationProtocol.SENT_NANOS_OFFSET);
+                count     = frame.getInt(ReplicationProtocol.RECORD_COUNT_OFFSET);
+
+                frame.position(ReplicationProtocol.FIRST_RECORD_OFFSET);
+
+                for (int i = 0; i < count; i++)
+                {
+                    applyRecord(frame);
+                }
+
+                appliedSequence = sequence;
+
+                acknowledgement.clear();
+                acknowledgement.putLong(sequence).putLong(sentNanos).flip();
+                ReplicationProtocol.writeFully(channel, acknowledgement);
+            }
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            // A short record, a bad date or an invalid client is as fatal as a lost connection
+            connected = false;
+            closeChannel();
+        }
+    }
+
+    /**
+     * Closes the connection after the reader stops.
+     */
+    private void closeChannel()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException e)
+        {
+            // Already disconnected
+        }
+    }
+
+    /**
+     * Applies one record.
+     *
+     * @param buffer the frame, positioned at the record
+     * @throws ProtocolException if the record names an unknown state
+     */
+    private void applyRecord(final ByteBuffer buffer) throws ProtocolException
+    {
+        final byte kind;
+        kind = buffer.get();
+
+        if (kind == ReplicationProtocol.ACCOUNT_RECORD)
+        {
+            final AccountState state;
+            final long key;
+            final Date opened;
+            final Date closed;
+            final double balance;
+            final Currency currency;
+            final BankClient client;
+            final Replica replica;
+
+            state    = ReplicationProtocol.stateOf(buffer.get());
+            key      = BinaryCodec.getKey(buffer);
+            opened   = BinaryCodec.decodeDate(buffer);
+            closed   = BinaryCodec.decodeDate(buffer);
+            balance  = buffer.getDouble();
+            currency = BinaryCodec.decodeCurrency(buffer);
+            client   = BinaryCodec.decodeClient(buffer);
+            replica  = new Replica(client, currency, opened, new Values(state, balance, closed));
+
+            replicas.put(BinaryCodec.unpackKey(key), replica);
+            index(key, replica);
+        }
+        else
+        {
+            final long key;
+            final AccountState state;
+            final double balance;
+            final Date closed;
+            final Replica replica;
+
+            key     = BinaryCodec.getKey(buffer);
+            state   = ReplicationProtocol.stateOf(buffer.get());
+            balance = buffer.getDouble();
+            closed  = BinaryCodec.decodeDate(buffer);
+            replica = lookUp(key);
+
+            // A change only precedes its account's record if the account was listened to before
+            // it was added, and the record that follows carries the change
+            if (replica != null)
+            {
+                replica.values = new Values(state, balance, closed);
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces a replica in the change index.
+     *
+     * <p>Only the reader thread uses the index. It finds the replica for a change
+     * by packed account number without building a string, and probes one array
+     * rather than following a chain of map nodes.</p>
+     *
+     * @param key     the packed account number
+     * @param replica the replica
+     */
+    private void index(final long key,
+                       final Replica replica)
+    {
+        int slot;
+
+        if ((indexCount + 1) * 2 > indexKeys.length)
+        {
+            final long[] oldKeys;
+            final Replica[] oldReplicas;
+
+            oldKeys       = indexKeys;
+            oldReplicas   = indexReplicas;
+            indexKeys     = new long[oldKeys.length * 2];
+            indexReplicas = new Replica[oldKeys.length * 2];
+            indexCount    = 0;
+
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldKeys[i] != 0)
+                {
+                    index(oldKeys[i], oldReplicas[i]);
+                }
+            }
+        }
+
+        slot = slotOf(key);
+
+        while (indexKeys[slot] != 0 && indexKeys[slot] != key)
+        {
+            slot = (slot + 1) & (indexKeys.length - 1);
+        }
+
+        if (indexKeys[slot] == 0)
+        {
+            indexKeys[slot] = key;
+            indexCount++;
+        }
+        indexReplicas[slot] = replica;
+    }
+
+    /**
+     * Finds a replica in the change index.
+     *
+     * @param key the packed account number
+     * @return the replica, or {@code null} if the account has no record yet
+     */
+    private Replica lookUp(final long key)
+    {
+        int slot;
+        slot = slotOf(key);
+
+        while (indexKeys[slot] != 0)
+        {
+            if (indexKeys[slot] == key)
+            {
+                return indexReplicas[slot];
+            }
+            slot = (slot + 1) & (indexKeys.length - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Chooses the first slot to probe for a key. Packed account numbers differ mostly in
+     * their low bytes, so the key is scrambled first.
+     *
+     * @param key the packed account number
+     * @return the slot
+     */
+    private int slotOf(final long key)
+    {
+        long mixed;
+
+        mixed = (key ^ key >>> MIX_SHIFT_1) * MIX_MULTIPLIER;
+        mixed = (mixed ^ mixed >>> MIX_SHIFT_2) * MIX_FINALIZER;
+        mixed = mixed ^ mixed >>> MIX_SHIFT_3;
+
+        return (int) mixed & (indexKeys.length - 1);
+    }
+
+    /**
+     * One replicated account. Changes replace its values without touching the map.
+     */
+    private static final class Replica
+    {
+        private final BankClient client;
+        private final Currency   currency;
+        private final Date       opened;
+
+        private volatile Values values;
+
+        /**
+         * Constructs a {@code Replica}.
+         *
+         * @param client   the client who owns the account
+         * @param currency the currency of the balance
+         * @param opened   the date the account was opened
+         * @param values   the values as of the account's record
+         */
+        private Replica(final BankClient client,
+                        final Currency currency,
+                        final Date opened,
+                        final Values values)
+        {
+            this.client   = client;
+            this.currency = currency;
+            this.opened   = opened;
+            this.values   = values;
+        }
+    }
+
+    /**
+     * The values of an account as of one change.
+     */
+    private static final class Values
+    {
+        private final AccountState state;
+        private final double       balance;
+        private final Date         closed;
+
+        /**
+         * Constructs a {@code Values}.
+         *
+         * @param state   the state
+         * @param balance the balance
+         * @param closed  the closing date, or {@code null}
+         */
+        private Values(final AccountState state,
+                       final double balance,
+                       final Date closed)
+        {
+            this.state   = state;
+            this.balance = balance;
+            this.closed  = closed;
+        }
+    }
+}
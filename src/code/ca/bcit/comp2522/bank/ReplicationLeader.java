@@ -0,0 +1,652 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams the committed state of {@link BankAccount}s to
+ * {@link ReplicationFollower}s in other processes on the same machine.
+ *
+ * <p>Register the leader as the {@link AccountListener} of each account to
+ * replicate, and then {@link #add(BankAccount)} it. As with
+ * {@link AccountEventStream}, the posting thread only appends each change to a
+ * lock-free queue. A sender thread drains the queue into frames of up to
+ * {@code maxBatchSize} records. It numbers them and writes each frame to every
+ * follower without waiting for earlier frames to be acknowledged. Changes to
+ * one account reach followers in the order they were made.</p>
+ *
+ * <p>A follower that connects first receives every registered account as it is
+ * at that moment, then the stream from there on. Records carry resulting
+ * balances and states, so a change already reflected in that snapshot is
+ * harmless when it arrives again. Followers acknowledge each frame. The leader
+ * reports how many records the slowest follower is behind and how long its
+ * last frame took to be applied and acknowledged.</p>
+ *
+ * <p>At most {@code maxPending} changes wait for the sender. When the queue is
+ * full the posting thread waits for room, so replication slows posting rather
+ * than losing changes or memory. Frames are written to followers one after
+ * another, so a follower that stops reading holds up the sender once its
+ * socket buffer fills. If the queue is full and a write to one follower has
+ * not finished within {@value #STALLED_WRITE_NANOS} nanoseconds, that follower
+ * is dropped so the others can continue. {@link #close()} drops such a
+ * follower in the same way while it waits for the last changes to be sent. A
+ * follower whose connection fails is also dropped. Whole accounts are sent
+ * without their PINs.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ReplicationLeader implements AccountListener, AutoCloseable
+{
+    private static final long IDLE_PARK_NANOS     = 50_000;
+    private static final long FULL_PARK_NANOS     = 50_000;
+    private static final long STALLED_WRITE_NANOS = 1_000_000_000L;
+    private static final long CLOSE_POLL_MILLIS   = 10;
+
+    private final ServerSocketChannel                    server;
+    private final ConcurrentHashMap<String, BankAccount> accounts;
+    private final ConcurrentLinkedQueue<Change>          pending;
+    private final AtomicInteger                          pendingCount;
+    private final ConcurrentLinkedQueue<Follower>        joining;
+    private final CopyOnWriteArrayList<Follower>         followers;
+    private final LongAdder                              submitted;
+    private final ByteBuffer                             frame;
+    private final int                                    maxBatchSize;
+    private final int                                    maxPending;
+    private final Thread                                 acceptor;
+    private final Thread                                 sender;
+
+    private volatile boolean  running;
+    private volatile long     sequence;
+    private volatile Follower writing;
+
+    /**
+     * Constructs a {@code ReplicationLeader} listening for followers and starts its threads.
+     *
+     * @param address      the Unix domain or loopback address to listen on
+     * @param maxBatchSize the most records sent in one frame, from 1 to {@value ReplicationProtocol#MAX_BATCH_SIZE}
+     * @param maxPending   the most changes waiting to be sent; must be positive
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    ReplicationLeader(final SocketAddress address,
+                      final int maxBatchSize,
+                      final int maxPending)
+    {
+        if (maxBatchSize <= 0 || maxBatchSize > ReplicationProtocol.MAX_BATCH_SIZE)
+        {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + ReplicationProtocol.MAX_BATCH_SIZE);
+        }
+
+        if (maxPending <= 0)
+        {
+            throw new IllegalArgumentException("Pending limit must be positive");
+        }
+
+        try
+        {
+            this.server = ServerSocketChannel.open(ReplicationProtocol.familyOf(address)).bind(address);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        this.accounts     = new ConcurrentHashMap<>();
+        this.pending      = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.joining      = new ConcurrentLinkedQueue<>();
+        this.followers    = new CopyOnWriteArrayList<>();
+        this.submitted    = new LongAdder();
+        this.frame        = ByteBuffer.allocateDirect(ReplicationProtocol.FIRST_RECORD_OFFSET +
+                                                      maxBatchSize * ReplicationProtocol.MAX_RECORD_BYTES);
+        this.maxBatchSize = maxBatchSize;
+        this.maxPending   = maxPending;
+        this.running      = true;
+        this.sequence     = 0;
+        this.acceptor     = new Thread(this::accept, "replication-acceptor");
+        this.sender       = new Thread(this::send, "replication-sender");
+
+        acceptor.setDaemon(true);
+        sender.setDaemon(true);
+        acceptor.start();
+        sender.start();
+    }
+
+    /**
+     * Starts replicating an account. Does nothing if it is already replicated or the leader is closed.
+     *
+     * @param account the account, already listened to by this leader
+     */
+    void add(final BankAccount account)
+    {
+        if (running && accounts.putIfAbsent(account.getAccountNumber(), account) == null)
+        {
+            submit(new Change(account));
+        }
+    }
+
+    /**
+     * Queues an account change for replication, waiting only while the queue is full.
+     * Does nothing once the leader is closed.
+     *
+     * @param type         the kind of change
+     * @param account      the account that changed
+     * @param stateAfter   the account's lifecycle state after the change
+     * @param amount       the amount deposited or withdrawn, unused
+     * @param balanceAfter the balance after the change
+     */
+    @Override
+    public void onAccountEvent(final AccountEventType type,
+                               final BankAccount account,
+                               final AccountState stateAfter,
+                               final double amount,
+                               final double balanceAfter)
+    {
+        if (!running)
+        {
+            return;
+        }
+
+        submit(new Change(account, stateAfter, balanceAfter, account.getAccountClosed()));
+    }
+
+    /**
+     * Retrieves the address followers connect to, including any port chosen by the system.
+     *
+     * @return the listening address
+     * @throws UncheckedIOException if the leader is closed
+     */
+    SocketAddress getAddress()
+    {
+        try
+        {
+            return server.getLocalAddress();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the number of records sent so far.
+     *
+     * @return the sequence number of the last record sent
+     */
+    long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Retrieves the number of connected followers, not counting any still receiving their snapshot.
+     *
+     * @return the follower count
+     */
+    int getFollowerCount()
+    {
+        return followers.size();
+    }
+
+    /**
+     * Retrieves how far the slowest follower is behind the changes made, including changes
+     * not yet sent.
+     *
+     * @return the number of records not yet acknowledged by every follower
+     */
+    long getMaxLag()
+    {
+        final long made;
+        long lag;
+
+        made = submitted.sum();
+        lag  = 0;
+
+        for (final Follower follower : followers)
+        {
+            lag = Math.max(lag, made - follower.acknowledged);
+        }
+        return lag;
+    }
+
+    /**
+     * Retrieves the longest time any follower last took to apply and acknowledge a frame.
+     *
+     * @return the round trip in nanoseconds
+     */
+    long getMaxLatencyNanos()
+    {
+        long latency;
+        latency = 0;
+
+        for (final Follower follower : followers)
+        {
+            latency = Math.max(latency, follower.latencyNanos);
+        }
+        return latency;
+    }
+
+    /**
+     * Sends every queued change, then disconnects the followers and stops listening.
+     * A follower that has stopped reading is dropped rather than waited for, so
+     * this returns even if one never reads again.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+
+        try
+        {
+            server.close();
+            acceptor.join();
+
+            // Posting has stopped, so nothing else will notice a write blocked on a follower that stopped reading
+            while (sender.isAlive())
+            {
+                sender.join(CLOSE_POLL_MILLIS);
+                dropStalledFollower();
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        for (final Follower follower : followers)
+        {
+            drop(follower);
+        }
+    }
+
+    /**
+     * Queues a record for the sender, waiting for room if the queue is full.
+     *
+     * @param change the record
+     */
+    private void submit(final Change change)
+    {
+        while (pendingCount.incrementAndGet() > maxPending)
+        {
+            pendingCount.decrementAndGet();
+            dropStalledFollower();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        submitted.increment();
+        pending.offer(change);
+    }
+
+    /**
+     * Drops the follower the sender is writing to if that write has been blocked
+     * for longer than {@value #STALLED_WRITE_NANOS} nanoseconds. The blocked write
+     * then fails and the sender moves on.
+     */
+    private void dropStalledFollower()
+    {
+        final Follower current;
+        final long startedNanos;
+
+        current = writing;
+
+        if (current == null)
+        {
+            return;
+        }
+
+        startedNanos = current.writeStartedNanos;
+
+        if (startedNanos != 0 && System.nanoTime() - startedNanos > STALLED_WRITE_NANOS)
+        {
+            drop(current);
+        }
+    }
+
+    /**
+     * Accepts followers until closed.
+     */
+    private void accept()
+    {
+        while (running)
+        {
+            try
+            {
+                joining.offer(new Follower(server.accept()));
+            }
+            catch (final ClosedChannelException e)
+            {
+                return;
+            }
+            catch (final IOException e)
+            {
+                // A failed connection only affects that follower
+            }
+        }
+    }
+
+    /**
+     * Sends snapshots to new followers and batches of changes to all of them until closed
+     * and the queue is empty.
+     */
+    private void send()
+    {
+        while (running || !pending.isEmpty())
+        {
+            Follower newcomer;
+            newcomer = joining.poll();
+
+            while (newcomer != null)
+            {
+                sendSnapshot(newcomer);
+                newcomer = joining.poll();
+            }
+
+            if (pending.isEmpty())
+            {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            else
+            {
+                sendBatch();
+            }
+        }
+    }
+
+    /**
+     * Sends one frame of queued changes to every follower.
+     */
+    private void sendBatch()
+    {
+        long last;
+        int count;
+        Change change;
+
+        last  = sequence;
+        count = 0;
+
+        frame.clear().position(ReplicationProtocol.FIRST_RECORD_OFFSET);
+
+        while (count < maxBatchSize && (change = pending.poll()) != null)
+        {
+            change.encode(frame);
+            last++;
+            count++;
+        }
+
+        pendingCount.addAndGet(-count);
+        sequence = last;
+        finishFrame(count);
+
+        for (final Follower follower : followers)
+        {
+            write(follower);
+        }
+    }
+
+    /**
+     * Sends every registered account to a new follower and adds it to the followers.
+     *
+     * @param follower the new follower
+     */
+    private void sendSnapshot(final Follower follower)
+    {
+        int count;
+
+        // Acknowledgements are read from the start, or the follower would block on them and stop
+        // reading its snapshot; it only counts towards lag once it is live
+        follower.acknowledged = sequence;
+        follower.start();
+
+        count = 0;
+        frame.clear().position(ReplicationProtocol.FIRST_RECORD_OFFSET);
+
+        for (final BankAccount account : accounts.values())
+        {
+            if (count == maxBatchSize)
+            {
+                finishFrame(count);
+
+                if (!write(follower))
+                {
+                    return;
+                }
+
+                count = 0;
+                frame.clear().position(ReplicationProtocol.FIRST_RECORD_OFFSET);
+            }
+
+            Change.encodeAccount(frame, account);
+            count++;
+        }
+
+        finishFrame(count);
+
+        if (write(follower))
+        {
+            followers.add(follower);
+        }
+    }
+
+    /**
+     * Fills in a frame's length and header and flips it for writing.
+     *
+     * @param count the number of records in the frame
+     */
+    private void finishFrame(final int count)
+    {
+        frame.putInt(0, frame.position() - ReplicationProtocol.LENGTH_BYTES);
+        frame.putLong(ReplicationProtocol.SEQUENCE_OFFSET, sequence);
+        frame.putLong(ReplicationProtocol.SENT_NANOS_OFFSET, System.nanoTime());
+        frame.putInt(ReplicationProtocol.RECORD_COUNT_OFFSET, count);
+        frame.flip();
+    }
+
+    /**
+     * Writes the current frame to one follower, dropping it if the write fails.
+     *
+     * @param follower the follower
+     * @return {@code true} if the frame was written, otherwise {@code false}
+     */
+    private boolean write(final Follower follower)
+    {
+        follower.writeStartedNanos = System.nanoTime();
+        writing                    = follower;
+
+        try
+        {
+            ReplicationProtocol.writeFully(follower.channel, frame.duplicate());
+            return true;
+        }
+        catch (final IOException e)
+        {
+            drop(follower);
+            return false;
+        }
+        finally
+        {
+            writing                    = null;
+            follower.writeStartedNanos = 0;
+        }
+    }
+
+    /**
+     * Disconnects a follower.
+     *
+     * @param follower the follower
+     */
+    private void drop(final Follower follower)
+    {
+        followers.remove(follower);
+
+        try
+        {
+            follower.channel.close();
+        }
+        catch (final IOException e)
+        {
+            // Already disconnected
+        }
+    }
+
+    /**
+     * One follower connection and the acknowledgements read from it.
+     */
+    private final class Follower
+    {
+        private final SocketChannel channel;
+        private final Thread        acknowledgementReader;
+
+        private volatile long acknowledged;
+        private volatile long latencyNanos;
+        private volatile long writeStartedNanos;
+
+        /**
+         * Constructs a {@code Follower} for a new connection.
+         *
+         * @param channel the connection
+         */
+        private Follower(final SocketChannel channel)
+        {
+            this.channel               = channel;
+            this.acknowledgementReader = new Thread(this::readAcknowledgements, "replication-acknowledgements");
+            this.acknowledged          = 0;
+            this.latencyNanos          = 0;
+            this.writeStartedNanos     = 0;
+
+            acknowledgementReader.setDaemon(true);
+        }
+
+        /**
+         * Starts reading acknowledgements.
+         */
+        private void start()
+        {
+            acknowledgementReader.start();
+        }
+
+        /**
+         * Records each acknowledgement until the connection ends.
+         */
+        private void readAcknowledgements()
+        {
+            final ByteBuffer acknowledgement;
+            acknowledgement = ByteBuffer.allocate(ReplicationProtocol.ACK_BYTES);
+
+            try
+            {
+                while (true)
+                {
+                    acknowledgement.clear();
+                    ReplicationProtocol.readFully(channel, acknowledgement);
+
+                    acknowledged = acknowledgement.getLong(0);
+                    latencyNanos = System.nanoTime() - acknowledgement.getLong(Long.BYTES);
+                }
+            }
+            catch (final IOException e)
+            {
+                drop(this);
+            }
+        }
+    }
+
+    /**
+     * One queued record: a change, or a whole account being added.
+     */
+    private static final class Change
+    {
+        private final BankAccount  account;
+        private final boolean      whole;
+        private final AccountState state;
+        private final double       balance;
+        private final Date         closed;
+
+        /**
+         * Constructs a {@code Change} that sends a whole account as it is when sent.
+         *
+         * @param account the account
+         */
+        private Change(final BankAccount account)
+        {
+            this.account = account;
+            this.whole   = true;
+            this.state   = null;
+            this.balance = 0;
+            this.closed  = null;
+        }
+
+        /**
+         * Constructs a {@code Change} for one change to an account.
+         *
+         * @param account the account
+         * @param state   the state after the change
+         * @param balance the balance after the change
+         * @param closed  the closing date after the change, or {@code null}
+         */
+        private Change(final BankAccount account,
+                       final AccountState state,
+                       final double balance,
+                       final Date closed)
+        {
+            this.account = account;
+            this.whole   = false;
+            this.state   = state;
+            this.balance = balance;
+            this.closed  = closed;
+        }
+
+        /**
+         * Writes this record.
+         *
+         * @param buffer the frame
+         */
+        private void encode(final ByteBuffer buffer)
+        {
+            if (whole)
+            {
+                encodeAccount(buffer, account);
+                return;
+            }
+
+            buffer.put(ReplicationProtocol.CHANGE_RECORD);
+            BinaryCodec.putKey(buffer, BinaryCodec.packKey(account.getAccountNumber()));
+            buffer.put((byte) state.ordinal());
+            buffer.putDouble(balance);
+            BinaryCodec.encodeDate(buffer, closed);
+        }
+
+        /**
+         * Writes a whole-account record with the account's current values, leaving out the PIN.
+         *
+         * @param buffer  the frame
+         * @param account the account
+         */
+        private static void encodeAccount(final ByteBuffer buffer,
+                                          final BankAccount account)
+        {
+            buffer.put(ReplicationProtocol.ACCOUNT_RECORD);
+            buffer.put((byte) account.getState().ordinal());
+            BinaryCodec.putKey(buffer, BinaryCodec.packKey(account.getAccountNumber()));
+            BinaryCodec.encodeDate(buffer, account.getAccountOpened());
+            BinaryCodec.encodeDate(buffer, account.getAccountClosed());
+            buffer.putDouble(account.getBalance());
+            BinaryCodec.encodeCurrency(buffer, account.getCurrency());
+            BinaryCodec.encodeClient(buffer, account.getClient());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Defines the wire format shared by {@link ReplicationLeader} and
+ * {@link ReplicationFollower}.
+ *
+ * <p>The leader sends frames. Each frame is a 4-byte length, then a header,
+ * then its records. The header holds the leader's sequence number after the
+ * frame, the leader's {@link System#nanoTime()} when it was sent, and the
+ * record count. A record is one of:</p>
+ * <ul>
+ *     <li>A change: {@value #CHANGE_RECORD}, the 7-byte packed account number,
+ *     the state ordinal, the 8-byte balance and the closing date, all as they
+ *     are after the change.</li>
+ *     <li>A whole account: {@value #ACCOUNT_RECORD}, the state ordinal, the
+ *     packed account number, the opening and closing dates, the balance, the
+ *     currency and the client, encoded as {@link BinaryCodec} does. The PIN is
+ *     never sent.</li>
+ * </ul>
+ *
+ * <p>A frame is at most {@value #MAX_FRAME_BYTES} bytes long, including its
+ * length. A follower treats a longer or shorter frame, or a record it cannot
+ * decode, as a broken connection.</p>
+ *
+ * <p>Records carry resulting values rather than amounts, so applying one twice
+ * or after a newer snapshot of the same account does no harm. After applying a
+ * frame the follower acknowledges it with the frame's sequence number and send
+ * time, which lets the leader measure lag on its own clock.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ReplicationProtocol
+{
+    // --- Frame layout ---
+    static final int LENGTH_BYTES        = Integer.BYTES;
+    static final int SEQUENCE_OFFSET     = LENGTH_BYTES;
+    static final int SENT_NANOS_OFFSET   = SEQUENCE_OFFSET + Long.BYTES;
+    static final int RECORD_COUNT_OFFSET = SENT_NANOS_OFFSET + Long.BYTES;
+    static final int FIRST_RECORD_OFFSET = RECORD_COUNT_OFFSET + Integer.BYTES;
+    static final int MAX_RECORD_BYTES    = 1_024;
+    static final int MAX_FRAME_BYTES     = 16 * 1_024 * 1_024;
+    static final int MAX_BATCH_SIZE      = (MAX_FRAME_BYTES - FIRST_RECORD_OFFSET) / MAX_RECORD_BYTES;
+    static final int ACK_BYTES           = Long.BYTES + Long.BYTES;
+
+    // --- Record kinds ---
+    static final byte CHANGE_RECORD  = 0;
+    static final byte ACCOUNT_RECORD = 1;
+
+    private static final AccountState[] STATES = AccountState.values();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ReplicationProtocol()
+    {
+    }
+
+    /**
+     * Chooses the protocol family for an address.
+     *
+     * @param address a Unix domain or IP socket address
+     * @return the matching protocol family
+     */
+    static ProtocolFamily familyOf(final SocketAddress address)
+    {
+        if (address instanceof UnixDomainSocketAddress)
+        {
+            return StandardProtocolFamily.UNIX;
+        }
+        return StandardProtocolFamily.INET;
+    }
+
+    /**
+     * Decodes a state ordinal written into a record.
+     *
+     * @param ordinal the ordinal
+     * @return the state
+     * @throws ProtocolException if the ordinal names no state
+     */
+    static AccountState stateOf(final byte ordinal) throws ProtocolException
+    {
+        if (ordinal < 0 || ordinal >= STATES.length)
+        {
+            throw new ProtocolException("Unknown account state: " + ordinal);
+        }
+        return STATES[ordinal];
+    }
+
+    /**
+     * Writes every remaining byte of a buffer.
+     *
+     * @param channel the channel to write to
+     * @param buffer  the bytes to write
+     * @throws IOException if the write fails
+     */
+    static void writeFully(final WritableByteChannel channel,
+                           final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the remaining space of a buffer.
+     *
+     * @param channel the channel to read from
+     * @param buffer  the buffer to fill
+     * @throws EOFException if the channel ends first
+     * @throws IOException  if the read fails
+     */
+    static void readFully(final ReadableByteChannel channel,
+                          final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new EOFException("Replication connection closed");
+            }
+        }
+    }
+}
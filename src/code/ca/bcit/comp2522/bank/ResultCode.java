@@ -0,0 +1,72 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of an operation that reports failure by returning a code instead
+ * of throwing.
+ *
+ * <p>{@link ValidationCode} covers names, dates, clients, accounts and their
+ * transactions, and holds the one success code, {@link ValidationCode#OK}.
+ * Subsystems built on top of accounts enumerate their own failures, such as
+ * {@link PaymentCode} for standing orders, and return {@code ValidationCode.OK}
+ * when nothing failed. An operation that can fail for either kind of reason
+ * returns a {@code ResultCode}.</p>
+ *
+ * <p>Implementations are enums. {@link ValidationResult} relies on that to
+ * share one failed result per code, and {@link ValidationException} to stay
+ * serializable with its code.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public interface ResultCode extends Serializable
+{
+    /**
+     * Determines whether this code represents success.
+     *
+     * @return {@code true} if this code is {@link ValidationCode#OK}, otherwise {@code false}
+     */
+    boolean isOk();
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message, or {@code null} for {@link ValidationCode#OK}
+     */
+    String getMessage();
+
+    /**
+     * Retrieves this code's position in its enum.
+     *
+     * @return the enum ordinal
+     */
+    int ordinal();
+
+    /**
+     * Creates an exception for this code.
+     *
+     * @return a new exception, or {@code null} for {@link ValidationCode#OK}
+     */
+    default ValidationException exception()
+    {
+        if (isOk())
+        {
+            return null;
+        }
+        return new ValidationException(getMessage(), this);
+    }
+
+    /**
+     * Throws a new exception for this code unless it is {@link ValidationCode#OK}.
+     *
+     * @throws ValidationException if this code is a failure
+     */
+    default void throwIfFailed()
+    {
+        if (!isOk())
+        {
+            throw new ValidationException(getMessage(), this);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A recurring instruction to move a fixed amount from one {@link BankAccount}
+ * to another on the same day of every month, or of every few months.
+ *
+ * <p>A payment day past the end of a short month falls on that month's last
+ * day. A day of 31 is therefore paid on the 30th in April and on the 28th or
+ * 29th in February, as {@link Date#isLeapYear(int)} decides. The day is
+ * clamped per occurrence, so a monthly order for the 31st returns to the
+ * 31st in March.</p>
+ *
+ * <p>Occurrences are tracked by year and month rather than as {@link Date}s,
+ * so schedules may run past {@value Date#CURRENT_YEAR}. Orders are created
+ * and advanced by a {@link PaymentScheduler}.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class StandingOrder
+{
+    static final int MAX_PAYMENT_DAY = 31;
+
+    private static final int MONTHS_IN_YEAR = 12;
+
+    private final BankAccount source;
+    private final BankAccount target;
+    private final double      amount;
+    private final int         paymentDay;
+    private final int         intervalMonths;
+
+    private int dueYear;
+    private int dueMonth;
+    private int dueEpochDay;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a {@code StandingOrder} whose first payment falls in a given month.
+     *
+     * @param source         the account paid from
+     * @param target         the account paid to
+     * @param amount         the amount paid each time, in the accounts' currency
+     * @param paymentDay     the day of the month to pay on, from 1 to {@value #MAX_PAYMENT_DAY}
+     * @param intervalMonths the number of months between payments
+     * @param firstYear      the year of the first payment
+     * @param firstMonth     the month of the first payment
+     */
+    StandingOrder(final BankAccount source,
+                  final BankAccount target,
+                  final double amount,
+                  final int paymentDay,
+                  final int intervalMonths,
+                  final int firstYear,
+                  final int firstMonth)
+    {
+        this.source         = source;
+        this.target         = target;
+        this.amount         = amount;
+        this.paymentDay     = paymentDay;
+        this.intervalMonths = intervalMonths;
+        this.cancelled      = false;
+
+        moveTo(firstYear, firstMonth);
+    }
+
+    /**
+     * Checks the details of a standing order without throwing.
+     *
+     * @param source         the account paid from
+     * @param target         the account paid to
+     * @param amount         the amount paid each time
+     * @param paymentDay     the day of the month to pay on
+     * @param intervalMonths the number of months between payments
+     * @return {@link ValidationCode#OK}, or the code of the first failed rule
+     */
+    static ResultCode checkOrder(final BankAccount source,
+                                 final BankAccount target,
+                                 final double amount,
+                                 final int paymentDay,
+                                 final int intervalMonths)
+    {
+        if (source == null || target == null || source == target ||
+            !source.getCurrency().equals(target.getCurrency()))
+        {
+            return PaymentCode.ACCOUNTS_INVALID;
+        }
+
+        if (!(amount > 0))
+        {
+            return PaymentCode.AMOUNT_NOT_POSITIVE;
+        }
+
+        if (paymentDay < 1 || paymentDay > MAX_PAYMENT_DAY)
+        {
+            return PaymentCode.DAY_INVALID;
+        }
+
+        if (intervalMonths < 1)
+        {
+            return PaymentCode.INTERVAL_NOT_POSITIVE;
+        }
+        return ValidationCode.OK;
+    }
+
+    /**
+     * Retrieves the account paid from.
+     *
+     * @return the source account
+     */
+    BankAccount getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Retrieves the account paid to.
+     *
+     * @return the target account
+     */
+    BankAccount getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Retrieves the amount paid each time.
+     *
+     * @return the amount in the accounts' currency
+     */
+    double getAmount()
+    {
+        return amount;
+    }
+
+    /**
+     * Retrieves the day of the next payment.
+     *
+     * @return the day number, see {@link Date#toEpochDay()}
+     */
+    int getDueEpochDay()
+    {
+        return dueEpochDay;
+    }
+
+    /**
+     * Determines whether the order has been cancelled.
+     *
+     * @return {@code true} if no further payments will be made
+     */
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Stops all further payments.
+     */
+    void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Moves the order to its next occurrence.
+     */
+    void advance()
+    {
+        final int monthIndex;
+        monthIndex = dueMonth - Date.JANUARY + intervalMonths;
+
+        moveTo(dueYear + monthIndex / MONTHS_IN_YEAR, Date.JANUARY + monthIndex % MONTHS_IN_YEAR);
+    }
+
+    /**
+     * Sets the next occurrence to the payment day of a given month, clamped to the month's length.
+     *
+     * @param year  the year
+     * @param month the month
+     */
+    private void moveTo(final int year,
+                        final int month)
+    {
+        dueYear     = year;
+        dueMonth    = month;
+        dueEpochDay = Date.epochDay(year, month, Math.min(paymentDay, Date.getDaysInMonth(year, month)));
+    }
+}
@@ -0,0 +1,55 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time-to-first-transaction: how long after the JVM starts a batch
+ * tool built on this package has created a client and an account and posted
+ * its first deposit and withdrawal.
+ *
+ * <p>Run it with and without the class data sharing archive produced by
+ * {@code launcher/bank.sh} to compare startup cost. The time is measured from
+ * the JVM start time reported by the runtime, so it includes JVM boot, class
+ * loading and class initialization, but not process creation.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class StartupProbe
+{
+    private static final int OPENING_YEAR = 2020;
+    private static final int BIRTH_YEAR   = 1990;
+    private static final int AMOUNT       = 25;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private StartupProbe()
+    {
+    }
+
+    /**
+     * Posts one transaction through the full validation path and prints the
+     * milliseconds elapsed since the JVM started.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final Date opened;
+        final BankClient client;
+        final BankAccount account;
+        final long elapsedMillis;
+
+        opened  = Date.of(OPENING_YEAR, 1, 1);
+        client  = new BankClient(new Name("Startup", "Probe"), Date.of(BIRTH_YEAR, 1, 1), null, opened, "100000");
+        account = new BankAccount(client, "100000", opened, null, 0, 0);
+
+        account.deposit(AMOUNT);
+        account.withdraw(AMOUNT);
+
+        elapsedMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        System.out.println("Time to first transaction: " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,90 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Deduplicates strings by assigning each distinct value a small integer ID.
+ *
+ * <p>Stores that hold many repeated strings, such as client names, keep the
+ * {@code int} ID in place of a reference and look the value up here, so each
+ * distinct string is held once however many rows use it. IDs are dense and
+ * assigned in order of first appearance, starting at {@code 0}.</p>
+ *
+ * <p>A {@code StringPool} is not thread-safe.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class StringPool
+{
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int GROWTH_FACTOR    = 2;
+
+    private final HashMap<String, Integer> ids;
+    private String[]                       strings;
+    private int                            size;
+
+    /**
+     * Constructs an empty {@code StringPool}.
+     */
+    StringPool()
+    {
+        this.ids     = new HashMap<>();
+        this.strings = new String[DEFAULT_CAPACITY];
+        this.size    = 0;
+    }
+
+    /**
+     * Retrieves the ID of a string, adding it to the pool if it is new.
+     *
+     * @param str the string; must not be {@code null}
+     * @return the string's ID
+     */
+    int intern(final String str)
+    {
+        final Integer existing;
+        existing = ids.get(str);
+
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        if (size == strings.length)
+        {
+            strings = Arrays.copyOf(strings, size * GROWTH_FACTOR);
+        }
+
+        strings[size] = str;
+        ids.put(str, size);
+
+        return size++;
+    }
+
+    /**
+     * Retrieves the string with the given ID.
+     *
+     * @param id an ID returned by {@link #intern(String)}
+     * @return the string
+     * @throws IndexOutOfBoundsException if no string has that ID
+     */
+    String get(final int id)
+    {
+        if (id < 0 || id >= size)
+        {
+            throw new IndexOutOfBoundsException("No pooled string with ID " + id);
+        }
+        return strings[id];
+    }
+
+    /**
+     * Retrieves the number of distinct strings in the pool.
+     *
+     * @return the pool size
+     */
+    int size()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,327 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A hierarchical timing wheel that expires large numbers of timers with
+ * constant-time insertion and cancellation.
+ *
+ * <p>Time is counted in ticks. The wheel has {@value #LEVELS} levels of
+ * {@value #SLOTS} slots each. Level 0 holds timers due within the next
+ * {@value #SLOTS} ticks, one slot per tick. Each higher level covers
+ * {@value #SLOTS} times the span of the one below, so six levels reach
+ * 2<sup>36</sup> ticks. Each slot is a circular doubly-linked list threaded
+ * through the timers themselves. Adding or cancelling a timer is a few pointer
+ * writes. When the lowest level wraps, the next level's current slot is
+ * cascaded down, so each timer moves at most once per level over its
+ * lifetime.</p>
+ *
+ * <p>Each level keeps a bit mask of its non-empty slots. Advancing the clock
+ * jumps straight to the next tick at which a slot falls due or cascades, so
+ * its cost depends on the timers it moves, not on the number of ticks that
+ * have passed.</p>
+ *
+ * <p>A {@code TimingWheel} is not thread-safe. Callers synchronize access, as
+ * {@link AuthorizationHolds} does.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class TimingWheel
+{
+    // --- Wheel geometry ---
+    private static final int  LEVELS    = 6;
+    private static final int  SLOT_BITS = 6;
+    private static final int  SLOTS     = 1 << SLOT_BITS;
+    private static final int  SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELAY = (1L << SLOT_BITS * LEVELS) - 1;
+
+    private final Entry[][] slots;
+    private final long[]    occupied;
+
+    private long now;
+    private int  size;
+
+    /**
+     * Constructs an empty {@code TimingWheel} whose clock starts at a given tick.
+     *
+     * @param startTick the current tick
+     */
+    TimingWheel(final long startTick)
+    {
+        this.slots    = new Entry[LEVELS][SLOTS];
+        this.occupied = new long[LEVELS];
+        this.now      = startTick;
+        this.size     = 0;
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            for (int slot = 0; slot < SLOTS; slot++)
+            {
+                slots[level][slot] = new Sentinel(level, slot);
+            }
+        }
+    }
+
+    /**
+     * Adds a timer. A deadline that is not after the current tick expires on the next tick.
+     *
+     * @param entry        the timer; must not already be in a wheel
+     * @param deadlineTick the tick at which the timer expires
+     */
+    void add(final Entry entry,
+             final long deadlineTick)
+    {
+        entry.deadlineTick = Math.max(deadlineTick, now + 1);
+        link(entry);
+        size++;
+    }
+
+    /**
+     * Removes a timer that has not yet expired. Does nothing if it is not in the wheel.
+     *
+     * @param entry the timer
+     * @return {@code true} if the timer was removed, otherwise {@code false}
+     */
+    boolean cancel(final Entry entry)
+    {
+        if (entry.prev == null)
+        {
+            return false;
+        }
+
+        unlink(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the clock forward, removing every timer that falls due.
+     *
+     * @param targetTick the tick to advance to
+     * @return the expired timers, linked through {@link Entry#nextExpired()}, or {@code null} if none
+     */
+    Entry advance(final long targetTick)
+    {
+        Entry expired;
+        expired = null;
+
+        while (now < targetTick)
+        {
+            final long busyTick;
+            final int index;
+            final Entry head;
+
+            busyTick = nextBusyTick();
+
+            // Nothing falls due or cascades before the target, so the ticks between need no work
+            if (busyTick > targetTick)
+            {
+                now = targetTick;
+                break;
+            }
+
+            now   = busyTick;
+            index = (int) (now & SLOT_MASK);
+
+            if (index == 0)
+            {
+                cascade(1);
+            }
+
+            head = slots[0][index];
+
+            while (head.next != head)
+            {
+                final Entry entry;
+                entry = head.next;
+
+                unlink(entry);
+                size--;
+
+                entry.next = expired;
+                expired    = entry;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Retrieves the number of timers waiting in the wheel.
+     *
+     * @return the timer count
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Finds the next tick at which a non-empty slot falls due, on level 0, or
+     * cascades, on the levels above.
+     *
+     * @return the tick, or {@link Long#MAX_VALUE} if the wheel is empty
+     */
+    private long nextBusyTick()
+    {
+        long next;
+        next = Long.MAX_VALUE;
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            if (occupied[level] != 0)
+            {
+                final long position;
+                final int current;
+                final int steps;
+
+                // Rotating puts the slot after the current one at bit 0
+                position = now >>> SLOT_BITS * level;
+                current  = (int) (position & SLOT_MASK);
+                steps    = Long.numberOfTrailingZeros(Long.rotateRight(occupied[level], current + 1)) + 1;
+                next     = Math.min(next, (position + steps) << SLOT_BITS * level);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Re-inserts the timers in a level's current slot into lower levels,
+     * cascading the level above too if this level has also wrapped.
+     *
+     * @param level the level to cascade
+     */
+    private void cascade(final int level)
+    {
+        final int index;
+        final Entry head;
+
+        if (level >= LEVELS)
+        {
+            return;
+        }
+
+        index = (int) (now >>> SLOT_BITS * level & SLOT_MASK);
+
+        if (index == 0)
+        {
+            cascade(level + 1);
+        }
+
+        head = slots[level][index];
+
+        while (head.next != head)
+        {
+            final Entry entry;
+            entry = head.next;
+
+            unlink(entry);
+            link(entry);
+        }
+    }
+
+    /**
+     * Places a timer in the slot matching its distance from the current tick.
+     *
+     * @param entry the timer
+     */
+    private void link(final Entry entry)
+    {
+        final long delay;
+        final long deadline;
+        final int slot;
+        final Entry head;
+        int level;
+
+        delay    = Math.min(entry.deadlineTick - now, MAX_DELAY);
+        deadline = now + delay;
+        level    = 0;
+
+        while (delay >>> SLOT_BITS * (level + 1) != 0)
+        {
+            level++;
+        }
+
+        slot = (int) (deadline >>> SLOT_BITS * level & SLOT_MASK);
+        head = slots[level][slot];
+
+        entry.prev     = head.prev;
+        entry.next     = head;
+        head.prev.next = entry;
+        head.prev      = entry;
+
+        occupied[level] |= 1L << slot;
+    }
+
+    /**
+     * Removes a timer from its slot list, clearing the slot's bit if it empties.
+     *
+     * @param entry the timer
+     */
+    private void unlink(final Entry entry)
+    {
+        final Entry prev;
+        final Entry next;
+
+        prev = entry.prev;
+        next = entry.next;
+
+        prev.next  = next;
+        next.prev  = prev;
+        entry.prev = null;
+        entry.next = null;
+
+        // Only the sentinel is left when its neighbours on both sides are the same entry
+        if (prev == next)
+        {
+            final Sentinel head;
+            head = (Sentinel) prev;
+
+            occupied[head.level] &= ~(1L << head.slot);
+        }
+    }
+
+    /**
+     * A timer held by a {@link TimingWheel}. Subclasses carry the data needed
+     * to act on expiry.
+     */
+    abstract static class Entry
+    {
+        private long  deadlineTick;
+        private Entry prev;
+        private Entry next;
+
+        /**
+         * Retrieves the next timer in a list returned by {@link TimingWheel#advance(long)}.
+         *
+         * @return the next expired timer, or {@code null} at the end of the list
+         */
+        Entry nextExpired()
+        {
+            return next;
+        }
+    }
+
+    /**
+     * The list head of one slot, which is never itself a timer.
+     */
+    private static final class Sentinel extends Entry
+    {
+        private final int level;
+        private final int slot;
+
+        /**
+         * Constructs an empty circular list.
+         *
+         * @param level the level of the slot
+         * @param slot  the slot within its level
+         */
+        private Sentinel(final int level,
+                         final int slot)
+        {
+            super.prev = this;
+            super.next = this;
+
+            this.level = level;
+            this.slot  = slot;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Enumerates the outcomes of validating bank input such as names, dates,
+ * client IDs, account details, lifecycle changes, deposits and withdrawals.
+ *
+ * <p>Validation methods return a {@code ValidationCode} instead of throwing, so
+ * bulk imports can reject dirty records without creating an exception for
+ * each one. The exception-based APIs throw a new {@link ValidationException}
+ * for the failed code, which does not capture a stack trace.</p>
+ *
+ * <p>{@link #OK} is the success code for every {@link ResultCode}. Subsystems
+ * built on accounts, such as authorization holds and standing orders, keep
+ * their own failure codes.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public enum ValidationCode implements ResultCode
+{
+    OK(null),
+
+    // --- General ---
+    BLANK_STRING("String cannot be null or blank"),
+
+    // --- Name ---
+    NAME_TOO_LONG("Name exceeds maximum length of " + Name.MAX_NAME_LENGTH),
+    NAME_ILLEGAL_SUBSTRING("Name contains illegal substring " + Name.ILLEGAL_SUBSTRING),
+
+    // --- Date ---
+    YEAR_OUT_OF_RANGE("Year is not between " + Date.MIN_YEAR + " and " + Date.CURRENT_YEAR),
+    MONTH_OUT_OF_RANGE("Month is not between " + Date.JANUARY + " and " + Date.DECEMBER),
+    MONTH_INVALID("Month is not valid"),
+    DAY_INVALID("Day is not valid"),
+    DATE_MALFORMED("Date is not in YYYY-MM-DD format"),
+
+    // --- Client ---
+    CLIENT_ID_LENGTH("Client ID must be 6 or 7 characters"),
+    NAME_NULL("Name cannot be null"),
+    BIRTH_DATE_NULL("Birth date cannot be null"),
+    SIGNUP_DATE_NULL("Signup date cannot be null"),
+
+    // --- Account ---
+    CLIENT_NULL("Client cannot be null"),
+    ACCOUNT_NUMBER_BLANK("Account number cannot be null or blank"),
+    ACCOUNT_NUMBER_LENGTH("Account number must be 6 or 7 characters"),
+    ACCOUNT_OPENED_NULL("Account opened date cannot be null"),
+    NEGATIVE_INITIAL_BALANCE("Initial balance cannot be negative"),
+    CURRENCY_NULL("Currency cannot be null"),
+
+    // --- Lifecycle ---
+    ACCOUNT_CLOSED_NULL("Account closed date cannot be null"),
+    ACCOUNT_NOT_OPEN("Account is not open"),
+    ACCOUNT_NOT_FROZEN("Account is not frozen"),
+    ACCOUNT_ALREADY_CLOSED("Account is already closed"),
+    ACCOUNT_NOT_CLOSED("Account is not closed"),
+
+    // --- Transactions ---
+    WITHDRAWAL_NOT_POSITIVE("Withdrawal amount must be positive"),
+    DEPOSIT_NOT_POSITIVE("Deposit amount must be positive"),
+    INSUFFICIENT_FUNDS("Insufficient funds"),
+    WITHDRAW_FROM_CLOSED("Cannot withdraw from a closed account"),
+    WITHDRAW_FROM_FROZEN("Cannot withdraw from a frozen account"),
+    DEPOSIT_TO_CLOSED("Cannot deposit to a closed account"),
+    INVALID_PIN("Invalid PIN"),
+    VELOCITY_LIMIT_EXCEEDED("Withdrawal velocity limit exceeded");
+
+    private final String message;
+
+    /**
+     * Constructs a {@code ValidationCode} with its message.
+     *
+     * @param message the human-readable failure message, or {@code null} for {@link #OK}
+     */
+    ValidationCode(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Determines whether this code represents a successful validation.
+     *
+     * @return {@code true} if this code is {@link #OK}, otherwise {@code false}
+     */
+    @Override
+    public boolean isOk()
+    {
+        return this == OK;
+    }
+
+    /**
+     * Retrieves the failure message for this code.
+     *
+     * @return the message, or {@code null} for {@link #OK}
+     */
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+}
@@ -0,0 +1,55 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Signals that bank input failed validation.
+ *
+ * <p>A new instance is thrown for every failure, so a cause or suppressed
+ * exception added by one caller is never seen by another. It does not capture
+ * a stack trace, which keeps throwing it cheap. Callers that need to know why
+ * validation failed should use {@link #getCode()} rather than parsing the
+ * message.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public final class ValidationException extends IllegalArgumentException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final ResultCode code;
+
+    /**
+     * Constructs a {@code ValidationException} for the given failure code.
+     *
+     * @param message the failure message
+     * @param code    the failure code this exception represents
+     */
+    ValidationException(final String message,
+                        final ResultCode code)
+    {
+        super(message);
+
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the failure code this exception represents.
+     *
+     * @return the failure code
+     */
+    public ResultCode getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Skips stack trace capture; the code and message say what failed.
+     *
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace()
+    {
+        return this;
+    }
+}
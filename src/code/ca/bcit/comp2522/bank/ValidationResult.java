@@ -0,0 +1,112 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Holds the outcome of a {@code tryCreate} or other {@code try} factory method:
+ * either a value or the {@link ResultCode} describing why it was refused.
+ *
+ * <p>Failed results are cached per code and shared, so rejecting dirty input
+ * allocates nothing once each code has failed once.</p>
+ *
+ * @param <T> the type of the validated value
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+public final class ValidationResult<T>
+{
+    // --- One shared failed result per code, indexed by ordinal, for each code enum ---
+    private static final ClassValue<ValidationResult<?>[]> FAILURES = new ClassValue<>()
+    {
+        @Override
+        protected ValidationResult<?>[] computeValue(final Class<?> type)
+        {
+            final Object[] codes;
+            final ValidationResult<?>[] failures;
+
+            codes    = type.getEnumConstants();
+            failures = new ValidationResult<?>[codes.length];
+
+            for (int i = 0; i < codes.length; i++)
+            {
+                failures[i] = new ValidationResult<>(null, (ResultCode) codes[i]);
+            }
+            return failures;
+        }
+    };
+
+    private final T          value;
+    private final ResultCode code;
+
+    /**
+     * Constructs a {@code ValidationResult}.
+     *
+     * @param value the validated value, or {@code null} on failure
+     * @param code  the validation outcome
+     */
+    private ValidationResult(final T value,
+                             final ResultCode code)
+    {
+        this.value = value;
+        this.code  = code;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param value the validated value
+     * @param <T>   the type of the value
+     * @return a result holding {@code value}
+     */
+    static <T> ValidationResult<T> success(final T value)
+    {
+        return new ValidationResult<>(value, ValidationCode.OK);
+    }
+
+    /**
+     * Returns the shared failed result for the given code.
+     *
+     * @param code the failure code; must not be {@link ValidationCode#OK}
+     * @param <T>  the type of the value that could not be created
+     * @return the cached result for {@code code}
+     * @throws IllegalArgumentException if {@code code} is {@link ValidationCode#OK}, which
+     *                                  would make a successful result with no value
+     */
+    @SuppressWarnings("unchecked")
+    static <T> ValidationResult<T> failure(final ResultCode code)
+    {
+        if (code.isOk())
+        {
+            throw new IllegalArgumentException("A failed result needs a failure code");
+        }
+        return (ValidationResult<T>) FAILURES.get(code.getClass())[code.ordinal()];
+    }
+
+    /**
+     * Determines whether validation succeeded.
+     *
+     * @return {@code true} if a value is present, otherwise {@code false}
+     */
+    public boolean isOk()
+    {
+        return code.isOk();
+    }
+
+    /**
+     * Retrieves the validation outcome.
+     *
+     * @return the validation code
+     */
+    public ResultCode getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Retrieves the validated value.
+     *
+     * @return the value, or {@code null} if validation failed
+     */
+    public T getValue()
+    {
+        return value;
+    }
+}
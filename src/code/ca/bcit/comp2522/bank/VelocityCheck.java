@@ -0,0 +1,274 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link WithdrawalCheck} that limits how many withdrawals, and how much money,
+ * may leave an account within a sliding time window.
+ *
+ * <p>The window is divided into a ring of time buckets per account. Each bucket
+ * is two adjacent {@code long}s in one flat {@link AtomicLongArray}: the full
+ * number of the bucket period it was last written in, and a 32-bit withdrawal
+ * count packed with a 32-bit sum in cents. Keeping the whole period number
+ * means a bucket left untouched for any length of time is never mistaken for
+ * a current one. Recording a withdrawal writes one bucket and evaluating the
+ * window reads each bucket once, so the check takes no locks and allocates
+ * nothing once an account has been assigned its slot. Withdrawal checks run
+ * while the account is held, so one account's buckets are never written by
+ * two threads at once.</p>
+ *
+ * <p>Withdrawals over either limit are either refused or allowed and counted as
+ * flagged, depending on the configured {@link Action}. Bucket counts and sums
+ * saturate rather than overflow. Once {@code maxAccounts} accounts have slots,
+ * further accounts are not limited, and nothing is stored for them.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class VelocityCheck implements WithdrawalCheck
+{
+    /**
+     * What to do with a withdrawal that exceeds the velocity limits.
+     */
+    enum Action
+    {
+        REJECT,
+        FLAG
+    }
+
+    // --- Bucket layout: the period number, then the count and sum ---
+    private static final int  LONGS_PER_BUCKET = 2;
+    private static final int  VALUES_OFFSET    = 1;
+    private static final int  COUNT_SHIFT      = 32;
+    private static final long COUNT_MASK       = 0xFFFFFFFFL;
+    private static final long CENTS_MASK       = 0xFFFFFFFFL;
+    private static final int  MAX_BUCKETS      = 1 << 15;
+    private static final int  CENTS_PER_UNIT   = 100;
+
+    private final AtomicLongArray                    buckets;
+    private final ConcurrentHashMap<String, Integer> slots;
+    private final AtomicInteger                      nextSlot;
+    private final LongAdder                          flagged;
+    private final int                                maxAccounts;
+    private final int                                bucketsPerAccount;
+    private final long                               bucketNanos;
+    private final int                                maxCount;
+    private final long                               maxSumCents;
+    private final Action                             action;
+
+    /**
+     * Constructs a {@code VelocityCheck}.
+     *
+     * @param maxAccounts       the largest number of accounts tracked
+     * @param windowNanos       the length of the sliding window in nanoseconds
+     * @param bucketsPerAccount the number of buckets the window is divided into
+     * @param maxCount          the largest number of withdrawals allowed in the window
+     * @param maxSum            the largest total withdrawn in the window, in the account's currency
+     * @param action            what to do with withdrawals over the limits
+     */
+    VelocityCheck(final int maxAccounts,
+                  final long windowNanos,
+                  final int bucketsPerAccount,
+                  final int maxCount,
+                  final double maxSum,
+                  final Action action)
+    {
+        if (maxAccounts <= 0 || bucketsPerAccount <= 0 || bucketsPerAccount > MAX_BUCKETS)
+        {
+            throw new IllegalArgumentException("Account count and bucket count must be positive and bounded");
+        }
+
+        if (windowNanos < bucketsPerAccount)
+        {
+            throw new IllegalArgumentException("Window is too short for the number of buckets");
+        }
+
+        if (action == null)
+        {
+            throw new IllegalArgumentException("Action cannot be null");
+        }
+
+        this.buckets           = new AtomicLongArray(Math.multiplyExact(Math.multiplyExact(maxAccounts, bucketsPerAccount),
+                                                                     LONGS_PER_BUCKET));
+        this.slots             = new ConcurrentHashMap<>();
+        this.nextSlot          = new AtomicInteger();
+        this.flagged           = new LongAdder();
+        this.maxAccounts       = maxAccounts;
+        this.bucketsPerAccount = bucketsPerAccount;
+        this.bucketNanos       = windowNanos / bucketsPerAccount;
+        this.maxCount          = maxCount;
+        this.maxSumCents       = Math.round(maxSum * CENTS_PER_UNIT);
+        this.action            = action;
+    }
+
+    /**
+     * Records the withdrawal in the account's window unless it exceeds the limits
+     * and the action is {@link Action#REJECT}.
+     *
+     * @param account the account being withdrawn from
+     * @param amount  the amount about to be withdrawn in the account's currency
+     * @return {@code true} to allow the withdrawal, {@code false} to refuse it
+     */
+    @Override
+    public boolean allowWithdrawal(final BankAccount account,
+                                   final double amount)
+    {
+        final int  slot;
+        final long epoch;
+        final long cents;
+        final int  first;
+        final int  index;
+        long windowCount;
+        long windowCents;
+
+        slot = slotOf(account.getAccountNumber());
+
+        if (slot < 0)
+        {
+            // Accounts beyond the tracked capacity are not velocity-limited
+            return true;
+        }
+
+        // System.nanoTime() may be negative, so the period and its ring position are floored
+        epoch       = Math.floorDiv(System.nanoTime(), bucketNanos);
+        cents       = Math.round(amount * CENTS_PER_UNIT);
+        first       = slot * bucketsPerAccount * LONGS_PER_BUCKET;
+        index       = first + (int) Math.floorMod(epoch, (long) bucketsPerAccount) * LONGS_PER_BUCKET;
+        windowCount = 1;
+        windowCents = cents;
+
+        for (int i = first; i < first + bucketsPerAccount * LONGS_PER_BUCKET; i += LONGS_PER_BUCKET)
+        {
+            final long age;
+            age = epoch - buckets.get(i);
+
+            if (age >= 0 && age < bucketsPerAccount)
+            {
+                final long values;
+                values = buckets.get(i + VALUES_OFFSET);
+
+                windowCount += values >>> COUNT_SHIFT & COUNT_MASK;
+                windowCents += values & CENTS_MASK;
+            }
+        }
+
+        if (windowCount > maxCount || windowCents > maxSumCents)
+        {
+            if (action == Action.REJECT)
+            {
+                return false;
+            }
+            flagged.increment();
+        }
+
+        record(index, epoch, cents);
+        return true;
+    }
+
+    /**
+     * Retrieves the number of withdrawals allowed despite exceeding the limits
+     * because the action is {@link Action#FLAG}.
+     *
+     * @return the flagged withdrawal count
+     */
+    long getFlaggedCount()
+    {
+        return flagged.sum();
+    }
+
+    /**
+     * Adds one withdrawal to a bucket, resetting the bucket first if it belongs to
+     * an earlier period. Called while the account is held.
+     *
+     * @param index the index of the bucket's first {@code long}
+     * @param epoch the current bucket period
+     * @param cents the amount withdrawn in cents
+     */
+    private void record(final int index,
+                        final long epoch,
+                        final long cents)
+    {
+        final long values;
+        long count;
+        long sum;
+
+        if (buckets.get(index) == epoch)
+        {
+            values = buckets.get(index + VALUES_OFFSET);
+            count  = values >>> COUNT_SHIFT & COUNT_MASK;
+            sum    = values & CENTS_MASK;
+        }
+        else
+        {
+            count = 0;
+            sum   = 0;
+        }
+
+        count = Math.min(count + 1, COUNT_MASK);
+        sum   = Math.min(sum + cents, CENTS_MASK);
+
+        // Values first, so a reader that sees the new period never adds the old period's values
+        buckets.set(index + VALUES_OFFSET, count << COUNT_SHIFT | sum);
+        buckets.set(index, epoch);
+    }
+
+    /**
+     * Finds, or assigns, the slot tracking an account.
+     *
+     * @param accountNumber the account number
+     * @return the slot, or {@code -1} if all slots are taken
+     */
+    private int slotOf(final String accountNumber)
+    {
+        final Integer slot;
+        final Integer assigned;
+
+        slot = slots.get(accountNumber);
+
+        if (slot != null)
+        {
+            return slot;
+        }
+
+        // Once every slot is taken, accounts without one are not added to the map at all
+        if (nextSlot.get() >= maxAccounts)
+        {
+            return -1;
+        }
+
+        assigned = slots.computeIfAbsent(accountNumber, key -> assignSlot());
+
+        if (assigned == null)
+        {
+            return -1;
+        }
+        return assigned;
+    }
+
+    /**
+     * Takes the next free slot.
+     *
+     * @return the slot, or {@code null} if all slots are taken, which leaves the account unmapped
+     */
+    private Integer assignSlot()
+    {
+        while (true)
+        {
+            final int slot;
+            slot = nextSlot.get();
+
+            if (slot >= maxAccounts)
+            {
+                return null;
+            }
+
+            if (nextSlot.compareAndSet(slot, slot + 1))
+            {
+                return slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Currency;
+import java.util.TreeSet;
+
+/**
+ * Gives reports a consistent point-in-time view of many {@link BankAccount}s
+ * while deposits and withdrawals keep flowing.
+ *
+ * <p>The clock counts epochs. Every change to an account attached with
+ * {@link BankAccount#setVersionClock(VersionClock)} is stamped with the epoch
+ * in which it was made. Opening a {@link Snapshot} takes the current epoch as
+ * the snapshot's epoch and moves the clock on, so the snapshot sees exactly
+ * the changes stamped with its epoch or earlier. Writers never wait for
+ * snapshots. A snapshot read of an account waits only for a change that was
+ * already running on that account when the snapshot opened, and never for a
+ * change begun later.</p>
+ *
+ * <p>An account keeps its current balance and closing date in place. While
+ * any snapshot is open, the first change to an account in a new epoch first
+ * saves the old values as a {@link Version}. Each change also trims that
+ * account's versions that no open snapshot can still read. Cleanup is
+ * therefore incremental and paid by writers. Once every snapshot is closed,
+ * the next change to each account drops its versions entirely.</p>
+ *
+ * <p>Snapshots must be closed, ideally with try-with-resources, or versions
+ * written after them are kept.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class VersionClock
+{
+    private static final long FIRST_EPOCH = 1;
+    private static final long NO_SNAPSHOT = Long.MAX_VALUE;
+
+    private final TreeSet<Long> openEpochs;
+
+    private volatile long epoch;
+    private volatile long oldestOpen;
+
+    /**
+     * Constructs a {@code VersionClock} with no open snapshots.
+     */
+    VersionClock()
+    {
+        this.openEpochs = new TreeSet<>();
+        this.epoch      = FIRST_EPOCH;
+        this.oldestOpen = NO_SNAPSHOT;
+    }
+
+    /**
+     * Retrieves the epoch that changes made now are stamped with.
+     *
+     * @return the current epoch
+     */
+    long currentEpoch()
+    {
+        return epoch;
+    }
+
+    /**
+     * Opens a snapshot of every attached account as of now.
+     *
+     * @return the snapshot, which must be closed
+     */
+    synchronized Snapshot openSnapshot()
+    {
+        final long snapshotEpoch;
+        snapshotEpoch = epoch;
+
+        // Register before advancing, so any writer stamped with a later epoch sees this snapshot
+        openEpochs.add(snapshotEpoch);
+        oldestOpen = openEpochs.first();
+        epoch      = snapshotEpoch + 1;
+
+        return new Snapshot(snapshotEpoch);
+    }
+
+    /**
+     * Releases a snapshot's epoch.
+     *
+     * @param snapshotEpoch the epoch of the closed snapshot
+     */
+    private synchronized void release(final long snapshotEpoch)
+    {
+        openEpochs.remove(snapshotEpoch);
+
+        if (openEpochs.isEmpty())
+        {
+            oldestOpen = NO_SNAPSHOT;
+        }
+        else
+        {
+            oldestOpen = openEpochs.first();
+        }
+    }
+
+    /**
+     * Prepares an account's version chain for a change made in {@code changeEpoch}.
+     * Called only by the account's writer while it holds the account.
+     *
+     * @param chain       the account's versions, newest first, or {@code null}
+     * @param valueEpoch  the epoch of the account's current values
+     * @param balance     the current balance
+     * @param closed      the current closing date, or {@code null}
+     * @param changeEpoch the epoch the change will be stamped with
+     * @return the chain to keep, or {@code null} if no open snapshot needs one
+     */
+    Version retain(final Version chain,
+                   final long valueEpoch,
+                   final double balance,
+                   final Date closed,
+                   final long changeEpoch)
+    {
+        final long oldest;
+        Version head;
+        Version node;
+
+        oldest = oldestOpen;
+
+        if (oldest == NO_SNAPSHOT)
+        {
+            return null;
+        }
+
+        if (valueEpoch < changeEpoch)
+        {
+            head = new Version(valueEpoch, balance, closed, chain);
+        }
+        else
+        {
+            head = chain;
+        }
+
+        // Keep every version newer than the oldest snapshot and the one that snapshot reads
+        node = head;
+
+        while (node != null && node.epoch > oldest)
+        {
+            node = node.older;
+        }
+
+        if (node != null)
+        {
+            node.older = null;
+        }
+        return head;
+    }
+
+    /**
+     * The balance and closing date an account had at the end of an epoch.
+     */
+    static final class Version
+    {
+        private final long   epoch;
+        private final double balance;
+        private final Date   closed;
+        private Version      older;
+
+        /**
+         * Constructs a {@code Version}.
+         *
+         * @param epoch   the epoch these values were last changed in
+         * @param balance the balance
+         * @param closed  the closing date, or {@code null}
+         * @param older   the previous version, or {@code null}
+         */
+        private Version(final long epoch,
+                        final double balance,
+                        final Date closed,
+                        final Version older)
+        {
+            this.epoch   = epoch;
+            this.balance = balance;
+            this.closed  = closed;
+            this.older   = older;
+        }
+
+        /**
+         * Finds the version a snapshot reads in a chain.
+         *
+         * @param chain         the chain, newest first
+         * @param snapshotEpoch the snapshot's epoch
+         * @return the newest version stamped with {@code snapshotEpoch} or earlier
+         * @throws IllegalStateException if the chain no longer reaches that epoch
+         */
+        static Version at(final Version chain,
+                          final long snapshotEpoch)
+        {
+            Version node;
+            node = chain;
+
+            while (node != null && node.epoch > snapshotEpoch)
+            {
+                node = node.older;
+            }
+
+            if (node == null)
+            {
+                throw new IllegalStateException("Snapshot is closed");
+            }
+            return node;
+        }
+
+        /**
+         * Retrieves the balance.
+         *
+         * @return the balance in the account's currency
+         */
+        double getBalance()
+        {
+            return balance;
+        }
+
+        /**
+         * Retrieves the closing date.
+         *
+         * @return the closing date, or {@code null} if the account was not closed
+         */
+        Date getClosed()
+        {
+            return closed;
+        }
+    }
+
+    /**
+     * A consistent view of every account attached to the clock, as of the
+     * moment it was opened.
+     */
+    final class Snapshot implements AutoCloseable
+    {
+        private final long snapshotEpoch;
+
+        private volatile boolean closed;
+
+        /**
+         * Constructs a {@code Snapshot}.
+         *
+         * @param snapshotEpoch the last epoch this snapshot sees
+         */
+        private Snapshot(final long snapshotEpoch)
+        {
+            this.snapshotEpoch = snapshotEpoch;
+            this.closed        = false;
+        }
+
+        /**
+         * Retrieves the last epoch this snapshot sees.
+         *
+         * @return the snapshot epoch
+         */
+        long getEpoch()
+        {
+            return snapshotEpoch;
+        }
+
+        /**
+         * Retrieves an account's balance as of this snapshot.
+         *
+         * @param account an account attached to this snapshot's clock
+         * @return the balance in the account's currency
+         * @throws IllegalArgumentException if the account is not attached to this clock
+         * @throws IllegalStateException    if the snapshot is closed
+         */
+        double balanceOf(final BankAccount account)
+        {
+            checkReadable(account);
+            return account.getBalanceAt(snapshotEpoch);
+        }
+
+        /**
+         * Retrieves an account's details, as {@link BankAccount#getDetails()}
+         * formats them, as of this snapshot.
+         *
+         * @param account an account attached to this snapshot's clock
+         * @return the account details
+         * @throws IllegalArgumentException if the account is not attached to this clock
+         * @throws IllegalStateException    if the snapshot is closed
+         */
+        String detailsOf(final BankAccount account)
+        {
+            checkReadable(account);
+            return account.getDetailsAt(snapshotEpoch);
+        }
+
+        /**
+         * Sums the balances of many accounts as of this snapshot.
+         *
+         * <p>The balances are as of the snapshot, but the exchange rates are not
+         * versioned. Every account is converted at the rates {@code rates} holds
+         * when this method starts, so a rate file loaded part way through does
+         * not mix two sets of rates. To convert at the rates in force when the
+         * snapshot opened, pass a table fixed then with
+         * {@link FxRateTable#snapshot()}.</p>
+         *
+         * @param accounts the accounts, all attached to this snapshot's clock
+         * @param currency the currency to report the total in
+         * @param rates    the exchange rates for accounts held in other currencies
+         * @return the total in {@code currency}
+         * @throws IllegalArgumentException if an account is not attached to this clock or a rate is unknown
+         * @throws IllegalStateException    if the snapshot is closed
+         */
+        double totalBalance(final Iterable<BankAccount> accounts,
+                            final Currency currency,
+                            final FxRateTable rates)
+        {
+            final FxRateTable fixedRates;
+            double total;
+
+            fixedRates = rates.snapshot();
+            total      = 0;
+
+            for (final BankAccount account : accounts)
+            {
+                total += fixedRates.convert(balanceOf(account), account.getCurrency(), currency);
+            }
+            return total;
+        }
+
+        /**
+         * Closes this snapshot so that versions kept only for it can be dropped.
+         */
+        @Override
+        public void close()
+        {
+            if (!closed)
+            {
+                closed = true;
+                release(snapshotEpoch);
+            }
+        }
+
+        /**
+         * Confirms this snapshot may read an account.
+         *
+         * @param account the account to read
+         */
+        private void checkReadable(final BankAccount account)
+        {
+            if (closed)
+            {
+                throw new IllegalStateException("Snapshot is closed");
+            }
+
+            if (account.getVersionClock() != VersionClock.this)
+            {
+                throw new IllegalArgumentException("Account is not attached to this clock");
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A pluggable rule consulted by {@link BankAccount} just before a withdrawal is
+ * applied, after the amount, balance and account state have been validated.
+ *
+ * <p>Implementations run while the account is held, so the decision and the
+ * withdrawal are made together. They must therefore be fast, must not throw,
+ * and must not change or wait on the account they are given. That includes
+ * reading it through a {@link VersionClock.Snapshot}, which would wait for the
+ * hold the check runs under.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface WithdrawalCheck
+{
+    /**
+     * Decides whether a withdrawal may proceed.
+     *
+     * @param account the account being withdrawn from
+     * @param amount  the amount about to be withdrawn in the account's currency
+     * @return {@code true} to allow the withdrawal, {@code false} to refuse it with
+     *         {@link ValidationCode#VELOCITY_LIMIT_EXCEEDED}
+     */
+    boolean allowWithdrawal(BankAccount account,
+                            double amount);
+}
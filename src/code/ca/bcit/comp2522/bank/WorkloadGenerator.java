@@ -0,0 +1,216 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates a reproducible book of clients and accounts that looks like a
+ * real one, for load tests.
+ *
+ * <p>The records are shaped as follows:</p>
+ * <ul>
+ *     <li>Names are built from random syllables.</li>
+ *     <li>Clients are born between {@value #FIRST_BIRTH_YEAR} and
+ *     {@value #LAST_BIRTH_YEAR}.</li>
+ *     <li>Clients sign up on or after their eighteenth birthday.</li>
+ *     <li>A few clients have since died, and their accounts were closed on
+ *     the day they died.</li>
+ *     <li>Most clients hold one account and some hold two or three.</li>
+ *     <li>Balances are log-normal around {@value #MEDIAN_BALANCE} dollars, so a
+ *     few accounts hold most of the money.</li>
+ *     <li>Client IDs and account numbers come from {@link IdAllocator#encode(long)},
+ *     so they are unique but not in creation order.</li>
+ * </ul>
+ *
+ * <p>The same seed always produces the same book.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class WorkloadGenerator
+{
+    // --- Names ---
+    private static final String[] SYLLABLES       = {"an", "be", "ca", "do", "el", "fi", "ga", "ha", "is", "jo",
+                                                     "ka", "li", "ma", "ne", "or", "pa", "qu", "ro", "sa", "ti",
+                                                     "ul", "va", "wi", "xe", "ya", "zo", "mi", "ri", "lu", "te"};
+    private static final int      MIN_SYLLABLES   = 2;
+    private static final int      EXTRA_SYLLABLES = 2;
+
+    // --- Dates ---
+    private static final int FIRST_BIRTH_YEAR = 1940;
+    private static final int LAST_BIRTH_YEAR  = 2005;
+    private static final int ADULT_AGE        = 18;
+    private static final int DAYS_PER_YEAR    = 365;
+    private static final int TODAY            = Date.epochDay(Date.CURRENT_YEAR, Date.JANUARY, 1);
+
+    // --- Accounts ---
+    private static final double DECEASED_SHARE    = 0.02;
+    private static final double ONE_ACCOUNT_SHARE = 0.6;
+    private static final double TWO_ACCOUNT_SHARE = 0.9;
+    private static final double MEDIAN_BALANCE    = 2_000;
+    private static final double BALANCE_SPREAD    = 1.5;
+    private static final double CENTS             = 100;
+    private static final int    PIN_LIMIT         = 10_000;
+    private static final long   ACCOUNT_ID_BASE   = 1L << 32;
+
+    private final SplittableRandom random;
+    private int                    clientCount;
+
+    /**
+     * Constructs a {@code WorkloadGenerator}.
+     *
+     * @param seed the seed that fixes every record generated
+     */
+    WorkloadGenerator(final long seed)
+    {
+        this.random      = new SplittableRandom(seed);
+        this.clientCount = 0;
+    }
+
+    /**
+     * Generates accounts, and the clients that own them.
+     *
+     * @param count the number of accounts
+     * @return the accounts, with each client's accounts next to each other
+     */
+    BankAccount[] createAccounts(final int count)
+    {
+        final BankAccount[] accounts;
+        int created;
+
+        accounts = new BankAccount[count];
+        created  = 0;
+
+        while (created < count)
+        {
+            final BankClient client;
+            final int owned;
+            final Date closed;
+
+            client = createClient();
+            owned  = Math.min(count - created, accountsPerClient());
+            closed = client.getDeathDate();
+
+            for (int i = 0; i < owned; i++)
+            {
+                accounts[created] = new BankAccount(client,
+                                                    IdAllocator.encode(ACCOUNT_ID_BASE + created),
+                                                    randomDate(client.getSignupDate().toEpochDay(), closedOrToday(closed)),
+                                                    closed,
+                                                    randomBalance(),
+                                                    random.nextInt(PIN_LIMIT));
+                created++;
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Generates one client.
+     *
+     * @return the client
+     */
+    BankClient createClient()
+    {
+        final Name name;
+        final Date birthDate;
+        final Date signupDate;
+        final Date deathDate;
+        final int adultFrom;
+
+        name       = new Name(randomName(), randomName());
+        birthDate  = randomDate(Date.epochDay(FIRST_BIRTH_YEAR, Date.JANUARY, 1),
+                                Date.epochDay(LAST_BIRTH_YEAR, Date.DECEMBER, 31));
+        adultFrom  = birthDate.toEpochDay() + ADULT_AGE * DAYS_PER_YEAR;
+        signupDate = randomDate(adultFrom, TODAY);
+
+        if (random.nextDouble() < DECEASED_SHARE)
+        {
+            deathDate = randomDate(signupDate.toEpochDay(), TODAY);
+        }
+        else
+        {
+            deathDate = null;
+        }
+
+        return new BankClient(name, birthDate, deathDate, signupDate, IdAllocator.encode(clientCount++));
+    }
+
+    /**
+     * Chooses how many accounts a client holds.
+     *
+     * @return one, two or three
+     */
+    private int accountsPerClient()
+    {
+        final double draw;
+        draw = random.nextDouble();
+
+        if (draw < ONE_ACCOUNT_SHARE)
+        {
+            return 1;
+        }
+        else if (draw < TWO_ACCOUNT_SHARE)
+        {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Draws a log-normal balance rounded to the cent.
+     *
+     * @return the balance
+     */
+    private double randomBalance()
+    {
+        return Math.round(MEDIAN_BALANCE * Math.exp(BALANCE_SPREAD * random.nextGaussian()) * CENTS) / CENTS;
+    }
+
+    /**
+     * Draws a date between two day numbers, inclusive.
+     *
+     * @param first the earliest day number
+     * @param last  the latest day number
+     * @return the date
+     */
+    private Date randomDate(final int first,
+                            final int last)
+    {
+        return Date.ofEpochDay(first + random.nextInt(last - first + 1));
+    }
+
+    /**
+     * Chooses the latest day an account can have been opened.
+     *
+     * @param closed the day the account closed, or {@code null}
+     * @return the day number
+     */
+    private static int closedOrToday(final Date closed)
+    {
+        if (closed == null)
+        {
+            return TODAY;
+        }
+        return closed.toEpochDay();
+    }
+
+    /**
+     * Builds a name from random syllables.
+     *
+     * @return the name
+     */
+    private String randomName()
+    {
+        final StringBuilder builder;
+        final int syllables;
+
+        builder   = new StringBuilder();
+        syllables = MIN_SYLLABLES + random.nextInt(EXTRA_SYLLABLES + 1);
+
+        for (int i = 0; i < syllables; i++)
+        {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,558 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a mixed workload against a generated account book from many threads
+ * and reports throughput and latency percentiles.
+ *
+ * <p>Builds a book with {@link WorkloadGenerator} and picks the accounts each
+ * operation touches with a {@link ZipfianSampler}, so a few hot accounts
+ * take most of the traffic. The ranks are shuffled over the book, so hot
+ * accounts are not neighbours in memory. Each thread repeatedly runs one of
+ * these operations:</p>
+ * <ul>
+ *     <li>read: a balance lookup</li>
+ *     <li>deposit</li>
+ *     <li>withdrawal</li>
+ *     <li>transfer: a withdrawal, then a deposit to another account, refunded if
+ *     the deposit is refused; refunds that are themselves refused are counted
+ *     and reported</li>
+ * </ul>
+ *
+ * <p>Operations are chosen at random in the given mix. A warm-up period is run
+ * and discarded, then the measured period. Operations an account refuses, such
+ * as withdrawals beyond the balance or deposits to closed accounts, are counted
+ * as rejected and still timed. The operation, accounts and amount are drawn
+ * before the clock starts, so each latency covers only the operation and one
+ * {@link System#nanoTime()} call.</p>
+ *
+ * <p>Arguments, all optional and in order:</p>
+ * <ol>
+ *     <li>the number of accounts, default {@value #DEFAULT_ACCOUNTS}</li>
+ *     <li>the number of threads, default {@value #DEFAULT_THREADS}</li>
+ *     <li>the measured seconds, default {@value #DEFAULT_SECONDS}</li>
+ *     <li>the Zipfian skew, default {@value #DEFAULT_SKEW}</li>
+ *     <li>the read, deposit, withdrawal and transfer percentages as
+ *     {@code read,deposit,withdraw,transfer}, default {@value #DEFAULT_MIX}</li>
+ * </ol>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class WorkloadHarness
+{
+    // --- Defaults ---
+    private static final int    DEFAULT_ACCOUNTS = 1_000_000;
+    private static final int    DEFAULT_THREADS  = 8;
+    private static final int    DEFAULT_SECONDS  = 10;
+    private static final double DEFAULT_SKEW     = 0.99;
+    private static final String DEFAULT_MIX      = "70,10,10,10";
+
+    // --- Operations ---
+    private static final String[] OPERATIONS = {"read", "deposit", "withdraw", "transfer"};
+    private static final int      READ       = 0;
+    private static final int      DEPOSIT    = 1;
+    private static final int      WITHDRAW   = 2;
+    private static final int      TRANSFER   = 3;
+    private static final int      PERCENT    = 100;
+    private static final int      MAX_CENTS  = 50_000;
+    private static final double   CENTS      = 100;
+
+    // --- Run ---
+    private static final int      WARM_UP_SECONDS = 3;
+    private static final int      HOT_RANKS       = 100;
+    private static final long     SEED            = 2522;
+    private static final double[] PERCENTILES     = {50, 90, 99, 99.9};
+    private static final double   NANOS_PER_MICRO = 1e3;
+    private static final double   NANOS_PER_SEC   = 1e9;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private WorkloadHarness()
+    {
+    }
+
+    /**
+     * Runs the workload.
+     *
+     * @param args optional account count, thread count, seconds, skew and mix
+     */
+    public static void main(final String[] args)
+    {
+        final int accountCount;
+        final int threads;
+        final int seconds;
+        final double skew;
+        final String mix;
+        final int[] thresholds;
+        final BankAccount[] accounts;
+        final int[] accountOfRank;
+        final ZipfianSampler sampler;
+        final SplittableRandom random;
+        final Result result;
+        final long start;
+        final long generateNanos;
+
+        accountCount = intArgument(args, 0, DEFAULT_ACCOUNTS);
+        threads      = intArgument(args, 1, DEFAULT_THREADS);
+        seconds      = intArgument(args, 2, DEFAULT_SECONDS);
+        random       = new SplittableRandom(SEED);
+
+        if (args.length > 3)
+        {
+            skew = Double.parseDouble(args[3]);
+        }
+        else
+        {
+            skew = DEFAULT_SKEW;
+        }
+
+        if (args.length > 4)
+        {
+            mix = args[4];
+        }
+        else
+        {
+            mix = DEFAULT_MIX;
+        }
+
+        thresholds    = parseMix(mix);
+        start         = System.nanoTime();
+        accounts      = new WorkloadGenerator(SEED).createAccounts(accountCount);
+        generateNanos = System.nanoTime() - start;
+        accountOfRank = shuffledIndexes(accountCount, random);
+        sampler       = new ZipfianSampler(accountCount, skew);
+
+        System.out.printf("Generated %,d accounts in %.1f s%n", accountCount, generateNanos / NANOS_PER_SEC);
+        System.out.printf("Hottest %d accounts get %.1f%% of picks%n", HOT_RANKS, sampler.getShareOfTop(HOT_RANKS) * PERCENT);
+
+        run(accounts, accountOfRank, sampler, thresholds, threads, WARM_UP_SECONDS, random);
+
+        result = run(accounts, accountOfRank, sampler, thresholds, threads, seconds, random);
+
+        System.out.printf("Threads: %d, %d s, mix %s%n", threads, seconds, mix);
+        System.out.printf("%-9s %12s %10s %9s %9s %9s %9s %9s %10s%n",
+                          "op", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "rejected");
+
+        for (int operation = 0; operation < OPERATIONS.length; operation++)
+        {
+            print(OPERATIONS[operation], result.histograms[operation], result.rejected[operation], seconds);
+        }
+        print("all", result.total(), result.totalRejected(), seconds);
+
+        System.out.printf("Transfers not refunded: %,d%n", result.unrefunded);
+    }
+
+    /**
+     * Runs the workload on every thread for a fixed time.
+     *
+     * @param accounts      the book
+     * @param accountOfRank the account index for each Zipfian rank
+     * @param sampler       the rank sampler
+     * @param thresholds    the cumulative operation percentages
+     * @param threads       the number of threads
+     * @param seconds       how long to run
+     * @param random        the source of each thread's random generator
+     * @return the combined results
+     */
+    private static Result run(final BankAccount[] accounts,
+                              final int[] accountOfRank,
+                              final ZipfianSampler sampler,
+                              final int[] thresholds,
+                              final int threads,
+                              final int seconds,
+                              final SplittableRandom random)
+    {
+        final ExecutorService executor;
+        final List<Future<Result>> futures;
+        final long deadline;
+        final Result combined;
+
+        executor = Executors.newFixedThreadPool(threads);
+        futures  = new ArrayList<>(threads);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        combined = new Result();
+
+        try
+        {
+            for (int i = 0; i < threads; i++)
+            {
+                futures.add(executor.submit(new Worker(accounts, accountOfRank, sampler, thresholds,
+                                                       random.split(), deadline)));
+            }
+
+            for (final Future<Result> future : futures)
+            {
+                combined.add(future.get());
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Workload interrupted", e);
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IllegalStateException("Workload failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return combined;
+    }
+
+    /**
+     * Prints one row of the report.
+     *
+     * @param label     the operation name
+     * @param histogram the operation's latencies
+     * @param rejected  the number of operations rejected
+     * @param seconds   the measured seconds
+     */
+    private static void print(final String label,
+                              final LatencyHistogram histogram,
+                              final long rejected,
+                              final int seconds)
+    {
+        System.out.printf("%-9s %,12d %,10.0f", label, histogram.getCount(), (double) histogram.getCount() / seconds);
+
+        for (final double percentile : PERCENTILES)
+        {
+            System.out.printf(" %9.2f", histogram.getPercentile(percentile) / NANOS_PER_MICRO);
+        }
+        System.out.printf(" %9.2f %,10d%n", histogram.getMax() / NANOS_PER_MICRO, rejected);
+    }
+
+    /**
+     * Parses the operation mix into cumulative percentages.
+     *
+     * @param mix four comma-separated percentages adding up to 100
+     * @return the running totals, one per operation
+     * @throws IllegalArgumentException if the mix is malformed
+     */
+    private static int[] parseMix(final String mix)
+    {
+        final String[] parts;
+        final int[] thresholds;
+        int total;
+
+        parts      = mix.split(",");
+        thresholds = new int[OPERATIONS.length];
+        total      = 0;
+
+        if (parts.length != OPERATIONS.length)
+        {
+            throw new IllegalArgumentException("Mix must have " + OPERATIONS.length + " percentages");
+        }
+
+        for (int i = 0; i < parts.length; i++)
+        {
+            final int share;
+            share = Integer.parseInt(parts[i].trim());
+
+            if (share < 0)
+            {
+                throw new IllegalArgumentException("Mix percentages cannot be negative");
+            }
+
+            total        += share;
+            thresholds[i] = total;
+        }
+
+        if (total != PERCENT)
+        {
+            throw new IllegalArgumentException("Mix percentages must add up to 100");
+        }
+        return thresholds;
+    }
+
+    /**
+     * Reads an optional integer argument.
+     *
+     * @param args         the arguments
+     * @param index        the argument's position
+     * @param defaultValue the value if the argument is missing
+     * @return the value
+     */
+    private static int intArgument(final String[] args,
+                                   final int index,
+                                   final int defaultValue)
+    {
+        if (args.length > index)
+        {
+            return Integer.parseInt(args[index]);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Shuffles the indexes of a book.
+     *
+     * @param count  the number of indexes
+     * @param random the random source
+     * @return every index from 0 to {@code count - 1} in random order
+     */
+    private static int[] shuffledIndexes(final int count,
+                                         final SplittableRandom random)
+    {
+        final int[] indexes;
+        indexes = new int[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            indexes[i] = i;
+        }
+
+        for (int i = count - 1; i > 0; i--)
+        {
+            final int other;
+            final int swapped;
+
+            other          = random.nextInt(i + 1);
+            swapped        = indexes[i];
+            indexes[i]     = indexes[other];
+            indexes[other] = swapped;
+        }
+        return indexes;
+    }
+
+    /**
+     * One thread's share of the workload.
+     */
+    private static final class Worker implements Callable<Result>
+    {
+        private final BankAccount[]    accounts;
+        private final int[]            accountOfRank;
+        private final ZipfianSampler   sampler;
+        private final int[]            thresholds;
+        private final SplittableRandom random;
+        private final long             deadline;
+
+        /**
+         * Constructs a {@code Worker}.
+         *
+         * @param accounts      the book
+         * @param accountOfRank the account index for each Zipfian rank
+         * @param sampler       the rank sampler
+         * @param thresholds    the cumulative operation percentages
+         * @param random        this thread's random generator
+         * @param deadline      the {@link System#nanoTime()} at which to stop
+         */
+        private Worker(final BankAccount[] accounts,
+                       final int[] accountOfRank,
+                       final ZipfianSampler sampler,
+                       final int[] thresholds,
+                       final SplittableRandom random,
+                       final long deadline)
+        {
+            this.accounts      = accounts;
+            this.accountOfRank = accountOfRank;
+            this.sampler       = sampler;
+            this.thresholds    = thresholds;
+            this.random        = random;
+            this.deadline      = deadline;
+        }
+
+        /**
+         * Runs operations until the deadline.
+         *
+         * @return this thread's results
+         */
+        @Override
+        public Result call()
+        {
+            final Result result;
+            long end;
+
+            result = new Result();
+            end    = System.nanoTime();
+
+            while (end < deadline)
+            {
+                final int operation;
+                final BankAccount account;
+                final BankAccount target;
+                final double amount;
+                final boolean accepted;
+                final long start;
+
+                operation = operationOf(random.nextInt(PERCENT));
+                account   = pick();
+                amount    = (1 + random.nextInt(MAX_CENTS)) / CENTS;
+
+                if (operation == TRANSFER)
+                {
+                    target = pick();
+                }
+                else
+                {
+                    target = null;
+                }
+
+                start = System.nanoTime();
+
+                // Comparing the balance keeps the read from being optimized away
+                switch (operation)
+                {
+                    case READ     -> accepted = account.getBalance() >= 0;
+                    case DEPOSIT  -> accepted = account.tryDeposit(amount).isOk();
+                    case WITHDRAW -> accepted = account.tryWithdraw(amount).isOk();
+                    default       -> accepted = transfer(account, target, amount, result);
+                }
+
+                end = System.nanoTime();
+
+                result.histograms[operation].record(end - start);
+
+                if (!accepted)
+                {
+                    result.rejected[operation]++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Picks an account by Zipfian rank.
+         *
+         * @return the account
+         */
+        private BankAccount pick()
+        {
+            return accounts[accountOfRank[sampler.next(random)]];
+        }
+
+        /**
+         * Chooses an operation from a percentage draw.
+         *
+         * @param draw a number from 0 to 99
+         * @return the operation
+         */
+        private int operationOf(final int draw)
+        {
+            int operation;
+            operation = 0;
+
+            while (draw >= thresholds[operation])
+            {
+                operation++;
+            }
+            return operation;
+        }
+
+        /**
+         * Moves money between two accounts, returning it to the source if the target refuses it.
+         *
+         * @param source the account to withdraw from
+         * @param target the account to deposit to
+         * @param amount the amount
+         * @param result this thread's results, which count refunds the source refuses
+         * @return {@code true} if the money moved, otherwise {@code false}
+         */
+        private static boolean transfer(final BankAccount source,
+                                        final BankAccount target,
+                                        final double amount,
+                                        final Result result)
+        {
+            if (source == target || !source.tryWithdraw(amount).isOk())
+            {
+                return false;
+            }
+
+            if (!target.tryDeposit(amount).isOk())
+            {
+                if (!source.tryDeposit(amount).isOk())
+                {
+                    result.unrefunded++;
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Latencies and rejection counts per operation.
+     */
+    private static final class Result
+    {
+        private final LatencyHistogram[] histograms;
+        private final long[]             rejected;
+        private long                     unrefunded;
+
+        /**
+         * Constructs an empty {@code Result}.
+         */
+        private Result()
+        {
+            this.histograms = new LatencyHistogram[OPERATIONS.length];
+            this.rejected   = new long[OPERATIONS.length];
+            this.unrefunded = 0;
+
+            for (int i = 0; i < OPERATIONS.length; i++)
+            {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Adds another thread's results to these.
+         *
+         * @param other the other results
+         */
+        private void add(final Result other)
+        {
+            for (int i = 0; i < OPERATIONS.length; i++)
+            {
+                histograms[i].add(other.histograms[i]);
+                rejected[i] += other.rejected[i];
+            }
+            unrefunded += other.unrefunded;
+        }
+
+        /**
+         * Combines the latencies of every operation.
+         *
+         * @return a new histogram
+         */
+        private LatencyHistogram total()
+        {
+            final LatencyHistogram total;
+            total = new LatencyHistogram();
+
+            for (final LatencyHistogram histogram : histograms)
+            {
+                total.add(histogram);
+            }
+            return total;
+        }
+
+        /**
+         * Sums the rejections of every operation.
+         *
+         * @return the number of operations rejected
+         */
+        private long totalRejected()
+        {
+            long total;
+            total = 0;
+
+            for (final long count : rejected)
+            {
+                total += count;
+            }
+            return total;
+        }
+    }
+}
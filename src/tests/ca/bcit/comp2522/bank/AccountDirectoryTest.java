@@ -0,0 +1,234 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests that paging through an {@link AccountDirectory} lists every account
+ * exactly once and in order, even while accounts are added and removed.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountDirectoryTest
+{
+    private static final int  ACCOUNTS  = 10_000;
+    private static final int  PAGE_SIZE = 37;
+    private static final int  CHURN     = 2;
+    private static final long SEED      = 2522;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AccountDirectoryTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        walkListsEveryAccountOnce();
+        walkUnderChurnListsStableAccountsOnce();
+        clientPagesListOnlyThatClient();
+        invalidRequestsAreRefused();
+    }
+
+    /**
+     * A full walk lists every account once, in account number order.
+     */
+    private static void walkListsEveryAccountOnce()
+    {
+        final BankAccount[] accounts;
+        final AccountDirectory directory;
+        final Map<String, Integer> seen;
+
+        accounts  = new WorkloadGenerator(SEED).createAccounts(ACCOUNTS);
+        directory = new AccountDirectory();
+
+        for (final BankAccount account : accounts)
+        {
+            TestSupport.check(directory.add(account) == null, "account " + account.getAccountNumber() + " added");
+        }
+
+        TestSupport.check(directory.add(accounts[0]) == accounts[0], "duplicate add returns the listed account");
+
+        seen = walk(directory, null);
+
+        TestSupport.checkEquals(ACCOUNTS, seen.size(), "accounts listed");
+
+        for (final BankAccount account : accounts)
+        {
+            TestSupport.checkEquals(1, seen.get(account.getAccountNumber()), "listings of " + account.getAccountNumber());
+        }
+        TestSupport.passed("walk lists every account once");
+    }
+
+    /**
+     * Accounts present for the whole walk are listed once each, while others
+     * are added and removed between pages.
+     */
+    private static void walkUnderChurnListsStableAccountsOnce()
+    {
+        final BankAccount[] accounts;
+        final AccountDirectory directory;
+        final Map<String, Integer> seen;
+        final int stable;
+
+        accounts  = new WorkloadGenerator(SEED).createAccounts(ACCOUNTS);
+        directory = new AccountDirectory();
+        stable    = ACCOUNTS / CHURN;
+
+        // The first half stays listed; the second half is added and removed during the walk
+        for (int i = 0; i < stable; i++)
+        {
+            directory.add(accounts[i]);
+        }
+
+        seen = walk(directory, new Runnable()
+        {
+            private int next = stable;
+
+            @Override
+            public void run()
+            {
+                if (next < ACCOUNTS)
+                {
+                    directory.add(accounts[next]);
+
+                    // Every other added account is removed again one page later
+                    if ((next - stable) % CHURN == 1)
+                    {
+                        TestSupport.check(directory.remove(accounts[next - 1]), "churned account removed");
+                    }
+                    next++;
+                }
+            }
+        });
+
+        for (int i = 0; i < stable; i++)
+        {
+            TestSupport.checkEquals(1, seen.get(accounts[i].getAccountNumber()),
+                                    "listings of stable account " + accounts[i].getAccountNumber());
+        }
+
+        for (final Integer count : seen.values())
+        {
+            TestSupport.checkEquals(1, count, "listings of any account");
+        }
+        TestSupport.passed("walk under churn lists stable accounts once");
+    }
+
+    /**
+     * A client's pages list that client's accounts and no others.
+     */
+    private static void clientPagesListOnlyThatClient()
+    {
+        final BankAccount[] accounts;
+        final AccountDirectory directory;
+        final BankClient client;
+        int expected;
+        int listed;
+        String cursor;
+
+        accounts  = new WorkloadGenerator(SEED).createAccounts(ACCOUNTS);
+        directory = new AccountDirectory();
+        client    = accounts[ACCOUNTS / 2].getClient();
+        expected  = 0;
+        listed    = 0;
+        cursor    = null;
+
+        for (final BankAccount account : accounts)
+        {
+            directory.add(account);
+
+            if (account.getClient() == client)
+            {
+                expected++;
+            }
+        }
+
+        do
+        {
+            final AccountPage page;
+            page = directory.list(client, cursor, 1);
+
+            for (final BankAccount account : page.getAccounts())
+            {
+                TestSupport.check(account.getClient() == client, "account " + account.getAccountNumber() + " belongs to the client");
+                listed++;
+            }
+            cursor = page.getNextCursor();
+        }
+        while (cursor != null);
+
+        TestSupport.checkEquals(expected, listed, "client accounts listed");
+        TestSupport.passed("client pages list only that client");
+    }
+
+    /**
+     * Bad page sizes, bad cursors and a missing client are refused with their codes.
+     */
+    private static void invalidRequestsAreRefused()
+    {
+        final AccountDirectory directory;
+        directory = new AccountDirectory();
+
+        TestSupport.checkEquals(ListingCode.PAGE_SIZE_INVALID, directory.tryList(null, 0).getCode(), "page size 0");
+        TestSupport.checkEquals(ListingCode.PAGE_SIZE_INVALID,
+                                directory.tryList(null, AccountDirectory.MAX_PAGE_SIZE + 1).getCode(),
+                                "page size above the maximum");
+        TestSupport.checkEquals(ListingCode.CURSOR_INVALID, directory.tryList("***", 1).getCode(), "malformed cursor");
+        TestSupport.checkEquals(ListingCode.CURSOR_INVALID, directory.tryList("", 1).getCode(), "empty cursor");
+        TestSupport.checkEquals(ValidationCode.CLIENT_NULL, directory.tryList(null, null, 1).getCode(), "missing client");
+        TestSupport.check(directory.list(null, 1).getAccounts().isEmpty(), "empty directory lists nothing");
+        TestSupport.passed("invalid requests are refused");
+    }
+
+    /**
+     * Walks every page of the directory, checking that account numbers rise.
+     *
+     * @param directory   the directory
+     * @param betweenPage run after each page, or {@code null}
+     * @return how many times each account number was listed
+     */
+    private static Map<String, Integer> walk(final AccountDirectory directory,
+                                             final Runnable betweenPage)
+    {
+        final Map<String, Integer> seen;
+        String previous;
+        String cursor;
+
+        seen     = new HashMap<>();
+        previous = "";
+        cursor   = null;
+
+        do
+        {
+            final AccountPage page;
+            page = directory.list(cursor, PAGE_SIZE);
+
+            for (final BankAccount account : page.getAccounts())
+            {
+                TestSupport.check(account.getAccountNumber().compareTo(previous) > 0,
+                                  "account " + account.getAccountNumber() + " listed after " + previous);
+
+                previous = account.getAccountNumber();
+                seen.merge(previous, 1, Integer::sum);
+            }
+
+            cursor = page.getNextCursor();
+
+            if (betweenPage != null)
+            {
+                betweenPage.run();
+            }
+        }
+        while (cursor != null);
+
+        return seen;
+    }
+}
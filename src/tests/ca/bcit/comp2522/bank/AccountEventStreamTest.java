@@ -0,0 +1,282 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that {@link AccountEventStream} delivers every change in the order each
+ * account made it, with the state and balance recorded at the time, in batches
+ * no larger than its limit, and that it wakes from idle for a late change.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountEventStreamTest
+{
+    private static final int  BATCH_SIZE   = 16;
+    private static final int  BUFFER       = 1_024;
+    private static final int  MAX_PENDING  = 1_000_000;
+    private static final int  THREADS      = 4;
+    private static final int  DEPOSITS     = 5_000;
+    private static final long TIMEOUT_SEC  = 30;
+    private static final long IDLE_MILLIS  = 50;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AccountEventStreamTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if a test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        eventsCarryTheRecordedStateAndBalance();
+        concurrentChangesArriveInAccountOrder();
+        idleDispatcherWakesForALateChange();
+    }
+
+    /**
+     * Each event reports the lifecycle state and balance as they were when the
+     * change was made, including a deposit made while the account was frozen.
+     *
+     * @throws InterruptedException if interrupted while waiting for delivery
+     */
+    private static void eventsCarryTheRecordedStateAndBalance() throws InterruptedException
+    {
+        final Collector collector;
+        final BankAccount account;
+        final List<AccountEvent> events;
+
+        collector = new Collector();
+        account   = TestSupport.openAccount("100001", 100);
+
+        try (AccountEventStream stream = new AccountEventStream(BATCH_SIZE, BUFFER, MAX_PENDING))
+        {
+            stream.subscribe(collector);
+            account.setListener(stream);
+
+            account.deposit(50);
+            account.freeze();
+            account.deposit(25);
+            account.unfreeze();
+            account.withdraw(75);
+            account.close(Date.of(2025, Date.JANUARY, 1));
+            account.setListener(null);
+            account.reopen();
+        }
+
+        events = collector.await();
+
+        TestSupport.checkEquals(6, events.size(), "events");
+        checkEvent(events.get(0), AccountEventType.DEPOSIT, AccountState.OPEN, 50, 150);
+        checkEvent(events.get(1), AccountEventType.FROZEN, AccountState.FROZEN, 0, 150);
+        checkEvent(events.get(2), AccountEventType.DEPOSIT, AccountState.FROZEN, 25, 175);
+        checkEvent(events.get(3), AccountEventType.UNFROZEN, AccountState.OPEN, 0, 175);
+        checkEvent(events.get(4), AccountEventType.WITHDRAWAL, AccountState.OPEN, 75, 100);
+        checkEvent(events.get(5), AccountEventType.CLOSED, AccountState.CLOSED, 0, 100);
+        TestSupport.passed("events carry the recorded state and balance");
+    }
+
+    /**
+     * Threads depositing into shared accounts lose no events, each account's
+     * balances arrive in increasing order, and no batch is over the limit.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void concurrentChangesArriveInAccountOrder() throws Exception
+    {
+        final Collector collector;
+        final BankAccount[] accounts;
+        final ExecutorService executor;
+        final List<Future<?>> futures;
+        final Map<String, Double> lastBalance;
+        final List<AccountEvent> events;
+
+        collector   = new Collector();
+        accounts    = BenchmarkAccounts.create(THREADS, 0);
+        executor    = Executors.newFixedThreadPool(THREADS);
+        futures     = new ArrayList<>();
+        lastBalance = new HashMap<>();
+
+        try (AccountEventStream stream = new AccountEventStream(BATCH_SIZE, BUFFER, MAX_PENDING))
+        {
+            stream.subscribe(collector);
+
+            for (final BankAccount account : accounts)
+            {
+                account.setListener(stream);
+            }
+
+            for (int t = 0; t < THREADS; t++)
+            {
+                futures.add(executor.submit(() ->
+                                            {
+                                                for (int i = 0; i < DEPOSITS; i++)
+                                                {
+                                                    accounts[i % THREADS].deposit(1);
+                                                }
+                                            }));
+            }
+
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+            TestSupport.checkEquals(0L, stream.getDroppedEvents(), "dropped events");
+            TestSupport.checkEquals(0L, stream.getDroppedBatches(), "dropped batches");
+        }
+
+        events = collector.await();
+
+        TestSupport.checkEquals(THREADS * DEPOSITS, events.size(), "events");
+        TestSupport.check(collector.largestBatch <= BATCH_SIZE, "largest batch " + collector.largestBatch);
+
+        for (final AccountEvent event : events)
+        {
+            final Double previous;
+            previous = lastBalance.put(event.getAccountNumber(), event.getBalanceAfter());
+
+            TestSupport.check(previous == null || previous < event.getBalanceAfter(),
+                              "balances of " + event.getAccountNumber() + " in order");
+        }
+
+        for (final BankAccount account : accounts)
+        {
+            TestSupport.checkEquals(account.getBalance(), lastBalance.get(account.getAccountNumber()), "last balance");
+        }
+        TestSupport.passed("concurrent changes arrive in account order");
+    }
+
+    /**
+     * A change made after the dispatcher has gone idle is delivered without
+     * waiting for the stream to close.
+     *
+     * @throws InterruptedException if interrupted while waiting for delivery
+     */
+    private static void idleDispatcherWakesForALateChange() throws InterruptedException
+    {
+        final Collector collector;
+        final BankAccount account;
+
+        collector = new Collector();
+        account   = TestSupport.openAccount("100001", 100);
+
+        try (AccountEventStream stream = new AccountEventStream(BATCH_SIZE, BUFFER, MAX_PENDING))
+        {
+            stream.subscribe(collector);
+            account.setListener(stream);
+
+            Thread.sleep(IDLE_MILLIS);
+            account.deposit(1);
+
+            TestSupport.check(collector.firstEvent.await(TIMEOUT_SEC, TimeUnit.SECONDS), "late change delivered while open");
+        }
+        TestSupport.passed("idle dispatcher wakes for a late change");
+    }
+
+    /**
+     * Fails the running test unless an event has the expected contents.
+     *
+     * @param event        the event
+     * @param type         the expected kind of change
+     * @param stateAfter   the expected state after the change
+     * @param amount       the expected amount
+     * @param balanceAfter the expected balance after the change
+     */
+    private static void checkEvent(final AccountEvent event,
+                                   final AccountEventType type,
+                                   final AccountState stateAfter,
+                                   final double amount,
+                                   final double balanceAfter)
+    {
+        TestSupport.checkEquals(type, event.getType(), "type");
+        TestSupport.checkEquals(stateAfter, event.getStateAfter(), "state after " + type);
+        TestSupport.checkEquals(amount, event.getAmount(), "amount of " + type);
+        TestSupport.checkEquals(balanceAfter, event.getBalanceAfter(), "balance after " + type);
+    }
+
+    /**
+     * A subscriber that keeps every event it receives.
+     */
+    private static final class Collector implements Flow.Subscriber<List<AccountEvent>>
+    {
+        private final List<AccountEvent> events;
+        private final CountDownLatch     completed;
+        private final CountDownLatch     firstEvent;
+        private int                      largestBatch;
+
+        /**
+         * Constructs a {@code Collector}.
+         */
+        private Collector()
+        {
+            this.events     = new ArrayList<>();
+            this.completed  = new CountDownLatch(1);
+            this.firstEvent = new CountDownLatch(1);
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(final List<AccountEvent> batch)
+        {
+            synchronized (events)
+            {
+                events.addAll(batch);
+                largestBatch = Math.max(largestBatch, batch.size());
+            }
+            firstEvent.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            throwable.printStackTrace();
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed.countDown();
+        }
+
+        /**
+         * Waits for the stream to complete.
+         *
+         * @return every event received, in delivery order
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private List<AccountEvent> await() throws InterruptedException
+        {
+            TestSupport.check(completed.await(TIMEOUT_SEC, TimeUnit.SECONDS), "stream completed");
+
+            synchronized (events)
+            {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests that {@link BankAccount} moves between open, frozen and closed only
+ * along the allowed paths, that no transaction lands after a close, and that
+ * a listener that throws cannot fail a change that was already applied.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountLifecycleTest
+{
+    private static final int  THREADS     = 4;
+    private static final int  DEPOSITS    = 20_000;
+    private static final int  CLOSE_AFTER = 5_000;
+    private static final long TIMEOUT_SEC = 30;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AccountLifecycleTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if the concurrent test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        statesChangeOnlyAlongAllowedPaths();
+        transactionsFollowTheState();
+        nothingLandsAfterAClose();
+        throwingListenersDoNotFailTheChange();
+    }
+
+    /**
+     * Each state change succeeds only from the states it starts from, and
+     * reports why it was refused otherwise.
+     */
+    private static void statesChangeOnlyAlongAllowedPaths()
+    {
+        final BankAccount account;
+        account = TestSupport.openAccount("100001", 100);
+
+        TestSupport.checkEquals(AccountState.OPEN, account.getState(), "new account");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_NOT_FROZEN, account.tryUnfreeze(), "unfreeze an open account");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_NOT_CLOSED, account.tryReopen(), "reopen an open account");
+        TestSupport.checkEquals(ValidationCode.OK, account.tryFreeze(), "freeze");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_NOT_OPEN, account.tryFreeze(), "freeze twice");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_CLOSED_NULL, account.tryClose(null), "close without a date");
+        TestSupport.checkEquals(ValidationCode.OK, account.tryClose(Date.of(2025, Date.JANUARY, 1)), "close a frozen account");
+        TestSupport.checkEquals(AccountState.CLOSED, account.getState(), "closed");
+        TestSupport.checkEquals(Date.of(2025, Date.JANUARY, 1), account.getAccountClosed(), "closing date");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_ALREADY_CLOSED,
+                                account.tryClose(Date.of(2025, Date.DECEMBER, 1)), "close twice");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_NOT_OPEN, account.tryFreeze(), "freeze a closed account");
+        TestSupport.checkEquals(ValidationCode.OK, account.tryReopen(), "reopen");
+        TestSupport.checkEquals(AccountState.OPEN, account.getState(), "reopened");
+        TestSupport.check(account.getAccountClosed() == null, "closing date cleared");
+        TestSupport.checkThrows(ValidationException.class, account::unfreeze, "throwing unfreeze");
+        TestSupport.passed("states change only along allowed paths");
+    }
+
+    /**
+     * Frozen accounts take deposits but not withdrawals, and closed accounts take neither.
+     */
+    private static void transactionsFollowTheState()
+    {
+        final BankAccount account;
+        account = TestSupport.openAccount("100001", 100);
+
+        account.freeze();
+        TestSupport.checkEquals(ValidationCode.OK, account.tryDeposit(10), "deposit while frozen");
+        TestSupport.checkEquals(ValidationCode.WITHDRAW_FROM_FROZEN, account.tryWithdraw(10), "withdraw while frozen");
+
+        account.close(Date.of(2025, Date.JANUARY, 1));
+        TestSupport.checkEquals(ValidationCode.DEPOSIT_TO_CLOSED, account.tryDeposit(10), "deposit after close");
+        TestSupport.checkEquals(ValidationCode.WITHDRAW_FROM_CLOSED, account.tryWithdraw(10), "withdraw after close");
+        TestSupport.checkEquals(110.0, account.getBalance(), "balance");
+        TestSupport.passed("transactions follow the state");
+    }
+
+    /**
+     * Threads deposit while the account is closed under them. The balance
+     * reported with the close is the final balance, and it counts exactly the
+     * deposits that were accepted.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void nothingLandsAfterAClose() throws Exception
+    {
+        final BankAccount account;
+        final AtomicInteger accepted;
+        final AtomicReference<Double> closedBalance;
+        final CountDownLatch started;
+        final ExecutorService executor;
+        final List<Future<?>> futures;
+
+        account       = TestSupport.openAccount("100001", 0);
+        accepted      = new AtomicInteger();
+        closedBalance = new AtomicReference<>();
+        started       = new CountDownLatch(THREADS * CLOSE_AFTER);
+        executor      = Executors.newFixedThreadPool(THREADS);
+        futures       = new ArrayList<>();
+
+        account.setListener((type, changed, stateAfter, amount, balanceAfter) ->
+                            {
+                                if (type == AccountEventType.CLOSED)
+                                {
+                                    closedBalance.set(balanceAfter);
+                                }
+                            });
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            futures.add(executor.submit(() ->
+                                        {
+                                            for (int i = 0; i < DEPOSITS; i++)
+                                            {
+                                                if (account.tryDeposit(1) == ValidationCode.OK)
+                                                {
+                                                    accepted.incrementAndGet();
+                                                }
+                                                started.countDown();
+                                            }
+                                        }));
+        }
+
+        started.await();
+        account.close(Date.of(2025, Date.JANUARY, 1));
+
+        for (final Future<?> future : futures)
+        {
+            future.get();
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        TestSupport.checkEquals((double) accepted.get(), account.getBalance(), "balance counts accepted deposits");
+        TestSupport.checkEquals(account.getBalance(), closedBalance.get(), "balance reported with the close");
+        TestSupport.passed("nothing lands after a close");
+    }
+
+    /**
+     * A listener that throws does not make the deposit or withdrawal that it
+     * was told about fail, and later changes are still reported to it.
+     */
+    private static void throwingListenersDoNotFailTheChange()
+    {
+        final BankAccount account;
+        final AtomicInteger calls;
+        final AtomicInteger reported;
+        final Thread thread;
+        final Thread.UncaughtExceptionHandler previous;
+
+        account  = TestSupport.openAccount("100001", 100);
+        calls    = new AtomicInteger();
+        reported = new AtomicInteger();
+        thread   = Thread.currentThread();
+        previous = thread.getUncaughtExceptionHandler();
+
+        account.setListener((type, changed, stateAfter, amount, balanceAfter) ->
+                            {
+                                calls.incrementAndGet();
+                                throw new IllegalStateException("Simulated listener failure");
+                            });
+        thread.setUncaughtExceptionHandler((failed, e) -> reported.incrementAndGet());
+
+        try
+        {
+            TestSupport.checkEquals(ValidationCode.OK, account.tryDeposit(50), "deposit");
+            TestSupport.checkEquals(ValidationCode.OK, account.tryWithdraw(30), "withdrawal");
+            account.freeze();
+        }
+        finally
+        {
+            thread.setUncaughtExceptionHandler(previous);
+        }
+
+        TestSupport.checkEquals(120.0, account.getBalance(), "balance");
+        TestSupport.checkEquals(AccountState.FROZEN, account.getState(), "state");
+        TestSupport.checkEquals(3, calls.get(), "listener calls");
+        TestSupport.checkEquals(3, reported.get(), "failures reported");
+        TestSupport.passed("throwing listeners do not fail the change");
+    }
+}
@@ -0,0 +1,217 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests that {@link AccountMerkleTree#diff(AccountMerkleTree)} finds exactly
+ * the accounts whose balance or state differs between two copies of a book.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class AccountMerkleTreeTest
+{
+    private static final int    LEAF_BITS       = 6;
+    private static final int    ACCOUNTS        = 1_000;
+    private static final int    ID_BASE         = 300_000;
+    private static final int    CHANGE_STRIDE   = 37;
+    private static final double OPENING_BALANCE = 500.0;
+    private static final double DEPOSIT         = 1.0;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AccountMerkleTreeTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        identicalBooksHaveNoDiff();
+        diffFindsChangedBalances();
+        diffFindsChangedStates();
+        diffFindsAccountsTrackedOnce();
+        treesOfDifferentSizesAreRefused();
+    }
+
+    /**
+     * Two trees over equal books have equal roots and an empty diff.
+     */
+    private static void identicalBooksHaveNoDiff()
+    {
+        final AccountMerkleTree primary;
+        final AccountMerkleTree backup;
+
+        primary = new AccountMerkleTree(LEAF_BITS);
+        backup  = new AccountMerkleTree(LEAF_BITS);
+
+        track(primary, createBook());
+        track(backup, createBook());
+
+        TestSupport.checkEquals(primary.getRootHash(), backup.getRootHash(), "root hashes");
+        TestSupport.check(primary.diff(backup).isEmpty(), "diff of equal books is empty");
+        TestSupport.passed("identical books have no diff");
+    }
+
+    /**
+     * Deposits made to one copy only are found, and disappear once the other
+     * copy catches up.
+     */
+    private static void diffFindsChangedBalances()
+    {
+        final AccountMerkleTree primary;
+        final AccountMerkleTree backup;
+        final BankAccount[] primaryBook;
+        final BankAccount[] backupBook;
+        final Set<String> changed;
+
+        primary     = new AccountMerkleTree(LEAF_BITS);
+        backup      = new AccountMerkleTree(LEAF_BITS);
+        primaryBook = createBook();
+        backupBook  = createBook();
+        changed     = new HashSet<>();
+
+        track(primary, primaryBook);
+        track(backup, backupBook);
+
+        for (int i = 0; i < ACCOUNTS; i += CHANGE_STRIDE)
+        {
+            primaryBook[i].deposit(DEPOSIT);
+            changed.add(primaryBook[i].getAccountNumber());
+        }
+
+        TestSupport.check(primary.getRootHash() != backup.getRootHash(), "root hashes differ");
+        TestSupport.checkEquals(changed, diffOf(primary, backup), "accounts found by the diff");
+        TestSupport.checkEquals(changed, diffOf(backup, primary), "accounts found by the reverse diff");
+
+        for (int i = 0; i < ACCOUNTS; i += CHANGE_STRIDE)
+        {
+            backupBook[i].deposit(DEPOSIT);
+        }
+
+        TestSupport.checkEquals(primary.getRootHash(), backup.getRootHash(), "root hashes once caught up");
+        TestSupport.check(primary.diff(backup).isEmpty(), "diff once caught up is empty");
+        TestSupport.passed("diff finds changed balances");
+    }
+
+    /**
+     * A freeze on one copy is found even though no balance changed.
+     */
+    private static void diffFindsChangedStates()
+    {
+        final AccountMerkleTree primary;
+        final AccountMerkleTree backup;
+        final BankAccount[] backupBook;
+
+        primary    = new AccountMerkleTree(LEAF_BITS);
+        backup     = new AccountMerkleTree(LEAF_BITS);
+        backupBook = createBook();
+
+        track(primary, createBook());
+        track(backup, backupBook);
+
+        backupBook[ACCOUNTS / 2].freeze();
+
+        TestSupport.checkEquals(Set.of(backupBook[ACCOUNTS / 2].getAccountNumber()), diffOf(primary, backup),
+                                "accounts found by the diff");
+        TestSupport.passed("diff finds changed states");
+    }
+
+    /**
+     * An account tracked by only one tree is reported.
+     */
+    private static void diffFindsAccountsTrackedOnce()
+    {
+        final AccountMerkleTree primary;
+        final AccountMerkleTree backup;
+        final BankAccount[] primaryBook;
+        final BankAccount extra;
+
+        primary     = new AccountMerkleTree(LEAF_BITS);
+        backup      = new AccountMerkleTree(LEAF_BITS);
+        primaryBook = createBook();
+        extra       = TestSupport.openAccount(Integer.toString(ID_BASE + ACCOUNTS), OPENING_BALANCE);
+
+        track(primary, primaryBook);
+        track(backup, createBook());
+        track(primary, new BankAccount[] {extra});
+
+        TestSupport.checkEquals(Set.of(extra.getAccountNumber()), diffOf(primary, backup), "accounts found by the diff");
+        TestSupport.passed("diff finds accounts tracked once");
+    }
+
+    /**
+     * Trees with different leaf counts cannot be compared.
+     */
+    private static void treesOfDifferentSizesAreRefused()
+    {
+        final AccountMerkleTree small;
+        final AccountMerkleTree large;
+
+        small = new AccountMerkleTree(LEAF_BITS);
+        large = new AccountMerkleTree(LEAF_BITS + 1);
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> small.diff(large), "diff of different sizes");
+        TestSupport.passed("trees of different sizes are refused");
+    }
+
+    /**
+     * Creates a book with the same account numbers and balances every time.
+     *
+     * @return the accounts
+     */
+    private static BankAccount[] createBook()
+    {
+        final BankAccount[] accounts;
+        accounts = new BankAccount[ACCOUNTS];
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            accounts[i] = TestSupport.openAccount(Integer.toString(ID_BASE + i), OPENING_BALANCE);
+        }
+        return accounts;
+    }
+
+    /**
+     * Registers a tree as the listener of each account and starts tracking it.
+     *
+     * @param tree     the tree
+     * @param accounts the accounts
+     */
+    private static void track(final AccountMerkleTree tree,
+                              final BankAccount[] accounts)
+    {
+        for (final BankAccount account : accounts)
+        {
+            account.setListener(tree);
+            tree.add(account);
+        }
+    }
+
+    /**
+     * Diffs two trees, checking that no account is reported twice.
+     *
+     * @param tree  the first tree
+     * @param other the second tree
+     * @return the differing account numbers
+     */
+    private static Set<String> diffOf(final AccountMerkleTree tree,
+                                      final AccountMerkleTree other)
+    {
+        final List<String> differing;
+        final Set<String> unique;
+
+        differing = tree.diff(other);
+        unique    = new HashSet<>(differing);
+
+        TestSupport.checkEquals(differing.size(), unique.size(), "accounts reported once each");
+        return unique;
+    }
+}
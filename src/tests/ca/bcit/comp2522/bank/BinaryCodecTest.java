@@ -0,0 +1,244 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+
+/**
+ * Tests that {@link BinaryCodec} writes names, dates, clients and accounts in a
+ * form it reads back unchanged, packs keys into seven bytes, and leaves the PIN
+ * out of an encoded account.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class BinaryCodecTest
+{
+    private static final int BUFFER_BYTES = 4_096;
+    private static final int ACCOUNTS     = 500;
+    private static final int FEBRUARY     = 2;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BinaryCodecTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        keysPackIntoSevenBytes();
+        datesRoundTripIncludingNone();
+        namesRoundTripInUtf8();
+        accountsRoundTripWithoutThePin();
+        fixedFieldsSitAtTheirOffsets();
+    }
+
+    /**
+     * Keys of up to seven printable characters unpack to themselves and keep
+     * their order, while longer keys and control characters are refused.
+     */
+    private static void keysPackIntoSevenBytes()
+    {
+        final ByteBuffer buffer;
+        buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        TestSupport.checkEquals("123456", BinaryCodec.unpackKey(BinaryCodec.packKey("123456")), "six characters");
+        TestSupport.checkEquals("abc~ 12", BinaryCodec.unpackKey(BinaryCodec.packKey("abc~ 12")), "seven characters");
+        TestSupport.checkEquals("", BinaryCodec.unpackKey(BinaryCodec.packKey("")), "empty key");
+        TestSupport.check(BinaryCodec.packKey("100000") < BinaryCodec.packKey("100001"), "keys keep their order");
+
+        BinaryCodec.putKey(buffer, BinaryCodec.packKey("c00042"));
+        TestSupport.checkEquals(BinaryCodec.KEY_BYTES, buffer.position(), "bytes written");
+        TestSupport.checkEquals("c00042", BinaryCodec.unpackKey(BinaryCodec.getKey(buffer, 0)), "absolute read");
+        buffer.flip();
+        TestSupport.checkEquals("c00042", BinaryCodec.unpackKey(BinaryCodec.getKey(buffer)), "relative read");
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> BinaryCodec.packKey("12345678"), "eight characters");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> BinaryCodec.packKey("12\n456"), "control character");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> BinaryCodec.packKey("12é456"), "non-ASCII character");
+        TestSupport.passed("keys pack into seven bytes");
+    }
+
+    /**
+     * A date reads back as the same canonical instance, and a missing date as
+     * {@code null} written as {@value BinaryCodec#NO_DATE}.
+     */
+    private static void datesRoundTripIncludingNone()
+    {
+        final ByteBuffer buffer;
+        final Date leapDay;
+
+        buffer  = ByteBuffer.allocate(BUFFER_BYTES);
+        leapDay = Date.of(2024, FEBRUARY, 29);
+
+        BinaryCodec.encodeDate(buffer, leapDay);
+        BinaryCodec.encodeDate(buffer, null);
+        BinaryCodec.encodeDate(buffer, Date.of(Date.MIN_YEAR, Date.JANUARY, 1));
+
+        TestSupport.checkEquals(BinaryCodec.NO_DATE, buffer.getInt(BinaryCodec.DATE_BYTES), "missing date");
+        buffer.flip();
+        TestSupport.check(BinaryCodec.decodeDate(buffer) == leapDay, "leap day");
+        TestSupport.check(BinaryCodec.decodeDate(buffer) == null, "no date");
+        TestSupport.check(BinaryCodec.decodeDate(buffer) == Date.of(Date.MIN_YEAR, Date.JANUARY, 1), "first supported day");
+        TestSupport.check(BinaryCodec.dateOf(BinaryCodec.NO_DATE) == null, "dateOf NO_DATE");
+        TestSupport.passed("dates round trip including none");
+    }
+
+    /**
+     * Names in one, two, three and four byte UTF-8 read back unchanged, and the
+     * length prefix counts bytes rather than characters.
+     */
+    private static void namesRoundTripInUtf8()
+    {
+        final String[][] names;
+        names = new String[][]
+        {
+            {"Ada", "Lovelace"},
+            {"Zoë", "Ñúñez"},
+            {"Иван", "Петров"},
+            {"美咲", "佐藤"},
+            {"Sam", "Emoji😀"}
+        };
+
+        for (final String[] parts : names)
+        {
+            final ByteBuffer buffer;
+            final Name decoded;
+
+            buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            BinaryCodec.encodeName(buffer, new Name(parts[0], parts[1]));
+
+            TestSupport.checkEquals(Short.BYTES + parts[0].getBytes(StandardCharsets.UTF_8).length,
+                                    BinaryCodec.stringBytes(buffer, 0),
+                                    "encoded length of " + parts[0]);
+            buffer.flip();
+            decoded = BinaryCodec.decodeName(buffer);
+
+            TestSupport.checkEquals(parts[0], decoded.getFirstName(), "first name");
+            TestSupport.checkEquals(parts[1], decoded.getLastName(), "last name");
+            TestSupport.checkEquals(0, buffer.remaining(), "bytes left after " + parts[1]);
+        }
+        TestSupport.passed("names round trip in UTF-8");
+    }
+
+    /**
+     * Accounts, open or closed, in any currency and with living or deceased
+     * clients, read back with every field intact except the PIN, which is
+     * never written.
+     */
+    private static void accountsRoundTripWithoutThePin()
+    {
+        final ByteBuffer buffer;
+        final BankAccount[] accounts;
+
+        buffer   = ByteBuffer.allocate(BUFFER_BYTES * ACCOUNTS);
+        accounts = BenchmarkAccounts.create(ACCOUNTS);
+
+        accounts[1] = new BankAccount(deceasedClient(),
+                                      "777777",
+                                      Date.of(2001, Date.JANUARY, 1),
+                                      Date.of(2019, Date.DECEMBER, 31),
+                                      12.5,
+                                      4321,
+                                      Currency.getInstance("EUR"));
+
+        for (final BankAccount account : accounts)
+        {
+            BinaryCodec.encodeAccount(buffer, account);
+        }
+        buffer.flip();
+
+        for (final BankAccount account : accounts)
+        {
+            checkSameAccount(account, BinaryCodec.decodeAccount(buffer));
+        }
+        TestSupport.checkEquals(0, buffer.remaining(), "bytes left");
+        TestSupport.passed("accounts round trip without the PIN");
+    }
+
+    /**
+     * The absolute readers find each fixed field at its published offset.
+     */
+    private static void fixedFieldsSitAtTheirOffsets()
+    {
+        final ByteBuffer buffer;
+        final BankAccount account;
+        final int client;
+
+        buffer  = ByteBuffer.allocate(BUFFER_BYTES);
+        account = new BankAccount(deceasedClient(),
+                                  "abc123",
+                                  Date.of(2001, Date.JANUARY, 1),
+                                  null,
+                                  99.75,
+                                  1111,
+                                  Currency.getInstance("JPY"));
+        client  = BinaryCodec.ACCOUNT_CLIENT_OFFSET;
+
+        BinaryCodec.encodeAccount(buffer, account);
+
+        TestSupport.checkEquals("abc123", BinaryCodec.unpackKey(BinaryCodec.getKey(buffer, 0)), "account number");
+        TestSupport.checkEquals(account.getAccountOpened().toEpochDay(),
+                                buffer.getInt(BinaryCodec.ACCOUNT_OPENED_OFFSET), "opened");
+        TestSupport.checkEquals(BinaryCodec.NO_DATE, buffer.getInt(BinaryCodec.ACCOUNT_CLOSED_OFFSET), "closed");
+        TestSupport.checkEquals(99.75, buffer.getDouble(BinaryCodec.ACCOUNT_BALANCE_OFFSET), "balance");
+        TestSupport.checkEquals(Currency.getInstance("JPY"),
+                                BinaryCodec.decodeCurrency(buffer, BinaryCodec.ACCOUNT_CURRENCY_OFFSET), "currency");
+        TestSupport.checkEquals("c99999", BinaryCodec.unpackKey(BinaryCodec.getKey(buffer, client)), "client ID");
+        TestSupport.checkEquals(account.getClient().getDeathDate().toEpochDay(),
+                                buffer.getInt(client + BinaryCodec.CLIENT_DEATH_OFFSET), "death date");
+        TestSupport.checkEquals("Grace", BinaryCodec.getString(buffer, client + BinaryCodec.CLIENT_NAME_OFFSET), "first name");
+        TestSupport.passed("fixed fields sit at their offsets");
+    }
+
+    /**
+     * Fails the running test unless a decoded account matches its original in
+     * every encoded field and carries no PIN.
+     *
+     * @param expected the original account
+     * @param actual   the decoded account
+     */
+    private static void checkSameAccount(final BankAccount expected,
+                                         final BankAccount actual)
+    {
+        final BankClient expectedClient;
+        final BankClient actualClient;
+        final String number;
+
+        expectedClient = expected.getClient();
+        actualClient   = actual.getClient();
+        number         = expected.getAccountNumber();
+
+        TestSupport.checkEquals(number, actual.getAccountNumber(), "account number");
+        TestSupport.checkEquals(expected.getAccountOpened(), actual.getAccountOpened(), "opened of " + number);
+        TestSupport.checkEquals(expected.getAccountClosed(), actual.getAccountClosed(), "closed of " + number);
+        TestSupport.checkEquals(expected.getBalance(), actual.getBalance(), "balance of " + number);
+        TestSupport.checkEquals(expected.getCurrency(), actual.getCurrency(), "currency of " + number);
+        TestSupport.checkEquals(BankAccount.NO_PIN, actual.getPin(), "PIN of " + number);
+        TestSupport.checkEquals(expectedClient.getClientID(), actualClient.getClientID(), "client of " + number);
+        TestSupport.checkEquals(expectedClient.getName().getFullName(), actualClient.getName().getFullName(), "name of " + number);
+        TestSupport.checkEquals(expectedClient.getBirthDate(), actualClient.getBirthDate(), "birth of " + number);
+        TestSupport.checkEquals(expectedClient.getDeathDate(), actualClient.getDeathDate(), "death of " + number);
+        TestSupport.checkEquals(expectedClient.getSignupDate(), actualClient.getSignupDate(), "signup of " + number);
+    }
+
+    /**
+     * Creates a client who has died.
+     *
+     * @return the client
+     */
+    private static BankClient deceasedClient()
+    {
+        return new BankClient(new Name("Grace", "Hopper"),
+                              Date.of(1906, Date.DECEMBER, 9),
+                              Date.of(1992, Date.JANUARY, 1),
+                              Date.of(1990, Date.JANUARY, 1),
+                              "c99999");
+    }
+}
@@ -0,0 +1,163 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that {@link Date#of(int, int, int)} and {@link Date#ofEpochDay(int)}
+ * return one shared instance for each valid day, that the instances match the
+ * calendar, and that threads building a year together agree on its dates.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class CanonicalDateTest
+{
+    private static final int  THREADS     = 8;
+    private static final int  RACED_YEAR  = 1850;
+    private static final int  FEBRUARY    = 2;
+    private static final long TIMEOUT_SEC = 30;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private CanonicalDateTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if the concurrent test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        threadsBuildingAYearAgree();
+        everyDayIsSharedAndMatchesTheCalendar();
+        daysOutsideTheRangeAreRefused();
+    }
+
+    /**
+     * Every valid day, walked through the calendar, is the same instance
+     * whether it is created from its fields, from its day number or through
+     * {@link Date#tryCreate(int, int, int)}.
+     */
+    private static void everyDayIsSharedAndMatchesTheCalendar()
+    {
+        final LocalDate last;
+        LocalDate calendar;
+        int epochDay;
+
+        last     = LocalDate.of(Date.CURRENT_YEAR, Date.DECEMBER, 31);
+        calendar = LocalDate.of(Date.MIN_YEAR, Date.JANUARY, 1);
+        epochDay = 0;
+
+        while (!calendar.isAfter(last))
+        {
+            final Date date;
+            date = Date.of(calendar.getYear(), calendar.getMonthValue(), calendar.getDayOfMonth());
+
+            TestSupport.check(date == Date.of(calendar.getYear(), calendar.getMonthValue(), calendar.getDayOfMonth()),
+                              "repeated " + calendar);
+            TestSupport.check(date == Date.ofEpochDay(epochDay), "day number of " + calendar);
+            TestSupport.check(date == Date.tryCreate(calendar.getYear(), calendar.getMonthValue(), calendar.getDayOfMonth())
+                                          .getValue(), "tryCreate " + calendar);
+            TestSupport.checkEquals(epochDay, date.toEpochDay(), "toEpochDay " + calendar);
+            TestSupport.checkEquals(calendar.getYear(), date.getYear(), "year " + calendar);
+            TestSupport.checkEquals(calendar.getMonthValue(), date.getMonth(), "month " + calendar);
+            TestSupport.checkEquals(calendar.getDayOfMonth(), date.getDay(), "day " + calendar);
+
+            calendar = calendar.plusDays(1);
+            epochDay++;
+        }
+        TestSupport.passed("every day is shared and matches the calendar");
+    }
+
+    /**
+     * Day numbers and fields outside the valid range throw rather than reaching
+     * the cache.
+     */
+    private static void daysOutsideTheRangeAreRefused()
+    {
+        final int end;
+        end = Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31).toEpochDay() + 1;
+
+        TestSupport.checkThrows(ValidationException.class, () -> Date.ofEpochDay(-1), "day before the range");
+        TestSupport.checkThrows(ValidationException.class, () -> Date.ofEpochDay(end), "day after the range");
+        TestSupport.checkThrows(ValidationException.class, () -> Date.of(Date.CURRENT_YEAR + 1, Date.JANUARY, 1),
+                                "year after the range");
+        TestSupport.checkThrows(ValidationException.class, () -> Date.of(2023, FEBRUARY, 29), "non-leap day");
+        TestSupport.passed("days outside the range are refused");
+    }
+
+    /**
+     * Threads asking for the same year for the first time at once all receive
+     * the same instances. This runs first so that no other test has built the
+     * year already.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void threadsBuildingAYearAgree() throws Exception
+    {
+        final ExecutorService executor;
+        final CountDownLatch start;
+        final List<Future<Date[]>> futures;
+        final int days;
+        Date[] first;
+
+        executor = Executors.newFixedThreadPool(THREADS);
+        start    = new CountDownLatch(1);
+        futures  = new ArrayList<>();
+        days     = Date.getDaysInYear(RACED_YEAR);
+        first    = null;
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            futures.add(executor.submit(() ->
+                                        {
+                                            final Date[] dates;
+                                            final int base;
+
+                                            dates = new Date[days];
+                                            base  = Date.epochDay(RACED_YEAR, Date.JANUARY, 1);
+
+                                            start.await();
+
+                                            for (int i = 0; i < days; i++)
+                                            {
+                                                dates[i] = Date.ofEpochDay(base + i);
+                                            }
+                                            return dates;
+                                        }));
+        }
+
+        start.countDown();
+
+        for (final Future<Date[]> future : futures)
+        {
+            final Date[] dates;
+            dates = future.get();
+
+            if (first == null)
+            {
+                first = dates;
+            }
+
+            for (int i = 0; i < days; i++)
+            {
+                TestSupport.check(first[i] == dates[i], "day " + i + " of " + RACED_YEAR);
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+        TestSupport.passed("threads building a year agree");
+    }
+}
@@ -0,0 +1,140 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+/**
+ * Tests that {@link Date#yearsUntil(Date)} counts whole years the way ages are
+ * counted, and that the ages {@link BankClient} caches match it, stopping at
+ * the date of death.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ClientAgeTest
+{
+    private static final long SEED     = 2522L;
+    private static final int  PAIRS    = 100_000;
+    private static final int  FEBRUARY = 2;
+    private static final int  MARCH    = 3;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ClientAgeTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        yearsMatchTheCalendar();
+        leapDayBirthdaysWaitForMarch();
+        livingClientsKeepAgeing();
+        deceasedClientsStopAgeingAtDeath();
+    }
+
+    /**
+     * Random date pairs, in either order, give the same whole years as
+     * {@link ChronoUnit#YEARS}.
+     */
+    private static void yearsMatchTheCalendar()
+    {
+        final Random random;
+        final long first;
+        final long span;
+
+        random = new Random(SEED);
+        first  = LocalDate.of(Date.MIN_YEAR, 1, 1).toEpochDay();
+        span   = LocalDate.of(Date.CURRENT_YEAR, 12, 31).toEpochDay() - first + 1;
+
+        for (int i = 0; i < PAIRS; i++)
+        {
+            final LocalDate from;
+            final LocalDate to;
+
+            from = LocalDate.ofEpochDay(first + Math.floorMod(random.nextLong(), span));
+            to   = LocalDate.ofEpochDay(first + Math.floorMod(random.nextLong(), span));
+
+            TestSupport.checkEquals((int) ChronoUnit.YEARS.between(from, to),
+                                    toDate(from).yearsUntil(toDate(to)),
+                                    "years from " + from + " to " + to);
+        }
+        TestSupport.passed("years match the calendar");
+    }
+
+    /**
+     * Someone born on 29 February turns a year older on 1 March in a common year.
+     */
+    private static void leapDayBirthdaysWaitForMarch()
+    {
+        final Date leapDay;
+        leapDay = Date.of(2000, FEBRUARY, 29);
+
+        TestSupport.checkEquals(0, leapDay.yearsUntil(Date.of(2001, FEBRUARY, 28)), "28 February 2001");
+        TestSupport.checkEquals(1, leapDay.yearsUntil(Date.of(2001, MARCH, 1)), "1 March 2001");
+        TestSupport.checkEquals(4, leapDay.yearsUntil(Date.of(2004, FEBRUARY, 29)), "29 February 2004");
+        TestSupport.checkEquals(-1, Date.of(2001, MARCH, 1).yearsUntil(leapDay), "backwards");
+        TestSupport.passed("leap day birthdays wait for March");
+    }
+
+    /**
+     * A living client's age follows the calendar and their cached values match
+     * the dates they were created with.
+     */
+    private static void livingClientsKeepAgeing()
+    {
+        final BankClient client;
+        client = new BankClient(new Name("Ada", "Lovelace"),
+                                Date.of(1980, MARCH, 15),
+                                null,
+                                Date.of(2010, MARCH, 14),
+                                "c00001");
+
+        TestSupport.checkEquals(29, client.getAgeAtSignup(), "age at signup");
+        TestSupport.checkEquals(BankClient.NOT_DECEASED, client.getLifespan(), "lifespan");
+        TestSupport.checkEquals(BankClient.NOT_DECEASED, client.getDeathEpochDay(), "death day");
+        TestSupport.checkEquals(client.getBirthDate().toEpochDay(), client.getBirthEpochDay(), "birth day");
+        TestSupport.checkEquals(client.getSignupDate().toEpochDay(), client.getSignupEpochDay(), "signup day");
+        TestSupport.checkEquals(44, client.getAgeOn(Date.of(2025, MARCH, 14)), "day before the birthday");
+        TestSupport.checkEquals(45, client.getAgeOn(Date.of(2025, MARCH, 15)), "birthday");
+        TestSupport.checkEquals(45, client.getAgeOn(2025, Date.of(2025, MARCH, 15).toMonthDay()), "packed date");
+        TestSupport.passed("living clients keep ageing");
+    }
+
+    /**
+     * A deceased client's age stops at their lifespan.
+     */
+    private static void deceasedClientsStopAgeingAtDeath()
+    {
+        final BankClient client;
+        client = new BankClient(new Name("Grace", "Hopper"),
+                                Date.of(1906, Date.DECEMBER, 9),
+                                Date.of(1992, Date.JANUARY, 1),
+                                Date.of(1990, Date.JANUARY, 1),
+                                "c00002");
+
+        TestSupport.checkEquals(85, client.getLifespan(), "lifespan");
+        TestSupport.checkEquals(83, client.getAgeAtSignup(), "age at signup");
+        TestSupport.checkEquals(client.getDeathDate().toEpochDay(), client.getDeathEpochDay(), "death day");
+        TestSupport.checkEquals(84, client.getAgeOn(Date.of(1991, Date.JANUARY, 1)), "age while alive");
+        TestSupport.checkEquals(85, client.getAgeOn(Date.of(2025, Date.DECEMBER, 31)), "age long after death");
+        TestSupport.passed("deceased clients stop ageing at death");
+    }
+
+    /**
+     * Converts a calendar date to a {@code Date}.
+     *
+     * @param date the calendar date
+     * @return the same day as a {@code Date}
+     */
+    private static Date toDate(final LocalDate date)
+    {
+        return Date.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+}
@@ -0,0 +1,197 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that {@link ClientIndex} computes standard Soundex codes, catches exact
+ * duplicates whatever their casing, and finds near duplicates only among
+ * clients born in the same year.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ClientIndexTest
+{
+    private static final int  THREADS     = 8;
+    private static final int  CLIENTS     = 2_000;
+    private static final long TIMEOUT_SEC = 30;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ClientIndexTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if the concurrent test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        soundexMatchesTheStandardCodes();
+        exactDuplicatesIgnoreCase();
+        nearDuplicatesShareABucket();
+        concurrentAddsKeepOneOfEachClient();
+    }
+
+    /**
+     * Known names give their published American Soundex codes, including the
+     * H and W rule and the zero padding.
+     */
+    private static void soundexMatchesTheStandardCodes()
+    {
+        TestSupport.checkEquals("R163", ClientIndex.soundex("Robert"), "Robert");
+        TestSupport.checkEquals("R163", ClientIndex.soundex("Rupert"), "Rupert");
+        TestSupport.checkEquals("A261", ClientIndex.soundex("Ashcraft"), "Ashcraft");
+        TestSupport.checkEquals("T522", ClientIndex.soundex("Tymczak"), "Tymczak");
+        TestSupport.checkEquals("P236", ClientIndex.soundex("Pfister"), "Pfister");
+        TestSupport.checkEquals("L000", ClientIndex.soundex("Lee"), "Lee");
+        TestSupport.checkEquals("O165", ClientIndex.soundex("O'Brien"), "O'Brien");
+        TestSupport.passed("soundex matches the standard codes");
+    }
+
+    /**
+     * A client whose name differs only in casing is reported as the indexed duplicate.
+     */
+    private static void exactDuplicatesIgnoreCase()
+    {
+        final ClientIndex index;
+        final BankClient original;
+        final BankClient shouted;
+
+        index    = new ClientIndex();
+        original = client("Ada", "Lovelace", 1980, "c00001");
+        shouted  = client("ADA", "LOVELACE", 1980, "c00002");
+
+        TestSupport.check(index.add(original) == null, "first client added");
+        TestSupport.check(index.add(shouted) == original, "casing duplicate returns the original");
+        TestSupport.checkEquals(1, index.size(), "clients indexed");
+        TestSupport.check(index.findExact(new Name("ada", "lovelace"), original.getBirthDate()) == original, "exact lookup");
+        TestSupport.check(index.findExact(original.getName(), Date.of(1981, Date.JANUARY, 1)) == null, "other birth date");
+        TestSupport.passed("exact duplicates ignore case");
+    }
+
+    /**
+     * Misspellings within the edit limit are found, while distant names and
+     * clients born in another year are not, and a client never matches itself.
+     */
+    private static void nearDuplicatesShareABucket()
+    {
+        final ClientIndex index;
+        final BankClient smith;
+        final BankClient smyth;
+        final BankClient smithOtherYear;
+        final BankClient smithers;
+        final List<BankClient> matches;
+
+        index          = new ClientIndex();
+        smith          = client("John", "Smith", 1975, "c00001");
+        smyth          = client("Jon", "Smyth", 1975, "c00002");
+        smithOtherYear = client("John", "Smith", 1976, "c00003");
+        smithers       = client("Johnny", "Smithers", 1975, "c00004");
+
+        index.add(smith);
+        index.add(smyth);
+        index.add(smithOtherYear);
+        index.add(smithers);
+
+        matches = index.findNearDuplicates(smith);
+
+        TestSupport.checkEquals(List.of(smyth), matches, "near duplicates of John Smith");
+        TestSupport.checkEquals(List.of(), index.findNearDuplicates(smith, 0), "no misspelling allowed");
+        TestSupport.checkEquals(List.of(), index.findNearDuplicates(client("Mary", "Jones", 1975, "c00005")), "empty bucket");
+        TestSupport.passed("near duplicates share a bucket");
+    }
+
+    /**
+     * Threads adding overlapping clients leave exactly one entry per distinct
+     * client, and every rejected add names the client that won.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void concurrentAddsKeepOneOfEachClient() throws Exception
+    {
+        final ClientIndex index;
+        final ExecutorService executor;
+        final AtomicInteger added;
+        final List<Future<?>> futures;
+        final BankClient seventh;
+
+        index    = new ClientIndex();
+        executor = Executors.newFixedThreadPool(THREADS);
+        added    = new AtomicInteger();
+        futures  = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            futures.add(executor.submit(() ->
+                                        {
+                                            for (int i = 0; i < CLIENTS; i++)
+                                            {
+                                                final BankClient candidate;
+                                                final BankClient existing;
+
+                                                candidate = client("First" + i, "Last" + i, 1950 + i % 50, "c" + (10_000 + i));
+                                                existing  = index.add(candidate);
+
+                                                if (existing == null)
+                                                {
+                                                    added.incrementAndGet();
+                                                }
+                                                else
+                                                {
+                                                    TestSupport.checkEquals(candidate.getName().getFullName(),
+                                                                            existing.getName().getFullName(),
+                                                                            "winner's name");
+                                                }
+                                            }
+                                        }));
+        }
+
+        for (final Future<?> future : futures)
+        {
+            future.get();
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        TestSupport.checkEquals(CLIENTS, added.get(), "adds that won");
+        TestSupport.checkEquals(CLIENTS, index.size(), "clients indexed");
+        seventh = index.findExact(new Name("First7", "Last7"), Date.of(1957, Date.JANUARY, 1));
+
+        TestSupport.check(seventh != null, "a client added concurrently is found");
+        TestSupport.check(!index.findNearDuplicates(seventh).contains(seventh), "a client is not its own duplicate");
+        TestSupport.passed("concurrent adds keep one of each client");
+    }
+
+    /**
+     * Creates a client born on 1 January of a year.
+     *
+     * @param first     the first name
+     * @param last      the last name
+     * @param birthYear the birth year
+     * @param id        the client ID
+     * @return the client
+     */
+    private static BankClient client(final String first,
+                                     final String last,
+                                     final int birthYear,
+                                     final String id)
+    {
+        return new BankClient(new Name(first, last),
+                              Date.of(birthYear, Date.JANUARY, 1),
+                              null,
+                              Date.of(2020, Date.JANUARY, 1),
+                              id);
+    }
+}
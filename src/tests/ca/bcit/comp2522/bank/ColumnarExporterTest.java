@@ -0,0 +1,392 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.stream.Stream;
+
+/**
+ * Tests that a file written by {@link ColumnarExporter} reads back through
+ * {@link ColumnarReader} with every value intact, and that damaged files are
+ * refused.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ColumnarExporterTest
+{
+    private static final int  ACCOUNTS       = 5_000;
+    private static final int  ROW_GROUP_SIZE = 700;
+    private static final int  THREADS        = 2;
+    private static final int  MAX_IN_FLIGHT  = 3;
+    private static final int  FREEZE_STRIDE  = 11;
+    private static final int  CLOSE_STRIDE   = 7;
+    private static final int  DEATH_STRIDE   = 5;
+    private static final int  EURO_STRIDE    = 3;
+    private static final int  FLIPPED_BITS   = 0x55;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ColumnarExporterTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws IOException if a temporary file cannot be used
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final Path directory;
+        directory = Files.createTempDirectory("columnar");
+
+        try
+        {
+            everyValueRoundTrips(directory.resolve("book.cols"));
+            emptyBookRoundTrips(directory.resolve("empty.cols"));
+            damagedFilesAreRefused(directory.resolve("damaged.cols"));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (final Path file : files.toList())
+                {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * A book with closed accounts, deceased clients and frozen accounts reads
+     * back value for value, in row order, across several row groups.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written or read
+     */
+    private static void everyValueRoundTrips(final Path file) throws IOException
+    {
+        final BankAccount[] accounts;
+        final long written;
+
+        accounts = book();
+        written = new ColumnarExporter(ROW_GROUP_SIZE, THREADS, MAX_IN_FLIGHT).export(Arrays.asList(accounts).iterator(), file);
+
+        TestSupport.checkEquals((long) ACCOUNTS, written, "rows written");
+
+        try (ColumnarReader reader = new ColumnarReader(file))
+        {
+            int row;
+            row = 0;
+
+            TestSupport.checkEquals((long) ACCOUNTS, reader.getRowCount(), "rows in the footer");
+            TestSupport.checkEquals((ACCOUNTS + ROW_GROUP_SIZE - 1) / ROW_GROUP_SIZE, reader.getRowGroupCount(), "row groups");
+            TestSupport.checkEquals((long) ACCOUNTS, reader.verify(), "rows verified");
+
+            for (int group = 0; group < reader.getRowGroupCount(); group++)
+            {
+                final ByteBuffer[] columns;
+                columns = new ByteBuffer[ColumnarExporter.Column.values().length];
+
+                for (final ColumnarExporter.Column column : ColumnarExporter.Column.values())
+                {
+                    columns[column.ordinal()] = reader.readColumn(group, column);
+                }
+
+                for (int i = 0; i < reader.getRowCount(group); i++)
+                {
+                    checkRow(accounts[row], columns, row);
+                    row++;
+                }
+            }
+
+            TestSupport.checkEquals(ACCOUNTS, row, "rows read");
+        }
+        TestSupport.passed("every value round trips");
+    }
+
+    /**
+     * An export of no accounts still produces a readable file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written or read
+     */
+    private static void emptyBookRoundTrips(final Path file) throws IOException
+    {
+        new ColumnarExporter(ROW_GROUP_SIZE, THREADS, MAX_IN_FLIGHT).export(Collections.emptyIterator(), file);
+
+        try (ColumnarReader reader = new ColumnarReader(file))
+        {
+            TestSupport.checkEquals(0L, reader.getRowCount(), "rows in an empty file");
+            TestSupport.checkEquals(0, reader.getRowGroupCount(), "row groups in an empty file");
+        }
+        TestSupport.passed("empty book round trips");
+    }
+
+    /**
+     * A file with bad magic, a truncated footer or a corrupted chunk is refused
+     * with an {@link IOException}.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void damagedFilesAreRefused(final Path file) throws IOException
+    {
+        final byte[] good;
+        final byte[] badMagic;
+        final byte[] truncated;
+        final byte[] corrupted;
+
+        new ColumnarExporter(ROW_GROUP_SIZE, THREADS, MAX_IN_FLIGHT)
+            .export(Arrays.asList(BenchmarkAccounts.create(ROW_GROUP_SIZE * 2)).iterator(), file);
+
+        good      = Files.readAllBytes(file);
+        badMagic  = good.clone();
+        truncated = Arrays.copyOf(good, good.length - 1);
+        corrupted = good.clone();
+
+        badMagic[0]++;
+        corrupted[firstDeflateChunk(file) + ColumnarExporter.CHUNK_HEADER_BYTES] ^= FLIPPED_BITS;
+
+        Files.write(file, badMagic);
+        TestSupport.checkThrows(UncheckedIOException.class, () -> open(file), "bad magic");
+
+        Files.write(file, truncated);
+        TestSupport.checkThrows(UncheckedIOException.class, () -> open(file), "truncated file");
+
+        Files.write(file, corrupted);
+        TestSupport.checkThrows(UncheckedIOException.class, () -> verify(file), "corrupted chunk");
+
+        Files.write(file, good);
+        TestSupport.checkEquals(ROW_GROUP_SIZE * 2L, verify(file), "rows in the undamaged file");
+        TestSupport.passed("damaged files are refused");
+    }
+
+    /**
+     * Creates a book in which some clients have died, some accounts are held
+     * in euros, and some accounts are closed or frozen.
+     *
+     * @return the accounts
+     */
+    private static BankAccount[] book()
+    {
+        final BankAccount[] accounts;
+        final Date lastDay;
+
+        accounts = BenchmarkAccounts.create(ACCOUNTS);
+        lastDay  = Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31);
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankAccount sample;
+            final BankClient client;
+            final Date deathDate;
+            final Currency currency;
+
+            sample = accounts[i];
+            client = sample.getClient();
+
+            if (i % DEATH_STRIDE == 0)
+            {
+                deathDate = lastDay;
+            }
+            else
+            {
+                deathDate = null;
+            }
+
+            if (i % EURO_STRIDE == 0)
+            {
+                currency = Currency.getInstance("EUR");
+            }
+            else
+            {
+                currency = BankAccount.DEFAULT_CURRENCY;
+            }
+
+            accounts[i] = new BankAccount(new BankClient(client.getName(),
+                                                         client.getBirthDate(),
+                                                         deathDate,
+                                                         client.getSignupDate(),
+                                                         client.getClientID()),
+                                          sample.getAccountNumber(),
+                                          sample.getAccountOpened(),
+                                          null,
+                                          sample.getBalance(),
+                                          sample.getPin(),
+                                          currency);
+
+            if (i % CLOSE_STRIDE == 0)
+            {
+                accounts[i].close(lastDay);
+            }
+            else if (i % FREEZE_STRIDE == 0)
+            {
+                accounts[i].freeze();
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Checks one row's values against the account it was exported from.
+     *
+     * @param account the account
+     * @param columns the row group's columns, each positioned at this row's value
+     * @param row     the row number, for messages
+     */
+    private static void checkRow(final BankAccount account,
+                                 final ByteBuffer[] columns,
+                                 final int row)
+    {
+        final BankClient client;
+        final String where;
+
+        client = account.getClient();
+        where  = " in row " + row;
+
+        TestSupport.checkEquals(account.getAccountNumber(),
+                                BinaryCodec.unpackKey(column(columns, ColumnarExporter.Column.ACCOUNT_NUMBER).getLong()),
+                                "account number" + where);
+        TestSupport.checkEquals(epochDayOf(account.getAccountOpened()),
+                                column(columns, ColumnarExporter.Column.ACCOUNT_OPENED).getInt(),
+                                "opening date" + where);
+        TestSupport.checkEquals(epochDayOf(account.getAccountClosed()),
+                                column(columns, ColumnarExporter.Column.ACCOUNT_CLOSED).getInt(),
+                                "closing date" + where);
+        TestSupport.checkEquals(account.getBalance(),
+                                column(columns, ColumnarExporter.Column.BALANCE).getDouble(),
+                                "balance" + where);
+        TestSupport.checkEquals(account.getCurrency().getNumericCode(),
+                                column(columns, ColumnarExporter.Column.CURRENCY).getInt(),
+                                "currency" + where);
+        TestSupport.checkEquals(account.getState().ordinal(),
+                                (int) column(columns, ColumnarExporter.Column.STATE).get(),
+                                "state" + where);
+        TestSupport.checkEquals(client.getClientID(),
+                                BinaryCodec.unpackKey(column(columns, ColumnarExporter.Column.CLIENT_ID).getLong()),
+                                "client ID" + where);
+        TestSupport.checkEquals(client.getName().getFirstName(),
+                                BinaryCodec.getString(column(columns, ColumnarExporter.Column.FIRST_NAME)),
+                                "first name" + where);
+        TestSupport.checkEquals(client.getName().getLastName(),
+                                BinaryCodec.getString(column(columns, ColumnarExporter.Column.LAST_NAME)),
+                                "last name" + where);
+        TestSupport.checkEquals(epochDayOf(client.getBirthDate()),
+                                column(columns, ColumnarExporter.Column.BIRTH_DATE).getInt(),
+                                "birth date" + where);
+        TestSupport.checkEquals(epochDayOf(client.getDeathDate()),
+                                column(columns, ColumnarExporter.Column.DEATH_DATE).getInt(),
+                                "death date" + where);
+        TestSupport.checkEquals(epochDayOf(client.getSignupDate()),
+                                column(columns, ColumnarExporter.Column.SIGNUP_DATE).getInt(),
+                                "signup date" + where);
+    }
+
+    /**
+     * Retrieves one column's values.
+     *
+     * @param columns the row group's columns
+     * @param column  the column
+     * @return the values
+     */
+    private static ByteBuffer column(final ByteBuffer[] columns,
+                                     final ColumnarExporter.Column column)
+    {
+        return columns[column.ordinal()];
+    }
+
+    /**
+     * Converts a date to the value the format stores for it.
+     *
+     * @param date the date, or {@code null}
+     * @return the day number, or {@value BinaryCodec#NO_DATE} for {@code null}
+     */
+    private static int epochDayOf(final Date date)
+    {
+        if (date == null)
+        {
+            return BinaryCodec.NO_DATE;
+        }
+        return date.toEpochDay();
+    }
+
+    /**
+     * Finds the first chunk in a file that is stored compressed.
+     *
+     * @param file the file
+     * @return the chunk's file offset
+     * @throws IOException if the file cannot be read
+     */
+    private static int firstDeflateChunk(final Path file) throws IOException
+    {
+        final ByteBuffer header;
+        int offset;
+
+        header = ByteBuffer.allocate(ColumnarExporter.CHUNK_HEADER_BYTES);
+        offset = ColumnarExporter.MAGIC.length();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            while (true)
+            {
+                header.clear();
+                channel.read(header, offset);
+                header.flip();
+
+                if (header.get() == ColumnarExporter.DEFLATE)
+                {
+                    return offset;
+                }
+                offset += ColumnarExporter.CHUNK_HEADER_BYTES + header.getInt(Byte.BYTES + Integer.BYTES);
+            }
+        }
+    }
+
+    /**
+     * Opens a file and closes it again.
+     *
+     * @param file the file
+     */
+    private static void open(final Path file)
+    {
+        try (ColumnarReader reader = new ColumnarReader(file))
+        {
+            reader.getRowCount();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Verifies every chunk of a file.
+     *
+     * @param file the file
+     * @return the rows verified
+     */
+    private static long verify(final Path file)
+    {
+        try (ColumnarReader reader = new ColumnarReader(file))
+        {
+            return reader.verify();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Currency;
+
+/**
+ * Tests that {@link CompactAccountBook} gives back every account it stores,
+ * including frozen and closed accounts, deceased clients and other currencies,
+ * that it shares repeated names, and that it refuses rows it does not hold.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class CompactAccountBookTest
+{
+    private static final int ACCOUNTS      = 3_000;
+    private static final int LAST_NAMES    = 40;
+    private static final int FREEZE_STRIDE = 11;
+    private static final int CLOSE_STRIDE  = 7;
+    private static final int DEATH_STRIDE  = 5;
+    private static final int EURO_STRIDE   = 3;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private CompactAccountBookTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        everyAccountRoundTrips();
+        livingClientsHaveNoDeathDate();
+        repeatedNamesAreShared();
+        invalidRowsAreRefused();
+    }
+
+    /**
+     * Accounts stored in a book that grows from its smallest size read back
+     * with the same details, state and currency, row by row.
+     */
+    private static void everyAccountRoundTrips()
+    {
+        final BankAccount[] accounts;
+        final CompactAccountBook book;
+
+        accounts = sampleAccounts();
+        book     = new CompactAccountBook(0);
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            TestSupport.checkEquals(i, book.add(accounts[i]), "row of account " + i);
+        }
+
+        TestSupport.checkEquals(ACCOUNTS, book.size(), "size");
+
+        for (int row = 0; row < ACCOUNTS; row++)
+        {
+            final BankAccount account;
+            final BankAccount copy;
+
+            account = accounts[row];
+            copy    = book.toAccount(row);
+
+            TestSupport.checkEquals(account.getDetails(), copy.getDetails(), "details of row " + row);
+            TestSupport.checkEquals(account.getClient().getDeathDate(), copy.getClient().getDeathDate(), "death of row " + row);
+            TestSupport.checkEquals(account.getState(), book.getState(row), "state of row " + row);
+            TestSupport.checkEquals(account.getState(), copy.getState(), "copied state of row " + row);
+            TestSupport.checkEquals(account.getCurrency(), book.getCurrency(row), "currency of row " + row);
+            TestSupport.checkEquals(account.getBalance(), book.getBalance(row), "balance of row " + row);
+            TestSupport.checkEquals(account.getPin(), copy.getPin(), "PIN of row " + row);
+            TestSupport.checkEquals(BinaryCodec.packKey(account.getAccountNumber()), book.getAccountKey(row), "key of row " + row);
+            TestSupport.checkEquals(account.getAccountOpened().toEpochDay(), book.getOpenedEpochDay(row), "opened of row " + row);
+        }
+        TestSupport.passed("every account round trips");
+    }
+
+    /**
+     * A living client's death date is stored as
+     * {@value BinaryCodec#NO_DATE}, and a closed account's closing date as its
+     * day number.
+     */
+    private static void livingClientsHaveNoDeathDate()
+    {
+        final CompactAccountBook book;
+        final BankAccount living;
+        final BankAccount closed;
+        final int livingRow;
+        final int closedRow;
+
+        book   = new CompactAccountBook(2);
+        living = BenchmarkAccounts.account(0);
+        closed = BenchmarkAccounts.account(1);
+        closed.close(Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31));
+
+        livingRow = book.add(living);
+        closedRow = book.add(closed);
+
+        TestSupport.check(book.toAccount(livingRow).getClient().getDeathDate() == null, "no death date");
+        TestSupport.checkEquals(BinaryCodec.NO_DATE, book.getClosedEpochDay(livingRow), "not closed");
+        TestSupport.checkEquals(Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31).toEpochDay(),
+                                book.getClosedEpochDay(closedRow), "closed");
+        TestSupport.passed("living clients have no death date");
+    }
+
+    /**
+     * Clients sharing a surname share one copy of it.
+     */
+    private static void repeatedNamesAreShared()
+    {
+        final CompactAccountBook book;
+        book = new CompactAccountBook(ACCOUNTS);
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            book.add(BenchmarkAccounts.account(i, new Name("First" + i, "Last" + i % LAST_NAMES), i));
+        }
+
+        TestSupport.checkEquals(ACCOUNTS + LAST_NAMES, book.getDistinctNames(), "distinct names");
+        TestSupport.checkEquals("Last" + (ACCOUNTS - 1) % LAST_NAMES, book.getLastName(ACCOUNTS - 1), "last name");
+        TestSupport.checkEquals("First" + (ACCOUNTS - 1), book.getFirstName(ACCOUNTS - 1), "first name");
+        TestSupport.passed("repeated names are shared");
+    }
+
+    /**
+     * Rows outside the book and negative capacities throw.
+     */
+    private static void invalidRowsAreRefused()
+    {
+        final CompactAccountBook book;
+        book = new CompactAccountBook(1);
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> new CompactAccountBook(-1), "negative capacity");
+        TestSupport.checkThrows(IndexOutOfBoundsException.class, () -> book.toAccount(0), "empty book");
+
+        book.add(BenchmarkAccounts.account(0));
+
+        TestSupport.checkThrows(IndexOutOfBoundsException.class, () -> book.getBalance(-1), "negative row");
+        TestSupport.checkThrows(IndexOutOfBoundsException.class, () -> book.getBalance(1), "row past the end");
+        TestSupport.passed("invalid rows are refused");
+    }
+
+    /**
+     * Creates accounts in which some clients have died, some accounts are held
+     * in euros, and some accounts are closed or frozen.
+     *
+     * @return the accounts
+     */
+    private static BankAccount[] sampleAccounts()
+    {
+        final BankAccount[] accounts;
+        final Date lastDay;
+
+        accounts = BenchmarkAccounts.create(ACCOUNTS);
+        lastDay  = Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31);
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankAccount sample;
+            final BankClient client;
+            final Date deathDate;
+            final Currency currency;
+
+            sample = accounts[i];
+            client = sample.getClient();
+
+            if (i % DEATH_STRIDE == 0)
+            {
+                deathDate = lastDay;
+            }
+            else
+            {
+                deathDate = null;
+            }
+
+            if (i % EURO_STRIDE == 0)
+            {
+                currency = Currency.getInstance("EUR");
+            }
+            else
+            {
+                currency = BankAccount.DEFAULT_CURRENCY;
+            }
+
+            accounts[i] = new BankAccount(new BankClient(client.getName(),
+                                                         client.getBirthDate(),
+                                                         deathDate,
+                                                         client.getSignupDate(),
+                                                         client.getClientID()),
+                                          sample.getAccountNumber(),
+                                          sample.getAccountOpened(),
+                                          null,
+                                          sample.getBalance(),
+                                          sample.getPin(),
+                                          currency);
+
+            if (i % CLOSE_STRIDE == 0)
+            {
+                accounts[i].close(lastDay);
+            }
+            else if (i % FREEZE_STRIDE == 0)
+            {
+                accounts[i].freeze();
+            }
+        }
+        return accounts;
+    }
+}
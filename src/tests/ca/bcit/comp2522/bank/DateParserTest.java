@@ -0,0 +1,233 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests that {@link DateParser} agrees with {@link Date#checkDate(int, int, int)}
+ * on every date and refuses malformed input.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class DateParserTest
+{
+    private static final int    MAX_MONTH_FIELD = 99;
+    private static final int    MAX_DAY_FIELD   = 99;
+    private static final int    OFFSET          = 3;
+    private static final String PADDING         = "xyz";
+    private static final byte   NOT_A_DIGIT     = ':';
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DateParserTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        everyFieldAgreesWithCheckDate();
+        leapDaysFollowTheCalendar();
+        yearsOutsideTheRangeAreRefused();
+        malformedTextIsRefused();
+        shortInputIsRefused();
+        bufferParseLeavesPositionUnchanged();
+    }
+
+    /**
+     * Every month and day field from 00 to 99 in every supported year gives
+     * the same outcome as {@link Date#checkDate(int, int, int)}, and valid
+     * dates give the same day number as {@link Date#epochDay(int, int, int)}.
+     */
+    private static void everyFieldAgreesWithCheckDate()
+    {
+        int checked;
+        checked = 0;
+
+        for (int year = Date.MIN_YEAR; year <= Date.CURRENT_YEAR; year++)
+        {
+            for (int month = 0; month <= MAX_MONTH_FIELD; month++)
+            {
+                for (int day = 0; day <= MAX_DAY_FIELD; day++)
+                {
+                    final ValidationCode expected;
+                    final int result;
+
+                    expected = Date.checkDate(year, month, day);
+                    result   = DateParser.parseEpochDay(bytesOf(format(year, month, day)), 0);
+
+                    TestSupport.checkEquals(expected, DateParser.codeOf(result), "outcome of " + format(year, month, day));
+
+                    if (expected.isOk())
+                    {
+                        TestSupport.checkEquals(Date.epochDay(year, month, day), result, "day number of " + format(year, month, day));
+                    }
+                    checked++;
+                }
+            }
+        }
+        TestSupport.passed("every field agrees with checkDate (" + checked + " dates)");
+    }
+
+    /**
+     * 29 February parses only in leap years, including the century rules.
+     */
+    private static void leapDaysFollowTheCalendar()
+    {
+        TestSupport.checkEquals(ValidationCode.OK, parseCode("2000-02-29"), "2000-02-29");
+        TestSupport.checkEquals(ValidationCode.OK, parseCode("2024-02-29"), "2024-02-29");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, parseCode("1900-02-29"), "1900-02-29");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, parseCode("2023-02-29"), "2023-02-29");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, parseCode("2024-02-30"), "2024-02-30");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, parseCode("2024-04-31"), "2024-04-31");
+        TestSupport.checkEquals(Date.of(2024, 2, 29), DateParser.parse(bytesOf("2024-02-29"), 0), "parsed leap day");
+        TestSupport.passed("leap days follow the calendar");
+    }
+
+    /**
+     * Years before {@value Date#MIN_YEAR} or after {@value Date#CURRENT_YEAR} are refused.
+     */
+    private static void yearsOutsideTheRangeAreRefused()
+    {
+        TestSupport.checkEquals(ValidationCode.YEAR_OUT_OF_RANGE,
+                                parseCode(format(Date.MIN_YEAR - 1, Date.DECEMBER, 31)), "year before the range");
+        TestSupport.checkEquals(ValidationCode.YEAR_OUT_OF_RANGE,
+                                parseCode(format(Date.CURRENT_YEAR + 1, Date.JANUARY, 1)), "year after the range");
+        TestSupport.checkEquals(ValidationCode.YEAR_OUT_OF_RANGE, parseCode("0000-01-01"), "year zero");
+        TestSupport.checkEquals(ValidationCode.YEAR_OUT_OF_RANGE, parseCode("9999-12-31"), "year 9999");
+
+        // Month is checked first, as Date.checkDate does
+        TestSupport.checkEquals(ValidationCode.MONTH_OUT_OF_RANGE, parseCode("9999-13-01"), "bad year and month");
+        TestSupport.passed("years outside the range are refused");
+    }
+
+    /**
+     * Any byte other than a digit where a digit belongs, or other than a
+     * hyphen where a hyphen belongs, is refused.
+     */
+    private static void malformedTextIsRefused()
+    {
+        final String valid;
+        valid = "2020-06-15";
+
+        TestSupport.checkEquals(ValidationCode.OK, parseCode(valid), valid);
+
+        for (int i = 0; i < DateParser.DATE_BYTES; i++)
+        {
+            for (int value = Byte.MIN_VALUE; value <= Byte.MAX_VALUE; value++)
+            {
+                final byte[] bytes;
+                final boolean allowed;
+
+                bytes    = bytesOf(valid);
+                bytes[i] = (byte) value;
+
+                if (valid.charAt(i) == '-')
+                {
+                    allowed = value == '-';
+                }
+                else
+                {
+                    allowed = value >= '0' && value <= '9';
+                }
+
+                if (!allowed)
+                {
+                    TestSupport.checkEquals(ValidationCode.DATE_MALFORMED,
+                                            DateParser.codeOf(DateParser.parseEpochDay(bytes, 0)),
+                                            "byte " + value + " at position " + i);
+                }
+            }
+        }
+
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, parseCode("2020/06/15"), "slashes");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, parseCode("20-06-2015"), "day first");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, parseCode("2020-6-15 "), "one-digit month");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, parseCode("2020-06-1" + (char) NOT_A_DIGIT),
+                                "character after nine");
+        TestSupport.passed("malformed text is refused");
+    }
+
+    /**
+     * Input too short for a date, or an offset outside it, is refused without
+     * reading out of bounds.
+     */
+    private static void shortInputIsRefused()
+    {
+        final byte[] bytes;
+        bytes = bytesOf("2020-06-15");
+
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, parseCode("2020-06-1"), "nine bytes");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, DateParser.codeOf(DateParser.parseEpochDay(bytes, 1)),
+                                "offset past the start");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED, DateParser.codeOf(DateParser.parseEpochDay(bytes, -1)),
+                                "negative offset");
+        TestSupport.checkEquals(ValidationCode.DATE_MALFORMED,
+                                DateParser.codeOf(DateParser.parseEpochDay(ByteBuffer.wrap(bytes, 0, 9), 0)),
+                                "buffer limit inside the date");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> DateParser.parse(bytes, 1), "parse of a short date");
+        TestSupport.passed("short input is refused");
+    }
+
+    /**
+     * Parsing a buffer at an index reads the date there and leaves the position alone.
+     */
+    private static void bufferParseLeavesPositionUnchanged()
+    {
+        final ByteBuffer buffer;
+        final Date parsed;
+
+        buffer = ByteBuffer.wrap(bytesOf(PADDING + "1999-12-31" + PADDING));
+        parsed = DateParser.parse(buffer, OFFSET);
+
+        TestSupport.checkEquals(Date.of(1999, Date.DECEMBER, 31), parsed, "parsed date");
+        TestSupport.checkEquals(0, buffer.position(), "buffer position");
+        TestSupport.checkEquals(Date.epochDay(1999, Date.DECEMBER, 31),
+                                DateParser.parseEpochDay(bytesOf(PADDING + "1999-12-31"), OFFSET),
+                                "day number at an offset");
+        TestSupport.passed("buffer parse leaves position unchanged");
+    }
+
+    /**
+     * Formats date fields as {@code YYYY-MM-DD}, without checking them.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day
+     * @return the text
+     */
+    private static String format(final int year,
+                                 final int month,
+                                 final int day)
+    {
+        return String.format("%04d-%02d-%02d", year, month, day);
+    }
+
+    /**
+     * Encodes text as ASCII bytes.
+     *
+     * @param text the text
+     * @return the bytes
+     */
+    private static byte[] bytesOf(final String text)
+    {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses text from the start of a byte array.
+     *
+     * @param text the text
+     * @return the outcome
+     */
+    private static ValidationCode parseCode(final String text)
+    {
+        return DateParser.codeOf(DateParser.parseEpochDay(bytesOf(text), 0));
+    }
+}
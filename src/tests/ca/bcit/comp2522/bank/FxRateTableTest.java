@@ -0,0 +1,211 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link FxRateTable} converts through its loaded rates, keeps the
+ * old rates when a file is rejected, leaves snapshots unchanged by later loads,
+ * and that accounts refuse amounts in currencies without a rate.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class FxRateTableTest
+{
+    private static final double   TOLERANCE = 1e-9;
+    private static final Currency USD       = Currency.getInstance("USD");
+    private static final Currency EUR       = Currency.getInstance("EUR");
+    private static final Currency JPY       = Currency.getInstance("JPY");
+    private static final Currency GBP       = Currency.getInstance("GBP");
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FxRateTableTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws IOException if a temporary file cannot be used
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final Path directory;
+        directory = Files.createTempDirectory("fx");
+
+        try
+        {
+            loadedRatesConvertThroughDollars(directory.resolve("rates.txt"));
+            rejectedFilesKeepTheOldRates(directory.resolve("bad.txt"));
+            snapshotsIgnoreLaterLoads(directory.resolve("snapshot.txt"));
+            accountsConvertIntoTheirCurrency(directory.resolve("account.txt"));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (final Path file : files.toList())
+                {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Amounts convert through their dollar value, comments and blank lines are
+     * skipped, and currencies without a rate give {@code NaN} or throw.
+     *
+     * @param file the rate file
+     * @throws IOException if the file cannot be written
+     */
+    private static void loadedRatesConvertThroughDollars(final Path file) throws IOException
+    {
+        final FxRateTable rates;
+        rates = new FxRateTable();
+
+        TestSupport.checkEquals(5.0, rates.convert(5, USD, USD), "dollars before any load");
+        TestSupport.check(Double.isNaN(rates.tryConvert(1, EUR, USD)), "no euro rate before any load");
+
+        Files.writeString(file, "# USD per unit\n\nEUR 1.10\nJPY   0.0067\n");
+        rates.load(file);
+
+        checkClose(110.0, rates.convert(100, EUR, USD), "euros to dollars");
+        checkClose(100.0, rates.convert(110, USD, EUR), "dollars to euros");
+        checkClose(100 * 1.10 / 0.0067, rates.convert(100, EUR, JPY), "euros to yen");
+        TestSupport.check(Double.isNaN(rates.tryConvert(1, GBP, USD)), "no pound rate");
+        TestSupport.checkEquals(7.0, rates.convert(7, GBP, GBP), "same currency needs no rate");
+        TestSupport.checkThrows(ValidationException.class, () -> rates.convert(1, USD, GBP), "convert to pounds");
+        TestSupport.passed("loaded rates convert through dollars");
+    }
+
+    /**
+     * A file with a malformed or invalid line is refused as a whole.
+     *
+     * @param file the rate file
+     * @throws IOException if the file cannot be written
+     */
+    private static void rejectedFilesKeepTheOldRates(final Path file) throws IOException
+    {
+        final FxRateTable rates;
+        rates = new FxRateTable();
+
+        Files.writeString(file, "EUR 1.10\n");
+        rates.load(file);
+
+        Files.writeString(file, "EUR 2.00\nJPY\n");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> load(rates, file), "missing rate");
+        Files.writeString(file, "EUR 2.00\nJPY -1\n");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> load(rates, file), "negative rate");
+        Files.writeString(file, "EUR 2.00\nJPY Infinity\n");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> load(rates, file), "infinite rate");
+
+        checkClose(110.0, rates.convert(100, EUR, USD), "old euro rate kept");
+        TestSupport.check(Double.isNaN(rates.tryConvert(1, JPY, USD)), "no yen rate");
+        TestSupport.passed("rejected files keep the old rates");
+    }
+
+    /**
+     * A snapshot keeps the rates in force when it was taken.
+     *
+     * @param file the rate file
+     * @throws IOException if the file cannot be written
+     */
+    private static void snapshotsIgnoreLaterLoads(final Path file) throws IOException
+    {
+        final FxRateTable rates;
+        final FxRateTable snapshot;
+
+        rates = new FxRateTable();
+
+        Files.writeString(file, "EUR 1.10\n");
+        rates.load(file);
+        snapshot = rates.snapshot();
+
+        Files.writeString(file, "EUR 1.20\nJPY 0.0067\n");
+        rates.load(file);
+
+        checkClose(120.0, rates.convert(100, EUR, USD), "live table");
+        checkClose(110.0, snapshot.convert(100, EUR, USD), "snapshot");
+        TestSupport.check(Double.isNaN(snapshot.tryConvert(1, JPY, USD)), "rate added later");
+        TestSupport.passed("snapshots ignore later loads");
+    }
+
+    /**
+     * Accounts take amounts in other currencies at the loaded rate and refuse
+     * currencies without one, leaving the balance unchanged.
+     *
+     * @param file the rate file
+     * @throws IOException if the file cannot be written
+     */
+    private static void accountsConvertIntoTheirCurrency(final Path file) throws IOException
+    {
+        final FxRateTable rates;
+        final BankAccount account;
+
+        rates   = new FxRateTable();
+        account = new BankAccount(TestSupport.openAccount("100001", 0).getClient(),
+                                  "100002",
+                                  Date.of(2020, Date.JANUARY, 1),
+                                  null,
+                                  100,
+                                  1234,
+                                  EUR);
+
+        Files.writeString(file, "EUR 1.25\n");
+        rates.load(file);
+
+        TestSupport.checkEquals(ValidationCode.OK, account.tryDeposit(50, USD, rates), "deposit in dollars");
+        checkClose(140.0, account.getBalance(), "balance after deposit");
+        TestSupport.checkEquals(ValidationCode.OK, account.tryWithdraw(25, USD, rates), "withdrawal in dollars");
+        checkClose(120.0, account.getBalance(), "balance after withdrawal");
+        TestSupport.checkEquals(FxCode.UNKNOWN_CURRENCY, account.tryDeposit(10, GBP, rates), "deposit in pounds");
+        TestSupport.checkEquals(FxCode.UNKNOWN_CURRENCY, account.tryWithdraw(10, GBP, rates), "withdrawal in pounds");
+        TestSupport.checkThrows(ValidationException.class, () -> account.deposit(10, GBP, rates), "throwing deposit");
+        checkClose(120.0, account.getBalance(), "balance unchanged");
+        TestSupport.passed("accounts convert into their currency");
+    }
+
+    /**
+     * Loads a rate file, wrapping the checked exception.
+     *
+     * @param rates the table to load into
+     * @param file  the rate file
+     */
+    private static void load(final FxRateTable rates,
+                             final Path file)
+    {
+        try
+        {
+            rates.load(file);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fails the running test unless two amounts agree closely.
+     *
+     * @param expected the expected amount
+     * @param actual   the actual amount
+     * @param what     what the amounts are
+     */
+    private static void checkClose(final double expected,
+                                   final double actual,
+                                   final String what)
+    {
+        TestSupport.check(Math.abs(expected - actual) <= TOLERANCE * Math.max(1.0, Math.abs(expected)),
+                          what + ": expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,205 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link IdAllocator} never issues the same ID twice, whether from
+ * many threads at once or across a restart on the same mark file, and that it
+ * refuses to start from a damaged mark file.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class IdAllocatorTest
+{
+    private static final int    THREADS        = 8;
+    private static final int    IDS_PER_THREAD = 50_000;
+    private static final int    IDS_PER_RUN    = 5_000;
+    private static final int    RUNS           = 3;
+    private static final long   TIMEOUT_SEC    = 30;
+    private static final String ALPHABET       = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private IdAllocatorTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if a temporary file cannot be used or a worker fails
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final Path directory;
+        directory = Files.createTempDirectory("ids");
+
+        try
+        {
+            idsAreUniqueAcrossThreads(directory.resolve("threads.mark"));
+            restartsContinuePastTheMark(directory.resolve("restart.mark"));
+            damagedMarkFilesAreRefused(directory.resolve("damaged.mark"));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (final Path file : files.toList())
+                {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Threads drawing IDs together from one allocator all get different,
+     * well-formed IDs, and the saved mark covers every one of them.
+     *
+     * @param markFile the mark file
+     * @throws Exception if a worker fails
+     */
+    private static void idsAreUniqueAcrossThreads(final Path markFile) throws Exception
+    {
+        final IdAllocator allocator;
+        final Set<String> issued;
+        final ExecutorService executor;
+        final CountDownLatch start;
+        final List<Future<?>> futures;
+
+        allocator = new IdAllocator(markFile);
+        issued    = ConcurrentHashMap.newKeySet();
+        executor  = Executors.newFixedThreadPool(THREADS);
+        start     = new CountDownLatch(1);
+        futures   = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            futures.add(executor.submit(() ->
+                                        {
+                                            start.await();
+
+                                            for (int i = 0; i < IDS_PER_THREAD; i++)
+                                            {
+                                                final String id;
+                                                id = allocator.next();
+
+                                                checkWellFormed(id);
+                                                TestSupport.check(issued.add(id), "repeated ID " + id);
+                                            }
+                                            return null;
+                                        }));
+        }
+
+        start.countDown();
+
+        for (final Future<?> future : futures)
+        {
+            future.get();
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        TestSupport.checkEquals(THREADS * IDS_PER_THREAD, issued.size(), "IDs issued");
+        TestSupport.check(allocator.getHighWaterMark() >= THREADS * IDS_PER_THREAD, "mark covers the issued IDs");
+        TestSupport.checkEquals(Long.toString(allocator.getHighWaterMark()), Files.readString(markFile), "saved mark");
+        TestSupport.passed("IDs are unique across threads");
+    }
+
+    /**
+     * Each allocator opened on the mark file an earlier one left behind starts
+     * at the saved mark and issues none of the earlier IDs.
+     *
+     * @param markFile the mark file
+     * @throws IOException if the mark file cannot be read
+     */
+    private static void restartsContinuePastTheMark(final Path markFile) throws IOException
+    {
+        final Set<String> issued;
+        issued = new HashSet<>();
+
+        for (int run = 0; run < RUNS; run++)
+        {
+            final IdAllocator allocator;
+            final long savedMark;
+
+            if (Files.exists(markFile))
+            {
+                savedMark = Long.parseLong(Files.readString(markFile));
+            }
+            else
+            {
+                savedMark = 0;
+            }
+
+            allocator = new IdAllocator(markFile);
+            TestSupport.checkEquals(savedMark, allocator.getHighWaterMark(), "mark at start of run " + run);
+            TestSupport.check(issued.add(IdAllocator.encode(savedMark)), "first ID of run " + run + " repeated");
+            TestSupport.checkEquals(IdAllocator.encode(savedMark), allocator.next(), "first ID of run " + run);
+
+            for (int i = 1; i < IDS_PER_RUN; i++)
+            {
+                TestSupport.check(issued.add(allocator.next()), "ID repeated in run " + run);
+            }
+
+            TestSupport.check(allocator.getHighWaterMark() > savedMark, "mark moved on in run " + run);
+        }
+        TestSupport.passed("restarts continue past the mark");
+    }
+
+    /**
+     * A mark file that is empty, not a number or out of range stops the
+     * allocator from starting, and is left as it was.
+     *
+     * @param markFile the mark file
+     * @throws IOException if the mark file cannot be written
+     */
+    private static void damagedMarkFilesAreRefused(final Path markFile) throws IOException
+    {
+        final String[] damaged;
+        damaged = new String[] {"", "12x4", "-1", "99999999999999"};
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> new IdAllocator(null), "no mark file");
+
+        for (final String text : damaged)
+        {
+            Files.writeString(markFile, text);
+            TestSupport.checkThrows(IllegalStateException.class, () -> new IdAllocator(markFile), "mark \"" + text + "\"");
+            TestSupport.checkEquals(text, Files.readString(markFile), "mark file kept");
+        }
+        TestSupport.passed("damaged mark files are refused");
+    }
+
+    /**
+     * Fails the running test unless an ID has the right length and alphabet.
+     *
+     * @param id the ID
+     */
+    private static void checkWellFormed(final String id)
+    {
+        TestSupport.checkEquals(IdAllocator.ID_LENGTH, id.length(), "length of " + id);
+
+        for (int i = 0; i < id.length(); i++)
+        {
+            TestSupport.check(ALPHABET.indexOf(id.charAt(i)) >= 0, "character of " + id);
+        }
+    }
+}
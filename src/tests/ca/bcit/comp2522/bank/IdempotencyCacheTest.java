@@ -0,0 +1,227 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that {@link IdempotencyCache} runs each key's transaction once while its
+ * result is remembered, forgets a transaction that threw, stays within its
+ * capacity, and evicts expired entries before live ones.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class IdempotencyCacheTest
+{
+    private static final int  CAPACITY      = 64;
+    private static final int  SEGMENTS      = 4;
+    private static final int  THREADS       = 8;
+    private static final int  KEYS          = 1_000;
+    private static final long LONG_TTL      = TimeUnit.HOURS.toNanos(1);
+    private static final long SHORT_TTL     = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long EXPIRY_MILLIS = 300;
+    private static final long TIMEOUT_SEC   = 30;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private IdempotencyCacheTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if a test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        repeatsReturnTheFirstResult();
+        concurrentRepeatsRunOnce();
+        failedTransactionsAreForgotten();
+        capacityIsKept();
+        expiredEntriesGoBeforeLiveOnes();
+    }
+
+    /**
+     * A repeated key returns the first result without running again, and a
+     * blank key is refused without running at all.
+     *
+     * @throws InterruptedException if interrupted while waiting for a result
+     */
+    private static void repeatsReturnTheFirstResult() throws InterruptedException
+    {
+        final IdempotencyCache cache;
+        final AtomicInteger runs;
+
+        cache = new IdempotencyCache(CAPACITY, SEGMENTS, LONG_TTL);
+        runs  = new AtomicInteger();
+
+        TestSupport.checkEquals(ValidationCode.INSUFFICIENT_FUNDS,
+                                cache.submit("k1", () -> count(runs, ValidationCode.INSUFFICIENT_FUNDS)), "first run");
+        TestSupport.checkEquals(ValidationCode.INSUFFICIENT_FUNDS, cache.submit("k1", () -> count(runs, ValidationCode.OK)), "repeat");
+        TestSupport.checkEquals(ValidationCode.OK, cache.submit("k2", () -> count(runs, ValidationCode.OK)), "other key");
+        TestSupport.checkEquals(IdempotencyCode.KEY_BLANK, cache.submit(" ", () -> count(runs, ValidationCode.OK)), "blank key");
+        TestSupport.checkEquals(2, runs.get(), "runs");
+        TestSupport.passed("repeats return the first result");
+    }
+
+    /**
+     * Threads submitting the same keys together run each transaction once, and
+     * every thread sees that run's result.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void concurrentRepeatsRunOnce() throws Exception
+    {
+        final IdempotencyCache cache;
+        final AtomicInteger runs;
+        final ExecutorService executor;
+        final CountDownLatch start;
+        final List<Future<?>> futures;
+
+        cache    = new IdempotencyCache(KEYS, SEGMENTS, LONG_TTL);
+        runs     = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(THREADS);
+        start    = new CountDownLatch(1);
+        futures  = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            futures.add(executor.submit(() ->
+                                        {
+                                            start.await();
+
+                                            for (int i = 0; i < KEYS / 2; i++)
+                                            {
+                                                final ResultCode expected;
+                                                expected = ValidationCode.values()[i % ValidationCode.values().length];
+
+                                                TestSupport.checkEquals(expected,
+                                                                        cache.submit("key" + i, () -> count(runs, expected)),
+                                                                        "result of key" + i);
+                                            }
+                                            return null;
+                                        }));
+        }
+
+        start.countDown();
+
+        for (final Future<?> future : futures)
+        {
+            future.get();
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+        TestSupport.checkEquals(KEYS / 2, runs.get(), "runs");
+        TestSupport.passed("concurrent repeats run once");
+    }
+
+    /**
+     * A transaction that throws leaves no result behind, so the key runs again.
+     *
+     * @throws InterruptedException if interrupted while waiting for a result
+     */
+    private static void failedTransactionsAreForgotten() throws InterruptedException
+    {
+        final IdempotencyCache cache;
+        cache = new IdempotencyCache(CAPACITY, SEGMENTS, LONG_TTL);
+
+        TestSupport.checkThrows(IllegalStateException.class, () -> failingSubmit(cache), "throwing transaction");
+        TestSupport.checkEquals(0, cache.size(), "nothing remembered");
+        TestSupport.checkEquals(ValidationCode.OK, cache.submit("k1", () -> ValidationCode.OK), "retry runs");
+        TestSupport.passed("failed transactions are forgotten");
+    }
+
+    /**
+     * However many keys are submitted, no more than the capacity are remembered.
+     *
+     * @throws InterruptedException if interrupted while waiting for a result
+     */
+    private static void capacityIsKept() throws InterruptedException
+    {
+        final IdempotencyCache cache;
+        cache = new IdempotencyCache(CAPACITY, SEGMENTS, LONG_TTL);
+
+        for (int i = 0; i < KEYS; i++)
+        {
+            cache.submit("key" + i, () -> ValidationCode.OK);
+        }
+
+        TestSupport.check(cache.size() <= CAPACITY, "size " + cache.size());
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> new IdempotencyCache(CAPACITY, 3, LONG_TTL), "segments");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> new IdempotencyCache(CAPACITY, SEGMENTS, 0), "time-to-live");
+        TestSupport.passed("capacity is kept");
+    }
+
+    /**
+     * When a full segment admits a key, an expired entry is evicted even if it
+     * was referenced, and the live entry the clock hand reaches first is kept.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void expiredEntriesGoBeforeLiveOnes() throws InterruptedException
+    {
+        final IdempotencyCache cache;
+        final AtomicInteger runs;
+
+        cache = new IdempotencyCache(2, 1, SHORT_TTL);
+        runs  = new AtomicInteger();
+
+        cache.submit("old", () -> count(runs, ValidationCode.OK));
+        cache.submit("old", () -> count(runs, ValidationCode.OK));
+        Thread.sleep(EXPIRY_MILLIS);
+
+        cache.submit("live", () -> count(runs, ValidationCode.OK));
+        cache.submit("new", () -> count(runs, ValidationCode.OK));
+        TestSupport.checkEquals(3, runs.get(), "runs before the repeat");
+
+        cache.submit("live", () -> count(runs, ValidationCode.OK));
+        TestSupport.checkEquals(3, runs.get(), "live entry kept");
+        TestSupport.checkEquals(2, cache.size(), "size");
+        TestSupport.passed("expired entries go before live ones");
+    }
+
+    /**
+     * Submits a transaction that throws.
+     *
+     * @param cache the cache
+     */
+    private static void failingSubmit(final IdempotencyCache cache)
+    {
+        try
+        {
+            cache.submit("k1", () ->
+            {
+                throw new IllegalStateException("Simulated failure");
+            });
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts a run of a transaction.
+     *
+     * @param runs   the run counter
+     * @param result the result to return
+     * @return {@code result}
+     */
+    private static ResultCode count(final AtomicInteger runs,
+                                    final ResultCode result)
+    {
+        runs.incrementAndGet();
+        return result;
+    }
+}
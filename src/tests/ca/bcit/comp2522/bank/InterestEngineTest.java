@@ -0,0 +1,295 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link InterestEngine} counts days actual/actual, posts interest
+ * once to every open account, and resumes a failed run without posting twice.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class InterestEngineTest
+{
+    private static final double RATE         = 0.05;
+    private static final double BALANCE      = 1_000.0;
+    private static final double TOLERANCE    = 1e-9;
+    private static final int    ACCOUNTS     = 1_000;
+    private static final int    PARTITIONS   = 4;
+    private static final int    THREADS      = 2;
+    private static final int    CLOSE_STRIDE = 10;
+    private static final int    POISONED     = 600;
+    private static final int    JUNE         = 6;
+    private static final int    JULY         = 7;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private InterestEngineTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws IOException if a temporary file cannot be used
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final Path directory;
+        directory = Files.createTempDirectory("interest");
+
+        try
+        {
+            yearFractionCountsActualDays();
+            runPostsOnceToOpenAccounts(directory.resolve("full.progress"));
+            failedRunResumesWithoutPostingTwice(directory.resolve("resume.progress"));
+            damagedProgressStartsOver(directory.resolve("damaged.progress"));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (final Path file : files.toList())
+                {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Whole years count as one year whatever their length, and a period across
+     * a year end divides each part by its own year's length.
+     */
+    private static void yearFractionCountsActualDays()
+    {
+        checkClose(1.0, InterestEngine.yearFraction(Date.of(2023, Date.JANUARY, 1), Date.of(2024, Date.JANUARY, 1)), "2023");
+        checkClose(1.0, InterestEngine.yearFraction(Date.of(2024, Date.JANUARY, 1), Date.of(2025, Date.JANUARY, 1)), "leap 2024");
+        checkClose(1.0 / 365 + 1.0 / 366,
+                   InterestEngine.yearFraction(Date.of(2023, Date.DECEMBER, 31), Date.of(2024, Date.JANUARY, 2)),
+                   "across a year end");
+        checkClose(0.0, InterestEngine.yearFraction(Date.of(2024, JUNE, 1), Date.of(2024, JUNE, 1)), "empty period");
+        TestSupport.passed("year fraction counts actual days");
+    }
+
+    /**
+     * A full run credits every open account once, skips closed accounts,
+     * reports the total posted, and leaves no progress file behind.
+     *
+     * @param progress the progress file
+     */
+    private static void runPostsOnceToOpenAccounts(final Path progress)
+    {
+        final List<BankAccount> accounts;
+        final double posted;
+
+        accounts = book();
+        posted   = new InterestEngine(accounts, RATE, PARTITIONS, THREADS, progress).run(from(), to());
+
+        checkClose(interest() * openCount(accounts), posted, "total posted");
+        checkBalances(accounts);
+        TestSupport.check(!Files.exists(progress), "progress file removed");
+        TestSupport.passed("run posts once to open accounts");
+    }
+
+    /**
+     * A run whose worker fails part way records where every partition stopped,
+     * and running the same period again finishes the book with each account
+     * credited exactly once.
+     *
+     * @param progress the progress file
+     */
+    private static void failedRunResumesWithoutPostingTwice(final Path progress)
+    {
+        final List<BankAccount> accounts;
+        final FailingList failing;
+        final InterestEngine engine;
+        final double resumed;
+
+        accounts = book();
+        failing  = new FailingList(accounts);
+        engine   = new InterestEngine(failing, RATE, PARTITIONS, THREADS, progress);
+
+        TestSupport.checkThrows(IllegalStateException.class, () -> engine.run(from(), to()), "failed run");
+        TestSupport.check(Files.exists(progress), "progress saved after the failure");
+
+        resumed = engine.run(from(), to());
+
+        TestSupport.check(resumed > 0, "resumed run posted the rest");
+        checkBalances(accounts);
+        TestSupport.check(!Files.exists(progress), "progress file removed after resuming");
+        TestSupport.passed("failed run resumes without posting twice");
+    }
+
+    /**
+     * A truncated progress file is ignored and the period runs in full.
+     *
+     * @param progress the progress file
+     * @throws IOException if the file cannot be written
+     */
+    private static void damagedProgressStartsOver(final Path progress) throws IOException
+    {
+        final List<BankAccount> accounts;
+
+        accounts = book();
+        Files.writeString(progress, from().toEpochDay() + " " + to().toEpochDay() + " " + PARTITIONS + " " + ACCOUNTS);
+
+        new InterestEngine(accounts, RATE, PARTITIONS, THREADS, progress).run(from(), to());
+
+        checkBalances(accounts);
+        TestSupport.passed("damaged progress starts over");
+    }
+
+    /**
+     * Creates a book in which every {@value #CLOSE_STRIDE}th account is closed.
+     *
+     * @return the accounts
+     */
+    private static List<BankAccount> book()
+    {
+        final BankAccount[] accounts;
+        accounts = new BankAccount[ACCOUNTS];
+
+        for (int i = 0; i < ACCOUNTS; i++)
+        {
+            accounts[i] = TestSupport.openAccount(Integer.toString(100_000 + i), BALANCE);
+
+            if (i % CLOSE_STRIDE == 0)
+            {
+                accounts[i].close(Date.of(2021, Date.JANUARY, 1));
+            }
+        }
+        return List.of(accounts);
+    }
+
+    /**
+     * Checks that every open account was credited once and every closed account not at all.
+     *
+     * @param accounts the accounts
+     */
+    private static void checkBalances(final List<BankAccount> accounts)
+    {
+        for (final BankAccount account : accounts)
+        {
+            if (account.getAccountClosed() == null)
+            {
+                checkClose(BALANCE + interest(), account.getBalance(), "balance of " + account.getAccountNumber());
+            }
+            else
+            {
+                checkClose(BALANCE, account.getBalance(), "balance of closed " + account.getAccountNumber());
+            }
+        }
+    }
+
+    /**
+     * Counts the open accounts in a book.
+     *
+     * @param accounts the accounts
+     * @return the open count
+     */
+    private static int openCount(final List<BankAccount> accounts)
+    {
+        int open;
+        open = 0;
+
+        for (final BankAccount account : accounts)
+        {
+            if (account.getAccountClosed() == null)
+            {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Retrieves the interest one account earns over the test period.
+     *
+     * @return the interest
+     */
+    private static double interest()
+    {
+        return BALANCE * RATE * InterestEngine.yearFraction(from(), to());
+    }
+
+    /**
+     * Retrieves the first day of the test period.
+     *
+     * @return the date
+     */
+    private static Date from()
+    {
+        return Date.of(2023, JULY, 1);
+    }
+
+    /**
+     * Retrieves the day after the test period.
+     *
+     * @return the date
+     */
+    private static Date to()
+    {
+        return Date.of(2024, JULY, 1);
+    }
+
+    /**
+     * Fails the running test unless two amounts agree closely.
+     *
+     * @param expected the expected amount
+     * @param actual   the actual amount
+     * @param what     what the amounts are
+     */
+    private static void checkClose(final double expected,
+                                   final double actual,
+                                   final String what)
+    {
+        TestSupport.check(Math.abs(expected - actual) <= TOLERANCE * Math.max(1.0, Math.abs(expected)),
+                          what + ": expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * A view of a book that throws the first time one account is read, as a
+     * failing partition would.
+     */
+    private static final class FailingList extends AbstractList<BankAccount>
+    {
+        private final List<BankAccount> accounts;
+        private volatile boolean        failed;
+
+        /**
+         * Constructs a {@code FailingList}.
+         *
+         * @param accounts the book
+         */
+        private FailingList(final List<BankAccount> accounts)
+        {
+            this.accounts = accounts;
+        }
+
+        @Override
+        public BankAccount get(final int index)
+        {
+            if (index == POISONED && !failed)
+            {
+                failed = true;
+                throw new IllegalStateException("Simulated failure at account " + index);
+            }
+            return accounts.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return accounts.size();
+        }
+    }
+}
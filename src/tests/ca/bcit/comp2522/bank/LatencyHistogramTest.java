@@ -0,0 +1,194 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Tests that {@link LatencyHistogram} reports every percentile no lower than
+ * the true value and at most one sub-bucket above it, that small values and
+ * the maximum are exact, and that merged histograms report what one histogram
+ * of every value would.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LatencyHistogramTest
+{
+    private static final long     SEED          = 2522L;
+    private static final int      SAMPLES       = 200_000;
+    private static final int      MAX_BIT       = 40;
+    private static final int      SUB_BUCKETS   = 32;
+    private static final double   MAX_OVERSTATE = 1.0 / SUB_BUCKETS;
+    private static final double[] PERCENTILES   = {0, 1, 25, 50, 75, 90, 99, 99.9, 99.99, 100};
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LatencyHistogramTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        percentilesStayWithinOneSubBucket();
+        smallValuesAreExact();
+        mergedHistogramsMatchOne();
+        edgeCasesAreHandled();
+    }
+
+    /**
+     * Values spread over many powers of two give percentiles between the exact
+     * value and that value plus one sub-bucket, never above the maximum.
+     */
+    private static void percentilesStayWithinOneSubBucket()
+    {
+        final SplittableRandom random;
+        final LatencyHistogram histogram;
+        final long[] values;
+
+        random    = new SplittableRandom(SEED);
+        histogram = new LatencyHistogram();
+        values    = new long[SAMPLES];
+
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            final long value;
+            value = random.nextLong(1L << random.nextInt(MAX_BIT));
+
+            values[i] = value;
+            histogram.record(value);
+        }
+
+        Arrays.sort(values);
+
+        for (final double percentile : PERCENTILES)
+        {
+            final long exact;
+            final long reported;
+
+            exact    = exactPercentile(values, percentile);
+            reported = histogram.getPercentile(percentile);
+
+            TestSupport.check(reported >= exact, "p" + percentile + " " + reported + " below " + exact);
+            TestSupport.check(reported <= exact + (long) (exact * MAX_OVERSTATE),
+                              "p" + percentile + " " + reported + " too far above " + exact);
+            TestSupport.check(reported <= histogram.getMax(), "p" + percentile + " above the maximum");
+        }
+
+        TestSupport.checkEquals(values[SAMPLES - 1], histogram.getMax(), "maximum");
+        TestSupport.checkEquals(values[SAMPLES - 1], histogram.getPercentile(100), "p100");
+        TestSupport.checkEquals((long) SAMPLES, histogram.getCount(), "count");
+        TestSupport.passed("percentiles stay within one sub-bucket");
+    }
+
+    /**
+     * Every value below the first doubling has a bucket of its own.
+     */
+    private static void smallValuesAreExact()
+    {
+        final LatencyHistogram histogram;
+        histogram = new LatencyHistogram();
+
+        for (int value = 0; value < SUB_BUCKETS; value++)
+        {
+            histogram.record(value);
+        }
+
+        for (int value = 0; value < SUB_BUCKETS; value++)
+        {
+            TestSupport.checkEquals((long) value, histogram.getPercentile(100.0 * (value + 1) / SUB_BUCKETS), "value " + value);
+        }
+        TestSupport.passed("small values are exact");
+    }
+
+    /**
+     * Per-thread histograms added together report the same percentiles, count
+     * and maximum as one histogram that saw every value.
+     */
+    private static void mergedHistogramsMatchOne()
+    {
+        final SplittableRandom random;
+        final LatencyHistogram whole;
+        final LatencyHistogram first;
+        final LatencyHistogram second;
+
+        random = new SplittableRandom(SEED);
+        whole  = new LatencyHistogram();
+        first  = new LatencyHistogram();
+        second = new LatencyHistogram();
+
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            final long value;
+            value = random.nextLong(1L << random.nextInt(MAX_BIT));
+
+            whole.record(value);
+
+            if (i % 2 == 0)
+            {
+                first.record(value);
+            }
+            else
+            {
+                second.record(value);
+            }
+        }
+
+        first.add(second);
+
+        for (final double percentile : PERCENTILES)
+        {
+            TestSupport.checkEquals(whole.getPercentile(percentile), first.getPercentile(percentile), "p" + percentile);
+        }
+
+        TestSupport.checkEquals(whole.getCount(), first.getCount(), "count");
+        TestSupport.checkEquals(whole.getMax(), first.getMax(), "maximum");
+        TestSupport.passed("merged histograms match one");
+    }
+
+    /**
+     * An empty histogram reports 0, negative latencies count as 0, the largest
+     * value is bucketed, and percentages outside 0 to 100 are refused.
+     */
+    private static void edgeCasesAreHandled()
+    {
+        final LatencyHistogram histogram;
+        histogram = new LatencyHistogram();
+
+        TestSupport.checkEquals(0L, histogram.getPercentile(50), "empty");
+        TestSupport.checkEquals(0L, histogram.getMax(), "empty maximum");
+
+        histogram.record(-5);
+        TestSupport.checkEquals(0L, histogram.getPercentile(100), "negative latency");
+
+        histogram.record(Long.MAX_VALUE);
+        TestSupport.checkEquals(Long.MAX_VALUE, histogram.getPercentile(100), "largest latency");
+        TestSupport.checkEquals(0L, histogram.getPercentile(50), "median of two");
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> histogram.getPercentile(-1), "negative percentile");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> histogram.getPercentile(100.5), "percentile above 100");
+        TestSupport.passed("edge cases are handled");
+    }
+
+    /**
+     * Finds the value a percentage of sorted values do not exceed, ranking as
+     * {@link LatencyHistogram#getPercentile(double)} does.
+     *
+     * @param sorted     the values in ascending order
+     * @param percentile the percentage
+     * @return the value at that rank
+     */
+    private static long exactPercentile(final long[] sorted,
+                                        final double percentile)
+    {
+        final long rank;
+        rank = Math.max(1, (long) Math.ceil(sorted.length * percentile / 100));
+
+        return sorted[(int) rank - 1];
+    }
+}
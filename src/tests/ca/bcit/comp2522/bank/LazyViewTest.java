@@ -0,0 +1,189 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.util.Currency;
+
+/**
+ * Tests that {@link LazyAccountView} and {@link LazyClientView} read the same
+ * values {@link BinaryCodec} decodes, that one view can walk a whole buffer of
+ * records, and that moving a view forgets what it decoded before.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class LazyViewTest
+{
+    private static final int RECORDS      = 200;
+    private static final int RECORD_BYTES = 128;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LazyViewTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final BankAccount[] accounts;
+        accounts = sampleAccounts();
+
+        oneViewWalksEveryRecord(accounts, ByteBuffer.allocate(RECORDS * RECORD_BYTES));
+        oneViewWalksEveryRecord(accounts, ByteBuffer.allocateDirect(RECORDS * RECORD_BYTES));
+        movedViewsForgetDecodedFields(accounts);
+    }
+
+    /**
+     * A single view moved from record to record reads every field of every
+     * account and client, and leaves the buffer's position alone.
+     *
+     * @param accounts the accounts to encode
+     * @param buffer   an empty buffer to encode them into
+     */
+    private static void oneViewWalksEveryRecord(final BankAccount[] accounts,
+                                                final ByteBuffer buffer)
+    {
+        final LazyAccountView view;
+        int offset;
+
+        encode(accounts, buffer);
+        view   = new LazyAccountView(buffer, 0);
+        offset = 0;
+
+        for (final BankAccount account : accounts)
+        {
+            final BankClient client;
+            final LazyClientView clientView;
+            final BankAccount copy;
+
+            view.wrap(buffer, offset);
+            client     = account.getClient();
+            clientView = view.getClient();
+
+            TestSupport.checkEquals(account.getAccountNumber(), view.getAccountNumber(), "account number");
+            TestSupport.checkEquals(BinaryCodec.packKey(account.getAccountNumber()), view.getAccountKey(), "account key");
+            TestSupport.checkEquals(account.getBalance(), view.getBalance(), "balance");
+            TestSupport.checkEquals(account.getAccountClosed() != null, view.isClosed(), "closed flag");
+            TestSupport.checkEquals(account.getAccountOpened(), view.getAccountOpened(), "opened");
+            TestSupport.checkEquals(account.getAccountClosed(), view.getAccountClosed(), "closed");
+            TestSupport.checkEquals(account.getCurrency(), view.getCurrency(), "currency");
+
+            TestSupport.checkEquals(client.getClientID(), clientView.getClientID(), "client ID");
+            TestSupport.check(clientView.hasClientKey(BinaryCodec.packKey(client.getClientID())), "client key");
+            TestSupport.check(!clientView.hasClientKey(BinaryCodec.packKey("none")), "other client key");
+            TestSupport.checkEquals(client.getName().getFullName(), clientView.getName().getFullName(), "name");
+            TestSupport.checkEquals(client.getBirthDate(), clientView.getBirthDate(), "birth");
+            TestSupport.checkEquals(client.getDeathDate(), clientView.getDeathDate(), "death");
+            TestSupport.checkEquals(client.getSignupDate(), clientView.getSignupDate(), "signup");
+            TestSupport.checkEquals(client.getBirthDate().toEpochDay(), clientView.getBirthEpochDay(), "birth day");
+
+            copy = view.toAccount();
+            TestSupport.checkEquals(account.getDetails(), copy.getDetails(), "details");
+
+            offset += view.getRecordBytes();
+        }
+
+        TestSupport.checkEquals(buffer.limit(), offset, "records walked");
+        TestSupport.checkEquals(0, buffer.position(), "position");
+        TestSupport.passed("one view walks every record of a " + kind(buffer) + " buffer");
+    }
+
+    /**
+     * A view moved to another record, after reading the first one, reports the
+     * second record's values rather than the cached ones.
+     *
+     * @param accounts the accounts to encode
+     */
+    private static void movedViewsForgetDecodedFields(final BankAccount[] accounts)
+    {
+        final ByteBuffer buffer;
+        final LazyAccountView view;
+        final int second;
+
+        buffer = ByteBuffer.allocate(RECORDS * RECORD_BYTES);
+        encode(accounts, buffer);
+        view   = new LazyAccountView(buffer, 0);
+
+        view.getAccountNumber();
+        view.getAccountClosed();
+        view.getCurrency();
+        view.getClient().getName();
+        view.getClient().getDeathDate();
+
+        second = view.getRecordBytes();
+        view.wrap(buffer, second);
+
+        TestSupport.checkEquals(accounts[1].getAccountNumber(), view.getAccountNumber(), "account number");
+        TestSupport.checkEquals(accounts[1].getAccountClosed(), view.getAccountClosed(), "closed");
+        TestSupport.checkEquals(accounts[1].getCurrency(), view.getCurrency(), "currency");
+        TestSupport.checkEquals(accounts[1].getClient().getName().getFullName(),
+                                view.getClient().getName().getFullName(), "name");
+        TestSupport.checkEquals(accounts[1].getClient().getDeathDate(), view.getClient().getDeathDate(), "death");
+        TestSupport.passed("moved views forget decoded fields");
+    }
+
+    /**
+     * Creates accounts in which the first is open, in dollars and owned by a
+     * living client, and the second is closed, in euros and owned by a
+     * deceased client.
+     *
+     * @return the accounts
+     */
+    private static BankAccount[] sampleAccounts()
+    {
+        final BankAccount[] accounts;
+        final BankClient deceased;
+
+        accounts = BenchmarkAccounts.create(RECORDS);
+        deceased = new BankClient(new Name("Grace", "Hopper"),
+                                  Date.of(1906, Date.DECEMBER, 9),
+                                  Date.of(1992, Date.JANUARY, 1),
+                                  Date.of(1990, Date.JANUARY, 1),
+                                  "c99999");
+
+        accounts[1] = new BankAccount(deceased,
+                                      "999999",
+                                      Date.of(1990, Date.JANUARY, 1),
+                                      Date.of(1991, Date.DECEMBER, 31),
+                                      250.5,
+                                      1234,
+                                      Currency.getInstance("EUR"));
+        return accounts;
+    }
+
+    /**
+     * Encodes accounts into a buffer and flips it for reading.
+     *
+     * @param accounts the accounts
+     * @param buffer   the buffer
+     */
+    private static void encode(final BankAccount[] accounts,
+                               final ByteBuffer buffer)
+    {
+        for (final BankAccount account : accounts)
+        {
+            BinaryCodec.encodeAccount(buffer, account);
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Names the kind of a buffer.
+     *
+     * @param buffer the buffer
+     * @return "direct" or "heap"
+     */
+    private static String kind(final ByteBuffer buffer)
+    {
+        if (buffer.isDirect())
+        {
+            return "direct";
+        }
+        return "heap";
+    }
+}
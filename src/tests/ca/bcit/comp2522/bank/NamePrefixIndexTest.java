@@ -0,0 +1,185 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that {@link NamePrefixIndex} matches names whatever their case and
+ * accents, returns each client once and no more than the limit, and keeps
+ * alphabetical order when its terms are split between the merged array and
+ * the recent additions.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class NamePrefixIndexTest
+{
+    private static final int    MERGE_CLIENTS = 3_000;
+    private static final int    SMITHS        = 50;
+    private static final int    LIMIT         = 10;
+    private static final String TERM_FORMAT   = "Term%04d";
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private NamePrefixIndexTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        caseAndAccentsAreIgnored();
+        searchesStopAtTheLimit();
+        clientsMatchingBothNamesAreReturnedOnce();
+        searchesSpanMergedAndRecentTerms();
+    }
+
+    /**
+     * Upper case, accented and decomposed spellings all find the same client.
+     */
+    private static void caseAndAccentsAreIgnored()
+    {
+        final NamePrefixIndex index;
+        final BankClient zoe;
+
+        index = new NamePrefixIndex();
+        zoe   = client("Zoé", "Núñez", "c00001");
+
+        index.add(zoe);
+        index.add(client("Zack", "Smith", "c00002"));
+
+        TestSupport.checkEquals(List.of(zoe), index.search("zoe", LIMIT), "plain");
+        TestSupport.checkEquals(List.of(zoe), index.search("ZOÉ", LIMIT), "upper case accented");
+        TestSupport.checkEquals(List.of(zoe), index.search("Zoe\u0301", LIMIT), "decomposed accent");
+        TestSupport.checkEquals(List.of(zoe), index.search("NUN", LIMIT), "last name");
+        TestSupport.checkEquals(2, index.search("z", LIMIT).size(), "shared first letter");
+        TestSupport.checkEquals(List.of(), index.search("zz", LIMIT), "no match");
+        TestSupport.checkEquals("zoe", NamePrefixIndex.normalize("ZOÉ"), "normalized");
+        TestSupport.passed("case and accents are ignored");
+    }
+
+    /**
+     * A search returns no more clients than its limit, in the order they were
+     * added when they share a name.
+     */
+    private static void searchesStopAtTheLimit()
+    {
+        final NamePrefixIndex index;
+        final List<BankClient> smiths;
+
+        index  = new NamePrefixIndex();
+        smiths = new ArrayList<>();
+
+        for (int i = 0; i < SMITHS; i++)
+        {
+            final BankClient smith;
+            smith = client("First" + i, "Smith", "c" + (10_000 + i));
+
+            smiths.add(smith);
+            index.add(smith);
+        }
+
+        TestSupport.checkEquals(smiths.subList(0, LIMIT), index.search("smi", LIMIT), "first clients added");
+        TestSupport.checkEquals(smiths, index.search("smith", SMITHS * 2), "every match");
+        TestSupport.checkEquals(List.of(), index.search("smith", 0), "zero limit");
+        TestSupport.checkEquals(SMITHS, index.size(), "size");
+        TestSupport.passed("searches stop at the limit");
+    }
+
+    /**
+     * A client whose first and last names both match the prefix is returned
+     * once, at its first matching name.
+     */
+    private static void clientsMatchingBothNamesAreReturnedOnce()
+    {
+        final NamePrefixIndex index;
+        final BankClient annable;
+        final BankClient annette;
+        final BankClient anne;
+
+        index   = new NamePrefixIndex();
+        annable = client("Ann", "Annable", "c00001");
+        annette = client("Annette", "Jones", "c00002");
+        anne    = client("Anne", "Anne", "c00003");
+
+        index.add(annable);
+        index.add(annette);
+        index.add(anne);
+
+        TestSupport.checkEquals(List.of(annable, anne, annette), index.search("ann", LIMIT), "each client once");
+        TestSupport.checkEquals(List.of(annable, anne), index.search("ann", 2), "limit counts clients, not names");
+        TestSupport.passed("clients matching both names are returned once");
+    }
+
+    /**
+     * Enough names to merge the recent terms into the array more than once,
+     * followed by names that stay recent, are found in one alphabetical walk.
+     */
+    private static void searchesSpanMergedAndRecentTerms()
+    {
+        final NamePrefixIndex index;
+        final List<BankClient> byTerm;
+        final BankClient between;
+        final BankClient after;
+        final List<BankClient> expected;
+
+        index  = new NamePrefixIndex();
+        byTerm = new ArrayList<>();
+
+        for (int i = 0; i < MERGE_CLIENTS; i++)
+        {
+            final BankClient client;
+            client = client(String.format(TERM_FORMAT, i), "Last", "c" + (10_000 + i));
+
+            byTerm.add(client);
+            index.add(client);
+        }
+
+        between = client(String.format(TERM_FORMAT, 50) + "b", "Later", "c99998");
+        after   = client(String.format(TERM_FORMAT, 0) + "a", "Later", "c99999");
+        index.add(between);
+        index.add(after);
+
+        expected = new ArrayList<>();
+        expected.add(byTerm.get(50));
+        expected.add(between);
+
+        for (int i = 51; i < 60; i++)
+        {
+            expected.add(byTerm.get(i));
+        }
+
+        TestSupport.checkEquals(expected, index.search("term005", MERGE_CLIENTS), "early terms with a recent one");
+        TestSupport.checkEquals(List.of(byTerm.get(0), after), index.search("term0000", LIMIT), "recent term after an early one");
+        TestSupport.checkEquals(List.of(byTerm.get(MERGE_CLIENTS - 1)),
+                                index.search(String.format(TERM_FORMAT, MERGE_CLIENTS - 1), LIMIT), "last term");
+        TestSupport.checkEquals(MERGE_CLIENTS + 2, index.search("term", MERGE_CLIENTS * 2).size(), "every term");
+        TestSupport.checkEquals(MERGE_CLIENTS + 2, index.search("", MERGE_CLIENTS * 2).size(), "empty prefix");
+        TestSupport.checkEquals(MERGE_CLIENTS + 2, index.size(), "size");
+        TestSupport.passed("searches span merged and recent terms");
+    }
+
+    /**
+     * Creates a client with fixed dates.
+     *
+     * @param first the first name
+     * @param last  the last name
+     * @param id    the client ID
+     * @return the client
+     */
+    private static BankClient client(final String first,
+                                     final String last,
+                                     final String id)
+    {
+        return new BankClient(new Name(first, last),
+                              Date.of(1980, Date.JANUARY, 1),
+                              null,
+                              Date.of(2020, Date.JANUARY, 1),
+                              id);
+    }
+}
@@ -0,0 +1,215 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that {@link OffHeapAccountTable} reads back what was added, applies
+ * concurrent deposits without losing any, refuses changes to closed accounts,
+ * and refuses to copy accounts its slots cannot represent.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class OffHeapAccountTableTest
+{
+    private static final int    CAPACITY    = 1_000;
+    private static final int    RECORD_SIZE = 512;
+    private static final int    PIN         = 1234;
+    private static final int    THREADS     = 8;
+    private static final int    DEPOSITS    = 10_000;
+    private static final long   TIMEOUT_SEC = 30;
+    private static final double BALANCE     = 100.0;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private OffHeapAccountTableTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if the concurrent test fails to run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        copiesReadBackUnchanged();
+        transactionsFollowTheAccountRules();
+        concurrentDepositsAreNotLost();
+        unrepresentableAccountsAreRefused();
+    }
+
+    /**
+     * Accounts copied into the table read back with the same fields and
+     * details, and clients are shared between their accounts.
+     */
+    private static void copiesReadBackUnchanged()
+    {
+        try (OffHeapAccountTable table = new OffHeapAccountTable(CAPACITY))
+        {
+            final BankAccount[] accounts;
+            accounts = BenchmarkAccounts.create(CAPACITY);
+            accounts[3].close(Date.of(2025, Date.JANUARY, 1));
+
+            for (final BankAccount account : accounts)
+            {
+                table.add(account);
+            }
+
+            TestSupport.checkEquals(CAPACITY, table.size(), "size");
+
+            for (int i = 0; i < CAPACITY; i++)
+            {
+                final OffHeapAccountTable.AccountView view;
+                view = table.view(i);
+
+                TestSupport.checkEquals(accounts[i].getAccountNumber(), view.getAccountNumber(), "account number");
+                TestSupport.checkEquals(accounts[i].getAccountOpened(), view.getAccountOpened(), "opened");
+                TestSupport.checkEquals(accounts[i].getAccountClosed(), view.getAccountClosed(), "closed");
+                TestSupport.checkEquals(accounts[i].getBalance(), view.getBalance(), "balance");
+                TestSupport.check(accounts[i].getClient() == view.getClient(), "client");
+                TestSupport.checkEquals(accounts[i].getDetails(), view.getDetails(), "details");
+            }
+
+            TestSupport.checkThrows(IllegalStateException.class, () -> table.add(BenchmarkAccounts.account(CAPACITY)), "full table");
+            TestSupport.checkThrows(IllegalArgumentException.class, () -> table.view(CAPACITY), "unwritten slot");
+        }
+        TestSupport.passed("copies read back unchanged");
+    }
+
+    /**
+     * Deposits and withdrawals follow the same rules as on a {@link BankAccount},
+     * including the PIN check, and a closed account accepts neither.
+     */
+    private static void transactionsFollowTheAccountRules()
+    {
+        try (OffHeapAccountTable table = new OffHeapAccountTable(CAPACITY))
+        {
+            final BankAccount original;
+            final int slot;
+            final int copied;
+
+            original = TestSupport.openAccount("100001", BALANCE);
+            slot     = table.add(original.getClient(), "100002", original.getAccountOpened(), null, BALANCE, PIN);
+            copied   = table.add(withoutPin(original));
+
+            TestSupport.checkEquals(ValidationCode.OK, table.tryDeposit(slot, 50), "deposit");
+            TestSupport.checkEquals(ValidationCode.DEPOSIT_NOT_POSITIVE, table.tryDeposit(slot, -1), "negative deposit");
+            TestSupport.checkEquals(ValidationCode.INSUFFICIENT_FUNDS, table.tryWithdraw(slot, 1_000), "overdraw");
+            TestSupport.checkEquals(ValidationCode.INVALID_PIN, table.tryWithdraw(slot, 10, PIN + 1), "wrong PIN");
+            TestSupport.checkEquals(ValidationCode.OK, table.tryWithdraw(slot, 10, PIN), "right PIN");
+            TestSupport.checkEquals(140.0, table.getBalance(slot), "balance");
+            TestSupport.checkEquals(ValidationCode.INVALID_PIN,
+                                    table.tryWithdraw(copied, 10, BankAccount.NO_PIN), "account copied without a PIN");
+
+            table.close(slot, Date.of(2025, Date.JANUARY, 1));
+            table.close(slot, Date.of(2025, Date.DECEMBER, 1));
+
+            TestSupport.check(table.isClosed(slot), "closed");
+            TestSupport.checkEquals(Date.of(2025, Date.JANUARY, 1), table.view(slot).getAccountClosed(), "first closing date kept");
+            TestSupport.checkEquals(ValidationCode.DEPOSIT_TO_CLOSED, table.tryDeposit(slot, 1), "deposit after close");
+            TestSupport.checkEquals(ValidationCode.WITHDRAW_FROM_CLOSED, table.tryWithdraw(slot, 1), "withdraw after close");
+            TestSupport.checkEquals(140.0, table.getBalance(slot), "balance after close");
+        }
+        TestSupport.passed("transactions follow the account rules");
+    }
+
+    /**
+     * Threads depositing into the same slot leave the sum of every deposit.
+     *
+     * @throws Exception if a worker fails
+     */
+    private static void concurrentDepositsAreNotLost() throws Exception
+    {
+        try (OffHeapAccountTable table = new OffHeapAccountTable(CAPACITY))
+        {
+            final ExecutorService executor;
+            final List<Future<?>> futures;
+            final int slot;
+
+            executor = Executors.newFixedThreadPool(THREADS);
+            futures  = new ArrayList<>();
+            slot     = table.add(TestSupport.openAccount("100001", 0));
+
+            for (int t = 0; t < THREADS; t++)
+            {
+                futures.add(executor.submit(() ->
+                                            {
+                                                for (int i = 0; i < DEPOSITS; i++)
+                                                {
+                                                    table.tryDeposit(slot, 1);
+                                                }
+                                            }));
+            }
+
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(TIMEOUT_SEC, TimeUnit.SECONDS);
+
+            TestSupport.checkEquals((double) THREADS * DEPOSITS, table.getBalance(slot), "balance");
+        }
+        TestSupport.passed("concurrent deposits are not lost");
+    }
+
+    /**
+     * Frozen accounts and accounts held in another currency are refused rather
+     * than copied as open accounts in dollars, and nothing is added.
+     */
+    private static void unrepresentableAccountsAreRefused()
+    {
+        try (OffHeapAccountTable table = new OffHeapAccountTable(CAPACITY))
+        {
+            final BankAccount frozen;
+            final BankAccount euros;
+
+            frozen = TestSupport.openAccount("100001", BALANCE);
+            euros  = new BankAccount(frozen.getClient(),
+                                     "100002",
+                                     frozen.getAccountOpened(),
+                                     null,
+                                     BALANCE,
+                                     PIN,
+                                     Currency.getInstance("EUR"));
+            frozen.freeze();
+
+            TestSupport.checkThrows(IllegalArgumentException.class, () -> table.add(frozen), "frozen account");
+            TestSupport.checkThrows(IllegalArgumentException.class, () -> table.add(euros), "account in euros");
+            TestSupport.checkEquals(0, table.size(), "accounts added");
+
+            frozen.unfreeze();
+            table.add(frozen);
+            TestSupport.checkEquals(1, table.size(), "unfrozen account added");
+        }
+        TestSupport.passed("unrepresentable accounts are refused");
+    }
+
+    /**
+     * Copies an account through {@link BinaryCodec}, which leaves its PIN behind.
+     *
+     * @param account the account to copy
+     * @return a copy holding {@link BankAccount#NO_PIN}
+     */
+    private static BankAccount withoutPin(final BankAccount account)
+    {
+        final ByteBuffer buffer;
+        buffer = ByteBuffer.allocate(RECORD_SIZE);
+
+        BinaryCodec.encodeAccount(buffer, account);
+        buffer.flip();
+
+        return BinaryCodec.decodeAccount(buffer);
+    }
+}
@@ -0,0 +1,284 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that {@link PaymentScheduler} pays each occurrence of a standing order
+ * once, catches up on days missed between runs, and clamps payment days to
+ * short months.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class PaymentSchedulerTest
+{
+    private static final int    THREADS         = 2;
+    private static final int    BATCH_SIZE      = 3;
+    private static final double OPENING_BALANCE = 1_000.0;
+    private static final double PAYMENT         = 10.0;
+    private static final int    YEAR            = 2024;
+    private static final int    FEBRUARY        = 2;
+    private static final int    MARCH           = 3;
+    private static final int    APRIL           = 4;
+    private static final int    JUNE            = 6;
+    private static final int    MID_MONTH       = 15;
+    private static final int    LAST_DAY        = 31;
+    private static final int    MONTHLY         = 1;
+    private static final int    QUARTERLY       = 3;
+    private static final int    ORDERS          = 20;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private PaymentSchedulerTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        runCatchesUpMissedDays();
+        lastDayIsClampedToShortMonths();
+        everyOrderIsPaidOncePerOccurrence();
+        refusedPaymentsAreSkippedNotRetried();
+        refusedDepositsReleaseTheHold();
+        cancelledOrdersAreNotPaid();
+        lateOrdersStartAfterTheLastRun();
+    }
+
+    /**
+     * One run over a gap of several months pays every occurrence in the gap,
+     * and running the same days again pays nothing.
+     */
+    private static void runCatchesUpMissedDays()
+    {
+        final PaymentScheduler scheduler;
+        final BankAccount source;
+        final BankAccount target;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        source    = TestSupport.openAccount("200001", OPENING_BALANCE);
+        target    = TestSupport.openAccount("200002", 0);
+
+        scheduler.schedule(source, target, PAYMENT, MID_MONTH, MONTHLY, Date.of(YEAR, Date.JANUARY, 1));
+
+        TestSupport.checkEquals(3L, scheduler.run(day(YEAR, MARCH, LAST_DAY)), "payments January to March");
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, MARCH, LAST_DAY)), "payments on a repeated run");
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, APRIL, MID_MONTH - 1)), "payments before the due day");
+        TestSupport.checkEquals(1L, scheduler.run(day(YEAR, APRIL, MID_MONTH)), "payments on the due day");
+
+        TestSupport.checkEquals(OPENING_BALANCE - 4 * PAYMENT, source.getBalance(), "source balance");
+        TestSupport.checkEquals(4 * PAYMENT, target.getBalance(), "target balance");
+        TestSupport.passed("run catches up missed days");
+    }
+
+    /**
+     * An order for the 31st is paid on the last day of shorter months,
+     * including 29 February in a leap year, and returns to the 31st after.
+     */
+    private static void lastDayIsClampedToShortMonths()
+    {
+        final PaymentScheduler scheduler;
+        final StandingOrder order;
+        final List<Integer> paidOn;
+        final List<Integer> expected;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR - 1, Date.JANUARY, 1));
+        order     = scheduler.schedule(TestSupport.openAccount("200003", OPENING_BALANCE),
+                                       TestSupport.openAccount("200004", 0),
+                                       PAYMENT, LAST_DAY, MONTHLY, Date.of(YEAR - 1, Date.JANUARY, 1));
+        paidOn    = new ArrayList<>();
+        expected  = List.of(day(YEAR - 1, Date.JANUARY, LAST_DAY),
+                            day(YEAR - 1, FEBRUARY, 28),
+                            day(YEAR - 1, MARCH, LAST_DAY),
+                            day(YEAR - 1, APRIL, 30));
+
+        TestSupport.checkEquals(expected.get(0), order.getDueEpochDay(), "first due day");
+
+        // Run one day at a time so the day of each payment is known
+        for (int today = day(YEAR - 1, Date.JANUARY, 1); today <= day(YEAR - 1, APRIL, 30); today++)
+        {
+            if (scheduler.run(today) == 1)
+            {
+                paidOn.add(today);
+            }
+        }
+
+        TestSupport.checkEquals(expected, paidOn, "payment days in 2023");
+
+        scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY));
+
+        TestSupport.checkEquals(day(YEAR, FEBRUARY, 29), order.getDueEpochDay(), "due day in a leap February");
+        TestSupport.passed("last day is clamped to short months");
+    }
+
+    /**
+     * Many orders due on the same days, split over several batches, are each
+     * paid exactly once per occurrence.
+     */
+    private static void everyOrderIsPaidOncePerOccurrence()
+    {
+        final PaymentScheduler scheduler;
+        final BankAccount source;
+        final BankAccount[] targets;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        source    = TestSupport.openAccount("200005", OPENING_BALANCE * ORDERS);
+        targets   = new BankAccount[ORDERS];
+
+        for (int i = 0; i < ORDERS; i++)
+        {
+            final int interval;
+
+            if (i % 2 == 0)
+            {
+                interval = MONTHLY;
+            }
+            else
+            {
+                interval = QUARTERLY;
+            }
+
+            targets[i] = TestSupport.openAccount(Integer.toString(210_000 + i), 0);
+            scheduler.schedule(source, targets[i], PAYMENT, 1, interval, Date.of(YEAR, Date.JANUARY, 1));
+        }
+
+        // January to June: six monthly payments and two quarterly ones
+        scheduler.run(day(YEAR, JUNE, LAST_DAY - 1));
+
+        for (int i = 0; i < ORDERS; i++)
+        {
+            final int payments;
+
+            if (i % 2 == 0)
+            {
+                payments = 6;
+            }
+            else
+            {
+                payments = 2;
+            }
+
+            TestSupport.checkEquals(payments * PAYMENT, targets[i].getBalance(), "balance of target " + i);
+        }
+
+        TestSupport.checkEquals((long) (ORDERS / 2 * 8), scheduler.getPostedCount(), "payments posted");
+        TestSupport.checkEquals(0L, scheduler.getFailedCount(), "payments failed");
+        TestSupport.passed("every order is paid once per occurrence");
+    }
+
+    /**
+     * A payment the source cannot cover is counted as failed and skipped, and
+     * the next occurrence is paid once funds arrive.
+     */
+    private static void refusedPaymentsAreSkippedNotRetried()
+    {
+        final PaymentScheduler scheduler;
+        final BankAccount source;
+        final BankAccount target;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        source    = TestSupport.openAccount("200006", 0);
+        target    = TestSupport.openAccount("200007", 0);
+
+        scheduler.schedule(source, target, PAYMENT, MID_MONTH, MONTHLY, Date.of(YEAR, Date.JANUARY, 1));
+
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY)), "payments without funds");
+        TestSupport.checkEquals(1L, scheduler.getFailedCount(), "payments failed");
+
+        source.deposit(PAYMENT);
+
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY)), "failed payment retried");
+        TestSupport.checkEquals(1L, scheduler.run(day(YEAR, FEBRUARY, MID_MONTH)), "payments once funded");
+        TestSupport.checkEquals(PAYMENT, target.getBalance(), "target balance");
+        TestSupport.passed("refused payments are skipped, not retried");
+    }
+
+    /**
+     * A payment whose target refuses the deposit releases its hold, leaving
+     * the source's balance and available funds as they were.
+     */
+    private static void refusedDepositsReleaseTheHold()
+    {
+        final PaymentScheduler scheduler;
+        final BankAccount source;
+        final BankAccount target;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        source    = TestSupport.openAccount("200010", OPENING_BALANCE);
+        target    = TestSupport.openAccount("200011", 0);
+
+        target.close(Date.of(YEAR, Date.JANUARY, 1));
+        scheduler.schedule(source, target, PAYMENT, MID_MONTH, MONTHLY, Date.of(YEAR, Date.JANUARY, 1));
+
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY)), "payments to a closed account");
+        TestSupport.checkEquals(1L, scheduler.getFailedCount(), "payments failed");
+        TestSupport.checkEquals(OPENING_BALANCE, source.getBalance(), "source balance");
+        TestSupport.checkEquals(OPENING_BALANCE, source.getAvailableBalance(), "source available");
+        TestSupport.checkEquals(0.0, source.getHeldAmount(), "held");
+        TestSupport.checkEquals(0, scheduler.getUnreversedPayments().size(), "unreversed payments");
+        TestSupport.passed("refused deposits release the hold");
+    }
+
+    /**
+     * A cancelled order makes no further payments.
+     */
+    private static void cancelledOrdersAreNotPaid()
+    {
+        final PaymentScheduler scheduler;
+        final StandingOrder order;
+        final BankAccount target;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        target    = TestSupport.openAccount("200009", 0);
+        order     = scheduler.schedule(TestSupport.openAccount("200008", OPENING_BALANCE), target,
+                                       PAYMENT, MID_MONTH, MONTHLY, Date.of(YEAR, Date.JANUARY, 1));
+
+        scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY));
+        order.cancel();
+
+        TestSupport.checkEquals(0L, scheduler.run(day(YEAR, JUNE, LAST_DAY - 1)), "payments after cancelling");
+        TestSupport.checkEquals(PAYMENT, target.getBalance(), "target balance");
+        TestSupport.passed("cancelled orders are not paid");
+    }
+
+    /**
+     * An order scheduled to start on a day that has already been run starts at
+     * its next occurrence instead.
+     */
+    private static void lateOrdersStartAfterTheLastRun()
+    {
+        final PaymentScheduler scheduler;
+        final StandingOrder order;
+
+        scheduler = new PaymentScheduler(THREADS, BATCH_SIZE, day(YEAR, Date.JANUARY, 1));
+        scheduler.run(day(YEAR, Date.JANUARY, LAST_DAY));
+
+        order = scheduler.schedule(TestSupport.openAccount("200010", OPENING_BALANCE),
+                                   TestSupport.openAccount("200011", 0),
+                                   PAYMENT, MID_MONTH, MONTHLY, Date.of(YEAR, Date.JANUARY, 1));
+
+        TestSupport.checkEquals(day(YEAR, FEBRUARY, MID_MONTH), order.getDueEpochDay(), "first due day");
+        TestSupport.passed("late orders start after the last run");
+    }
+
+    /**
+     * Converts a date to its day number.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the day number
+     */
+    private static int day(final int year,
+                           final int month,
+                           final int day)
+    {
+        return Date.epochDay(year, month, day);
+    }
+}
@@ -0,0 +1,363 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Tests that {@link ReplicationFollower}s end up with the leader's accounts
+ * whether they join before or after the changes, that a follower stops at a
+ * malformed frame without applying it, and that {@link ReplicationLeader#close()}
+ * returns while a connected follower has stopped reading.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ReplicationTest
+{
+    private static final int    ACCOUNTS        = 500;
+    private static final int    DEPOSITS        = 20_000;
+    private static final int    STALL_DEPOSITS  = 200_000;
+    private static final int    FREEZE_STRIDE   = 7;
+    private static final int    CLOSE_STRIDE    = 11;
+    private static final int    MAX_BATCH_SIZE  = 64;
+    private static final int    MAX_PENDING     = 1_024;
+    private static final int    LARGE_PENDING   = 1 << 20;
+    private static final double INITIAL_BALANCE = 1_000;
+    private static final double DEPOSIT_AMOUNT  = 2.5;
+    private static final long   GOOD_SEQUENCE   = 5;
+    private static final byte   UNKNOWN_STATE   = 99;
+    private static final long   TIMEOUT_NANOS   = TimeUnit.SECONDS.toNanos(30);
+    private static final long   POLL_NANOS      = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ReplicationTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if a socket cannot be used
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final Path directory;
+        directory = Files.createTempDirectory("replication");
+
+        try
+        {
+            snapshotAndStreamConverge(directory.resolve("converge.sock"));
+            malformedFramesEndTheConnection(directory.resolve("malformed.sock"));
+            closeReturnsWithAStalledFollower(directory.resolve("stalled.sock"));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (final Path file : files.toList())
+                {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * A follower that joins before the changes and one that joins half way
+     * through both end up with every account's balance, state and closing date.
+     *
+     * @param socket the socket file
+     */
+    private static void snapshotAndStreamConverge(final Path socket)
+    {
+        final BankAccount[] accounts;
+        final ReplicationLeader leader;
+        final ReplicationFollower early;
+        final ReplicationFollower late;
+
+        accounts = BenchmarkAccounts.create(ACCOUNTS, INITIAL_BALANCE);
+        leader   = new ReplicationLeader(UnixDomainSocketAddress.of(socket), MAX_BATCH_SIZE, MAX_PENDING);
+
+        for (final BankAccount account : accounts)
+        {
+            account.setListener(leader);
+            leader.add(account);
+        }
+
+        early = new ReplicationFollower(leader.getAddress());
+        awaitFollowers(leader, 1);
+        deposit(accounts, DEPOSITS / 2);
+
+        late = new ReplicationFollower(leader.getAddress());
+        awaitFollowers(leader, 2);
+        deposit(accounts, DEPOSITS / 2);
+
+        for (int i = 0; i < ACCOUNTS; i += FREEZE_STRIDE)
+        {
+            accounts[i].freeze();
+        }
+
+        for (int i = 0; i < ACCOUNTS; i += CLOSE_STRIDE)
+        {
+            accounts[i].close(Date.of(Date.CURRENT_YEAR, Date.DECEMBER, 31));
+        }
+
+        awaitCaughtUp(leader);
+
+        for (final ReplicationFollower follower : new ReplicationFollower[] {early, late})
+        {
+            TestSupport.checkEquals(ACCOUNTS, follower.getAccountCount(), "accounts replicated");
+            TestSupport.checkEquals(leader.getSequence(), follower.getAppliedSequence(), "applied sequence");
+
+            for (final BankAccount account : accounts)
+            {
+                TestSupport.checkEquals(account.getDetails(), follower.getDetails(account.getAccountNumber()),
+                                        "details of " + account.getAccountNumber());
+                TestSupport.checkEquals(account.getState(), follower.getState(account.getAccountNumber()),
+                                        "state of " + account.getAccountNumber());
+            }
+        }
+
+        leader.close();
+        early.close();
+        late.close();
+        TestSupport.passed("snapshot and stream converge");
+    }
+
+    /**
+     * A follower applies and acknowledges a well-formed frame, then stops at a
+     * frame holding a record with an unknown state, without applying it or
+     * acknowledging it. A frame whose length is out of range stops a follower
+     * before it reads any records.
+     *
+     * @param socket the socket file
+     * @throws IOException          if the fake leader's socket fails
+     * @throws InterruptedException if interrupted while waiting for a follower
+     */
+    private static void malformedFramesEndTheConnection(final Path socket) throws IOException, InterruptedException
+    {
+        final UnixDomainSocketAddress address;
+        address = UnixDomainSocketAddress.of(socket);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address))
+        {
+            final ReplicationFollower follower;
+            final ReplicationFollower shortFrame;
+
+            follower = new ReplicationFollower(address);
+
+            try (SocketChannel channel = server.accept())
+            {
+                final ByteBuffer acknowledgement;
+                acknowledgement = ByteBuffer.allocate(ReplicationProtocol.ACK_BYTES);
+
+                ReplicationProtocol.writeFully(channel, frame(GOOD_SEQUENCE, false));
+                ReplicationProtocol.readFully(channel, acknowledgement);
+                TestSupport.checkEquals(GOOD_SEQUENCE, acknowledgement.getLong(0), "acknowledged sequence");
+
+                ReplicationProtocol.writeFully(channel, frame(GOOD_SEQUENCE + 1, true));
+                follower.awaitDisconnect();
+
+                TestSupport.check(!follower.isConnected(), "disconnected by a bad record");
+                TestSupport.checkEquals(GOOD_SEQUENCE, follower.getAppliedSequence(), "bad frame not applied");
+                TestSupport.checkEquals(-1, channel.read(ByteBuffer.allocate(ReplicationProtocol.ACK_BYTES)),
+                                        "bad frame not acknowledged");
+            }
+
+            shortFrame = new ReplicationFollower(address);
+
+            try (SocketChannel channel = server.accept())
+            {
+                final ByteBuffer length;
+                length = ByteBuffer.allocate(ReplicationProtocol.LENGTH_BYTES).putInt(1).flip();
+
+                ReplicationProtocol.writeFully(channel, length);
+                shortFrame.awaitDisconnect();
+
+                TestSupport.check(!shortFrame.isConnected(), "disconnected by a bad length");
+                TestSupport.checkEquals(0L, shortFrame.getAppliedSequence(), "nothing applied");
+            }
+        }
+        TestSupport.passed("malformed frames end the connection");
+    }
+
+    /**
+     * With one follower reading and one connected but never reading, closing
+     * the leader drops the stalled follower instead of waiting for it, and
+     * disconnects both.
+     *
+     * @param socket the socket file
+     * @throws IOException if the stalled follower cannot connect or be drained
+     */
+    private static void closeReturnsWithAStalledFollower(final Path socket) throws IOException
+    {
+        final BankAccount[] accounts;
+        final ReplicationLeader leader;
+        final ReplicationFollower reading;
+        final long started;
+        final long closeNanos;
+
+        accounts = BenchmarkAccounts.create(ACCOUNTS, INITIAL_BALANCE);
+        leader   = new ReplicationLeader(UnixDomainSocketAddress.of(socket), MAX_BATCH_SIZE, LARGE_PENDING);
+
+        for (final BankAccount account : accounts)
+        {
+            account.setListener(leader);
+            leader.add(account);
+        }
+
+        reading = new ReplicationFollower(leader.getAddress());
+
+        try (SocketChannel stalled = SocketChannel.open(leader.getAddress()))
+        {
+            awaitFollowers(leader, 2);
+            deposit(accounts, STALL_DEPOSITS);
+
+            started = System.nanoTime();
+            leader.close();
+            closeNanos = System.nanoTime() - started;
+
+            TestSupport.check(closeNanos < TIMEOUT_NANOS, "close took " + TimeUnit.NANOSECONDS.toMillis(closeNanos) + " ms");
+            TestSupport.checkEquals(0, leader.getFollowerCount(), "followers after close");
+            TestSupport.check(leader.getSequence() > STALL_DEPOSITS, "every change sent");
+            drain(stalled);
+        }
+
+        awaitDisconnect(reading);
+        TestSupport.passed("close returns with a stalled follower");
+    }
+
+    /**
+     * Builds a frame of one change record.
+     *
+     * @param sequence the frame's sequence number
+     * @param badState whether the record names an unknown state; otherwise the frame has no records
+     * @return the frame, ready to write
+     */
+    private static ByteBuffer frame(final long sequence,
+                                    final boolean badState)
+    {
+        final ByteBuffer frame;
+        frame = ByteBuffer.allocate(ReplicationProtocol.FIRST_RECORD_OFFSET + ReplicationProtocol.MAX_RECORD_BYTES);
+
+        frame.position(ReplicationProtocol.FIRST_RECORD_OFFSET);
+
+        if (badState)
+        {
+            frame.put(ReplicationProtocol.CHANGE_RECORD);
+            BinaryCodec.putKey(frame, BinaryCodec.packKey(BenchmarkAccounts.accountNumber(0)));
+            frame.put(UNKNOWN_STATE);
+            frame.putDouble(INITIAL_BALANCE);
+            BinaryCodec.encodeDate(frame, null);
+            frame.putInt(ReplicationProtocol.RECORD_COUNT_OFFSET, 1);
+        }
+        else
+        {
+            frame.putInt(ReplicationProtocol.RECORD_COUNT_OFFSET, 0);
+        }
+
+        frame.putInt(0, frame.position() - ReplicationProtocol.LENGTH_BYTES);
+        frame.putLong(ReplicationProtocol.SEQUENCE_OFFSET, sequence);
+        frame.putLong(ReplicationProtocol.SENT_NANOS_OFFSET, System.nanoTime());
+        return frame.flip();
+    }
+
+    /**
+     * Reads what the leader wrote to a follower that never read, until the
+     * leader's end of the connection is closed.
+     *
+     * @param channel the follower's connection
+     * @throws IOException if the read fails
+     */
+    private static void drain(final SocketChannel channel) throws IOException
+    {
+        final ByteBuffer buffer;
+        buffer = ByteBuffer.allocate(ReplicationProtocol.MAX_RECORD_BYTES);
+
+        while (channel.read(buffer.clear()) >= 0)
+        {
+            // Discard; only the end of the stream matters
+        }
+    }
+
+    /**
+     * Deposits into the accounts in turn.
+     *
+     * @param accounts the accounts
+     * @param count    the number of deposits
+     */
+    private static void deposit(final BankAccount[] accounts,
+                                final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            accounts[i % accounts.length].deposit(DEPOSIT_AMOUNT);
+        }
+    }
+
+    /**
+     * Waits until a number of followers have received their snapshots.
+     *
+     * @param leader the leader
+     * @param count  the number of followers
+     */
+    private static void awaitFollowers(final ReplicationLeader leader,
+                                       final int count)
+    {
+        final long deadline;
+        deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        while (leader.getFollowerCount() < count)
+        {
+            TestSupport.check(System.nanoTime() < deadline, "followers joined");
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    /**
+     * Waits until every follower has acknowledged every change.
+     *
+     * @param leader the leader
+     */
+    private static void awaitCaughtUp(final ReplicationLeader leader)
+    {
+        final long deadline;
+        deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        while (leader.getMaxLag() > 0)
+        {
+            TestSupport.check(System.nanoTime() < deadline, "followers caught up");
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    /**
+     * Waits until a follower's connection ends.
+     *
+     * @param follower the follower
+     */
+    private static void awaitDisconnect(final ReplicationFollower follower)
+    {
+        final long deadline;
+        deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        while (follower.isConnected())
+        {
+            TestSupport.check(System.nanoTime() < deadline, "follower disconnected");
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+}
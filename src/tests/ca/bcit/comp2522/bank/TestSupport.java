@@ -0,0 +1,118 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Objects;
+
+/**
+ * Checks and fixtures shared by the test programs in this package.
+ *
+ * <p>Each test program is a class with a {@code main} method that runs its
+ * checks in turn and prints one line per passing check. The first failed
+ * check throws an {@link AssertionError}, which ends the program with a
+ * non-zero exit status.</p>
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class TestSupport
+{
+    private static final int BIRTH_YEAR   = 1980;
+    private static final int OPENING_YEAR = 2020;
+    private static final int PIN          = 1234;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private TestSupport()
+    {
+    }
+
+    /**
+     * Fails the running test unless a condition holds.
+     *
+     * @param condition the condition
+     * @param message   what was expected
+     * @throws AssertionError if the condition is false
+     */
+    static void check(final boolean condition,
+                      final String message)
+    {
+        if (!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fails the running test unless two values are equal.
+     *
+     * @param expected the expected value
+     * @param actual   the actual value
+     * @param what     what the values are
+     * @throws AssertionError if the values differ
+     */
+    static void checkEquals(final Object expected,
+                            final Object actual,
+                            final String what)
+    {
+        if (!Objects.equals(expected, actual))
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Fails the running test unless an action throws an exception of a given type.
+     *
+     * @param type   the exception type expected
+     * @param action the action
+     * @param what   what the action is
+     * @throws AssertionError if the action does not throw, or throws another type
+     */
+    static void checkThrows(final Class<? extends Throwable> type,
+                            final Runnable action,
+                            final String what)
+    {
+        try
+        {
+            action.run();
+        }
+        catch (final Throwable e)
+        {
+            if (type.isInstance(e))
+            {
+                return;
+            }
+            throw new AssertionError(what + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(what + ": expected " + type.getSimpleName());
+    }
+
+    /**
+     * Prints that a test passed.
+     *
+     * @param name the test's name
+     */
+    static void passed(final String name)
+    {
+        System.out.println("passed: " + name);
+    }
+
+    /**
+     * Creates an open account with its own client.
+     *
+     * @param id      the account number, also used as the client ID; six or seven characters
+     * @param balance the opening balance
+     * @return the account
+     */
+    static BankAccount openAccount(final String id,
+                                   final double balance)
+    {
+        final Date opened;
+        final BankClient client;
+
+        opened = Date.of(OPENING_YEAR, Date.JANUARY, 1);
+        client = new BankClient(new Name("Test", "Holder"), Date.of(BIRTH_YEAR, Date.JANUARY, 1), null, opened, id);
+
+        return new BankAccount(client, id, opened, null, balance, PIN);
+    }
+}
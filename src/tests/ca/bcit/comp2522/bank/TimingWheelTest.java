@@ -0,0 +1,230 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Tests that {@link TimingWheel} expires every timer on its deadline, including
+ * timers that cascade down from the upper levels.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class TimingWheelTest
+{
+    private static final long   START_TICK    = 1_000;
+    private static final long[] LEVEL_EDGES   = {1, 63, 64, 65, 4_095, 4_096, 4_097, 262_143, 262_144,
+                                                 262_145, 16_777_216, 1_073_741_824, (1L << 36) - 1};
+    private static final int    CASCADE_EDGE  = 5;
+    private static final int    RANDOM_TIMERS = 20_000;
+    private static final long   RANDOM_SPAN   = 1L << 24;
+    private static final int    MAX_STEP_BITS = 20;
+    private static final long   SEED          = 2522;
+
+    /**
+     * A timer that remembers its deadline and when it expired.
+     */
+    private static final class Timer extends TimingWheel.Entry
+    {
+        private final long deadline;
+        private long       expiredAt;
+
+        /**
+         * Constructs a {@code Timer}.
+         *
+         * @param deadline the tick the timer is due
+         */
+        private Timer(final long deadline)
+        {
+            this.deadline  = deadline;
+            this.expiredAt = -1;
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private TimingWheelTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        timersAtLevelEdgesExpireOnTime();
+        timersExpireOnTimeWithUnevenSteps();
+        cancelledTimersNeverExpire();
+        pastDeadlinesExpireOnTheNextTick();
+    }
+
+    /**
+     * Timers placed just either side of each level boundary expire on their
+     * deadline when the clock advances one busy tick at a time.
+     */
+    private static void timersAtLevelEdgesExpireOnTime()
+    {
+        final TimingWheel wheel;
+        final List<Timer> timers;
+        long now;
+
+        wheel  = new TimingWheel(START_TICK);
+        timers = new ArrayList<>();
+
+        for (final long delay : LEVEL_EDGES)
+        {
+            final Timer timer;
+            timer = new Timer(START_TICK + delay);
+
+            wheel.add(timer, timer.deadline);
+            timers.add(timer);
+        }
+
+        // Step to each deadline and one tick before it, so early or late expiry is caught
+        now = START_TICK;
+
+        for (final Timer timer : timers)
+        {
+            now = advance(wheel, now, timer.deadline - 1);
+            TestSupport.check(timer.expiredAt < 0, "timer due at " + timer.deadline + " expired early");
+
+            now = advance(wheel, now, timer.deadline);
+            TestSupport.checkEquals(timer.deadline, timer.expiredAt, "expiry of timer due at " + timer.deadline);
+        }
+
+        TestSupport.checkEquals(0, wheel.size(), "timers left");
+        TestSupport.passed("timers at level edges expire on time");
+    }
+
+    /**
+     * Random timers expire in the step that passes their deadline, however far
+     * each step jumps.
+     */
+    private static void timersExpireOnTimeWithUnevenSteps()
+    {
+        final SplittableRandom random;
+        final TimingWheel wheel;
+        final Timer[] timers;
+        long now;
+        long previous;
+
+        random = new SplittableRandom(SEED);
+        wheel  = new TimingWheel(START_TICK);
+        timers = new Timer[RANDOM_TIMERS];
+
+        for (int i = 0; i < RANDOM_TIMERS; i++)
+        {
+            timers[i] = new Timer(START_TICK + 1 + random.nextLong(RANDOM_SPAN));
+            wheel.add(timers[i], timers[i].deadline);
+        }
+
+        now      = START_TICK;
+        previous = START_TICK;
+
+        while (wheel.size() > 0)
+        {
+            final long target;
+            target = now + 1 + random.nextLong(1L << random.nextInt(MAX_STEP_BITS));
+
+            previous = now;
+            now      = advance(wheel, now, target);
+
+            for (final Timer timer : timers)
+            {
+                if (timer.expiredAt == now)
+                {
+                    TestSupport.check(timer.deadline > previous && timer.deadline <= now,
+                                      "timer due at " + timer.deadline + " expired in step " + previous + " to " + now);
+                }
+            }
+        }
+
+        for (final Timer timer : timers)
+        {
+            TestSupport.check(timer.expiredAt >= timer.deadline, "timer due at " + timer.deadline + " expired");
+        }
+        TestSupport.passed("timers expire on time with uneven steps");
+    }
+
+    /**
+     * A cancelled timer is removed at once and never expires.
+     */
+    private static void cancelledTimersNeverExpire()
+    {
+        final TimingWheel wheel;
+        final Timer kept;
+        final Timer cancelled;
+
+        wheel     = new TimingWheel(START_TICK);
+        kept      = new Timer(START_TICK + LEVEL_EDGES[CASCADE_EDGE]);
+        cancelled = new Timer(START_TICK + LEVEL_EDGES[CASCADE_EDGE]);
+
+        wheel.add(kept, kept.deadline);
+        wheel.add(cancelled, cancelled.deadline);
+
+        TestSupport.check(wheel.cancel(cancelled), "first cancel succeeds");
+        TestSupport.check(!wheel.cancel(cancelled), "second cancel does nothing");
+        TestSupport.checkEquals(1, wheel.size(), "timers left after cancel");
+
+        advance(wheel, START_TICK, kept.deadline);
+
+        TestSupport.checkEquals(kept.deadline, kept.expiredAt, "kept timer expiry");
+        TestSupport.checkEquals(-1L, cancelled.expiredAt, "cancelled timer expiry");
+        TestSupport.passed("cancelled timers never expire");
+    }
+
+    /**
+     * A deadline that is not after the current tick expires on the next tick.
+     */
+    private static void pastDeadlinesExpireOnTheNextTick()
+    {
+        final TimingWheel wheel;
+        final Timer timer;
+
+        wheel = new TimingWheel(START_TICK);
+        timer = new Timer(START_TICK - 1);
+
+        wheel.add(timer, timer.deadline);
+        advance(wheel, START_TICK, START_TICK + 1);
+
+        TestSupport.checkEquals(START_TICK + 1, timer.expiredAt, "expiry of a past deadline");
+        TestSupport.passed("past deadlines expire on the next tick");
+    }
+
+    /**
+     * Advances a wheel and records the tick at which each expired timer was returned.
+     *
+     * @param wheel  the wheel
+     * @param now    the wheel's current tick
+     * @param target the tick to advance to
+     * @return the wheel's new current tick
+     */
+    private static long advance(final TimingWheel wheel,
+                                final long now,
+                                final long target)
+    {
+        TimingWheel.Entry expired;
+
+        if (target <= now)
+        {
+            return now;
+        }
+
+        expired = wheel.advance(target);
+
+        while (expired != null)
+        {
+            final Timer timer;
+            timer = (Timer) expired;
+
+            TestSupport.check(timer.expiredAt < 0, "timer due at " + timer.deadline + " expired twice");
+            timer.expiredAt = target;
+            expired         = expired.nextExpired();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,192 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Tests that the {@code tryCreate} factories and {@code check} methods report
+ * the same rules as the throwing constructors, that failed results are shared,
+ * and that each thrown {@link ValidationException} is new and stackless.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class ValidationTest
+{
+    private static final String ACCOUNT_NUMBER = "123456";
+    private static final int    PIN            = 1234;
+    private static final int    FEBRUARY       = 2;
+    private static final int    APRIL          = 4;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ValidationTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        namesReportTheFailedRule();
+        datesReportTheFailedRule();
+        clientsAndAccountsReportTheFailedRule();
+        failedResultsAreShared();
+        exceptionsAreFreshAndStackless();
+        subsystemCodesFailWithTheirOwnMessage();
+    }
+
+    /**
+     * Blank, long and illegal names are refused with their own codes.
+     */
+    private static void namesReportTheFailedRule()
+    {
+        final String tooLong;
+        tooLong = "a".repeat(Name.MAX_NAME_LENGTH + 1);
+
+        TestSupport.checkEquals(ValidationCode.OK, Name.checkName("Ada", "Lovelace"), "valid name");
+        TestSupport.checkEquals(ValidationCode.BLANK_STRING, Name.checkName(" ", "Lovelace"), "blank first name");
+        TestSupport.checkEquals(ValidationCode.BLANK_STRING, Name.checkName("Ada", null), "missing last name");
+        TestSupport.checkEquals(ValidationCode.NAME_TOO_LONG, Name.checkName(tooLong, "Lovelace"), "long first name");
+        TestSupport.checkEquals(ValidationCode.NAME_ILLEGAL_SUBSTRING,
+                                Name.checkName("Ada", "x" + Name.ILLEGAL_SUBSTRING), "illegal substring");
+        TestSupport.checkEquals("Ada", Name.tryCreate("Ada", "Lovelace").getValue().getFirstName(), "created name");
+        TestSupport.checkEquals(ValidationCode.NAME_TOO_LONG, Name.tryCreate("Ada", tooLong).getCode(), "tryCreate code");
+        TestSupport.checkThrows(ValidationException.class, () -> new Name("Ada", tooLong), "constructor");
+        TestSupport.passed("names report the failed rule");
+    }
+
+    /**
+     * Out-of-range years and months and impossible days are refused with their own codes.
+     */
+    private static void datesReportTheFailedRule()
+    {
+        TestSupport.checkEquals(ValidationCode.OK, Date.checkDate(2024, FEBRUARY, 29), "leap day");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, Date.checkDate(2023, FEBRUARY, 29), "non-leap day");
+        TestSupport.checkEquals(ValidationCode.MONTH_OUT_OF_RANGE, Date.checkDate(2020, 13, 1), "month 13");
+        TestSupport.checkEquals(ValidationCode.YEAR_OUT_OF_RANGE,
+                                Date.checkDate(Date.MIN_YEAR - 1, Date.JANUARY, 1), "year before the range");
+        TestSupport.checkEquals(ValidationCode.DAY_INVALID, Date.tryCreate(2020, APRIL, 31).getCode(), "tryCreate code");
+        TestSupport.checkEquals(Date.of(2020, APRIL, 30), Date.tryCreate(2020, APRIL, 30).getValue(), "created date");
+        TestSupport.checkThrows(ValidationException.class, () -> Date.of(2020, APRIL, 31), "Date.of");
+        TestSupport.passed("dates report the failed rule");
+    }
+
+    /**
+     * Client and account factories refuse missing or malformed details with their own codes.
+     */
+    private static void clientsAndAccountsReportTheFailedRule()
+    {
+        final Name name;
+        final Date opened;
+        final BankClient client;
+
+        name   = new Name("Ada", "Lovelace");
+        opened = Date.of(2020, Date.JANUARY, 1);
+        client = BankClient.tryCreate(name, Date.of(1980, Date.JANUARY, 1), null, opened, "abc123").getValue();
+
+        TestSupport.check(client != null, "client created");
+        TestSupport.checkEquals(ValidationCode.CLIENT_ID_LENGTH,
+                                BankClient.tryCreate(name, opened, null, opened, "abc").getCode(), "short client ID");
+        TestSupport.checkEquals(ValidationCode.NAME_NULL,
+                                BankClient.tryCreate(null, opened, null, opened, "abc123").getCode(), "missing name");
+        TestSupport.checkEquals(ValidationCode.OK,
+                                BankAccount.tryCreate(client, ACCOUNT_NUMBER, opened, null, 0, PIN).getCode(), "valid account");
+        TestSupport.checkEquals(ValidationCode.CLIENT_NULL,
+                                BankAccount.tryCreate(null, ACCOUNT_NUMBER, opened, null, 0, PIN).getCode(), "missing client");
+        TestSupport.checkEquals(ValidationCode.ACCOUNT_NUMBER_LENGTH,
+                                BankAccount.tryCreate(client, "12345", opened, null, 0, PIN).getCode(), "short account number");
+        TestSupport.checkEquals(ValidationCode.NEGATIVE_INITIAL_BALANCE,
+                                BankAccount.tryCreate(client, ACCOUNT_NUMBER, opened, null, -1, PIN).getCode(), "negative balance");
+        TestSupport.checkEquals(ValidationCode.BLANK_STRING, Main.checkString("\t"), "blank string");
+        TestSupport.passed("clients and accounts report the failed rule");
+    }
+
+    /**
+     * Two failures with the same code return the same result object.
+     */
+    private static void failedResultsAreShared()
+    {
+        TestSupport.check(Name.tryCreate(null, "Lovelace") == Name.tryCreate("Ada", " "), "shared core result");
+        TestSupport.check(ValidationResult.failure(ListingCode.CURSOR_INVALID) == ValidationResult.failure(ListingCode.CURSOR_INVALID),
+                          "shared subsystem result");
+        TestSupport.check(ValidationResult.failure(ListingCode.CURSOR_INVALID) != ValidationResult.failure(ListingCode.PAGE_SIZE_INVALID),
+                          "one result per code");
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> ValidationResult.failure(ValidationCode.OK), "failure with OK");
+        TestSupport.passed("failed results are shared");
+    }
+
+    /**
+     * Each throw creates a new exception, carrying its code, without a stack trace.
+     */
+    private static void exceptionsAreFreshAndStackless()
+    {
+        final ValidationException first;
+        final ValidationException second;
+
+        first  = thrownBy(() -> new Name(null, "Lovelace"));
+        second = thrownBy(() -> new Name(null, "Lovelace"));
+
+        TestSupport.check(first != second, "a new exception per throw");
+        TestSupport.checkEquals(ValidationCode.BLANK_STRING, first.getCode(), "exception code");
+        TestSupport.checkEquals(ValidationCode.BLANK_STRING.getMessage(), first.getMessage(), "exception message");
+        TestSupport.checkEquals(0, first.getStackTrace().length, "stack trace length");
+
+        first.addSuppressed(new IllegalStateException());
+        TestSupport.checkEquals(0, second.getSuppressed().length, "suppressed exceptions of another throw");
+        TestSupport.check(ValidationCode.OK.exception() == null, "no exception for OK");
+        ValidationCode.OK.throwIfFailed();
+        TestSupport.passed("exceptions are fresh and stackless");
+    }
+
+    /**
+     * Codes kept by subsystems built on accounts are failures that throw with their message.
+     */
+    private static void subsystemCodesFailWithTheirOwnMessage()
+    {
+        final ResultCode[][] groups;
+        groups = new ResultCode[][]
+        {
+            AuthorizationCode.values(),
+            PaymentCode.values(),
+            ListingCode.values(),
+            FxCode.values(),
+            IdempotencyCode.values()
+        };
+
+        for (final ResultCode[] codes : groups)
+        {
+            for (final ResultCode code : codes)
+            {
+                final ValidationException thrown;
+                thrown = thrownBy(code::throwIfFailed);
+
+                TestSupport.check(!code.isOk(), code + " is a failure");
+                TestSupport.checkEquals(code, thrown.getCode(), "code of " + code);
+                TestSupport.checkEquals(code.getMessage(), thrown.getMessage(), "message of " + code);
+            }
+        }
+        TestSupport.passed("subsystem codes fail with their own message");
+    }
+
+    /**
+     * Runs an action that must throw a {@link ValidationException}.
+     *
+     * @param action the action
+     * @return the exception it threw
+     * @throws AssertionError if it threw nothing
+     */
+    private static ValidationException thrownBy(final Runnable action)
+    {
+        try
+        {
+            action.run();
+        }
+        catch (final ValidationException e)
+        {
+            return e;
+        }
+        throw new AssertionError("expected a ValidationException");
+    }
+}
@@ -0,0 +1,173 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that {@link VelocityCheck} limits the number and total of withdrawals
+ * in its window, forgets withdrawals once the window has passed, and either
+ * rejects or only flags withdrawals over the limit.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class VelocityCheckTest
+{
+    private static final int    ACCOUNTS      = 4;
+    private static final int    BUCKETS       = 8;
+    private static final int    MAX_COUNT     = 3;
+    private static final double MAX_SUM       = 500.0;
+    private static final double BALANCE       = 10_000.0;
+    private static final long   LONG_WINDOW   = TimeUnit.HOURS.toNanos(1);
+    private static final long   SHORT_WINDOW  = TimeUnit.MILLISECONDS.toNanos(40);
+    private static final long   EXPIRY_MILLIS = 100;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private VelocityCheckTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the window to pass
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        countAndSumAreLimited();
+        flaggingAllowsButCounts();
+        windowForgetsOldWithdrawals();
+        untrackedAccountsAreNotLimited();
+        accountsRefuseWithTheirOwnCode();
+        settingsAreChecked();
+    }
+
+    /**
+     * A withdrawal is refused once it would take the window's count or sum over
+     * the limit, and refused withdrawals are not counted.
+     */
+    private static void countAndSumAreLimited()
+    {
+        final VelocityCheck check;
+        final BankAccount account;
+        final BankAccount other;
+
+        check   = new VelocityCheck(ACCOUNTS, LONG_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.REJECT);
+        account = TestSupport.openAccount("100001", BALANCE);
+        other   = TestSupport.openAccount("100002", BALANCE);
+
+        for (int i = 0; i < MAX_COUNT; i++)
+        {
+            TestSupport.check(check.allowWithdrawal(account, 10), "withdrawal " + i);
+        }
+
+        TestSupport.check(!check.allowWithdrawal(account, 10), "one withdrawal too many");
+        TestSupport.check(!check.allowWithdrawal(account, 10), "refusals are not counted");
+        TestSupport.check(check.allowWithdrawal(other, MAX_SUM), "another account's limit is its own");
+        TestSupport.check(!check.allowWithdrawal(TestSupport.openAccount("100003", BALANCE), MAX_SUM + 0.01), "over the sum");
+        TestSupport.checkEquals(0L, check.getFlaggedCount(), "flagged");
+        TestSupport.passed("count and sum are limited");
+    }
+
+    /**
+     * In flag mode every withdrawal is allowed and those over the limit are counted.
+     */
+    private static void flaggingAllowsButCounts()
+    {
+        final VelocityCheck check;
+        final BankAccount account;
+
+        check   = new VelocityCheck(ACCOUNTS, LONG_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.FLAG);
+        account = TestSupport.openAccount("100001", BALANCE);
+
+        for (int i = 0; i < MAX_COUNT + 2; i++)
+        {
+            TestSupport.check(check.allowWithdrawal(account, 10), "withdrawal " + i);
+        }
+
+        TestSupport.checkEquals(2L, check.getFlaggedCount(), "flagged");
+        TestSupport.passed("flagging allows but counts");
+    }
+
+    /**
+     * Withdrawals older than the window no longer count against the limit.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void windowForgetsOldWithdrawals() throws InterruptedException
+    {
+        final VelocityCheck check;
+        final BankAccount account;
+
+        check   = new VelocityCheck(ACCOUNTS, SHORT_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.REJECT);
+        account = TestSupport.openAccount("100001", BALANCE);
+
+        for (int i = 0; i < MAX_COUNT; i++)
+        {
+            check.allowWithdrawal(account, 10);
+        }
+
+        TestSupport.check(!check.allowWithdrawal(account, 10), "limit reached");
+        Thread.sleep(EXPIRY_MILLIS);
+        TestSupport.check(check.allowWithdrawal(account, 10), "allowed once the window has passed");
+        TestSupport.passed("window forgets old withdrawals");
+    }
+
+    /**
+     * Accounts beyond the tracked capacity are never limited.
+     */
+    private static void untrackedAccountsAreNotLimited()
+    {
+        final VelocityCheck check;
+        final BankAccount untracked;
+
+        check = new VelocityCheck(1, LONG_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.REJECT);
+        check.allowWithdrawal(TestSupport.openAccount("100001", BALANCE), 10);
+        untracked = TestSupport.openAccount("100002", BALANCE);
+
+        for (int i = 0; i < MAX_COUNT * 2; i++)
+        {
+            TestSupport.check(check.allowWithdrawal(untracked, MAX_SUM), "untracked withdrawal " + i);
+        }
+        TestSupport.passed("untracked accounts are not limited");
+    }
+
+    /**
+     * An account with the check set refuses the withdrawal with
+     * {@link ValidationCode#VELOCITY_LIMIT_EXCEEDED} and keeps its balance.
+     */
+    private static void accountsRefuseWithTheirOwnCode()
+    {
+        final BankAccount account;
+        account = TestSupport.openAccount("100001", BALANCE);
+
+        account.setWithdrawalCheck(new VelocityCheck(ACCOUNTS, LONG_WINDOW, BUCKETS, 1, MAX_SUM, VelocityCheck.Action.REJECT));
+
+        TestSupport.checkEquals(ValidationCode.OK, account.tryWithdraw(10), "first withdrawal");
+        TestSupport.checkEquals(ValidationCode.VELOCITY_LIMIT_EXCEEDED, account.tryWithdraw(10), "second withdrawal");
+        TestSupport.checkEquals(BALANCE - 10, account.getBalance(), "balance");
+
+        account.setWithdrawalCheck(null);
+        TestSupport.checkEquals(ValidationCode.OK, account.tryWithdraw(10), "check removed");
+        TestSupport.passed("accounts refuse with their own code");
+    }
+
+    /**
+     * Settings that cannot describe a window are refused.
+     */
+    private static void settingsAreChecked()
+    {
+        TestSupport.checkThrows(IllegalArgumentException.class,
+                                () -> new VelocityCheck(0, LONG_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.REJECT),
+                                "no accounts");
+        TestSupport.checkThrows(IllegalArgumentException.class,
+                                () -> new VelocityCheck(ACCOUNTS, BUCKETS - 1, BUCKETS, MAX_COUNT, MAX_SUM, VelocityCheck.Action.REJECT),
+                                "window shorter than its buckets");
+        TestSupport.checkThrows(IllegalArgumentException.class,
+                                () -> new VelocityCheck(ACCOUNTS, LONG_WINDOW, BUCKETS, MAX_COUNT, MAX_SUM, null),
+                                "no action");
+        TestSupport.passed("settings are checked");
+    }
+}
@@ -0,0 +1,247 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Tests that {@link VersionClock} snapshots see every attached account at one
+ * point in time while changes continue.
+ *
+ * @author Ryan Fiset, Larry Lin
+ * @version 1.0
+ */
+final class VersionClockTest
+{
+    private static final double   OPENING_BALANCE = 100.0;
+    private static final double   DEPOSIT         = 50.0;
+    private static final int      PAIRED_CHANGES  = 200_000;
+    private static final int      CLOSING_YEAR    = 2024;
+    private static final double   EUR_RATE        = 2.0;
+    private static final double   NEW_EUR_RATE    = 3.0;
+    private static final Currency USD             = Currency.getInstance("USD");
+    private static final Currency EUR             = Currency.getInstance("EUR");
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private VersionClockTest()
+    {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args unused
+     * @throws Exception if a test cannot run
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        snapshotKeepsBalance();
+        snapshotKeepsClosingDate();
+        snapshotSeesChangesInOrder();
+        snapshotRefusesForeignAndClosedReads();
+        totalBalanceUsesOneSetOfRates();
+    }
+
+    /**
+     * A snapshot keeps the balance it opened with, and a later one sees the change.
+     */
+    private static void snapshotKeepsBalance()
+    {
+        final VersionClock clock;
+        final BankAccount account;
+
+        clock   = new VersionClock();
+        account = TestSupport.openAccount("100001", OPENING_BALANCE);
+        account.setVersionClock(clock);
+
+        try (VersionClock.Snapshot before = clock.openSnapshot())
+        {
+            account.deposit(DEPOSIT);
+
+            try (VersionClock.Snapshot after = clock.openSnapshot())
+            {
+                account.deposit(DEPOSIT);
+
+                TestSupport.checkEquals(OPENING_BALANCE, before.balanceOf(account), "balance before");
+                TestSupport.checkEquals(OPENING_BALANCE + DEPOSIT, after.balanceOf(account), "balance after");
+                TestSupport.checkEquals(OPENING_BALANCE + 2 * DEPOSIT, account.getBalance(), "current balance");
+            }
+
+            TestSupport.checkEquals(OPENING_BALANCE, before.balanceOf(account), "balance before, once the later snapshot closed");
+        }
+        TestSupport.passed("snapshot keeps balance");
+    }
+
+    /**
+     * A snapshot keeps reporting an account as open after it closes.
+     */
+    private static void snapshotKeepsClosingDate()
+    {
+        final VersionClock clock;
+        final BankAccount account;
+        final String openDetails;
+
+        clock   = new VersionClock();
+        account = TestSupport.openAccount("100002", OPENING_BALANCE);
+        account.setVersionClock(clock);
+
+        openDetails = account.getDetails();
+
+        try (VersionClock.Snapshot snapshot = clock.openSnapshot())
+        {
+            account.close(Date.of(CLOSING_YEAR, Date.JANUARY, 1));
+
+            TestSupport.checkEquals(openDetails, snapshot.detailsOf(account), "details as of the snapshot");
+            TestSupport.check(!account.getDetails().equals(openDetails), "current details show the closing date");
+        }
+        TestSupport.passed("snapshot keeps closing date");
+    }
+
+    /**
+     * A writer deposits into one account and then another. Every snapshot
+     * must see the second deposit only if it also sees the first, and must
+     * give the same answer when read again.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    private static void snapshotSeesChangesInOrder() throws InterruptedException
+    {
+        final VersionClock clock;
+        final BankAccount first;
+        final BankAccount second;
+        final Thread writer;
+        int snapshots;
+
+        clock  = new VersionClock();
+        first  = TestSupport.openAccount("100003", 0);
+        second = TestSupport.openAccount("100004", 0);
+
+        first.setVersionClock(clock);
+        second.setVersionClock(clock);
+
+        writer = new Thread(() ->
+        {
+            for (int i = 0; i < PAIRED_CHANGES; i++)
+            {
+                first.deposit(1);
+                second.deposit(1);
+            }
+        });
+
+        writer.start();
+        snapshots = 0;
+
+        while (writer.isAlive())
+        {
+            try (VersionClock.Snapshot snapshot = clock.openSnapshot())
+            {
+                final double secondBalance;
+                final double firstBalance;
+
+                // Read in the opposite order to the writer, so a torn view would show as second > first
+                secondBalance = snapshot.balanceOf(second);
+                firstBalance  = snapshot.balanceOf(first);
+
+                TestSupport.check(firstBalance == secondBalance || firstBalance == secondBalance + 1,
+                                  "snapshot saw " + firstBalance + " and " + secondBalance);
+                TestSupport.checkEquals(secondBalance, snapshot.balanceOf(second), "second balance read again");
+                TestSupport.checkEquals(firstBalance, snapshot.balanceOf(first), "first balance read again");
+            }
+            snapshots++;
+        }
+
+        writer.join();
+
+        TestSupport.checkEquals((double) PAIRED_CHANGES, first.getBalance(), "first final balance");
+        TestSupport.checkEquals((double) PAIRED_CHANGES, second.getBalance(), "second final balance");
+        TestSupport.check(snapshots > 0, "at least one snapshot was taken");
+        TestSupport.passed("snapshot sees changes in order (" + snapshots + " snapshots)");
+    }
+
+    /**
+     * A snapshot refuses accounts attached to another clock, and all reads once closed.
+     */
+    private static void snapshotRefusesForeignAndClosedReads()
+    {
+        final VersionClock clock;
+        final BankAccount attached;
+        final BankAccount foreign;
+        final VersionClock.Snapshot snapshot;
+
+        clock    = new VersionClock();
+        attached = TestSupport.openAccount("100005", OPENING_BALANCE);
+        foreign  = TestSupport.openAccount("100006", OPENING_BALANCE);
+        attached.setVersionClock(clock);
+        foreign.setVersionClock(new VersionClock());
+
+        snapshot = clock.openSnapshot();
+
+        TestSupport.checkThrows(IllegalArgumentException.class, () -> snapshot.balanceOf(foreign), "foreign account");
+
+        snapshot.close();
+
+        TestSupport.checkThrows(IllegalStateException.class, () -> snapshot.balanceOf(attached), "closed snapshot");
+        TestSupport.passed("snapshot refuses foreign and closed reads");
+    }
+
+    /**
+     * A total converts every account at the rates in force when it starts,
+     * and a fixed rate table ignores later loads.
+     *
+     * @throws IOException if a rate file cannot be written or read
+     */
+    private static void totalBalanceUsesOneSetOfRates() throws IOException
+    {
+        final VersionClock clock;
+        final BankAccount dollars;
+        final BankAccount euros;
+        final FxRateTable rates;
+        final FxRateTable fixedRates;
+        final Path rateFile;
+
+        clock    = new VersionClock();
+        dollars  = TestSupport.openAccount("100007", OPENING_BALANCE);
+        euros    = new BankAccount(dollars.getClient(), "100008", dollars.getAccountOpened(), null,
+                                   OPENING_BALANCE, 0, EUR);
+        rates    = new FxRateTable();
+        rateFile = Files.createTempFile("rates", ".txt");
+
+        dollars.setVersionClock(clock);
+        euros.setVersionClock(clock);
+
+        try
+        {
+            Files.writeString(rateFile, "EUR " + EUR_RATE + "\n", StandardCharsets.UTF_8);
+            rates.load(rateFile);
+            fixedRates = rates.snapshot();
+
+            Files.writeString(rateFile, "EUR " + NEW_EUR_RATE + "\n", StandardCharsets.UTF_8);
+            rates.load(rateFile);
+        }
+        finally
+        {
+            Files.delete(rateFile);
+        }
+
+        try (VersionClock.Snapshot snapshot = clock.openSnapshot())
+        {
+            final List<BankAccount> accounts;
+            accounts = List.of(dollars, euros);
+
+            euros.deposit(DEPOSIT);
+
+            TestSupport.checkEquals(OPENING_BALANCE + OPENING_BALANCE * EUR_RATE,
+                                    snapshot.totalBalance(accounts, USD, fixedRates),
+                                    "total at the fixed rates");
+            TestSupport.checkEquals(OPENING_BALANCE + OPENING_BALANCE * NEW_EUR_RATE,
+                                    snapshot.totalBalance(accounts, USD, rates),
+                                    "total at the current rates");
+        }
+        TestSupport.passed("total balance uses one set of rates");
+    }
+}